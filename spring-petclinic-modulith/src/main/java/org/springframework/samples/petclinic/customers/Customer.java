@@ -15,11 +15,13 @@
  */
 package org.springframework.samples.petclinic.customers;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotBlank;
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.SQLOrder;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.customers.internal.Pet;
 
@@ -30,6 +32,10 @@ import java.util.*;
  * 
  * This is a public API entity that can be accessed by other modules.
  * 
+ * All associations are lazy. Use cases pick a fetch plan explicitly:
+ * the plain entity is the "owner summary", while {@link #WITH_PETS}
+ * loads the owner together with its pets and their types in one statement.
+ * 
  * @author Ken Krebs
  * @author Juergen Hoeller
  * @author Sam Brannen
@@ -39,10 +45,22 @@ import java.util.*;
  */
 @Entity
 @Table(name = "owners")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "owners")
+@NamedEntityGraph(
+    name = Customer.WITH_PETS,
+    attributeNodes = @NamedAttributeNode(value = "pets", subgraph = "pets"),
+    subgraphs = @NamedSubgraph(name = "pets", attributeNodes = @NamedAttributeNode("type"))
+)
 public class Customer {
 
+    /**
+     * Fetch plan "owner with pets": the owner, its pets and each pet's type.
+     */
+    public static final String WITH_PETS = "Customer.withPets";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "owners_seq")
+    @SequenceGenerator(name = "owners_seq", sequenceName = "owners_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "first_name")
@@ -66,26 +84,68 @@ public class Customer {
     @Digits(fraction = 0, integer = 12)
     private String telephone;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "owner")
-    private Set<Pet> pets;
-
-    protected Set<Pet> getPetsInternal() {
+    /**
+     * Optimistic lock version, incremented on every update. Changes to the pets do not
+     * increment it, so the owner's ETag also covers the pets' versions.
+     */
+    @Version
+    @JsonIgnore
+    private Integer version;
+
+    /**
+     * Order in which pets are kept: by name, ignoring case, then by id, new pets last.
+     * Matches the {@link SQLOrder} the collection is loaded with.
+     */
+    private static final Comparator<Pet> PET_ORDER =
+        Comparator.comparing(Pet::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Pet::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "owner")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "owners-pets")
+    @SQLOrder("lower(name), id")
+    private List<Pet> pets;
+
+    protected List<Pet> getPetsInternal() {
         if (this.pets == null) {
-            this.pets = new HashSet<>();
+            this.pets = new ArrayList<>();
         }
         return this.pets;
     }
 
+    /**
+     * The owner's pets ordered by name.
+     *
+     * The list is loaded in this order and kept sorted by {@link #addPet} and {@link #removePet},
+     * so this returns a read-only view instead of a sorted copy.
+     */
     public List<Pet> getPets() {
-        final List<Pet> sortedPets = new ArrayList<>(getPetsInternal());
-        PropertyComparator.sort(sortedPets, new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedPets);
+        return Collections.unmodifiableList(getPetsInternal());
     }
 
+    /**
+     * Add a pet in name order. Set the pet's name before adding it.
+     */
     public void addPet(Pet pet) {
-        getPetsInternal().add(pet);
+        List<Pet> pets = getPetsInternal();
+        int index = Collections.binarySearch(pets, pet, PET_ORDER);
+        pets.add(index < 0 ? -index - 1 : index, pet);
         pet.setOwner(this);
     }
+
+    /**
+     * IDs of the owner's pets, in pet order. Lets other modules refer to the pets
+     * without depending on the pet entity.
+     */
+    @JsonIgnore
+    public List<Integer> getPetIds() {
+        return getPetsInternal().stream().map(Pet::getId).toList();
+    }
+
+    public void removePet(Pet pet) {
+        if (getPetsInternal().remove(pet)) {
+            pet.setOwner(null);
+        }
+    }
     
     public String getFullName() {
         return this.firstName + " " + this.lastName;
@@ -127,6 +187,10 @@ public class Customer {
         return this.telephone;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
     public void setId(Integer id) {
         this.id = id;
     }
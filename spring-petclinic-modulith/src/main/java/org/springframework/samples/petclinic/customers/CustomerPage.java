@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers;
+
+import java.util.List;
+
+/**
+ * One keyset-paginated slice of customers, ordered by last name and then by ID.
+ *
+ * This is a public API type returned by {@link CustomerService#findPage}.
+ *
+ * @param customers the customers on this page, in (lastName, id) order
+ * @param nextCursor opaque token for the following page, or {@code null} on the last page
+ * @param totalCount total number of customers, or {@code null} when it was not requested
+ *
+ * @author PetClinic Team
+ */
+public record CustomerPage(List<Customer> customers, String nextCursor, Long totalCount) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
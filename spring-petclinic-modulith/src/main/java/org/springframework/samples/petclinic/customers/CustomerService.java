@@ -15,8 +15,10 @@
  */
 package org.springframework.samples.petclinic.customers;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Public CustomerService interface that other modules can depend on.
@@ -34,13 +36,60 @@ public interface CustomerService {
      * @return the customer if found
      */
     Optional<Customer> findById(Integer customerId);
+
+    /**
+     * Find the given customers, with their pets, in one round-trip.
+     *
+     * @param customerIds the customer IDs
+     * @return the customers found, in no particular order
+     */
+    List<Customer> findAllById(Collection<Integer> customerIds);
+
+    /**
+     * Find the version of a customer: an opaque tag that changes whenever the customer
+     * or one of its pets changes. Looked up without loading the customer.
+     *
+     * @param customerId the customer ID
+     * @return the version if the customer exists
+     */
+    Optional<String> findVersion(Integer customerId);
+
+    /**
+     * Check whether a pet exists, without loading it or its owner.
+     * @param petId the pet ID
+     * @return whether the pet exists
+     */
+    boolean petExists(Integer petId);
+
+    /**
+     * Check which of the given pets exist, in one query and without loading them.
+     * @param petIds the pet IDs
+     * @return the IDs of the pets that exist
+     */
+    Set<Integer> existingPetIds(Collection<Integer> petIds);
     
     /**
      * Find all customers.
      * 
      * @return list of all customers
+     * @deprecated loads every customer and their pets in one go; use {@link #findPage} instead
      */
+    @Deprecated
     List<Customer> findAll();
+
+    /**
+     * Find one page of customers ordered by last name and then by ID.
+     *
+     * Uses keyset pagination, so the cost of a page does not depend on how deep
+     * into the listing it is.
+     *
+     * @param cursor the {@link CustomerPage#nextCursor()} of the previous page, or {@code null} for the first page
+     * @param size the requested page size, clamped to a sane maximum
+     * @param includeTotal whether to also count all customers
+     * @return the requested page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    CustomerPage findPage(String cursor, int size, boolean includeTotal);
     
     /**
      * Create a new customer.
@@ -49,6 +98,17 @@ public interface CustomerService {
      * @return the created customer with ID
      */
     Customer save(Customer customer);
+
+    /**
+     * Create customers in bulk, together with the pets added to them.
+     * 
+     * All customers are stored in one transaction, with batched inserts. Publishes a single
+     * {@link CustomersImported} event instead of one event per customer and pet.
+     * 
+     * @param customers the new customers, with their pets
+     * @return the created customers with IDs
+     */
+    List<Customer> saveAll(List<Customer> customers);
     
     /**
      * Update an existing customer.
@@ -59,6 +119,17 @@ public interface CustomerService {
      */
     Customer update(Integer customerId, Customer customer);
 
+    /**
+     * Update an existing customer, provided it is still at the version the caller read.
+     *
+     * @param customerId the customer ID
+     * @param customer the customer data to update
+     * @param expectedVersion the {@link #findVersion version} the update is based on, or {@code null} for no check
+     * @return the updated customer
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the customer was changed since
+     */
+    Customer update(Integer customerId, Customer customer, String expectedVersion);
+
     /**
      * Delete a customer by ID.
      *
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers;
+
+import org.jmolecules.event.types.DomainEvent;
+
+/**
+ * Domain event published when a pet's details are changed.
+ *
+ * @param petId The ID of the updated pet
+ * @param customerId The ID of the customer who owns the pet
+ * @param petName The name of the pet
+ *
+ * @author PetClinic Team
+ */
+public record PetUpdated(Integer petId, Integer customerId, String petName) implements DomainEvent {
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the (lastName, id) ordering of customers.
+ *
+ * Clients only ever see the encoded form, which is an opaque URL-safe token.
+ *
+ * @author PetClinic Team
+ */
+record CustomerCursor(String lastName, Integer id) {
+
+    private static final char SEPARATOR = ':';
+
+    String encode() {
+        String raw = id + String.valueOf(SEPARATOR) + lastName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CustomerCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new InvalidRequestException("Invalid owner cursor: " + token);
+            }
+            return new CustomerCursor(raw.substring(separator + 1), Integer.valueOf(raw.substring(0, separator)));
+        } catch (IllegalArgumentException ex) {
+            // also covers NumberFormatException and bad Base64 input
+            throw new InvalidRequestException("Invalid owner cursor: " + token, ex);
+        }
+    }
+}
@@ -15,9 +15,24 @@
  */
 package org.springframework.samples.petclinic.customers.internal;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.customers.Customer;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 /**
  * Internal CustomerRepository for database access.
  * 
@@ -31,4 +46,70 @@ import org.springframework.samples.petclinic.customers.Customer;
  * @author Maciej Szarlinski
  */
 public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+
+    /**
+     * Load all owners with their pets and pet types in a single statement.
+     */
+    @Override
+    @EntityGraph(Customer.WITH_PETS)
+    List<Customer> findAll();
+
+    /**
+     * Load one owner with its pets and pet types in a single statement.
+     * Cacheable, so with the second-level cache it needs no statement at all.
+     */
+    @EntityGraph(Customer.WITH_PETS)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<Customer> findWithPetsById(Integer id);
+
+    /**
+     * Load the given owners with their pets and pet types in a single statement.
+     * Used to complete a page of owners without a per-owner query.
+     */
+    @EntityGraph(Customer.WITH_PETS)
+    List<Customer> findWithPetsByIdIn(Collection<Integer> ids);
+
+    /**
+     * Version of one owner and its pets, aggregated in the database without loading any entity.
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.customers.internal.OwnerVersion("
+        + "c.version, count(p), coalesce(sum(p.id), 0L), coalesce(sum(p.version), 0L)) "
+        + "FROM Customer c LEFT JOIN c.pets p WHERE c.id = :id GROUP BY c.id, c.version")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<OwnerVersion> findVersionById(@Param("id") Integer id);
+
+    /**
+     * Lightweight view of an owner's name, without the pets association.
+     */
+    interface OwnerName {
+        Integer getId();
+        String getFirstName();
+        String getLastName();
+    }
+
+    /**
+     * Stream the names of all owners with a forward-only cursor.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @Query("SELECT c.id AS id, c.firstName AS firstName, c.lastName AS lastName FROM Customer c")
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    Stream<OwnerName> streamAllNames();
+
+    /**
+     * First page of the (lastName, id) keyset ordering.
+     */
+    @Query("SELECT c FROM Customer c ORDER BY c.lastName, c.id")
+    List<Customer> findFirstPage(Limit limit);
+
+    /**
+     * Page of the (lastName, id) keyset ordering that starts right after the given position.
+     * Served by the owners_last_name index instead of an OFFSET scan.
+     */
+    @Query("SELECT c FROM Customer c "
+        + "WHERE c.lastName > :lastName OR (c.lastName = :lastName AND c.id > :id) "
+        + "ORDER BY c.lastName, c.id")
+    List<Customer> findPageAfter(@Param("lastName") String lastName, @Param("id") Integer id, Limit limit);
 }
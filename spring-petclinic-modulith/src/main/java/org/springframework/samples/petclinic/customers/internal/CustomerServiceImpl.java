@@ -17,18 +17,27 @@ package org.springframework.samples.petclinic.customers.internal;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.samples.petclinic.customers.Customer;
 import org.springframework.samples.petclinic.customers.CustomerCreated;
 import org.springframework.samples.petclinic.customers.CustomerDeleted;
+import org.springframework.samples.petclinic.customers.CustomerPage;
 import org.springframework.samples.petclinic.customers.CustomerService;
 import org.springframework.samples.petclinic.customers.CustomerUpdated;
+import org.springframework.samples.petclinic.customers.CustomersImported;
+import org.springframework.samples.petclinic.customers.PetAdded;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Internal implementation of CustomerService.
@@ -42,20 +51,54 @@ import java.util.Optional;
 class CustomerServiceImpl implements CustomerService {
     
     private static final Logger log = LoggerFactory.getLogger(CustomerServiceImpl.class);
+
+    static final int MAX_PAGE_SIZE = 100;
     
     private final CustomerRepository customerRepository;
+    private final PetRepository petRepository;
     private final ApplicationEventPublisher events;
     
-    CustomerServiceImpl(CustomerRepository customerRepository, ApplicationEventPublisher events) {
+    CustomerServiceImpl(CustomerRepository customerRepository, PetRepository petRepository,
+                        ApplicationEventPublisher events) {
         this.customerRepository = customerRepository;
+        this.petRepository = petRepository;
         this.events = events;
     }
     
+    /**
+     * Read-through cached; see {@link OwnerCacheInvalidator} for how entries are evicted.
+     */
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = OwnerCacheConfig.OWNERS_CACHE, sync = true)
     public Optional<Customer> findById(Integer customerId) {
         log.debug("Finding customer by ID: {}", customerId);
-        return customerRepository.findById(customerId);
+        return customerRepository.findWithPetsById(customerId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> findAllById(Collection<Integer> customerIds) {
+        log.debug("Finding {} customers by ID", customerIds.size());
+        return customerIds.isEmpty() ? List.of() : customerRepository.findWithPetsByIdIn(customerIds);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> findVersion(Integer customerId) {
+        return customerRepository.findVersionById(customerId).map(OwnerVersion::tag);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean petExists(Integer petId) {
+        return petId != null && petRepository.existsById(petId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<Integer> existingPetIds(Collection<Integer> petIds) {
+        return petIds.isEmpty() ? Set.of() : petRepository.findExistingIds(petIds);
     }
     
     @Override
@@ -64,6 +107,39 @@ class CustomerServiceImpl implements CustomerService {
         log.debug("Finding all customers");
         return customerRepository.findAll();
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerPage findPage(String cursor, int size, boolean includeTotal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        log.debug("Finding customer page after cursor {} (size {})", cursor, pageSize);
+
+        // Fetch one extra row to find out whether there is a next page
+        Limit limit = Limit.of(pageSize + 1);
+        List<Customer> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = customerRepository.findFirstPage(limit);
+        } else {
+            CustomerCursor after = CustomerCursor.decode(cursor);
+            rows = customerRepository.findPageAfter(after.lastName(), after.id(), limit);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Customer last = rows.get(pageSize - 1);
+            nextCursor = new CustomerCursor(last.getLastName(), last.getId()).encode();
+        }
+
+        // Initialize the pets of the whole page with one more statement; the rows are already
+        // managed, so the returned list is the same instances in keyset order
+        if (!rows.isEmpty()) {
+            customerRepository.findWithPetsByIdIn(rows.stream().map(Customer::getId).toList());
+        }
+
+        Long totalCount = includeTotal ? customerRepository.count() : null;
+        return new CustomerPage(List.copyOf(rows), nextCursor, totalCount);
+    }
     
     @Override
     public Customer save(Customer customer) {
@@ -81,13 +157,49 @@ class CustomerServiceImpl implements CustomerService {
         return savedCustomer;
     }
     
+    @Override
+    public List<Customer> saveAll(List<Customer> customers) {
+        log.info("Importing {} customers", customers.size());
+
+        // Ids come from a pooled sequence, so nothing is inserted before the flush at commit,
+        // where Hibernate sends the owner and pet inserts as JDBC batches
+        List<Customer> savedCustomers = customerRepository.saveAll(customers);
+
+        List<CustomerCreated> created = new ArrayList<>(savedCustomers.size());
+        List<PetAdded> petsAdded = new ArrayList<>();
+        for (Customer customer : savedCustomers) {
+            created.add(new CustomerCreated(customer.getId(), customer.getFullName()));
+            customer.getPets().forEach(pet ->
+                petsAdded.add(new PetAdded(pet.getId(), customer.getId(), pet.getName())));
+        }
+
+        // Publish one domain event for the whole batch
+        events.publishEvent(new CustomersImported(created, petsAdded));
+
+        log.info("Imported {} customers with {} pets", created.size(), petsAdded.size());
+        return savedCustomers;
+    }
+
     @Override
     public Customer update(Integer customerId, Customer customer) {
+        return update(customerId, customer, null);
+    }
+
+    @Override
+    public Customer update(Integer customerId, Customer customer, String expectedVersion) {
         log.info("Updating customer ID: {}", customerId);
 
         Customer existingCustomer = customerRepository.findById(customerId)
             .orElseThrow(() -> new ResourceNotFoundException("Customer", customerId));
 
+        // Changes committed after this check are caught by the @Version check of the update
+        if (expectedVersion != null) {
+            String version = customerRepository.findVersionById(customerId).map(OwnerVersion::tag).orElse(null);
+            if (!expectedVersion.equals(version)) {
+                throw new ObjectOptimisticLockingFailureException(Customer.class, customerId);
+            }
+        }
+
         // Update fields
         existingCustomer.setFirstName(customer.getFirstName());
         existingCustomer.setLastName(customer.getLastName());
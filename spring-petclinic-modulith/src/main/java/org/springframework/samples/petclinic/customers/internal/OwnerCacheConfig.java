@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the read-through cache in front of {@code CustomerService.findById}.
+ *
+ * A bounded Caffeine cache (W-TinyLFU eviction) with a time-to-live as a safety net; entries are
+ * evicted precisely by {@link OwnerCacheInvalidator}. Besides the standard cache metrics
+ * (gets by result, evictions, load duration) it publishes the hit ratio.
+ *
+ * @author PetClinic Team
+ */
+@Configuration(proxyBeanMethods = false)
+class OwnerCacheConfig {
+
+    static final String OWNERS_CACHE = "owners";
+
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> ownersCacheCustomizer(
+        @Value("${petclinic.cache.owners.maximum-size:10000}") long maximumSize,
+        @Value("${petclinic.cache.owners.time-to-live:10m}") Duration timeToLive) {
+        return cacheManager -> cacheManager.registerCustomCache(OWNERS_CACHE, Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .recordStats()
+            .build());
+    }
+
+    @Bean
+    MeterBinder ownersCacheHitRatio(CacheManager cacheManager) {
+        return registry -> {
+            if (cacheManager.getCache(OWNERS_CACHE) instanceof CaffeineCache cache) {
+                Gauge.builder("cache.hit.ratio", cache.getNativeCache(), nativeCache -> nativeCache.stats().hitRate())
+                    .tag("cache", OWNERS_CACHE)
+                    .description("Share of owner lookups answered from the cache")
+                    .register(registry);
+            }
+        };
+    }
+}
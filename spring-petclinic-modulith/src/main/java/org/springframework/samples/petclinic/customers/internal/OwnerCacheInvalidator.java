@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.samples.petclinic.customers.CustomerCreated;
+import org.springframework.samples.petclinic.customers.CustomerDeleted;
+import org.springframework.samples.petclinic.customers.CustomerUpdated;
+import org.springframework.samples.petclinic.customers.CustomersImported;
+import org.springframework.samples.petclinic.customers.PetAdded;
+import org.springframework.samples.petclinic.customers.PetDeleted;
+import org.springframework.samples.petclinic.customers.PetUpdated;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts owners from the owners cache when they or their pets change.
+ *
+ * Eviction happens once the change is committed; events published outside a transaction
+ * evict right away. Owners are loaded into the cache atomically per key, so an eviction
+ * waits for a load of the same owner that is still in flight and cannot be overtaken by it.
+ * Created owners are evicted too, in case their id was looked up, and cached as missing,
+ * before it existed.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class OwnerCacheInvalidator {
+
+    private final Cache owners;
+
+    OwnerCacheInvalidator(CacheManager cacheManager) {
+        this.owners = cacheManager.getCache(OwnerCacheConfig.OWNERS_CACHE);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(CustomerCreated event) {
+        evict(event.customerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(CustomersImported event) {
+        event.customers().forEach(created -> evict(created.customerId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(CustomerUpdated event) {
+        evict(event.customerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(CustomerDeleted event) {
+        evict(event.customerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PetAdded event) {
+        evict(event.customerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PetUpdated event) {
+        evict(event.customerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PetDeleted event) {
+        evict(event.customerId());
+    }
+
+    private void evict(Integer customerId) {
+        if (owners != null) {
+            owners.evict(customerId);
+        }
+    }
+}
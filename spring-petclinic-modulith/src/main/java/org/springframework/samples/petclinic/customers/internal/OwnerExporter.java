@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads all owners with their pets for export, one owner at a time.
+ *
+ * Owners and pets are read with a single forward-only cursor over a join ordered by owner id, in
+ * a read-only stateless session: nothing is kept in a persistence context, so memory use does not
+ * depend on the number of owners. Because the order is by owner id, an interrupted export can be
+ * resumed after the last owner it delivered.
+ *
+ * @author PetClinic Team
+ */
+@Component
+public class OwnerExporter {
+
+    static final int FETCH_SIZE = 500;
+
+    private static final String EXPORT_QUERY = """
+        select o.id, o.firstName, o.lastName, o.address, o.city, o.telephone,
+               p.id, p.name, p.birthDate, t.name
+        from Customer o left join o.pets p left join p.type t
+        where o.id > :afterId
+        order by o.id, lower(p.name), p.id
+        """;
+
+    private final SessionFactory sessionFactory;
+
+    public OwnerExporter(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public record ExportedOwner(
+        Integer id,
+        String firstName,
+        String lastName,
+        String address,
+        String city,
+        String telephone,
+        List<ExportedPet> pets
+    ) {
+    }
+
+    public record ExportedPet(Integer id, String name, LocalDate birthDate, String type) {
+    }
+
+    /**
+     * Receives exported owners; may fail with an {@link IOException} when writing them out.
+     */
+    @FunctionalInterface
+    public interface OwnerSink {
+
+        void accept(ExportedOwner owner) throws IOException;
+    }
+
+    /**
+     * Hand every owner with an id greater than {@code afterId} to the sink, in id order.
+     *
+     * @return the number of exported owners
+     */
+    public long export(int afterId, OwnerSink sink) throws IOException {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.doWork(connection -> connection.setReadOnly(true));
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults<Object[]> rows = session.createQuery(EXPORT_QUERY, Object[].class)
+                    .setParameter("afterId", afterId)
+                    .setReadOnly(true)
+                    .setFetchSize(FETCH_SIZE)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                long count = 0;
+                Object[] ownerRow = null;
+                List<ExportedPet> pets = new ArrayList<>();
+                while (rows.next()) {
+                    Object[] row = rows.get();
+                    if (ownerRow != null && !ownerRow[0].equals(row[0])) {
+                        sink.accept(toOwner(ownerRow, pets));
+                        count++;
+                        pets = new ArrayList<>();
+                    }
+                    ownerRow = row;
+                    if (row[6] != null) {
+                        pets.add(new ExportedPet((Integer) row[6], (String) row[7], toLocalDate((Date) row[8]), (String) row[9]));
+                    }
+                }
+                if (ownerRow != null) {
+                    sink.accept(toOwner(ownerRow, pets));
+                    count++;
+                }
+                return count;
+            } finally {
+                transaction.commit();
+            }
+        }
+    }
+
+    private static ExportedOwner toOwner(Object[] row, List<ExportedPet> pets) {
+        return new ExportedOwner((Integer) row[0], (String) row[1], (String) row[2], (String) row[3],
+            (String) row[4], (String) row[5], pets);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date != null ? new java.sql.Date(date.getTime()).toLocalDate() : null;
+    }
+}
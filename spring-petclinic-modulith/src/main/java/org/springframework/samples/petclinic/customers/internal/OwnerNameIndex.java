@@ -0,0 +1,366 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of owner names for type-ahead search.
+ *
+ * Names are split into normalized tokens (lower case, accents stripped). Each token maps to the
+ * owners carrying it in a sorted map, so a prefix query is a range scan that stops as soon as
+ * enough matches are found. Misspelled tokens are resolved through a trigram index over the
+ * distinct tokens, followed by an edit-distance check.
+ *
+ * Reads are lock-free; single-owner writes are serialized, since owners change rarely. A full
+ * rebuild fills a new index off to the side while searches keep using the current one. Owners
+ * put or removed meanwhile are applied to both: to the current index right away, and replayed
+ * onto the new one before it replaces the current one, so the rows read by the rebuild cannot
+ * bring back a deleted owner or an old name.
+ *
+ * @author PetClinic Team
+ */
+@Component
+public class OwnerNameIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int MIN_FUZZY_TOKEN_LENGTH = 3;
+
+    private volatile Tokens tokens = new Tokens();
+
+    // Owners put (name) or removed (null) since the running rebuild started, guarded by this
+    private Rebuild rebuild;
+    private final Map<Integer, String> changesDuringRebuild = new HashMap<>();
+
+    /**
+     * A matching owner.
+     *
+     * @param id the owner ID
+     * @param name the owner's full name
+     */
+    public record Match(Integer id, String name) {
+    }
+
+    private record Entry(String name, String[] tokens) {
+    }
+
+    /**
+     * Add an owner to the index, replacing any previous name for the same ID.
+     */
+    public synchronized void put(Integer ownerId, String fullName) {
+        tokens.put(ownerId, fullName);
+        if (rebuild != null) {
+            changesDuringRebuild.put(ownerId, fullName);
+        }
+    }
+
+    /**
+     * Remove an owner from the index. Unknown IDs are ignored.
+     */
+    public synchronized void remove(Integer ownerId) {
+        tokens.remove(ownerId);
+        if (rebuild != null) {
+            changesDuringRebuild.put(ownerId, null);
+        }
+    }
+
+    /**
+     * Start rebuilding the index from scratch. Searches keep using the current index until
+     * {@link Rebuild#finish()} swaps in the new one. Starting another rebuild abandons the running one.
+     */
+    synchronized Rebuild rebuild() {
+        rebuild = new Rebuild();
+        changesDuringRebuild.clear();
+        return rebuild;
+    }
+
+    public int size() {
+        return tokens.entries.size();
+    }
+
+    /**
+     * A rebuild in progress, see {@link #rebuild()}.
+     */
+    final class Rebuild {
+
+        private final Tokens next = new Tokens();
+
+        private Rebuild() {
+        }
+
+        /**
+         * Add an owner read by the rebuild. May be called from several threads at once.
+         */
+        void load(Integer ownerId, String fullName) {
+            next.load(ownerId, fullName);
+        }
+
+        /**
+         * Replay the owners put or removed since the rebuild started and make the new index current.
+         */
+        void finish() {
+            synchronized (OwnerNameIndex.this) {
+                if (rebuild != this) {
+                    return;
+                }
+                changesDuringRebuild.forEach((ownerId, fullName) -> {
+                    if (fullName != null) {
+                        next.put(ownerId, fullName);
+                    } else {
+                        next.remove(ownerId);
+                    }
+                });
+                changesDuringRebuild.clear();
+                rebuild = null;
+                tokens = next;
+            }
+        }
+    }
+
+    /**
+     * Find owners whose name tokens start with every token of the query, e.g. {@code "geo fra"}
+     * matches George Franklin. If fewer than {@code limit} owners match and {@code fuzzy} is set,
+     * the result is topped up with owners whose tokens are within a small edit distance.
+     *
+     * @param query free text typed by the user
+     * @param limit maximum number of matches
+     * @param fuzzy whether to tolerate typos
+     * @return matching owners, exact prefix matches first
+     */
+    public List<Match> search(String query, int limit, boolean fuzzy) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        Tokens index = tokens;
+        // Drive the scan with the longest token, which is usually the most selective one
+        String[] ordered = queryTokens.clone();
+        Arrays.sort(ordered, (a, b) -> b.length() - a.length());
+
+        Map<Integer, Match> matches = new LinkedHashMap<>();
+        String driver = ordered[0];
+        index.scan(index.ownersByToken.subMap(driver, true, driver + Character.MAX_VALUE, false).values(),
+            ordered, null, limit, matches);
+
+        if (fuzzy && matches.size() < limit) {
+            Map<String, Set<String>> similar = new HashMap<>();
+            for (String token : ordered) {
+                similar.put(token, index.similarTokens(token));
+            }
+            List<Set<Integer>> candidates = new ArrayList<>();
+            for (String token : similar.get(driver)) {
+                Set<Integer> owners = index.ownersByToken.get(token);
+                if (owners != null) {
+                    candidates.add(owners);
+                }
+            }
+            index.scan(candidates, ordered, similar, limit, matches);
+        }
+        return List.copyOf(matches.values());
+    }
+
+    private static boolean matchesAll(Entry entry, String[] queryTokens, Map<String, Set<String>> similar) {
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String token : entry.tokens()) {
+                if (token.startsWith(queryToken)
+                    || (similar != null && similar.get(queryToken).contains(token))) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The token, trigram and owner maps of one generation of the index.
+     */
+    private static final class Tokens {
+
+        private final NavigableMap<String, Set<Integer>> ownersByToken = new ConcurrentSkipListMap<>();
+        private final Map<String, Set<String>> tokensByTrigram = new ConcurrentHashMap<>();
+        private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+        void put(Integer ownerId, String fullName) {
+            removeTokens(ownerId, entries.get(ownerId));
+            Entry entry = new Entry(fullName, tokenize(fullName));
+            entries.put(ownerId, entry);
+            addTokens(ownerId, entry);
+        }
+
+        void remove(Integer ownerId) {
+            removeTokens(ownerId, entries.remove(ownerId));
+        }
+
+        /**
+         * Bulk-load path: adds an owner unless it is already present, and may be called from several
+         * threads at once. Never removes anything, so it does not need the write lock.
+         */
+        void load(Integer ownerId, String fullName) {
+            Entry entry = new Entry(fullName, tokenize(fullName));
+            if (entries.putIfAbsent(ownerId, entry) == null) {
+                addTokens(ownerId, entry);
+            }
+        }
+
+        private void addTokens(Integer ownerId, Entry entry) {
+            for (String token : entry.tokens()) {
+                ownersByToken.computeIfAbsent(token, t -> {
+                    for (String trigram : trigrams(t)) {
+                        tokensByTrigram.computeIfAbsent(trigram, g -> ConcurrentHashMap.newKeySet()).add(t);
+                    }
+                    return ConcurrentHashMap.newKeySet();
+                }).add(ownerId);
+            }
+        }
+
+        private void scan(Collection<Set<Integer>> candidates, String[] queryTokens,
+                          Map<String, Set<String>> similar, int limit, Map<Integer, Match> matches) {
+            for (Set<Integer> owners : candidates) {
+                for (Integer ownerId : owners) {
+                    if (matches.size() >= limit) {
+                        return;
+                    }
+                    Entry entry = entries.get(ownerId);
+                    if (entry != null && !matches.containsKey(ownerId) && matchesAll(entry, queryTokens, similar)) {
+                        matches.put(ownerId, new Match(ownerId, entry.name()));
+                    }
+                }
+            }
+        }
+
+        private Set<String> similarTokens(String token) {
+            if (token.length() < MIN_FUZZY_TOKEN_LENGTH) {
+                return Set.of();
+            }
+            int maxDistance = token.length() <= 5 ? 1 : 2;
+            List<String> queryTrigrams = trigrams(token);
+            // Each edit destroys at most three trigrams
+            int minShared = Math.max(1, queryTrigrams.size() - 3 * maxDistance);
+
+            Map<String, Integer> shared = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                Set<String> tokens = tokensByTrigram.get(trigram);
+                if (tokens != null) {
+                    for (String candidate : tokens) {
+                        shared.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+            Set<String> similar = new HashSet<>();
+            shared.forEach((candidate, count) -> {
+                if (count >= minShared
+                    && Math.abs(candidate.length() - token.length()) <= maxDistance
+                    && editDistance(token, candidate, maxDistance) <= maxDistance) {
+                    similar.add(candidate);
+                }
+            });
+            return similar;
+        }
+
+        private void removeTokens(Integer ownerId, Entry entry) {
+            if (entry == null) {
+                return;
+            }
+            for (String token : entry.tokens()) {
+                Set<Integer> owners = ownersByToken.get(token);
+                if (owners != null) {
+                    owners.remove(ownerId);
+                    if (owners.isEmpty()) {
+                        ownersByToken.remove(token);
+                        for (String trigram : trigrams(token)) {
+                            Set<String> tokens = tokensByTrigram.get(trigram);
+                            if (tokens != null) {
+                                tokens.remove(token);
+                                if (tokens.isEmpty()) {
+                                    tokensByTrigram.remove(trigram);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new String[0];
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(TOKEN_SEPARATOR.split(normalized.toLowerCase(Locale.ROOT)))
+            .filter(token -> !token.isEmpty())
+            .distinct()
+            .toArray(String[]::new);
+    }
+
+    private static List<String> trigrams(String token) {
+        String padded = "$" + token + "$";
+        List<String> trigrams = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Levenshtein distance, giving up early once it exceeds {@code max}.
+     */
+    static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
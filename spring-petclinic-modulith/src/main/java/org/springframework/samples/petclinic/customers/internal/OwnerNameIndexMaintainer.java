@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.customers.CustomerCreated;
+import org.springframework.samples.petclinic.customers.CustomerDeleted;
+import org.springframework.samples.petclinic.customers.CustomerUpdated;
+import org.springframework.samples.petclinic.customers.CustomersImported;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the {@link OwnerNameIndex} in sync with the owners table.
+ *
+ * The index is rebuilt from the database once the application is ready: rows are streamed
+ * with a forward-only cursor and indexed in parallel batches into a new index, which replaces
+ * the current one when complete. Customer events follow as soon as their transaction commits,
+ * also during the rebuild. These are plain transactional listeners rather than
+ * {@code @ApplicationModuleListener}s, as there is nothing to replay for an index that is rebuilt
+ * on every start.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class OwnerNameIndexMaintainer {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerNameIndexMaintainer.class);
+
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+
+    private final OwnerNameIndex index;
+    private final CustomerRepository customerRepository;
+
+    OwnerNameIndexMaintainer(OwnerNameIndex index, CustomerRepository customerRepository) {
+        this.index = index;
+        this.customerRepository = customerRepository;
+    }
+
+    @EventListener
+    @Transactional(readOnly = true)
+    public void on(ApplicationReadyEvent event) {
+        long start = System.nanoTime();
+        OwnerNameIndex.Rebuild rebuild = index.rebuild();
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        try (Stream<CustomerRepository.OwnerName> rows = customerRepository.streamAllNames()) {
+            List<CustomerRepository.OwnerName> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+            for (CustomerRepository.OwnerName row : (Iterable<CustomerRepository.OwnerName>) rows::iterator) {
+                batch.add(row);
+                if (batch.size() == REBUILD_BATCH_SIZE) {
+                    batches.add(indexAsync(rebuild, batch));
+                    batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+                }
+            }
+            batches.add(indexAsync(rebuild, batch));
+        }
+        CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+        rebuild.finish();
+
+        log.info("Owner name index rebuilt with {} owners in {} ms",
+            index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static CompletableFuture<Void> indexAsync(OwnerNameIndex.Rebuild rebuild, List<CustomerRepository.OwnerName> batch) {
+        // Rows are read on the calling thread, which owns the cursor; only indexing is parallel
+        return CompletableFuture.runAsync(() -> batch.forEach(row ->
+            rebuild.load(row.getId(), row.getFirstName() + " " + row.getLastName())), ForkJoinPool.commonPool());
+    }
+
+    @TransactionalEventListener
+    void on(CustomerCreated event) {
+        index.put(event.customerId(), event.customerName());
+    }
+
+    @TransactionalEventListener
+    void on(CustomerUpdated event) {
+        index.put(event.customerId(), event.customerName());
+    }
+
+    @TransactionalEventListener
+    void on(CustomersImported event) {
+        event.customers().forEach(created -> index.put(created.customerId(), created.customerName()));
+    }
+
+    @TransactionalEventListener
+    void on(CustomerDeleted event) {
+        index.remove(event.customerId());
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.springframework.samples.petclinic.customers.Customer;
+
+import java.util.List;
+
+/**
+ * Version of an owner's representation: the owner's own version and the number, IDs and
+ * versions of its pets.
+ *
+ * Adding, changing or removing a pet does not touch the owner's row, so the pets are part of
+ * the version. Pet IDs are never reused, which makes the sum of IDs change whenever pets are
+ * swapped for the same number of new ones.
+ *
+ * @author PetClinic Team
+ */
+public record OwnerVersion(Integer version, Long pets, Long petIds, Long petVersions) {
+
+    /**
+     * Version of an owner whose pets are loaded.
+     */
+    public static OwnerVersion of(Customer owner) {
+        List<Pet> pets = owner.getPets();
+        long petIds = 0;
+        long petVersions = 0;
+        for (Pet pet : pets) {
+            petIds += pet.getId();
+            petVersions += pet.getVersion();
+        }
+        return new OwnerVersion(owner.getVersion(), (long) pets.size(), petIds, petVersions);
+    }
+
+    /**
+     * Opaque form, used as the owner's ETag.
+     */
+    public String tag() {
+        return version + "." + pets + "." + petIds + "." + petVersions;
+    }
+}
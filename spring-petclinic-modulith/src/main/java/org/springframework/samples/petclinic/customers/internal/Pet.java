@@ -17,6 +17,8 @@ package org.springframework.samples.petclinic.customers.internal;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.customers.Customer;
 
@@ -37,10 +39,21 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "pets")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pets")
+@NamedEntityGraph(
+    name = Pet.WITH_TYPE_AND_OWNER,
+    attributeNodes = {@NamedAttributeNode("type"), @NamedAttributeNode("owner")}
+)
 public class Pet {
+
+    /**
+     * Fetch plan "pet with type and owner". The owner's own pets are not loaded.
+     */
+    public static final String WITH_TYPE_AND_OWNER = "Pet.withTypeAndOwner";
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pets_seq")
+    @SequenceGenerator(name = "pets_seq", sequenceName = "pets_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "name")
@@ -50,15 +63,22 @@ public class Pet {
     @Temporal(TemporalType.DATE)
     private Date birthDate;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "type_id")
     private PetType type;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id")
     @JsonIgnore
     private Customer owner;
 
+    /**
+     * Optimistic lock version, incremented on every update. Drives the pet's ETag.
+     */
+    @Version
+    @JsonIgnore
+    private Integer version;
+
     @Override
     public String toString() {
         return new ToStringCreator(this)
@@ -91,6 +111,10 @@ public class Pet {
         return this.owner;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
     public void setId(Integer id) {
         this.id = id;
     }
@@ -15,7 +15,18 @@
  */
 package org.springframework.samples.petclinic.customers.internal;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
 
 /**
  * Internal PetRepository for database access.
@@ -27,4 +38,24 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * @author Maciej Szarlinski
  */
 public interface PetRepository extends JpaRepository<Pet, Integer> {
+
+    /**
+     * Load a pet with its type and owner in a single statement.
+     */
+    @EntityGraph(Pet.WITH_TYPE_AND_OWNER)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<Pet> findWithTypeAndOwnerById(Integer id);
+
+    /**
+     * Version of a pet, without loading it.
+     */
+    @Query("SELECT p.version FROM Pet p WHERE p.id = :id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<Integer> findVersionById(@Param("id") Integer id);
+
+    /**
+     * Which of the given pets exist, read from the primary key index only.
+     */
+    @Query("SELECT p.id FROM Pet p WHERE p.id IN :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
@@ -16,6 +16,8 @@
 package org.springframework.samples.petclinic.customers.internal;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Internal PetType entity.
@@ -28,6 +30,7 @@ import jakarta.persistence.*;
  */
 @Entity
 @Table(name = "types")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "types")
 public class PetType {
 
     @Id
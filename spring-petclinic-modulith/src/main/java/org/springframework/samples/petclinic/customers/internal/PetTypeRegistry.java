@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Sort;
+import org.springframework.samples.petclinic.shared.reference.ReferenceDataRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * In-memory registry of the pet types.
+ *
+ * @author PetClinic Team
+ */
+@Component
+public class PetTypeRegistry extends ReferenceDataRegistry<PetType> {
+
+    private final PetTypeRepository petTypeRepository;
+
+    PetTypeRegistry(PetTypeRepository petTypeRepository, ObjectMapper objectMapper) {
+        super("types", objectMapper);
+        this.petTypeRepository = petTypeRepository;
+    }
+
+    @Override
+    protected List<PetType> loadRows() {
+        return petTypeRepository.findAll(Sort.by("id"));
+    }
+
+    @Override
+    protected int idOf(PetType petType) {
+        return petType.getId();
+    }
+}
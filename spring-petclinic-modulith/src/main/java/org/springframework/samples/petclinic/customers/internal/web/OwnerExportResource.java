@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Min;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.internal.OwnerExporter;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * REST controller exporting all owners with their pets as NDJSON.
+ * 
+ * Owners are written to the response as they are read from the database, one JSON object per
+ * line, ordered by id. A client that loses the connection can resume by passing the id of the
+ * last owner it received as {@code after}.
+ * 
+ * The export runs on the MVC task executor with its own timeout, {@code petclinic.owners.export.timeout},
+ * instead of the container's default for async requests, which is far too short for a full export.
+ * A timed out export is cancelled; the client resumes after the last owner it received.
+ * 
+ * @author PetClinic Team
+ */
+@RestController
+@Timed("petclinic.owner")
+class OwnerExportResource {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerExportResource.class);
+
+    private final OwnerExporter ownerExporter;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter ownerWriter;
+    private final Duration timeout;
+
+    OwnerExportResource(OwnerExporter ownerExporter, ObjectMapper objectMapper,
+                        @Value("${petclinic.owners.export.timeout:30m}") Duration timeout) {
+        this.ownerExporter = ownerExporter;
+        this.objectMapper = objectMapper;
+        // Let the generator's buffer decide when to write, not every single owner
+        this.ownerWriter = objectMapper.writerFor(OwnerExporter.ExportedOwner.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Export Owners with an id greater than {@code after}, optionally gzip-compressed.
+     */
+    @GetMapping(value = "/owners/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportOwners(
+        @RequestParam(value = "after", defaultValue = "0") @Min(0) int after,
+        @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+        HttpServletResponse response) {
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return new WebAsyncTask<>(timeout.toMillis(), () -> {
+            OutputStream out = response.getOutputStream();
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(target)) {
+                // One object per line, without the default space between root values
+                generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+                long count = ownerExporter.export(after, owner -> {
+                    ownerWriter.writeValue(generator, owner);
+                    generator.writeRaw('\n');
+                });
+                log.info("Exported {} owners after id {}", count, after);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Reads owner import rows from NDJSON or CSV, one line at a time, so an upload is never
+ * held in memory as a whole.
+ * 
+ * NDJSON has one owner per line, with the fields of {@link OwnerRequest} plus an optional
+ * {@code pets} array of {@link PetRequest}s.
+ * 
+ * CSV starts with a header line naming the columns {@code firstName, lastName, address, city,
+ * telephone} and, optionally, {@code petName, petBirthDate, petTypeId}. Each line is one owner
+ * with at most one pet; a line whose owner columns are all empty adds another pet to the owner
+ * above it. Quoted fields may not span lines.
+ * 
+ * Malformed lines are reported and skipped. Rows are not validated here.
+ * 
+ * @author PetClinic Team
+ */
+@Component
+class OwnerImportParser {
+
+    static final MediaType CSV = new MediaType("text", "csv");
+
+    private static final List<String> OWNER_COLUMNS = List.of("firstName", "lastName", "address", "city", "telephone");
+
+    private final ObjectReader ndjsonReader;
+
+    OwnerImportParser(ObjectMapper objectMapper) {
+        this.ndjsonReader = objectMapper.readerFor(NdjsonRow.class);
+    }
+
+    /**
+     * One owner with the pets to create for it.
+     *
+     * @param line the line the owner was read from
+     */
+    record Row(long line, OwnerRequest owner, List<PetRequest> pets) {
+    }
+
+    interface RowHandler {
+
+        void row(Row row);
+
+        void error(long line, String message);
+    }
+
+    private record NdjsonRow(
+        String firstName,
+        String lastName,
+        String address,
+        String city,
+        String telephone,
+        List<PetRequest> pets
+    ) {
+    }
+
+    void parse(MediaType contentType, BufferedReader in, RowHandler handler) throws IOException {
+        if (CSV.isCompatibleWith(contentType)) {
+            parseCsv(in, handler);
+        } else {
+            parseNdjson(in, handler);
+        }
+    }
+
+    private void parseNdjson(BufferedReader in, RowHandler handler) throws IOException {
+        long lineNumber = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            NdjsonRow json;
+            try {
+                json = ndjsonReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                handler.error(lineNumber, "malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            OwnerRequest owner = new OwnerRequest(json.firstName(), json.lastName(), json.address(), json.city(), json.telephone());
+            handler.row(new Row(lineNumber, owner, json.pets() != null ? json.pets() : List.of()));
+        }
+    }
+
+    private void parseCsv(BufferedReader in, RowHandler handler) throws IOException {
+        String headerLine = in.readLine();
+        if (headerLine == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = splitCsvLine(headerLine);
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        for (String column : OWNER_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                handler.error(1, "missing column " + column);
+                return;
+            }
+        }
+
+        long lineNumber = 1;
+        Row pending = null;
+        long rejectedOwnerLine = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> values;
+            try {
+                values = splitCsvLine(line);
+            } catch (IllegalArgumentException e) {
+                handler.error(lineNumber, e.getMessage());
+                // Can't tell whether this was an owner, so close the current one
+                if (pending != null) {
+                    handler.row(pending);
+                }
+                pending = null;
+                rejectedOwnerLine = lineNumber;
+                continue;
+            }
+            CsvLine fields = new CsvLine(values, columns);
+            PetRequest pet;
+            try {
+                pet = fields.pet();
+            } catch (IllegalArgumentException e) {
+                handler.error(lineNumber, e.getMessage());
+                if (!fields.isPetOnly()) {
+                    // The owner is rejected together with its pet, and so are its further pets
+                    if (pending != null) {
+                        handler.row(pending);
+                    }
+                    pending = null;
+                    rejectedOwnerLine = lineNumber;
+                }
+                continue;
+            }
+
+            if (fields.isPetOnly()) {
+                if (pending != null) {
+                    if (pet != null) {
+                        pending.pets().add(pet);
+                    }
+                } else if (rejectedOwnerLine > 0) {
+                    handler.error(lineNumber, "owner on line " + rejectedOwnerLine + " was rejected");
+                } else {
+                    handler.error(lineNumber, "pet without an owner line above it");
+                }
+                continue;
+            }
+
+            if (pending != null) {
+                handler.row(pending);
+            }
+            List<PetRequest> pets = new ArrayList<>();
+            if (pet != null) {
+                pets.add(pet);
+            }
+            pending = new Row(lineNumber, fields.owner(), pets);
+            rejectedOwnerLine = 0;
+        }
+        if (pending != null) {
+            handler.row(pending);
+        }
+    }
+
+    private record CsvLine(List<String> fields, Map<String, Integer> columns) {
+
+        String get(String column) {
+            Integer index = columns.get(column);
+            return index != null && index < fields.size() ? fields.get(index).trim() : "";
+        }
+
+        boolean isPetOnly() {
+            return OWNER_COLUMNS.stream().allMatch(column -> get(column).isEmpty());
+        }
+
+        OwnerRequest owner() {
+            return new OwnerRequest(get("firstName"), get("lastName"), get("address"), get("city"), get("telephone"));
+        }
+
+        PetRequest pet() {
+            String name = get("petName");
+            String birthDate = get("petBirthDate");
+            String typeId = get("petTypeId");
+            if (name.isEmpty() && birthDate.isEmpty() && typeId.isEmpty()) {
+                return null;
+            }
+            return new PetRequest(0, parseDate(birthDate), name, parseTypeId(typeId));
+        }
+
+        private static Date parseDate(String value) {
+            if (value.isEmpty()) {
+                return null;
+            }
+            try {
+                // Same instant Jackson produces for a "yyyy-MM-dd" PetRequest.birthDate
+                return Date.from(LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("petBirthDate is not a yyyy-MM-dd date: " + value);
+            }
+        }
+
+        private static int parseTypeId(String value) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("petTypeId is not a number: " + value);
+            }
+        }
+    }
+
+    static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
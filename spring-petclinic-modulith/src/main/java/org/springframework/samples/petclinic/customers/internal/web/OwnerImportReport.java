@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal.web;
+
+import java.util.List;
+
+/**
+ * DTO for the outcome of an owner bulk import.
+ * 
+ * @param imported number of owners stored
+ * @param importedPets number of pets stored with them
+ * @param failed number of rows that were rejected
+ * @param errors the rejected rows, capped; {@code failed} may be larger
+ * 
+ * @author PetClinic Team
+ */
+record OwnerImportReport(
+    int imported,
+    int importedPets,
+    int failed,
+    List<RowError> errors
+) {
+
+    /**
+     * Why one input row was rejected.
+     *
+     * @param line line number in the uploaded document, starting at 1
+     * @param message what was wrong with it
+     */
+    record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.internal.Pet;
+import org.springframework.samples.petclinic.customers.internal.PetType;
+import org.springframework.samples.petclinic.customers.internal.PetTypeRegistry;
+import org.springframework.samples.petclinic.shared.reference.ReferenceData;
+import org.springframework.samples.petclinic.shared.web.BatchWriter;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * REST controller for bulk-importing owners and their pets.
+ * 
+ * The upload is read as a stream. Rows are validated like {@link OwnerRequest} and
+ * {@link PetRequest} and stored by a {@link BatchWriter} in batches of {@value #BATCH_SIZE}, one
+ * transaction per batch, so a bad row only rejects itself and a failing batch never undoes earlier
+ * ones. Rows the database rejects are reported with the category of their failure.
+ * 
+ * @author PetClinic Team
+ */
+@RestController
+@Timed("petclinic.owner")
+class OwnerImportResource {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerImportResource.class);
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final CustomerService customerService;
+    private final PetTypeRegistry petTypeRegistry;
+    private final OwnerEntityMapper ownerEntityMapper;
+    private final OwnerImportParser parser;
+    private final Validator validator;
+
+    OwnerImportResource(CustomerService customerService,
+                        PetTypeRegistry petTypeRegistry,
+                        OwnerEntityMapper ownerEntityMapper,
+                        OwnerImportParser parser,
+                        Validator validator) {
+        this.customerService = customerService;
+        this.petTypeRegistry = petTypeRegistry;
+        this.ownerEntityMapper = ownerEntityMapper;
+        this.parser = parser;
+        this.validator = validator;
+    }
+
+    /**
+     * Import owners with their pets from NDJSON or CSV.
+     */
+    @PostMapping(value = "/owners/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public OwnerImportReport importOwners(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                          InputStream body) throws IOException {
+        ReferenceData<PetType> petTypes = petTypeRegistry.snapshot();
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+
+        Import run = new Import(petTypes);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(body, charset))) {
+            parser.parse(contentType, in, run);
+        }
+        run.flush();
+
+        log.info("Owner import finished: {} owners and {} pets imported, {} rows rejected",
+            run.imported, run.importedPets, run.failed);
+        return new OwnerImportReport(run.imported, run.importedPets, run.failed, run.errors);
+    }
+
+    /**
+     * State of one import: the batch being collected and the running totals.
+     */
+    private class Import implements OwnerImportParser.RowHandler, BatchWriter.Outcome<OwnerImportParser.Row, Customer> {
+
+        private final ReferenceData<PetType> petTypes;
+        private final BatchWriter<OwnerImportParser.Row, Customer> writer =
+            new BatchWriter<>("Owner import", BATCH_SIZE, this::store, this);
+        private final List<OwnerImportReport.RowError> errors = new ArrayList<>();
+        private int imported;
+        private int importedPets;
+        private int failed;
+
+        Import(ReferenceData<PetType> petTypes) {
+            this.petTypes = petTypes;
+        }
+
+        @Override
+        public void row(OwnerImportParser.Row row) {
+            String problems = validate(row);
+            if (problems != null) {
+                error(row.line(), problems);
+                return;
+            }
+            writer.add(row.line(), row);
+        }
+
+        @Override
+        public void error(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new OwnerImportReport.RowError(line, message));
+            }
+        }
+
+        @Override
+        public void stored(long line, OwnerImportParser.Row row, Customer customer) {
+            imported++;
+            importedPets += customer.getPets().size();
+        }
+
+        @Override
+        public void rejected(long line, OwnerImportParser.Row row, String reason) {
+            error(line, reason);
+        }
+
+        void flush() {
+            writer.flush();
+        }
+
+        /**
+         * Owners are built anew for every attempt, a failed one may have left ids on them.
+         */
+        private List<Customer> store(List<OwnerImportParser.Row> rows) {
+            List<Customer> customers = rows.stream().map(this::toCustomer).toList();
+            customerService.saveAll(customers);
+            return customers;
+        }
+
+        private String validate(OwnerImportParser.Row row) {
+            List<String> problems = new ArrayList<>();
+            describe(validator.validate(row.owner()), "", problems);
+            for (int i = 0; i < row.pets().size(); i++) {
+                PetRequest pet = row.pets().get(i);
+                describe(validator.validate(pet), "pets[" + i + "].", problems);
+                if (!petTypes.contains(pet.typeId())) {
+                    problems.add("pets[" + i + "].typeId: unknown pet type " + pet.typeId());
+                }
+            }
+            return problems.isEmpty() ? null : String.join("; ", problems);
+        }
+
+        private static <T> void describe(Set<ConstraintViolation<T>> violations, String prefix, List<String> problems) {
+            violations.stream()
+                .map(violation -> prefix + violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .forEach(problems::add);
+        }
+
+        private Customer toCustomer(OwnerImportParser.Row row) {
+            Customer customer = ownerEntityMapper.map(new Customer(), row.owner());
+            for (PetRequest request : row.pets()) {
+                Pet pet = new Pet();
+                pet.setName(request.name());
+                pet.setBirthDate(request.birthDate());
+                pet.setType(petTypes.find(request.typeId()).orElseThrow());
+                customer.addPet(pet);
+            }
+            return customer;
+        }
+    }
+}
@@ -17,13 +17,19 @@ package org.springframework.samples.petclinic.customers.internal.web;
 
 import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.customers.Customer;
 import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.internal.OwnerNameIndex;
+import org.springframework.samples.petclinic.customers.internal.OwnerVersion;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -48,10 +54,12 @@ class OwnerResource {
 
     private final CustomerService customerService;
     private final OwnerEntityMapper ownerEntityMapper;
+    private final OwnerNameIndex ownerNameIndex;
 
-    OwnerResource(CustomerService customerService, OwnerEntityMapper ownerEntityMapper) {
+    OwnerResource(CustomerService customerService, OwnerEntityMapper ownerEntityMapper, OwnerNameIndex ownerNameIndex) {
         this.customerService = customerService;
         this.ownerEntityMapper = ownerEntityMapper;
+        this.ownerNameIndex = ownerNameIndex;
     }
 
     /**
@@ -65,31 +73,59 @@ class OwnerResource {
     }
 
     /**
-     * Read single Owner
+     * Read single Owner, with its version as ETag.
+     * Answers 304 from a version lookup, without loading the owner, when {@code If-None-Match} matches.
      */
     @GetMapping(value = "/{ownerId}")
-    public Optional<Customer> findOwner(@PathVariable("ownerId") @Min(1) int ownerId) {
-        return customerService.findById(ownerId);
+    public ResponseEntity<Customer> findOwner(@PathVariable("ownerId") @Min(1) int ownerId, WebRequest request) {
+        Optional<String> version = customerService.findVersion(ownerId);
+        if (version.isPresent() && request.checkNotModified(version.get())) {
+            return null;
+        }
+        // Tag the owner that is returned, it may be newer than the version looked up
+        return customerService.findById(ownerId)
+            .map(owner -> ResponseEntity.ok().eTag(OwnerVersion.of(owner).tag()).body(owner))
+            .orElseGet(() -> ResponseEntity.ok().build());
     }
 
     /**
-     * Read List of Owners
+     * Read a page of Owners, ordered by last name.
+     * Pass the returned {@code nextCursor} back as {@code cursor} to get the following page.
      */
     @GetMapping
-    public List<Customer> findAll() {
-        return customerService.findAll();
+    public OwnerPage findAll(@RequestParam(value = "cursor", required = false) String cursor,
+                             @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(100) int size,
+                             @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal) {
+        return new OwnerPage(customerService.findPage(cursor, size, includeTotal));
     }
 
     /**
-     * Update Owner
+     * Type-ahead search of Owners by first or last name, served from memory.
+     */
+    @GetMapping("/search")
+    public List<OwnerNameIndex.Match> searchOwners(@RequestParam("q") String query,
+                                                   @RequestParam(value = "limit", defaultValue = "10") @Min(1) @Max(100) int limit,
+                                                   @RequestParam(value = "fuzzy", defaultValue = "true") boolean fuzzy) {
+        return ownerNameIndex.search(query, limit, fuzzy);
+    }
+
+    /**
+     * Update Owner. With {@code If-Match}, the update only applies to the version the client read
+     * and answers 412 otherwise.
      */
     @PutMapping(value = "/{ownerId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void updateOwner(@PathVariable("ownerId") @Min(1) int ownerId,
-                           @Valid @RequestBody OwnerRequest ownerRequest) {
+    public ResponseEntity<Void> updateOwner(@PathVariable("ownerId") @Min(1) int ownerId,
+                                            @Valid @RequestBody OwnerRequest ownerRequest,
+                                            WebRequest request) {
+        Optional<String> version = customerService.findVersion(ownerId);
+        if (version.isPresent() && request.checkNotModified(version.get())) {
+            return null;
+        }
         Customer customer = ownerEntityMapper.map(new Customer(), ownerRequest);
         log.info("Updating owner {}", ownerId);
-        customerService.update(ownerId, customer);
+        String expectedVersion = request.getHeader(HttpHeaders.IF_MATCH) != null ? version.orElse(null) : null;
+        customerService.update(ownerId, customer, expectedVersion);
+        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -21,18 +21,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.customers.Customer;
 import org.springframework.samples.petclinic.customers.PetAdded;
 import org.springframework.samples.petclinic.customers.PetDeleted;
+import org.springframework.samples.petclinic.customers.PetUpdated;
 import org.springframework.samples.petclinic.customers.internal.CustomerRepository;
 import org.springframework.samples.petclinic.customers.internal.Pet;
 import org.springframework.samples.petclinic.customers.internal.PetRepository;
-import org.springframework.samples.petclinic.customers.internal.PetType;
-import org.springframework.samples.petclinic.customers.internal.PetTypeRepository;
+import org.springframework.samples.petclinic.customers.internal.PetTypeRegistry;
+import org.springframework.samples.petclinic.shared.web.ReferenceDataResponses;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.util.Optional;
 
 /**
  * REST controller for managing pets.
@@ -51,22 +55,27 @@ class PetResource {
 
     private final PetRepository petRepository;
     private final CustomerRepository customerRepository;
-    private final PetTypeRepository petTypeRepository;
+    private final PetTypeRegistry petTypeRegistry;
     private final ApplicationEventPublisher events;
 
     PetResource(PetRepository petRepository, 
                 CustomerRepository customerRepository,
-                PetTypeRepository petTypeRepository,
+                PetTypeRegistry petTypeRegistry,
                 ApplicationEventPublisher events) {
         this.petRepository = petRepository;
         this.customerRepository = customerRepository;
-        this.petTypeRepository = petTypeRepository;
+        this.petTypeRegistry = petTypeRegistry;
         this.events = events;
     }
 
+    /**
+     * Pet types, served from the pre-serialized registry snapshot. Answers 304 when the
+     * client's {@code If-None-Match} matches the current ETag.
+     */
     @GetMapping("/petTypes")
-    public List<PetType> getPetTypes() {
-        return petTypeRepository.findAll();
+    public ResponseEntity<byte[]> getPetTypes(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return ReferenceDataResponses.ok(petTypeRegistry.snapshot(), acceptEncoding);
     }
 
     @PostMapping("/owners/{ownerId}/pets")
@@ -75,12 +84,14 @@ class PetResource {
         @RequestBody PetRequest petRequest,
         @PathVariable("ownerId") @Min(1) int ownerId) {
 
-        Customer owner = customerRepository.findById(ownerId)
+        Customer owner = customerRepository.findWithPetsById(ownerId)
             .orElseThrow(() -> new ResourceNotFoundException("Owner", ownerId));
 
         final Pet pet = new Pet();
+        // Populate before adding, the owner keeps its pets ordered by name
+        populate(pet, petRequest);
         owner.addPet(pet);
-        Pet savedPet = save(pet, petRequest);
+        Pet savedPet = save(pet);
         
         // Publish domain event
         events.publishEvent(new PetAdded(
@@ -92,12 +103,28 @@ class PetResource {
         return savedPet;
     }
 
+    /**
+     * Update a pet. With {@code If-Match}, the update only applies to the version the client read
+     * and answers 412 otherwise.
+     */
     @PutMapping("/owners/*/pets/{petId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void processUpdateForm(@RequestBody PetRequest petRequest) {
+    public ResponseEntity<Void> processUpdateForm(@RequestBody PetRequest petRequest, WebRequest request) {
         int petId = petRequest.id();
         Pet pet = findPetById(petId);
-        save(pet, petRequest);
+        if (request.checkNotModified(String.valueOf(pet.getVersion()))) {
+            return null;
+        }
+        // Saved with the version it was loaded with, so a change made in between fails the update
+        populate(pet, petRequest);
+        Pet savedPet = save(pet);
+
+        // Publish domain event
+        events.publishEvent(new PetUpdated(
+            savedPet.getId(),
+            pet.getOwner().getId(),
+            savedPet.getName()
+        ));
+        return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/owners/{ownerId}/pets/{petId}")
@@ -125,25 +152,37 @@ class PetResource {
         log.info("Pet deleted: {}", pet.getName());
     }
 
-    private Pet save(final Pet pet, final PetRequest petRequest) {
+    private void populate(final Pet pet, final PetRequest petRequest) {
         pet.setName(petRequest.name());
         pet.setBirthDate(petRequest.birthDate());
 
-        petTypeRepository.findById(petRequest.typeId())
+        petTypeRegistry.find(petRequest.typeId())
             .ifPresent(pet::setType);
+    }
 
+    private Pet save(final Pet pet) {
         log.info("Saving pet {}", pet);
         return petRepository.save(pet);
     }
 
+    /**
+     * Read a pet, with its version as ETag.
+     * Answers 304 from a version lookup, without loading the pet, when {@code If-None-Match} matches.
+     */
     @GetMapping("owners/*/pets/{petId}")
-    public PetDetails findPet(@PathVariable("petId") int petId) {
+    public ResponseEntity<PetDetails> findPet(@PathVariable("petId") int petId, WebRequest request) {
+        Optional<Integer> version = petRepository.findVersionById(petId);
+        if (version.isPresent() && request.checkNotModified(String.valueOf(version.get()))) {
+            return null;
+        }
         Pet pet = findPetById(petId);
-        return new PetDetails(pet);
+        return ResponseEntity.ok()
+            .eTag(String.valueOf(pet.getVersion()))
+            .body(new PetDetails(pet));
     }
 
     private Pet findPetById(int petId) {
-        return petRepository.findById(petId)
+        return petRepository.findWithTypeAndOwnerById(petId)
             .orElseThrow(() -> new ResourceNotFoundException("Pet", petId));
     }
 }
@@ -25,6 +25,8 @@
  *   <li>{@link org.springframework.samples.petclinic.customers.CustomerCreated} - Domain event</li>
  *   <li>{@link org.springframework.samples.petclinic.customers.CustomerUpdated} - Domain event</li>
  *   <li>{@link org.springframework.samples.petclinic.customers.PetAdded} - Domain event</li>
+ *   <li>{@link org.springframework.samples.petclinic.customers.PetUpdated} - Domain event</li>
+ *   <li>{@link org.springframework.samples.petclinic.customers.CustomersImported} - Domain event</li>
  * </ul>
  * 
  * <h2>Internal Implementation</h2>
@@ -21,7 +21,6 @@ import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.samples.petclinic.customers.CustomerService;
 import org.springframework.samples.petclinic.genai.internal.dto.OwnerDetails;
 import org.springframework.samples.petclinic.genai.internal.dto.PetDetails;
@@ -92,12 +91,13 @@ public class AIDataProvider {
     public record OwnerRequest(String firstName, String lastName, String address, String city, String telephone) {}
 
     public OwnersResponse getAllOwners() {
-        return new OwnersResponse(webClient
+        // /owners is paginated; the first page is as much as the model can usefully take in
+        return webClient
                 .get()
-                .uri("http://localhost:8080/owners")
+                .uri("http://localhost:8080/owners?size=100")
                 .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<List<OwnerDetails>>() {})
-                .block());
+                .bodyToMono(OwnersResponse.class)
+                .block();
     }
 
     public VetResponse getVets(VetRequest request) throws JsonProcessingException {
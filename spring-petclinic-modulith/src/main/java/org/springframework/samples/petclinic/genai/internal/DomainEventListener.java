@@ -25,6 +25,7 @@ import org.springframework.samples.petclinic.customers.Customer;
 import org.springframework.samples.petclinic.customers.CustomerCreated;
 import org.springframework.samples.petclinic.customers.CustomerService;
 import org.springframework.samples.petclinic.customers.CustomerUpdated;
+import org.springframework.samples.petclinic.customers.CustomersImported;
 import org.springframework.samples.petclinic.vets.Vet;
 import org.springframework.samples.petclinic.vets.VetCreated;
 import org.springframework.samples.petclinic.vets.VetService;
@@ -33,8 +34,12 @@ import org.springframework.samples.petclinic.visits.Visit;
 import org.springframework.samples.petclinic.visits.VisitCompleted;
 import org.springframework.samples.petclinic.visits.VisitCreated;
 import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitsCompleted;
+import org.springframework.samples.petclinic.visits.VisitsScheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -111,6 +116,43 @@ class DomainEventListener {
         }
     }
 
+    /**
+     * Listen to CustomersImported events, one per bulk-imported batch.
+     *
+     * All customers of the batch are loaded with one query and go to the vector store in a single call.
+     */
+    @ApplicationModuleListener
+    void on(CustomersImported event) {
+        log.info("📢 [GenAI] Received CustomersImported event - {} customers, {} pets",
+            event.customers().size(), event.pets().size());
+
+        if (vectorStore == null) {
+            log.warn("[GenAI] VectorStore not available, skipping update");
+            return;
+        }
+
+        try {
+            List<Integer> customerIds = event.customers().stream().map(CustomerCreated::customerId).toList();
+            List<Document> docs = new ArrayList<>(customerIds.size());
+            for (Customer customer : customerService.findAllById(customerIds)) {
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("type", "customer");
+                metadata.put("id", customer.getId());
+                metadata.put("name", customer.getFullName());
+
+                docs.add(new Document(formatCustomerForVectorStore(customer), metadata));
+            }
+            if (!docs.isEmpty()) {
+                vectorStore.add(docs);
+            }
+
+            log.info("✅ [GenAI] Added {} imported customers to vector store", docs.size());
+        } catch (Exception e) {
+            log.error("[GenAI] Failed to update vector store with {} imported customers: {}",
+                event.customers().size(), e.getMessage(), e);
+        }
+    }
+
     /**
      * Listen to CustomerUpdated events.
      */
@@ -231,7 +273,7 @@ class DomainEventListener {
                 metadata.put("id", visit.getId());
                 metadata.put("petId", visit.getPetId());
                 metadata.put("vetId", visit.getVetId());
-                metadata.put("status", visit.getStatus());
+                metadata.put("status", visit.getStatus().name());
 
                 Document doc = new Document(content, metadata);
                 vectorStore.add(List.of(doc));
@@ -244,6 +286,44 @@ class DomainEventListener {
         }
     }
 
+    /**
+     * Listen to VisitsScheduled events, one per bulk-scheduled batch.
+     *
+     * The visits of the batch are read with one query and go to the vector store in a single call.
+     */
+    @ApplicationModuleListener
+    void on(VisitsScheduled event) {
+        log.info("📢 [GenAI] Received VisitsScheduled event - {} visits", event.visits().size());
+
+        if (vectorStore == null) {
+            log.warn("[GenAI] VectorStore not available, skipping update");
+            return;
+        }
+
+        try {
+            List<Integer> visitIds = event.visits().stream().map(VisitCreated::visitId).toList();
+            List<Document> docs = new ArrayList<>(visitIds.size());
+            for (Visit visit : visitService.findAllById(visitIds)) {
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("type", "visit");
+                metadata.put("id", visit.getId());
+                metadata.put("petId", visit.getPetId());
+                metadata.put("vetId", visit.getVetId());
+                metadata.put("status", visit.getStatus().name());
+
+                docs.add(new Document(formatVisitForVectorStore(visit), metadata));
+            }
+            if (!docs.isEmpty()) {
+                vectorStore.add(docs);
+            }
+
+            log.info("✅ [GenAI] Added {} scheduled visits to vector store", docs.size());
+        } catch (Exception e) {
+            log.error("[GenAI] Failed to update vector store with {} scheduled visits: {}",
+                event.visits().size(), e.getMessage(), e);
+        }
+    }
+
     /**
      * Listen to VisitCompleted events.
      */
@@ -265,7 +345,7 @@ class DomainEventListener {
                 metadata.put("id", visit.getId());
                 metadata.put("petId", visit.getPetId());
                 metadata.put("vetId", visit.getVetId());
-                metadata.put("status", "COMPLETED");
+                metadata.put("status", VisitStatus.COMPLETED.name());
                 metadata.put("completed", true);
 
                 Document doc = new Document(content, metadata);
@@ -279,6 +359,45 @@ class DomainEventListener {
         }
     }
 
+    /**
+     * Listen to VisitsCompleted events, one per bulk completion.
+     *
+     * The completed visits are read with one query and go to the vector store in a single call.
+     */
+    @ApplicationModuleListener
+    void on(VisitsCompleted event) {
+        log.info("📢 [GenAI] Received VisitsCompleted event - {} visits", event.visits().size());
+
+        if (vectorStore == null) {
+            log.warn("[GenAI] VectorStore not available, skipping update");
+            return;
+        }
+
+        try {
+            List<Integer> visitIds = event.visits().stream().map(VisitCompleted::visitId).toList();
+            List<Document> docs = new ArrayList<>(visitIds.size());
+            for (Visit visit : visitService.findAllById(visitIds)) {
+                Map<String, Object> metadata = new HashMap<>();
+                metadata.put("type", "visit");
+                metadata.put("id", visit.getId());
+                metadata.put("petId", visit.getPetId());
+                metadata.put("vetId", visit.getVetId());
+                metadata.put("status", VisitStatus.COMPLETED.name());
+                metadata.put("completed", true);
+
+                docs.add(new Document(formatVisitForVectorStore(visit) + " [COMPLETED]", metadata));
+            }
+            if (!docs.isEmpty()) {
+                vectorStore.add(docs);
+            }
+
+            log.info("✅ [GenAI] Marked {} visits as completed in vector store", docs.size());
+        } catch (Exception e) {
+            log.error("[GenAI] Failed to update vector store with {} completed visits: {}",
+                event.visits().size(), e.getMessage(), e);
+        }
+    }
+
     // Helper methods to format entities for vector store
 
     private String formatCustomerForVectorStore(Customer customer) {
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Cache configuration for the Spring PetClinic Modulith application.
+ * 
+ * Enables Spring's cache abstraction, backed by the Caffeine cache manager Spring Boot sets up
+ * from {@code spring.cache.*}. Modules register caches with their own size and expiry through a
+ * {@code CacheManagerCustomizer}. Cache statistics are published to Micrometer.
+ * 
+ * The cache interceptor runs before the transaction interceptor, so a cache hit does not
+ * open a transaction.
+ *
+ * @author PetClinic Team
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.samples.petclinic.shared.reference.ReferenceDataChanged;
+import org.springframework.stereotype.Component;
+
+/**
+ * Custom Actuator endpoint to reload cached reference data.
+ *
+ * POST /actuator/referencedata reloads all tables, POST /actuator/referencedata/{table}
+ * (e.g. {@code types} or {@code specialties}) a single one.
+ *
+ * @author PetClinic Team
+ */
+@Component
+@Endpoint(id = "referencedata")
+public class ReferenceDataEndpoint {
+
+    private final ApplicationEventPublisher events;
+
+    public ReferenceDataEndpoint(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    @WriteOperation
+    public void refreshAll() {
+        events.publishEvent(ReferenceDataChanged.all());
+    }
+
+    @WriteOperation
+    public void refresh(@Selector String table) {
+        events.publishEvent(new ReferenceDataChanged(table));
+    }
+}
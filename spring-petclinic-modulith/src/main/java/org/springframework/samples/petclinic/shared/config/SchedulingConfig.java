@@ -0,0 +1,34 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling configuration for the Spring PetClinic Modulith application.
+ * 
+ * Enables the {@code @Scheduled} jobs of the modules, such as the nightly visit archival.
+ * Turn them off with {@code petclinic.scheduling.enabled=false}, for example on all but one instance.
+ *
+ * @author PetClinic Team
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "petclinic.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
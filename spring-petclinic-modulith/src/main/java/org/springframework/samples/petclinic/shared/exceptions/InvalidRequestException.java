@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.exceptions;
+
+/**
+ * Exception thrown when a request carries input the application cannot accept, such as a
+ * malformed paging cursor or a reversed date range.
+ * 
+ * This is a shared exception that can be used across all modules. Its message is returned to the
+ * client as is, so it must describe the client's input and never carry internal details. Other
+ * {@link IllegalArgumentException}s are treated as server errors.
+ * 
+ * @author PetClinic Team
+ */
+public class InvalidRequestException extends IllegalArgumentException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
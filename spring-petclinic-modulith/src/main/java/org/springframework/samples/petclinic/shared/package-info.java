@@ -26,6 +26,7 @@
  * - Common exceptions (public API)
  * - Shared configuration
  * - Shared utilities
+ * - Reference-data snapshots and registries
  *
  * All other modules can depend on this shared module.
  * This module is marked as OPEN, meaning all its packages are public API.
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.reference;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable snapshot of a small reference table, such as pet types or specialties.
+ *
+ * Rows are kept in an array indexed by id, so lookups are a bounds check and an array read.
+ * The JSON representation of all rows, a gzipped copy of it and their ETags are computed once,
+ * when the snapshot is built, so the table can be served without serializing or compressing it again.
+ *
+ * Reference tables have small, dense ids; the array is sized by the largest one. The rows are
+ * shared by all readers and must be treated as read-only.
+ *
+ * @param <T> the row type
+ * @author PetClinic Team
+ */
+public final class ReferenceData<T> {
+
+    private final Object[] byId;
+    private final List<T> all;
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+
+    private ReferenceData(Object[] byId, List<T> all, byte[] json) {
+        this.byId = byId;
+        this.all = all;
+        this.json = json;
+        this.gzip = gzip(json);
+        String hash = DigestUtils.md5DigestAsHex(json);
+        this.etag = "\"" + hash + "\"";
+        this.gzipEtag = "\"" + hash + "-gzip\"";
+    }
+
+    /**
+     * Build a snapshot of the given rows.
+     *
+     * @param rows all rows of the table, in the order they should be listed
+     * @param idOf the id of a row; must not be negative
+     * @param objectMapper used to pre-serialize the rows
+     */
+    public static <T> ReferenceData<T> of(List<T> rows, ToIntFunction<T> idOf, ObjectMapper objectMapper) {
+        int maxId = rows.stream().mapToInt(idOf).max().orElse(-1);
+        Object[] byId = new Object[maxId + 1];
+        for (T row : rows) {
+            byId[idOf.applyAsInt(row)] = row;
+        }
+        try {
+            return new ReferenceData<>(byId, List.copyOf(rows), objectMapper.writeValueAsBytes(rows));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize reference data", e);
+        }
+    }
+
+    /**
+     * The row with the given id, if any.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<T> find(Integer id) {
+        if (id == null || id < 0 || id >= byId.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((T) byId[id]);
+    }
+
+    public boolean contains(Integer id) {
+        return find(id).isPresent();
+    }
+
+    /**
+     * All rows, in the order they were loaded.
+     */
+    public List<T> all() {
+        return all;
+    }
+
+    /**
+     * All rows as a JSON array. Callers must not modify the returned array.
+     */
+    public byte[] json() {
+        return json;
+    }
+
+    /**
+     * {@link #json()} compressed with gzip. Callers must not modify the returned array.
+     */
+    public byte[] gzip() {
+        return gzip;
+    }
+
+    /**
+     * Strong ETag of {@link #json()}, quoted.
+     */
+    public String etag() {
+        return etag;
+    }
+
+    /**
+     * Strong ETag of {@link #gzip()}, quoted. Differs from {@link #etag()}, as the encoded
+     * representation is not byte-for-byte the same.
+     */
+    public String gzipEtag() {
+        return gzipEtag;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream stream = new GZIPOutputStream(out)) {
+            stream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compress reference data", e);
+        }
+        return out.toByteArray();
+    }
+}
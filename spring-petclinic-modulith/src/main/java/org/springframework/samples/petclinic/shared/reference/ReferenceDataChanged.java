@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.reference;
+
+/**
+ * Application event asking reference-data registries to reload their tables.
+ *
+ * Published by the {@code referencedata} actuator endpoint, or by any code that changes a
+ * reference table.
+ *
+ * @param table the table that changed, or {@code null} for all of them
+ * @author PetClinic Team
+ */
+public record ReferenceDataChanged(String table) {
+
+    public static ReferenceDataChanged all() {
+        return new ReferenceDataChanged(null);
+    }
+
+    public boolean affects(String table) {
+        return this.table == null || this.table.equalsIgnoreCase(table);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.reference;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for the registry of one reference table.
+ *
+ * Holds the current {@link ReferenceData} snapshot in a volatile field: reads never lock, and a
+ * refresh builds a complete new snapshot before swapping it in, so readers see either the old
+ * or the new table, never a mix. The table is loaded on first use and reloaded on
+ * {@link ReferenceDataChanged}.
+ *
+ * {@link #invalidate()} drops the snapshot so that the next read loads the table again. A refresh
+ * that was already loading when the table was invalidated does not publish its snapshot, which
+ * may predate the change.
+ *
+ * @param <T> the row type
+ * @author PetClinic Team
+ */
+public abstract class ReferenceDataRegistry<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataRegistry.class);
+
+    private final String table;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile ReferenceData<T> snapshot;
+
+    protected ReferenceDataRegistry(String table, ObjectMapper objectMapper) {
+        this.table = table;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Read all rows of the table from the database.
+     */
+    protected abstract List<T> loadRows();
+
+    protected abstract int idOf(T row);
+
+    /**
+     * The current snapshot, loading it if this is the first access.
+     */
+    public ReferenceData<T> snapshot() {
+        ReferenceData<T> current = snapshot;
+        return current != null ? current : load();
+    }
+
+    public Optional<T> find(Integer id) {
+        return snapshot().find(id);
+    }
+
+    /**
+     * Reload the table and atomically replace the snapshot.
+     */
+    public synchronized ReferenceData<T> refresh() {
+        long loading = generation.get();
+        ReferenceData<T> fresh = ReferenceData.of(loadRows(), this::idOf, objectMapper);
+        if (generation.get() == loading) {
+            snapshot = fresh;
+        }
+        log.info("Loaded {} rows of reference table {} (ETag {})", fresh.all().size(), table, fresh.etag());
+        return fresh;
+    }
+
+    /**
+     * Load the table unless a snapshot is there by now: threads that all missed it queue up here,
+     * and only the first one reads the table.
+     */
+    private synchronized ReferenceData<T> load() {
+        ReferenceData<T> current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Drop the current snapshot, the table changed.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @EventListener
+    public void on(ReferenceDataChanged event) {
+        if (event.affects(table)) {
+            refresh();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Stores the items of a bulk request in batches, one call to the store function and so one
+ * transaction per batch, and reports the outcome of every item.
+ *
+ * A batch the database rejects because of its data is split in halves and each half stored again,
+ * down to single items, so only the items at fault are rejected, each with the category of its
+ * failure. Any other failure, e.g. a lost connection, rejects the whole batch. Causes are only
+ * logged, never reported.
+ *
+ * The store function may be called again with items of a batch that failed, so it must not rely
+ * on state a failed call left on them, such as ids assigned before the rollback.
+ *
+ * @param <T> the item type
+ * @param <R> the result of storing one item
+ * @author PetClinic Team
+ */
+public class BatchWriter<T, R> {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchWriter.class);
+
+    static final String BATCH_REJECTED = "batch rejected by the database";
+    static final String DUPLICATE = "rejected by the database: duplicate of an existing record";
+    static final String VALUE_TOO_LARGE = "rejected by the database: a value does not fit its column";
+    static final String CONSTRAINT_VIOLATED = "rejected by the database: constraint violation";
+
+    /**
+     * Receives the outcome of every stored item, keyed like it was added.
+     */
+    public interface Outcome<T, R> {
+
+        void stored(long key, T item, R result);
+
+        void rejected(long key, T item, String reason);
+    }
+
+    private final String name;
+    private final int batchSize;
+    private final Function<List<T>, List<R>> store;
+    private final Outcome<T, R> outcome;
+    private List<T> items;
+    private List<Long> keys;
+
+    /**
+     * @param name what is stored, for the log
+     * @param batchSize the number of items stored together
+     * @param store stores one batch and returns the result of each item, in order
+     * @param outcome receives the outcome of every item
+     */
+    public BatchWriter(String name, int batchSize, Function<List<T>, List<R>> store, Outcome<T, R> outcome) {
+        this.name = name;
+        this.batchSize = batchSize;
+        this.store = store;
+        this.outcome = outcome;
+        this.items = new ArrayList<>(batchSize);
+        this.keys = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * Add an item, storing the batch once it is full.
+     *
+     * @param key identifies the item in the request, e.g. its line or index
+     */
+    public void add(long key, T item) {
+        items.add(item);
+        keys.add(key);
+        if (items.size() == batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Store the items added since the last batch.
+     */
+    public void flush() {
+        if (items.isEmpty()) {
+            return;
+        }
+        write(items, keys);
+        items = new ArrayList<>(batchSize);
+        keys = new ArrayList<>(batchSize);
+    }
+
+    private void write(List<T> batch, List<Long> batchKeys) {
+        List<R> results;
+        try {
+            results = store.apply(batch);
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() > 1) {
+                log.debug("{} batch {}-{} rejected by the database, storing it in halves",
+                    name, batchKeys.get(0), batchKeys.get(batchKeys.size() - 1), e);
+                int half = batch.size() / 2;
+                write(batch.subList(0, half), batchKeys.subList(0, half));
+                write(batch.subList(half, batch.size()), batchKeys.subList(half, batchKeys.size()));
+            } else {
+                log.warn("{} item {} rejected by the database", name, batchKeys.get(0), e);
+                outcome.rejected(batchKeys.get(0), batch.get(0), reason(e));
+            }
+            return;
+        } catch (RuntimeException e) {
+            log.warn("{} batch {}-{} failed", name, batchKeys.get(0), batchKeys.get(batchKeys.size() - 1), e);
+            for (int i = 0; i < batch.size(); i++) {
+                outcome.rejected(batchKeys.get(i), batch.get(i), BATCH_REJECTED);
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            outcome.stored(batchKeys.get(i), batch.get(i), results.get(i));
+        }
+    }
+
+    /**
+     * The category of a data failure, from its exception type or SQL state.
+     */
+    static String reason(DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException) {
+            return DUPLICATE;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getSQLState() != null) {
+                // SQL state class 22 is a data exception, such as a string too long for its column
+                return sql.getSQLState().startsWith("22") ? VALUE_TOO_LARGE : CONSTRAINT_VIOLATED;
+            }
+        }
+        return CONSTRAINT_VIOLATED;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.web;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.samples.petclinic.shared.reference.ReferenceData;
+
+/**
+ * Responses serving a {@link ReferenceData} snapshot straight from its pre-built buffers.
+ *
+ * Clients accepting gzip get the pre-compressed bytes with {@code Content-Encoding: gzip}, which
+ * also keeps the server's response compression from compressing them again. Each encoding has its
+ * own ETag, so conditional requests answer 304 without touching the body.
+ *
+ * @author PetClinic Team
+ */
+public final class ReferenceDataResponses {
+
+    private ReferenceDataResponses() {
+    }
+
+    /**
+     * 200 with the snapshot as JSON, gzipped if the {@code Accept-Encoding} header allows it.
+     */
+    public static ResponseEntity<byte[]> ok(ReferenceData<?> data, @Nullable String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .eTag(data.gzipEtag())
+                .body(data.gzip());
+        }
+        return response
+            .eTag(data.etag())
+            .body(data.json());
+    }
+
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -20,10 +20,14 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -52,6 +56,8 @@ import java.util.stream.Collectors;
  * - ResponseStatusException (various)
  * - MethodArgumentNotValidException (400 - validation errors)
  * - ConstraintViolationException (400 - constraint violations)
+ * - PessimisticLockingFailureException (503 - lock wait timed out, retry later)
+ * - InvalidRequestException (400 - malformed request parameters such as cursors, also inside request bodies)
  * - Generic exceptions (500)
  *
  * @author PetClinic Team
@@ -136,6 +142,33 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.badRequest().body(errorResponse);
     }
 
+    /**
+     * Handle unreadable request bodies.
+     * Returns 400 Bad Request with the message of an {@link InvalidRequestException} raised while
+     * reading the body, such as a rejected field value, and the default response otherwise.
+     */
+    @Override
+    protected ResponseEntity<Object> handleHttpMessageNotReadable(
+            HttpMessageNotReadableException ex,
+            HttpHeaders headers,
+            HttpStatusCode status,
+            WebRequest request) {
+
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof InvalidRequestException invalid) {
+                log.debug("Invalid request body: {}", invalid.getMessage());
+                ErrorResponse errorResponse = new ErrorResponse(
+                    HttpStatus.BAD_REQUEST.value(),
+                    "Bad Request",
+                    invalid.getMessage(),
+                    ((ServletWebRequest) request).getRequest().getRequestURI()
+                );
+                return ResponseEntity.badRequest().body(errorResponse);
+            }
+        }
+        return super.handleHttpMessageNotReadable(ex, headers, status, request);
+    }
+
     /**
      * Handle constraint violations (e.g., @Min, @Max on path variables).
      * Returns 400 Bad Request with constraint violation details.
@@ -159,6 +192,62 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         );
     }
 
+    /**
+     * Handle optimistic locking failures: the resource was changed since the client read it.
+     * Returns 412 Precondition Failed when the request was conditional on If-Match, 409 Conflict otherwise.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(
+            OptimisticLockingFailureException ex, HttpServletRequest request) {
+        log.debug("Optimistic locking failure: {}", ex.getMessage());
+        HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null
+            ? HttpStatus.PRECONDITION_FAILED
+            : HttpStatus.CONFLICT;
+        ErrorResponse error = new ErrorResponse(
+            status.value(),
+            status.getReasonPhrase(),
+            "The resource was changed by another request, read it again before updating",
+            request.getRequestURI()
+        );
+        return ResponseEntity.status(status).body(error);
+    }
+
+    /**
+     * Handle lock waits that timed out, in the application or in the database: the resource is busy.
+     * Returns 503 Service Unavailable with a Retry-After header; the lock details are only logged.
+     */
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handlePessimisticLockingFailure(
+            PessimisticLockingFailureException ex, HttpServletRequest request) {
+        log.warn("Lock wait failed: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE.value(),
+            HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase(),
+            "The resource is busy with other requests, please try again shortly",
+            request.getRequestURI()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(error);
+    }
+
+    /**
+     * Handle malformed request input detected below the web layer (e.g., an invalid paging cursor).
+     * Returns 400 Bad Request with the exception message, which is written for the client.
+     * Any other IllegalArgumentException is a server bug and ends up as a 500.
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidRequest(InvalidRequestException ex, HttpServletRequest request) {
+        log.debug("Invalid request: {}", ex.getMessage());
+        return new ErrorResponse(
+            HttpStatus.BAD_REQUEST.value(),
+            "Bad Request",
+            ex.getMessage(),
+            request.getRequestURI()
+        );
+    }
+
     /**
      * Handle all other exceptions.
      * Returns 500 Internal Server Error.
@@ -15,8 +15,12 @@
  */
 package org.springframework.samples.petclinic.vets;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.samples.petclinic.vets.internal.Specialty;
 
 import java.util.*;
@@ -35,8 +39,19 @@ import java.util.*;
  */
 @Entity
 @Table(name = "vets")
+@NamedEntityGraph(name = Vet.WITH_SPECIALTIES, attributeNodes = @NamedAttributeNode("specialties"))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vets")
 public class Vet {
 
+    /**
+     * Loads vets together with their specialties in one statement.
+     */
+    public static final String WITH_SPECIALTIES = "Vet.withSpecialties";
+
+    private static final Comparator<Specialty> SPECIALTY_ORDER =
+        Comparator.comparing(Specialty::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Specialty::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -49,12 +64,26 @@ public class Vet {
     @NotBlank
     private String lastName;
 
+    /**
+     * Loaded with the {@link #WITH_SPECIALTIES} graph by the repository. Vets loaded without it
+     * get their specialties in batches instead of one statement per vet.
+     */
     @ManyToMany(fetch = FetchType.EAGER)
+    @BatchSize(size = 50)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vets-specialties")
     @JoinTable(name = "vet_specialties", 
         joinColumns = @JoinColumn(name = "vet_id"),
         inverseJoinColumns = @JoinColumn(name = "specialty_id"))
     private Set<Specialty> specialties;
 
+    /**
+     * Optimistic lock version, incremented on every update including changes to the specialties.
+     * Drives the vet's ETag.
+     */
+    @Version
+    @JsonIgnore
+    private Integer version;
+
     protected Set<Specialty> getSpecialtiesInternal() {
         if (this.specialties == null) {
             this.specialties = new HashSet<>();
@@ -62,8 +91,13 @@ public class Vet {
         return this.specialties;
     }
 
+    /**
+     * The specialties sorted by name, so that a vet always serializes the same way.
+     */
     public List<Specialty> getSpecialties() {
-        return new ArrayList<>(getSpecialtiesInternal());
+        List<Specialty> sorted = new ArrayList<>(getSpecialtiesInternal());
+        sorted.sort(SPECIALTY_ORDER);
+        return sorted;
     }
 
     public int getNrOfSpecialties() {
@@ -95,6 +129,10 @@ public class Vet {
         return this.lastName;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
     public void setId(Integer id) {
         this.id = id;
     }
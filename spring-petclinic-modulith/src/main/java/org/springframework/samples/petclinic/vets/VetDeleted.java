@@ -0,0 +1,32 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets;
+
+import org.jmolecules.event.types.DomainEvent;
+
+/**
+ * Domain event published when a vet is deleted.
+ * 
+ * @param vetId the ID of the deleted vet
+ * @param vetName the full name of the vet
+ * 
+ * @author PetClinic Team
+ */
+public record VetDeleted(
+    Integer vetId,
+    String vetName
+) implements DomainEvent {
+}
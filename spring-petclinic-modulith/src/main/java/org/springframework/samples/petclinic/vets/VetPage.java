@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets;
+
+import java.util.List;
+
+/**
+ * One page of vets matching a specialty search, ordered by ID.
+ *
+ * This is a public API type returned by {@link VetService#search}.
+ *
+ * @param vets the vets on this page, in ID order
+ * @param page the zero-based page number
+ * @param size the requested page size
+ * @param totalCount total number of matching vets
+ *
+ * @author PetClinic Team
+ */
+public record VetPage(List<Vet> vets, int page, int size, int totalCount) {
+
+    public boolean hasNext() {
+        return (long) (page + 1) * size < totalCount;
+    }
+}
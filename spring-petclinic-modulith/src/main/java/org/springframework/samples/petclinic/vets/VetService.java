@@ -15,8 +15,10 @@
  */
 package org.springframework.samples.petclinic.vets;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Public VetService interface that other modules can depend on.
@@ -34,6 +36,28 @@ public interface VetService {
      * @return the vet if found
      */
     Optional<Vet> findById(Integer vetId);
+
+    /**
+     * Find the version of a vet, without loading it.
+     *
+     * @param vetId the vet ID
+     * @return the version if the vet exists
+     */
+    Optional<Integer> findVersion(Integer vetId);
+
+    /**
+     * Check whether a vet exists, without loading it or its specialties.
+     * @param vetId the vet ID
+     * @return whether the vet exists
+     */
+    boolean exists(Integer vetId);
+
+    /**
+     * Check which of the given vets exist, in one query and without loading them.
+     * @param vetIds the vet IDs
+     * @return the IDs of the vets that exist
+     */
+    Set<Integer> existingIds(Collection<Integer> vetIds);
     
     /**
      * Find all vets.
@@ -41,6 +65,18 @@ public interface VetService {
      * @return list of all vets
      */
     List<Vet> findAll();
+
+    /**
+     * Find vets by specialty, served from an in-memory index of the vets' specialties.
+     *
+     * @param specialties the specialty names, matched ignoring case
+     * @param matchAll whether a vet must have all of the specialties, or any of them
+     * @param page the zero-based page number
+     * @param size the page size
+     * @return the requested page of matching vets
+     * @throws IllegalArgumentException if no specialty is given
+     */
+    VetPage search(Collection<String> specialties, boolean matchAll, int page, int size);
     
     /**
      * Create a new vet.
@@ -59,6 +95,17 @@ public interface VetService {
      */
     Vet update(Integer vetId, Vet vet);
 
+    /**
+     * Update an existing vet, provided it is still at the version the caller read.
+     *
+     * @param vetId the vet ID
+     * @param vet the vet data to update
+     * @param expectedVersion the {@link #findVersion version} the update is based on, or {@code null} for no check
+     * @return the updated vet
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the vet was changed since
+     */
+    Vet update(Integer vetId, Vet vet, Integer expectedVersion);
+
     /**
      * Delete a vet by ID.
      *
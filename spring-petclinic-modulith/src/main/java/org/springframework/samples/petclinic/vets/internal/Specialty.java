@@ -16,6 +16,8 @@
 package org.springframework.samples.petclinic.vets.internal;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Internal: Vet Specialty entity.
@@ -28,6 +30,7 @@ import jakarta.persistence.*;
  */
 @Entity
 @Table(name = "specialties")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "specialties")
 public class Specialty {
     
     @Id
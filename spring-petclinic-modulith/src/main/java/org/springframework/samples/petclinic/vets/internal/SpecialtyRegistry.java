@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Sort;
+import org.springframework.samples.petclinic.shared.reference.ReferenceDataRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Internal: In-memory registry of the vet specialties.
+ *
+ * @author PetClinic Team
+ */
+@Component
+public class SpecialtyRegistry extends ReferenceDataRegistry<Specialty> {
+
+    private final SpecialtyRepository specialtyRepository;
+
+    SpecialtyRegistry(SpecialtyRepository specialtyRepository, ObjectMapper objectMapper) {
+        super("specialties", objectMapper);
+        this.specialtyRepository = specialtyRepository;
+    }
+
+    @Override
+    protected List<Specialty> loadRows() {
+        return specialtyRepository.findAll(Sort.by("id"));
+    }
+
+    @Override
+    protected int idOf(Specialty specialty) {
+        return specialty.getId();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration of the read-through caches in front of {@code VetService}: the vet list and
+ * vets by ID.
+ *
+ * Bounded Caffeine caches with a time-to-live as a safety net; entries are evicted precisely by
+ * {@link VetCacheInvalidator}. Besides the standard cache metrics (gets by result, evictions,
+ * load duration) they publish their hit ratio.
+ *
+ * @author PetClinic Team
+ */
+@Configuration(proxyBeanMethods = false)
+class VetCacheConfig {
+
+    static final String VETS_CACHE = "vets";
+
+    static final String VET_CACHE = "vet";
+
+    private static final List<String> CACHES = List.of(VETS_CACHE, VET_CACHE);
+
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> vetsCacheCustomizer(
+        @Value("${petclinic.cache.vets.maximum-size:1000}") long maximumSize,
+        @Value("${petclinic.cache.vets.time-to-live:1h}") Duration timeToLive) {
+        return cacheManager -> CACHES.forEach(name -> cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .recordStats()
+            .build()));
+    }
+
+    @Bean
+    MeterBinder vetsCacheHitRatio(CacheManager cacheManager) {
+        return registry -> CACHES.forEach(name -> {
+            if (cacheManager.getCache(name) instanceof CaffeineCache cache) {
+                Gauge.builder("cache.hit.ratio", cache.getNativeCache(), nativeCache -> nativeCache.stats().hitRate())
+                    .tag("cache", name)
+                    .description("Share of vet lookups answered from the cache")
+                    .register(registry);
+            }
+        });
+    }
+}
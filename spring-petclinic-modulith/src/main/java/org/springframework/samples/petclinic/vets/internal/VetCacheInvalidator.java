@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.samples.petclinic.vets.SpecialtyAdded;
+import org.springframework.samples.petclinic.vets.VetCreated;
+import org.springframework.samples.petclinic.vets.VetDeleted;
+import org.springframework.samples.petclinic.vets.VetUpdated;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts vets from the vet caches when they change, whoever changed them.
+ *
+ * Eviction happens once the change is committed; events published outside a transaction
+ * evict right away. Any change evicts the vet list and the vet itself; created vets are
+ * evicted too, in case their id was looked up, and cached as missing, before it existed.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class VetCacheInvalidator {
+
+    private final Cache vets;
+    private final Cache vet;
+
+    VetCacheInvalidator(CacheManager cacheManager) {
+        this.vets = cacheManager.getCache(VetCacheConfig.VETS_CACHE);
+        this.vet = cacheManager.getCache(VetCacheConfig.VET_CACHE);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VetCreated event) {
+        evict(event.vetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VetUpdated event) {
+        evict(event.vetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VetDeleted event) {
+        evict(event.vetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(SpecialtyAdded event) {
+        evict(event.vetId());
+    }
+
+    private void evict(Integer vetId) {
+        if (vets != null) {
+            vets.clear();
+        }
+        if (vet != null) {
+            vet.evict(vetId);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.samples.petclinic.shared.reference.ReferenceDataRegistry;
+import org.springframework.samples.petclinic.vets.SpecialtyAdded;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetCreated;
+import org.springframework.samples.petclinic.vets.VetDeleted;
+import org.springframework.samples.petclinic.vets.VetUpdated;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Internal: The vet directory, all vets with their specialties, pre-serialized for {@code GET /vets}.
+ *
+ * Vets are loaded by id and their specialties by name, so unchanged data always serializes to the
+ * same bytes and keeps its ETag across rebuilds, restarts and instances.
+ *
+ * Once a vet change is committed the directory is invalidated, so the next read never sees the old
+ * list, and rebuilt in the background, so that usually no request has to wait for it. Changes that
+ * arrive while a rebuild is queued share that rebuild.
+ *
+ * @author PetClinic Team
+ */
+@Component
+public class VetDirectory extends ReferenceDataRegistry<Vet> implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(VetDirectory.class);
+
+    private final VetRepository vetRepository;
+    private final TransactionTemplate readOnly;
+    private final ExecutorService rebuilder =
+        Executors.newSingleThreadExecutor(new CustomizableThreadFactory("vet-directory-"));
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    VetDirectory(VetRepository vetRepository, PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        super("vets", objectMapper);
+        this.vetRepository = vetRepository;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @Override
+    protected List<Vet> loadRows() {
+        return readOnly.execute(status -> vetRepository.findAll(Sort.by("id")));
+    }
+
+    @Override
+    protected int idOf(Vet vet) {
+        return vet.getId();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VetCreated event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VetUpdated event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VetDeleted event) {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(SpecialtyAdded event) {
+        rebuild();
+    }
+
+    private void rebuild() {
+        invalidate();
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    refresh();
+                } catch (RuntimeException ex) {
+                    log.warn("Could not rebuild the vet directory, the next request will load it", ex);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+}
@@ -15,9 +15,22 @@
  */
 package org.springframework.samples.petclinic.vets.internal;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.vets.Vet;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 /**
  * Internal: Repository for Vet entity.
  * 
@@ -28,4 +41,47 @@ import org.springframework.samples.petclinic.vets.Vet;
  * @author PetClinic Team
  */
 interface VetRepository extends JpaRepository<Vet, Integer> {
+
+    /**
+     * All vets with their specialties in a single statement. Cacheable, so with the second-level
+     * cache the list and the vets' specialties need no statement at all.
+     */
+    @Override
+    @EntityGraph(Vet.WITH_SPECIALTIES)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<Vet> findAll();
+
+    /**
+     * All vets with their specialties in a single statement, in the given order.
+     */
+    @Override
+    @EntityGraph(Vet.WITH_SPECIALTIES)
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<Vet> findAll(Sort sort);
+
+    /**
+     * A vet with its specialties in a single statement.
+     */
+    @Override
+    @EntityGraph(Vet.WITH_SPECIALTIES)
+    Optional<Vet> findById(Integer id);
+
+    /**
+     * The given vets with their specialties in a single statement.
+     */
+    @EntityGraph(Vet.WITH_SPECIALTIES)
+    List<Vet> findByIdIn(Collection<Integer> ids, Sort sort);
+
+    /**
+     * Version of a vet, without loading it or its specialties.
+     */
+    @Query("SELECT v.version FROM Vet v WHERE v.id = :id")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    Optional<Integer> findVersionById(@Param("id") Integer id);
+
+    /**
+     * Which of the given vets exist, read from the primary key index only.
+     */
+    @Query("SELECT v.id FROM Vet v WHERE v.id IN :ids")
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
@@ -19,16 +19,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
 import org.springframework.samples.petclinic.vets.Vet;
 import org.springframework.samples.petclinic.vets.VetCreated;
+import org.springframework.samples.petclinic.vets.VetDeleted;
+import org.springframework.samples.petclinic.vets.VetPage;
 import org.springframework.samples.petclinic.vets.VetService;
 import org.springframework.samples.petclinic.vets.VetUpdated;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Internal implementation of VetService.
@@ -44,28 +52,76 @@ class VetServiceImpl implements VetService {
     private static final Logger log = LoggerFactory.getLogger(VetServiceImpl.class);
     
     private final VetRepository vetRepository;
+    private final VetSpecialtyIndex specialtyIndex;
     private final ApplicationEventPublisher events;
     
-    VetServiceImpl(VetRepository vetRepository, ApplicationEventPublisher events) {
+    VetServiceImpl(VetRepository vetRepository, VetSpecialtyIndex specialtyIndex, ApplicationEventPublisher events) {
         this.vetRepository = vetRepository;
+        this.specialtyIndex = specialtyIndex;
         this.events = events;
     }
     
+    /**
+     * Read-through cached; see {@link VetCacheInvalidator} for how entries are evicted.
+     */
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = VetCacheConfig.VET_CACHE, sync = true)
     public Optional<Vet> findById(Integer vetId) {
         log.debug("Finding vet by ID: {}", vetId);
         return vetRepository.findById(vetId);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Integer> findVersion(Integer vetId) {
+        return vetRepository.findVersionById(vetId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean exists(Integer vetId) {
+        return vetId != null && vetRepository.existsById(vetId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<Integer> existingIds(Collection<Integer> vetIds) {
+        return vetIds.isEmpty() ? Set.of() : vetRepository.findExistingIds(vetIds);
+    }
     
+    /**
+     * Read-through cached; see {@link VetCacheInvalidator} for how entries are evicted.
+     */
     @Override
     @Transactional(readOnly = true)
-    @Cacheable("vets")
+    @Cacheable(cacheNames = VetCacheConfig.VETS_CACHE, sync = true)
     public List<Vet> findAll() {
         log.debug("Finding all vets");
         return vetRepository.findAll();
     }
     
+    /**
+     * Matches vets against the {@link VetSpecialtyIndex} and loads only the requested page.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public VetPage search(Collection<String> specialties, boolean matchAll, int page, int size) {
+        if (specialties.isEmpty()) {
+            throw new InvalidRequestException("At least one specialty is required");
+        }
+        BitSet matches = matchAll ? specialtyIndex.all(specialties) : specialtyIndex.any(specialties);
+        log.debug("Found {} vets with {} of {}", matches.cardinality(), matchAll ? "all" : "any", specialties);
+
+        List<Integer> ids = matches.stream()
+            .skip((long) page * size)
+            .limit(size)
+            .boxed()
+            .toList();
+        List<Vet> vets = ids.isEmpty() ? List.of() : vetRepository.findByIdIn(ids, Sort.by("id"));
+        return new VetPage(vets, page, size, matches.cardinality());
+    }
+    
     @Override
     public Vet save(Vet vet) {
         log.info("Creating new vet: {}", vet.getFullName());
@@ -84,10 +140,20 @@ class VetServiceImpl implements VetService {
     
     @Override
     public Vet update(Integer vetId, Vet vet) {
+        return update(vetId, vet, null);
+    }
+
+    @Override
+    public Vet update(Integer vetId, Vet vet, Integer expectedVersion) {
         log.info("Updating vet ID: {}", vetId);
         
         Vet existingVet = vetRepository.findById(vetId)
             .orElseThrow(() -> new ResourceNotFoundException("Vet", vetId));
+
+        // Changes committed after this check are caught by the @Version check of the update
+        if (expectedVersion != null && !expectedVersion.equals(existingVet.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Vet.class, vetId);
+        }
         
         // Update fields
         existingVet.setFirstName(vet.getFirstName());
@@ -114,6 +180,11 @@ class VetServiceImpl implements VetService {
 
         vetRepository.deleteById(vetId);
 
+        events.publishEvent(new VetDeleted(
+            existingVet.getId(),
+            existingVet.getFullName()
+        ));
+
         log.info("Vet deleted: {} {}", existingVet.getFirstName(), existingVet.getLastName());
     }
 }
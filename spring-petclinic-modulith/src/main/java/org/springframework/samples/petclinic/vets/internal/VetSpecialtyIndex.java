@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index from specialty to vets.
+ *
+ * Each specialty maps to a bitmap of the IDs of the vets having it, so "all of" queries are
+ * bitmap intersections and "any of" queries bitmap unions. Vet IDs are dense identity values,
+ * which keeps the bitmaps at about one bit per vet.
+ *
+ * Reads are lock-free on an immutable snapshot; writes are serialized and publish a new snapshot,
+ * copying only the bitmaps they change, since vets change rarely.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class VetSpecialtyIndex {
+
+    private record Snapshot(Map<String, BitSet> vetsBySpecialty, Map<Integer, Set<String>> specialtiesByVet) {
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    /**
+     * Set the specialties of a vet, replacing the ones indexed before.
+     */
+    synchronized void put(Integer vetId, Collection<String> specialties) {
+        Set<String> keys = specialties.stream().map(VetSpecialtyIndex::key).collect(Collectors.toUnmodifiableSet());
+        Snapshot current = snapshot;
+        Set<String> previous = current.specialtiesByVet().getOrDefault(vetId, Set.of());
+        if (previous.equals(keys)) {
+            return;
+        }
+
+        Map<String, BitSet> vetsBySpecialty = new HashMap<>(current.vetsBySpecialty());
+        for (String key : previous) {
+            if (!keys.contains(key)) {
+                BitSet vets = copy(vetsBySpecialty.get(key));
+                vets.clear(vetId);
+                if (vets.isEmpty()) {
+                    vetsBySpecialty.remove(key);
+                } else {
+                    vetsBySpecialty.put(key, vets);
+                }
+            }
+        }
+        for (String key : keys) {
+            if (!previous.contains(key)) {
+                BitSet vets = copy(vetsBySpecialty.get(key));
+                vets.set(vetId);
+                vetsBySpecialty.put(key, vets);
+            }
+        }
+
+        Map<Integer, Set<String>> specialtiesByVet = new HashMap<>(current.specialtiesByVet());
+        specialtiesByVet.put(vetId, keys);
+        snapshot = new Snapshot(vetsBySpecialty, specialtiesByVet);
+    }
+
+    /**
+     * Remove a vet from the index.
+     */
+    synchronized void remove(Integer vetId) {
+        put(vetId, List.of());
+        Map<Integer, Set<String>> specialtiesByVet = new HashMap<>(snapshot.specialtiesByVet());
+        specialtiesByVet.remove(vetId);
+        snapshot = new Snapshot(snapshot.vetsBySpecialty(), specialtiesByVet);
+    }
+
+    /**
+     * Replace the whole index, e.g. after reloading all vets.
+     */
+    synchronized void replaceAll(Map<Integer, ? extends Collection<String>> specialtiesByVet) {
+        snapshot = new Snapshot(Map.of(), Map.of());
+        specialtiesByVet.forEach(this::put);
+    }
+
+    /**
+     * IDs of the vets having all of the given specialties.
+     */
+    BitSet all(Collection<String> specialties) {
+        Map<String, BitSet> vetsBySpecialty = snapshot.vetsBySpecialty();
+        BitSet result = null;
+        for (String specialty : specialties) {
+            BitSet vets = vetsBySpecialty.get(key(specialty));
+            if (vets == null) {
+                return new BitSet();
+            }
+            if (result == null) {
+                result = copy(vets);
+            } else {
+                result.and(vets);
+            }
+        }
+        return result != null ? result : new BitSet();
+    }
+
+    /**
+     * IDs of the vets having any of the given specialties.
+     */
+    BitSet any(Collection<String> specialties) {
+        Map<String, BitSet> vetsBySpecialty = snapshot.vetsBySpecialty();
+        BitSet result = new BitSet();
+        for (String specialty : specialties) {
+            BitSet vets = vetsBySpecialty.get(key(specialty));
+            if (vets != null) {
+                result.or(vets);
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return snapshot.specialtiesByVet().size();
+    }
+
+    private static BitSet copy(BitSet bits) {
+        return bits != null ? (BitSet) bits.clone() : new BitSet();
+    }
+
+    private static String key(String specialty) {
+        return specialty.trim().toLowerCase(Locale.ROOT);
+    }
+}
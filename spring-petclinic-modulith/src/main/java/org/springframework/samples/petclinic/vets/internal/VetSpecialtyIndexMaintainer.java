@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.vets.SpecialtyAdded;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetCreated;
+import org.springframework.samples.petclinic.vets.VetDeleted;
+import org.springframework.samples.petclinic.vets.VetUpdated;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link VetSpecialtyIndex} in sync with the vets and their specialties.
+ *
+ * The index is built from the database once the application is ready. Afterwards it follows vet
+ * events as soon as their transaction commits, re-reading the changed vet in a new transaction.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class VetSpecialtyIndexMaintainer {
+
+    private static final Logger log = LoggerFactory.getLogger(VetSpecialtyIndexMaintainer.class);
+
+    private final VetSpecialtyIndex index;
+    private final VetRepository vetRepository;
+
+    VetSpecialtyIndexMaintainer(VetSpecialtyIndex index, VetRepository vetRepository) {
+        this.index = index;
+        this.vetRepository = vetRepository;
+    }
+
+    @EventListener
+    @Transactional(readOnly = true)
+    public void on(ApplicationReadyEvent event) {
+        index.replaceAll(vetRepository.findAll().stream()
+            .collect(Collectors.toMap(Vet::getId, VetSpecialtyIndexMaintainer::specialtyNames)));
+        log.info("Vet specialty index built with {} vets", index.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    void on(VetCreated event) {
+        reindex(event.vetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    void on(VetUpdated event) {
+        reindex(event.vetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    void on(SpecialtyAdded event) {
+        reindex(event.vetId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VetDeleted event) {
+        index.remove(event.vetId());
+    }
+
+    private void reindex(Integer vetId) {
+        vetRepository.findById(vetId).ifPresentOrElse(
+            vet -> index.put(vetId, specialtyNames(vet)),
+            () -> index.remove(vetId));
+    }
+
+    private static List<String> specialtyNames(Vet vet) {
+        return vet.getSpecialties().stream().map(Specialty::getName).toList();
+    }
+}
@@ -17,18 +17,26 @@ package org.springframework.samples.petclinic.vets.internal.web;
 
 import io.micrometer.core.annotation.Timed;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+import org.springframework.samples.petclinic.shared.web.ReferenceDataResponses;
 import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetPage;
 import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.vets.internal.SpecialtyRegistry;
+import org.springframework.samples.petclinic.vets.internal.VetDirectory;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 /**
  * REST controller for managing vets.
@@ -47,27 +55,65 @@ class VetResource {
 
     private static final Logger log = LoggerFactory.getLogger(VetResource.class);
     private final VetService vetService;
+    private final VetDirectory vetDirectory;
+    private final SpecialtyRegistry specialtyRegistry;
 
-    VetResource(VetService vetService) {
+    VetResource(VetService vetService, VetDirectory vetDirectory, SpecialtyRegistry specialtyRegistry) {
         this.vetService = vetService;
+        this.vetDirectory = vetDirectory;
+        this.specialtyRegistry = specialtyRegistry;
     }
 
     /**
-     * Get all vets.
+     * Get all vets, served from the pre-serialized vet directory.
      */
     @GetMapping
-    @Cacheable("vets")
-    public List<Vet> showResourcesVetList() {
-        return vetService.findAll();
+    public ResponseEntity<byte[]> showResourcesVetList(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return ReferenceDataResponses.ok(vetDirectory.snapshot(), acceptEncoding);
     }
 
     /**
-     * Get a specific vet by ID.
+     * Get all specialties, served from the pre-serialized registry snapshot.
+     */
+    @GetMapping("/specialties")
+    public ResponseEntity<byte[]> getSpecialties(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return ReferenceDataResponses.ok(specialtyRegistry.snapshot(), acceptEncoding);
+    }
+
+    /**
+     * Search vets by specialty: {@code mode=all} returns the vets having every given specialty,
+     * {@code mode=any} those having at least one. Pages are in vet ID order.
+     */
+    @GetMapping("/search")
+    public VetPage searchVets(@RequestParam("specialty") List<String> specialties,
+                              @RequestParam(value = "mode", defaultValue = "all") String mode,
+                              @RequestParam(value = "page", defaultValue = "0") @Min(0) int page,
+                              @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(100) int size) {
+        boolean matchAll = switch (mode) {
+            case "all" -> true;
+            case "any" -> false;
+            default -> throw new InvalidRequestException("Unsupported mode: " + mode + ", expected all or any");
+        };
+        return vetService.search(specialties, matchAll, page, size);
+    }
+
+    /**
+     * Get a specific vet by ID, with its version as ETag.
+     * Answers 304 from a version lookup, without loading the vet, when {@code If-None-Match} matches.
      */
     @GetMapping("/{vetId}")
-    public Vet findVet(@PathVariable("vetId") @Min(1) int vetId) {
-        return vetService.findById(vetId)
+    public ResponseEntity<Vet> findVet(@PathVariable("vetId") @Min(1) int vetId, WebRequest request) {
+        Optional<Integer> version = vetService.findVersion(vetId);
+        if (version.isPresent() && request.checkNotModified(String.valueOf(version.get()))) {
+            return null;
+        }
+        Vet vet = vetService.findById(vetId)
             .orElseThrow(() -> new NoSuchElementException("Vet not found with id: " + vetId));
+        return ResponseEntity.ok()
+            .eTag(String.valueOf(vet.getVersion()))
+            .body(vet);
     }
 
     /**
@@ -75,22 +121,27 @@ class VetResource {
      */
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    @CacheEvict(value = "vets", allEntries = true)
     public Vet createVet(@Valid @RequestBody Vet vet) {
         log.info("Creating new vet: {} {}", vet.getFirstName(), vet.getLastName());
         return vetService.save(vet);
     }
 
     /**
-     * Update an existing vet.
+     * Update an existing vet. With {@code If-Match}, the update only applies to the version the client
+     * read and answers 412 otherwise.
      */
     @PutMapping("/{vetId}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    @CacheEvict(value = "vets", allEntries = true)
-    public void updateVet(@PathVariable("vetId") @Min(1) int vetId,
-                         @Valid @RequestBody Vet vet) {
+    public ResponseEntity<Void> updateVet(@PathVariable("vetId") @Min(1) int vetId,
+                                          @Valid @RequestBody Vet vet,
+                                          WebRequest request) {
+        Optional<Integer> version = vetService.findVersion(vetId);
+        if (version.isPresent() && request.checkNotModified(String.valueOf(version.get()))) {
+            return null;
+        }
         log.info("Updating vet with id: {}", vetId);
-        vetService.update(vetId, vet);
+        Integer expectedVersion = request.getHeader(HttpHeaders.IF_MATCH) != null ? version.orElse(null) : null;
+        vetService.update(vetId, vet, expectedVersion);
+        return ResponseEntity.noContent().build();
     }
 
     /**
@@ -98,7 +149,6 @@ class VetResource {
      */
     @DeleteMapping("/{vetId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    @CacheEvict(value = "vets", allEntries = true)
     public void deleteVet(@PathVariable("vetId") @Min(1) int vetId) {
         log.info("Deleting vet with id: {}", vetId);
         vetService.findById(vetId)
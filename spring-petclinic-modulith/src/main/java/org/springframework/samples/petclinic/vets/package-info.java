@@ -25,6 +25,7 @@
  *   <li>{@link org.springframework.samples.petclinic.vets.VetService} - Service for vet operations</li>
  *   <li>{@link org.springframework.samples.petclinic.vets.VetCreated} - Domain event</li>
  *   <li>{@link org.springframework.samples.petclinic.vets.VetUpdated} - Domain event</li>
+ *   <li>{@link org.springframework.samples.petclinic.vets.VetDeleted} - Domain event</li>
  *   <li>{@link org.springframework.samples.petclinic.vets.SpecialtyAdded} - Domain event</li>
  * </ul>
  * 
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Outcome of scheduling one visit of a batch.
+ * 
+ * @param visit the scheduled visit, {@code null} if it was rejected
+ * @param error why the visit was rejected, {@code null} if it was scheduled
+ * @param alternatives free start times of the vet if the slot was taken, otherwise empty
+ * 
+ * @author PetClinic Team
+ */
+public record ScheduleResult(Visit visit, String error, List<Date> alternatives) {
+
+    public static ScheduleResult scheduled(Visit visit) {
+        return new ScheduleResult(visit, null, List.of());
+    }
+
+    public static ScheduleResult rejected(String error) {
+        return new ScheduleResult(null, error, List.of());
+    }
+
+    public static ScheduleResult rejected(SlotUnavailableException ex) {
+        return new ScheduleResult(null, ex.getMessage(), ex.getAlternatives());
+    }
+
+    public boolean isScheduled() {
+        return visit != null;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Exception thrown when a visit cannot be booked at the requested time, because the vet is
+ * already booked or the slot lies outside the vet's working hours.
+ *
+ * Carries the next free start times of the same vet for a visit of the same duration, so the
+ * caller can offer them instead.
+ *
+ * @author PetClinic Team
+ */
+public class SlotUnavailableException extends RuntimeException {
+
+    private final Integer vetId;
+    private final List<Date> alternatives;
+
+    public SlotUnavailableException(String message, Integer vetId, List<Date> alternatives) {
+        super(message);
+        this.vetId = vetId;
+        this.alternatives = List.copyOf(alternatives);
+    }
+
+    public Integer getVetId() {
+        return vetId;
+    }
+
+    /**
+     * Next free start times for the same visit, earliest first. May be empty.
+     */
+    public List<Date> getAlternatives() {
+        return alternatives;
+    }
+}
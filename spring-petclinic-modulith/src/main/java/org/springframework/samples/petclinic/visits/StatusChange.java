@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import java.util.List;
+
+/**
+ * Outcome of completing or cancelling many visits at once.
+ * 
+ * Only scheduled visits change their status. The others are reported instead of failing the
+ * whole request.
+ * 
+ * @param status the status the visits were moved to
+ * @param changed IDs of the visits that changed, in ascending order
+ * @param conflicting IDs of visits that exist but were no longer scheduled
+ * @param notFound IDs of visits that do not exist
+ * 
+ * @author PetClinic Team
+ */
+public record StatusChange(VisitStatus status, List<Integer> changed, List<Integer> conflicting,
+                           List<Integer> notFound) {
+
+    public StatusChange {
+        changed = List.copyOf(changed);
+        conflicting = List.copyOf(conflicting);
+        notFound = List.copyOf(notFound);
+    }
+}
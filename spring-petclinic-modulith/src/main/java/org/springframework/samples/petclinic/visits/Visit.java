@@ -15,10 +15,14 @@
  */
 package org.springframework.samples.petclinic.visits;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Size;
 
+import java.time.Duration;
 import java.util.Date;
 
 /**
@@ -29,6 +33,11 @@ import java.util.Date;
  * - A Vet (via vetId from vets module)
  * - A timestamp and description of the visit
  * 
+ * A visit occupies its vet from {@code visitDate} for {@code durationMinutes}. The end of that
+ * slot is stored as {@code endDate} so that overlapping bookings can be found with an index.
+ * Dates are read as ISO-8601 instants; a plain {@code yyyy-MM-dd} visit date is rejected, as it has
+ * no time of day to book.
+ * 
  * @author PetClinic Team
  */
 @Entity
@@ -36,7 +45,8 @@ import java.util.Date;
 public class Visit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visits_seq")
+    @SequenceGenerator(name = "visits_seq", sequenceName = "visits_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "pet_id")
@@ -47,15 +57,26 @@ public class Visit {
 
     @Column(name = "visit_date")
     @Temporal(TemporalType.TIMESTAMP)
-    @JsonFormat(pattern = "yyyy-MM-dd")
+    @JsonDeserialize(using = VisitDateDeserializer.class)
     private Date visitDate = new Date();
 
+    @Column(name = "duration_minutes")
+    @Min(1)
+    @Max(24 * 60)
+    private Integer durationMinutes;
+
+    @Column(name = "end_date")
+    @Temporal(TemporalType.TIMESTAMP)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Date endDate;
+
     @Size(max = 8192)
     @Column(name = "description")
     private String description;
 
-    @Column(name = "status")
-    private String status = "SCHEDULED";  // SCHEDULED, COMPLETED, CANCELLED
+    @Column(name = "status", length = 1)
+    @Convert(converter = VisitStatusConverter.class)
+    private VisitStatus status = VisitStatus.SCHEDULED;
 
     // Constructors
     public Visit() {
@@ -100,6 +121,33 @@ public class Visit {
         this.visitDate = visitDate;
     }
 
+    public Integer getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(Integer durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * End of the slot the visit occupies, derived from the visit date and duration when saved.
+     * A visit that was never saved, such as an archived one, derives it on the fly.
+     */
+    public Date getEndDate() {
+        if (endDate == null && visitDate != null && durationMinutes != null) {
+            return Date.from(visitDate.toInstant().plus(Duration.ofMinutes(durationMinutes)));
+        }
+        return endDate;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void computeEndDate() {
+        if (visitDate != null && durationMinutes != null) {
+            endDate = Date.from(visitDate.toInstant().plus(Duration.ofMinutes(durationMinutes)));
+        }
+    }
+
     public String getDescription() {
         return description;
     }
@@ -108,11 +156,11 @@ public class Visit {
         this.description = description;
     }
 
-    public String getStatus() {
+    public VisitStatus getStatus() {
         return status;
     }
 
-    public void setStatus(String status) {
+    public void setStatus(VisitStatus status) {
         this.status = status;
     }
 
@@ -123,8 +171,9 @@ public class Visit {
                 ", petId=" + petId +
                 ", vetId=" + vetId +
                 ", visitDate=" + visitDate +
+                ", durationMinutes=" + durationMinutes +
                 ", description='" + description + '\'' +
-                ", status='" + status + '\'' +
+                ", status=" + status +
                 '}';
     }
 }
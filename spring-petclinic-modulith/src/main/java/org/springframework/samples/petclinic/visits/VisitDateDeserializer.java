@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.DateDeserializers;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.regex.Pattern;
+
+/**
+ * Reads {@link Visit#getVisitDate()} like any other date, except that a plain {@code yyyy-MM-dd}
+ * date is rejected: it would book the visit at midnight UTC, outside any working hours.
+ * 
+ * @author PetClinic Team
+ */
+class VisitDateDeserializer extends StdScalarDeserializer<Date> {
+
+    private static final Pattern DATE_ONLY = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    VisitDateDeserializer() {
+        super(Date.class);
+    }
+
+    @Override
+    public Date deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.hasToken(JsonToken.VALUE_STRING) && DATE_ONLY.matcher(parser.getText().trim()).matches()) {
+            throw new InvalidRequestException(
+                "visitDate must be an ISO-8601 instant, a plain date has no time of day: " + parser.getText().trim());
+        }
+        return DateDeserializers.DateDeserializer.instance.deserialize(parser, context);
+    }
+}
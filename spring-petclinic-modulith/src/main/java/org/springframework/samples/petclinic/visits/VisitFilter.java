@@ -0,0 +1,56 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Date range, status and sort order of a paginated visit query.
+ * 
+ * @param from earliest visit date, inclusive; {@code null} for no lower bound
+ * @param to latest visit date, exclusive; {@code null} for no upper bound
+ * @param statuses the statuses to include; {@code null} or empty for all of them
+ * @param descending whether the newest visits come first
+ * 
+ * @author PetClinic Team
+ */
+public record VisitFilter(Date from, Date to, Set<VisitStatus> statuses, boolean descending) {
+
+    public VisitFilter {
+        if (from != null && to != null && from.after(to)) {
+            throw new InvalidRequestException("Visit range starts after it ends: " + from + " > " + to);
+        }
+        statuses = statuses == null || statuses.isEmpty()
+            ? Set.copyOf(EnumSet.allOf(VisitStatus.class))
+            : Set.copyOf(statuses);
+    }
+
+    public static VisitFilter of(Date from, Date to, Collection<VisitStatus> statuses, boolean descending) {
+        return new VisitFilter(from, to, statuses == null ? null : Set.copyOf(statuses), descending);
+    }
+
+    /**
+     * Every visit, oldest first.
+     */
+    public static VisitFilter all() {
+        return new VisitFilter(null, null, null, false);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import java.util.List;
+
+/**
+ * One keyset-paginated slice of a pet's or vet's visits, ordered by visit date and then by ID.
+ *
+ * This is a public API type returned by {@link VisitService#findPageByPetId} and
+ * {@link VisitService#findPageByVetId}.
+ *
+ * @param visits the visits on this page, in the order requested by the {@link VisitFilter}
+ * @param nextCursor opaque token for the following page, or {@code null} on the last page
+ *
+ * @author PetClinic Team
+ */
+public record VisitPage(List<VisitSummary> visits, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
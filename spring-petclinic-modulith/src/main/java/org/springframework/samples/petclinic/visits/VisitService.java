@@ -15,7 +15,11 @@
  */
 package org.springframework.samples.petclinic.visits;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -25,14 +29,22 @@ import java.util.Optional;
  * - Uses CustomerService from customers module to validate pet
  * - Uses VetService from vets module to validate veterinarian
  * 
+ * Completed and cancelled visits are moved to an archive once they are old enough. The lookups
+ * and history queries below read the archive too; archived visits can no longer be changed.
+ * 
  * @author PetClinic Team
  */
 public interface VisitService {
     
     /**
-     * Find a visit by its ID.
+     * Find a visit by its ID, live or archived.
      */
     Optional<Visit> findById(Integer id);
+
+    /**
+     * Find the visits with the given IDs, in one query. Missing visits are left out.
+     */
+    List<Visit> findAllById(Collection<Integer> ids);
     
     /**
      * Find all visits.
@@ -41,13 +53,62 @@ public interface VisitService {
     
     /**
      * Find all visits for a specific pet.
+     * 
+     * Loads the pet's whole history, archived visits included; use {@link #findPageByPetId} to serve it to clients.
      */
     List<Visit> findByPetId(Integer petId);
     
+    /**
+     * Find all visits of the given pets, grouped by pet ID.
+     * 
+     * Loads the pets' whole histories, archived visits included, with one IN-list query per table
+     * for every few hundred pets, instead of one lookup per pet.
+     * 
+     * @param petIds the pets whose visits to load
+     * @return the visits of each pet, in the order of {@code petIds}; a pet without visits maps to an empty list
+     */
+    Map<Integer, List<Visit>> findByPetIds(Collection<Integer> petIds);
+    
     /**
      * Find all visits by a specific veterinarian.
+     * 
+     * Loads the vet's whole history, archived visits included; use {@link #findPageByVetId} to serve it to clients.
      */
     List<Visit> findByVetId(Integer vetId);
+
+    /**
+     * Find one page of a pet's visits matching the filter, ordered by visit date and then by ID.
+     * 
+     * @param petId the pet whose visits to list
+     * @param filter date range, statuses and sort order of the visits
+     * @param cursor the {@link VisitPage#nextCursor()} of the previous page, or {@code null} for the first page
+     * @param size maximum number of visits on the page, capped by the service
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    VisitPage findPageByPetId(Integer petId, VisitFilter filter, String cursor, int size);
+
+    /**
+     * Find one page of a vet's visits matching the filter, ordered by visit date and then by ID.
+     * 
+     * @param vetId the veterinarian whose visits to list
+     * @param filter date range, statuses and sort order of the visits
+     * @param cursor the {@link VisitPage#nextCursor()} of the previous page, or {@code null} for the first page
+     * @param size maximum number of visits on the page, capped by the service
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    VisitPage findPageByVetId(Integer vetId, VisitFilter filter, String cursor, int size);
+    
+    /**
+     * Count the visits of a date range per status, per vet and per day.
+     * 
+     * The counts are aggregated by the database from indexes covering date, vet and status, of the
+     * live and the archived visits; no visit is loaded.
+     * 
+     * @param from earliest visit date to count, inclusive
+     * @param to latest visit date to count, exclusive
+     * @throws IllegalArgumentException if the range is reversed or longer than the service allows
+     */
+    VisitStats countVisits(Date from, Date to);
     
     /**
      * Schedule a new visit with validation.
@@ -56,16 +117,62 @@ public interface VisitService {
      * @return the created visit
      * @throws org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException
      *         if pet or vet not found
+     * @throws SlotUnavailableException if the vet is already booked or not working at that time
      */
     Visit scheduleVisit(Visit visit);
+
+    /**
+     * Schedule a batch of visits in one transaction.
+     * 
+     * Pets and vets are validated with one query per module, the visits are inserted in JDBC
+     * batches and a single {@link VisitsScheduled} event is published for the whole batch. A visit
+     * that fails validation or booking is rejected on its own, the others are still scheduled.
+     * 
+     * @param visits the visits to schedule
+     * @return one result per visit, in the order of {@code visits}
+     */
+    List<ScheduleResult> scheduleAll(List<Visit> visits);
     
     /**
-     * Complete a scheduled visit.
+     * Complete a scheduled visit with one conditional UPDATE, publishing {@link VisitCompleted}.
+     * 
+     * @return the completed visit, read back as a summary without its description
+     * @throws org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException
+     *         if the visit does not exist
+     * @throws VisitStatusConflictException if the visit is no longer scheduled
      */
-    Visit completeVisit(Integer visitId);
+    VisitSummary completeVisit(Integer visitId);
     
     /**
-     * Cancel a visit.
+     * Cancel a scheduled visit with one conditional UPDATE, publishing {@link VisitCancelled}.
+     * 
+     * @throws org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException
+     *         if the visit does not exist
+     * @throws VisitStatusConflictException if the visit is no longer scheduled
      */
     void cancelVisit(Integer visitId);
+
+    /**
+     * Complete the given visits that are still scheduled, in one UPDATE per chunk of IDs.
+     * One {@link VisitsCompleted} is published for the visits that changed, and only for those.
+     */
+    StatusChange completeVisits(Collection<Integer> visitIds);
+
+    /**
+     * Cancel the given visits that are still scheduled, like {@link #completeVisits(Collection)},
+     * publishing one {@link VisitsCancelled}.
+     */
+    StatusChange cancelVisits(Collection<Integer> visitIds);
+
+    /**
+     * Complete all scheduled visits of a vet on one day, in the time zone of the vets' working hours,
+     * publishing one {@link VisitsCompleted}.
+     */
+    StatusChange completeVisits(Integer vetId, LocalDate day);
+
+    /**
+     * Cancel all scheduled visits of a vet on one day, in the time zone of the vets' working hours,
+     * publishing one {@link VisitsCancelled}.
+     */
+    StatusChange cancelVisits(Integer vetId, LocalDate day);
 }
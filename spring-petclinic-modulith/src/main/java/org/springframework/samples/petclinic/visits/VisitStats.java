@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Visit counts per status, per vet and per day of a date range.
+ * 
+ * This is a public API type returned by {@link VisitService#countVisits}. Every count map holds
+ * all statuses, with zero for the ones that did not occur.
+ * 
+ * @param from earliest visit date counted, inclusive
+ * @param to latest visit date counted, exclusive
+ * @param total number of visits in the range
+ * @param byStatus visits per status
+ * @param byVet visits per status of each vet with visits in the range, by vet ID
+ * @param byDay visits per status of each day with visits in the range, in date order
+ * 
+ * @author PetClinic Team
+ */
+public record VisitStats(Date from, Date to, long total, Map<VisitStatus, Long> byStatus,
+                         List<VetCounts> byVet, List<DayCounts> byDay) {
+
+    public record VetCounts(Integer vetId, long total, Map<VisitStatus, Long> byStatus) {
+    }
+
+    public record DayCounts(LocalDate day, long total, Map<VisitStatus, Long> byStatus) {
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+/**
+ * Lifecycle state of a visit.
+ * 
+ * Stored as a one-character code (see {@link #code()}) in a check-constrained {@code CHAR(1)} column,
+ * and exposed by name in JSON.
+ * 
+ * @author PetClinic Team
+ */
+public enum VisitStatus {
+
+    SCHEDULED("S"),
+    COMPLETED("C"),
+    CANCELLED("X");
+
+    private final String code;
+
+    VisitStatus(String code) {
+        this.code = code;
+    }
+
+    /**
+     * The code stored in the {@code visits.status} column.
+     */
+    public String code() {
+        return code;
+    }
+
+    /**
+     * The status stored under the given code.
+     * 
+     * @throws IllegalArgumentException if no status has that code
+     */
+    public static VisitStatus fromCode(String code) {
+        for (VisitStatus status : values()) {
+            if (status.code.equals(code)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown visit status code: " + code);
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+/**
+ * Exception thrown when a visit cannot change its status because it is no longer scheduled,
+ * e.g. it was completed or cancelled already.
+ *
+ * @author PetClinic Team
+ */
+public class VisitStatusConflictException extends RuntimeException {
+
+    private final Integer visitId;
+
+    public VisitStatusConflictException(String message, Integer visitId) {
+        super(message);
+        this.visitId = visitId;
+    }
+
+    public Integer getVisitId() {
+        return visitId;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps {@link VisitStatus} to its one-character column code and back.
+ * 
+ * Applied to every {@code VisitStatus} attribute, so live and archived visits store the same codes.
+ * 
+ * @author PetClinic Team
+ */
+@Converter(autoApply = true)
+class VisitStatusConverter implements AttributeConverter<VisitStatus, String> {
+
+    @Override
+    public String convertToDatabaseColumn(VisitStatus status) {
+        return status != null ? status.code() : null;
+    }
+
+    @Override
+    public VisitStatus convertToEntityAttribute(String code) {
+        return code != null ? VisitStatus.fromCode(code) : null;
+    }
+}
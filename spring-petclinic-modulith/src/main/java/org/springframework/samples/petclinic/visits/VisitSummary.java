@@ -0,0 +1,30 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import java.util.Date;
+
+/**
+ * Lightweight read-only view of a visit, selected column by column instead of loading the entity.
+ * 
+ * This is a public API type returned by the paginated visit queries of {@link VisitService}.
+ * The free-text description is left out, so a page of summaries stays small.
+ * 
+ * @author PetClinic Team
+ */
+public record VisitSummary(Integer id, Integer petId, Integer vetId, Date visitDate,
+                           Integer durationMinutes, VisitStatus status) {
+}
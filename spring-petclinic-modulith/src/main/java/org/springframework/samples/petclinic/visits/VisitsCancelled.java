@@ -0,0 +1,34 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits;
+
+import org.jmolecules.event.types.DomainEvent;
+
+import java.util.List;
+
+/**
+ * Domain event published once per bulk cancellation of visits.
+ * 
+ * This is a public API event that other modules can listen to. It stands in for the
+ * {@link VisitCancelled} event of every visit cancelled by the same request, so listeners handle them
+ * in one go instead of visit by visit.
+ * 
+ * @param visits The visits cancelled by the request
+ * 
+ * @author PetClinic Team
+ */
+public record VisitsCancelled(List<VisitCancelled> visits) implements DomainEvent {
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.*;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+
+import java.util.Date;
+
+/**
+ * A completed or cancelled visit moved out of the {@code visits} table by {@link VisitArchiver}.
+ *
+ * Archived visits are read-only: rows are only ever inserted from {@code visits} and deleted
+ * by the retention purge. They are handed out as detached {@link Visit}s.
+ *
+ * @author PetClinic Team
+ */
+@Entity
+@Table(name = "visits_archive")
+class ArchivedVisit {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "pet_id")
+    private Integer petId;
+
+    @Column(name = "vet_id")
+    private Integer vetId;
+
+    @Column(name = "visit_date")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date visitDate;
+
+    @Column(name = "duration_minutes")
+    private Integer durationMinutes;
+
+    @Column(name = "end_date")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date endDate;
+
+    @Column(name = "description")
+    private String description;
+
+    @Column(name = "status", length = 1)
+    private VisitStatus status;
+
+    @Column(name = "archived_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date archivedAt;
+
+    protected ArchivedVisit() {
+    }
+
+    Integer getId() {
+        return id;
+    }
+
+    Date getArchivedAt() {
+        return archivedAt;
+    }
+
+    /**
+     * The archived visit as a detached {@link Visit}, as it was when it was archived.
+     */
+    Visit toVisit() {
+        Visit visit = new Visit(petId, vetId);
+        visit.setId(id);
+        visit.setVisitDate(visitDate);
+        visit.setDurationMinutes(durationMinutes);
+        visit.setDescription(description);
+        visit.setStatus(status);
+        return visit;
+    }
+}
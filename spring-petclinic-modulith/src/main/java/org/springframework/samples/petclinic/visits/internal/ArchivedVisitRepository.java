@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitSummary;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository interface for archived visits.
+ * 
+ * Mirrors the history queries of {@link VisitRepository} on the {@code visits_archive} table,
+ * so that a caller asking for a full history gets both.
+ * 
+ * @author PetClinic Team
+ */
+interface ArchivedVisitRepository extends JpaRepository<ArchivedVisit, Integer> {
+
+    /**
+     * Find all archived visits for a specific pet.
+     */
+    List<ArchivedVisit> findByPetId(Integer petId);
+
+    /**
+     * Find all archived visits of the given pets.
+     */
+    List<ArchivedVisit> findByPetIdIn(Collection<Integer> petIds);
+
+    /**
+     * Find all archived visits for a specific veterinarian.
+     */
+    List<ArchivedVisit> findByVetId(Integer vetId);
+
+    @Query("SELECT v.id FROM ArchivedVisit v WHERE v.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Copies the given visits into the archive in one INSERT ... SELECT, stamped with the archive time.
+     *
+     * @return the number of visits copied
+     */
+    @Modifying
+    @Query("""
+        INSERT INTO ArchivedVisit (id, petId, vetId, visitDate, durationMinutes, endDate, description, status, archivedAt)
+        SELECT v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.endDate, v.description, v.status, :archivedAt
+        FROM Visit v WHERE v.id IN :ids""")
+    int copyFromVisits(@Param("ids") Collection<Integer> ids, @Param("archivedAt") Date archivedAt);
+
+    /**
+     * IDs of the oldest archived visits with the given status before the given date.
+     */
+    @Query("""
+        SELECT a.id FROM ArchivedVisit a
+        WHERE a.status = :status AND a.visitDate < :before
+        ORDER BY a.visitDate, a.id""")
+    List<Integer> findIdsToPurge(@Param("status") VisitStatus status, @Param("before") Date before, Limit limit);
+
+    /**
+     * Archived counterpart of {@link VisitRepository#findPetPageAfter}.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            a.id, a.petId, a.vetId, a.visitDate, a.durationMinutes, a.status)
+        FROM ArchivedVisit a
+        WHERE a.petId = :petId AND a.status IN :statuses AND a.visitDate < :to
+          AND a.visitDate >= :afterDate AND (a.visitDate > :afterDate OR a.id > :afterId)
+        ORDER BY a.visitDate, a.id""")
+    List<VisitSummary> findPetPageAfter(@Param("petId") Integer petId, @Param("statuses") Collection<VisitStatus> statuses,
+                                        @Param("to") Date to, @Param("afterDate") Date afterDate,
+                                        @Param("afterId") Integer afterId, Limit limit);
+
+    /**
+     * Archived counterpart of {@link VisitRepository#findPetPageBefore}.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            a.id, a.petId, a.vetId, a.visitDate, a.durationMinutes, a.status)
+        FROM ArchivedVisit a
+        WHERE a.petId = :petId AND a.status IN :statuses AND a.visitDate >= :from
+          AND a.visitDate <= :beforeDate AND (a.visitDate < :beforeDate OR a.id < :beforeId)
+        ORDER BY a.visitDate DESC, a.id DESC""")
+    List<VisitSummary> findPetPageBefore(@Param("petId") Integer petId, @Param("statuses") Collection<VisitStatus> statuses,
+                                         @Param("from") Date from, @Param("beforeDate") Date beforeDate,
+                                         @Param("beforeId") Integer beforeId, Limit limit);
+
+    /**
+     * Archived counterpart of {@link VisitRepository#findVetPageAfter}.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            a.id, a.petId, a.vetId, a.visitDate, a.durationMinutes, a.status)
+        FROM ArchivedVisit a
+        WHERE a.vetId = :vetId AND a.status IN :statuses AND a.visitDate < :to
+          AND a.visitDate >= :afterDate AND (a.visitDate > :afterDate OR a.id > :afterId)
+        ORDER BY a.visitDate, a.id""")
+    List<VisitSummary> findVetPageAfter(@Param("vetId") Integer vetId, @Param("statuses") Collection<VisitStatus> statuses,
+                                        @Param("to") Date to, @Param("afterDate") Date afterDate,
+                                        @Param("afterId") Integer afterId, Limit limit);
+
+    /**
+     * Archived counterpart of {@link VisitRepository#findVetPageBefore}.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            a.id, a.petId, a.vetId, a.visitDate, a.durationMinutes, a.status)
+        FROM ArchivedVisit a
+        WHERE a.vetId = :vetId AND a.status IN :statuses AND a.visitDate >= :from
+          AND a.visitDate <= :beforeDate AND (a.visitDate < :beforeDate OR a.id < :beforeId)
+        ORDER BY a.visitDate DESC, a.id DESC""")
+    List<VisitSummary> findVetPageBefore(@Param("vetId") Integer vetId, @Param("statuses") Collection<VisitStatus> statuses,
+                                         @Param("from") Date from, @Param("beforeDate") Date beforeDate,
+                                         @Param("beforeId") Integer beforeId, Limit limit);
+
+    /**
+     * Archived counterpart of {@link VisitRepository#countByVetDayAndStatus(Date, Date)}.
+     */
+    @Query("""
+        SELECT a.vetId AS vetId, cast(a.visitDate AS LocalDate) AS day, a.status AS status,
+               count(a) AS visitCount
+        FROM ArchivedVisit a
+        WHERE a.visitDate >= :from AND a.visitDate < :to
+        GROUP BY a.vetId, cast(a.visitDate AS LocalDate), a.status""")
+    List<VisitRepository.VisitCount> countByVetDayAndStatus(@Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Archived counterpart of {@link VisitRepository#countByVetDayAndStatus(Collection, Date, Date)}.
+     */
+    @Query("""
+        SELECT a.vetId AS vetId, cast(a.visitDate AS LocalDate) AS day, a.status AS status,
+               count(a) AS visitCount
+        FROM ArchivedVisit a
+        WHERE a.visitDate >= :from AND a.visitDate < :to AND a.vetId IN :vetIds
+        GROUP BY a.vetId, cast(a.visitDate AS LocalDate), a.status""")
+    List<VisitRepository.VisitCount> countByVetDayAndStatus(@Param("vetIds") Collection<Integer> vetIds,
+                                                            @Param("from") Date from, @Param("to") Date to);
+
+    @Query("SELECT min(a.visitDate) FROM ArchivedVisit a")
+    Date findFirstVisitDate();
+
+    @Query("SELECT max(a.visitDate) FROM ArchivedVisit a")
+    Date findLastVisitDate();
+
+    /**
+     * Date of the last archived visit of one pet.
+     */
+    interface PetLastVisit {
+        Integer getPetId();
+        Date getLastVisitDate();
+    }
+
+    /**
+     * Date of the last archived visit of the given pets, one row per pet that has archived visits.
+     */
+    @Query("""
+        SELECT a.petId AS petId, max(a.visitDate) AS lastVisitDate
+        FROM ArchivedVisit a WHERE a.petId IN :petIds GROUP BY a.petId""")
+    List<PetLastVisit> findLastVisitDatesByPetIdIn(@Param("petIds") Collection<Integer> petIds);
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+import org.springframework.samples.petclinic.customers.Customer;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * One row of the owner summary read model: an owner with their pet count, last visit date and
+ * number of open visits.
+ *
+ * Denormalized from the customers and visits modules by {@link OwnerSummaryProjector}, so that
+ * listings can page and sort over it with a single indexed query.
+ *
+ * @author PetClinic Team
+ */
+@Entity
+@Table(name = "owner_summaries")
+public class OwnerSummary implements Persistable<Integer> {
+
+    @Id
+    @Column(name = "owner_id")
+    private Integer ownerId;
+
+    @Column(name = "first_name")
+    private String firstName;
+
+    @Column(name = "last_name")
+    private String lastName;
+
+    @Column(name = "city")
+    private String city;
+
+    @Column(name = "telephone")
+    private String telephone;
+
+    @Column(name = "pet_count")
+    private int petCount;
+
+    @Column(name = "last_visit_date")
+    @Temporal(TemporalType.TIMESTAMP)
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private Date lastVisitDate;
+
+    @Column(name = "open_visit_count")
+    private int openVisitCount;
+
+    /**
+     * When the row was last projected; rows left behind by a rebuild are older than the rebuild.
+     */
+    @Column(name = "projected_at")
+    @JsonIgnore
+    private Instant projectedAt;
+
+    @Transient
+    @JsonIgnore
+    private boolean isNew;
+
+    protected OwnerSummary() {
+    }
+
+    OwnerSummary(Integer ownerId) {
+        this.ownerId = ownerId;
+        this.isNew = true;
+    }
+
+    void project(Customer owner, Date lastVisitDate, int openVisitCount, Instant projectedAt) {
+        this.firstName = owner.getFirstName();
+        this.lastName = owner.getLastName();
+        this.city = owner.getCity();
+        this.telephone = owner.getTelephone();
+        this.petCount = owner.getPetIds().size();
+        this.lastVisitDate = lastVisitDate;
+        this.openVisitCount = openVisitCount;
+        this.projectedAt = projectedAt;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    @JsonIgnore
+    public Integer getId() {
+        return ownerId;
+    }
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public Integer getOwnerId() {
+        return ownerId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getTelephone() {
+        return telephone;
+    }
+
+    public int getPetCount() {
+        return petCount;
+    }
+
+    public Date getLastVisitDate() {
+        return lastVisitDate;
+    }
+
+    public int getOpenVisitCount() {
+        return openVisitCount;
+    }
+
+    Instant getProjectedAt() {
+        return projectedAt;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Which owner a pet belongs to, so that visit events, which only carry the pet,
+ * can be routed to the owner's {@link OwnerSummary}.
+ *
+ * @author PetClinic Team
+ */
+@Entity
+@Table(name = "owner_summary_pets")
+class OwnerSummaryPet implements Persistable<Integer> {
+
+    @Id
+    @Column(name = "pet_id")
+    private Integer petId;
+
+    @Column(name = "owner_id")
+    private Integer ownerId;
+
+    @Transient
+    private boolean isNew;
+
+    protected OwnerSummaryPet() {
+    }
+
+    OwnerSummaryPet(Integer petId, Integer ownerId) {
+        this.petId = petId;
+        this.ownerId = ownerId;
+        this.isNew = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public Integer getId() {
+        return petId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    Integer getOwnerId() {
+        return ownerId;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+
+/**
+ * Repository for the pet to owner routing of the owner summary read model.
+ *
+ * Package-private (INTERNAL) - not accessible from other modules.
+ *
+ * @author PetClinic Team
+ */
+interface OwnerSummaryPetRepository extends JpaRepository<OwnerSummaryPet, Integer> {
+
+    /**
+     * Flushes and clears the persistence context, so the deleted pets can be inserted again.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM OwnerSummaryPet p WHERE p.ownerId IN :ownerIds")
+    int deleteByOwnerIdIn(@Param("ownerIds") Collection<Integer> ownerIds);
+
+    @Modifying
+    @Query("DELETE FROM OwnerSummaryPet p WHERE NOT EXISTS (SELECT 1 FROM OwnerSummary s WHERE s.ownerId = p.ownerId)")
+    int deleteOrphans();
+}
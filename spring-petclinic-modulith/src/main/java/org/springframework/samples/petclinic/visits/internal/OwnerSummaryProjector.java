@@ -0,0 +1,349 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.modulith.events.ApplicationModuleListener;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerCreated;
+import org.springframework.samples.petclinic.customers.CustomerDeleted;
+import org.springframework.samples.petclinic.customers.CustomerPage;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.CustomerUpdated;
+import org.springframework.samples.petclinic.customers.CustomersImported;
+import org.springframework.samples.petclinic.customers.PetAdded;
+import org.springframework.samples.petclinic.customers.PetDeleted;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
+import org.springframework.samples.petclinic.visits.VisitCompleted;
+import org.springframework.samples.petclinic.visits.VisitCreated;
+import org.springframework.samples.petclinic.visits.VisitsCancelled;
+import org.springframework.samples.petclinic.visits.VisitsCompleted;
+import org.springframework.samples.petclinic.visits.VisitsScheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the {@link OwnerSummary} read model.
+ *
+ * Every event that can change a summary re-projects the affected owners from the source: the owner
+ * and their pets from {@link CustomerService}, the visit totals of those pets with one grouped query
+ * and the date of their last archived visit with another.
+ * Projections are idempotent, so events may be redelivered or handled out of order. Visit events
+ * only carry the pet, they are routed to the owner through {@link OwnerSummaryPet}.
+ *
+ * Each projection runs in a transaction of its own that locks the owners' summaries before reading
+ * the source, so concurrent projections of an owner, on this node or another, take turns and the
+ * last one sees everything the others saw. The listeners therefore run without a transaction.
+ *
+ * {@link #rebuild()} replays the read model from the source tables: owners are read page by page
+ * and the pages are projected in parallel. It runs on startup when the read model is empty, unless
+ * {@code petclinic.owner-summaries.rebuild-on-startup} is turned off.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class OwnerSummaryProjector {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerSummaryProjector.class);
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final OwnerSummaryRepository summaryRepository;
+    private final OwnerSummaryPetRepository petRepository;
+    private final VisitRepository visitRepository;
+    private final ArchivedVisitRepository archivedVisitRepository;
+    private final CustomerService customerService;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildParallelism;
+    private final boolean rebuildOnStartup;
+
+    OwnerSummaryProjector(OwnerSummaryRepository summaryRepository,
+                          OwnerSummaryPetRepository petRepository,
+                          VisitRepository visitRepository,
+                          ArchivedVisitRepository archivedVisitRepository,
+                          CustomerService customerService,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${petclinic.owner-summaries.rebuild-parallelism:4}") int rebuildParallelism,
+                          @Value("${petclinic.owner-summaries.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.summaryRepository = summaryRepository;
+        this.petRepository = petRepository;
+        this.visitRepository = visitRepository;
+        this.archivedVisitRepository = archivedVisitRepository;
+        this.customerService = customerService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildParallelism = rebuildParallelism;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @EventListener
+    public void on(ApplicationReadyEvent event) {
+        if (rebuildOnStartup && summaryRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(CustomerCreated event) {
+        refresh(List.of(event.customerId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(CustomerUpdated event) {
+        refresh(List.of(event.customerId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(CustomerDeleted event) {
+        refresh(List.of(event.customerId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(CustomersImported event) {
+        List<Integer> customerIds = event.customers().stream().map(CustomerCreated::customerId).toList();
+        for (int from = 0; from < customerIds.size(); from += BATCH_SIZE) {
+            refresh(customerIds.subList(from, Math.min(from + BATCH_SIZE, customerIds.size())));
+        }
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(PetAdded event) {
+        refresh(List.of(event.customerId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(PetDeleted event) {
+        refresh(List.of(event.customerId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitCreated event) {
+        refreshOwnerOf(event.petId());
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitsScheduled event) {
+        refreshOwnersOf(event.visits().stream().map(VisitCreated::petId).collect(Collectors.toSet()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitCompleted event) {
+        refreshOwnerOf(event.petId());
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitCancelled event) {
+        refreshOwnerOf(event.petId());
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitsCompleted event) {
+        refreshOwnersOf(event.visits().stream().map(VisitCompleted::petId).collect(Collectors.toSet()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitsCancelled event) {
+        refreshOwnersOf(event.visits().stream().map(VisitCancelled::petId).collect(Collectors.toSet()));
+    }
+
+    private void refreshOwnerOf(Integer petId) {
+        petRepository.findById(petId).ifPresentOrElse(
+            pet -> refresh(List.of(pet.getOwnerId())),
+            () -> log.debug("No owner summary for pet {}", petId));
+    }
+
+    /**
+     * Re-projects the owners of the given pets, {@value #BATCH_SIZE} owners per transaction.
+     */
+    private void refreshOwnersOf(Set<Integer> petIds) {
+        List<Integer> ownerIds = petRepository.findAllById(petIds).stream()
+            .map(OwnerSummaryPet::getOwnerId)
+            .distinct()
+            .toList();
+        for (int from = 0; from < ownerIds.size(); from += BATCH_SIZE) {
+            refresh(ownerIds.subList(from, Math.min(from + BATCH_SIZE, ownerIds.size())));
+        }
+    }
+
+    /**
+     * Re-projects the given owners, and removes the summaries of owners that no longer exist.
+     */
+    void refresh(Collection<Integer> ownerIds) {
+        project(ownerIds, now());
+    }
+
+    /**
+     * Rebuilds the read model from the source tables.
+     *
+     * Summaries stay readable during the rebuild: rows are overwritten in place and the rows of
+     * owners that no longer exist are only removed at the end.
+     *
+     * @return the number of owners projected
+     */
+    int rebuild() {
+        long start = System.nanoTime();
+        Instant rebuiltAt = now();
+
+        ExecutorService pool = Executors.newFixedThreadPool(rebuildParallelism);
+        // Bounds the pages read ahead of the projection
+        Semaphore pending = new Semaphore(rebuildParallelism * 2);
+        List<CompletableFuture<Integer>> pages = new ArrayList<>();
+        try {
+            String cursor = null;
+            do {
+                CustomerPage page = customerService.findPage(cursor, BATCH_SIZE, false);
+                pending.acquireUninterruptibly();
+                // The page only yields the owner ids: owners are re-read once their summaries are locked
+                List<Integer> ownerIds = page.customers().stream().map(Customer::getId).toList();
+                pages.add(CompletableFuture
+                    .supplyAsync(() -> project(ownerIds, rebuiltAt), pool)
+                    .whenComplete((projected, ex) -> pending.release()));
+                cursor = page.nextCursor();
+            } while (cursor != null);
+            CompletableFuture.allOf(pages.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            summaryRepository.deleteByProjectedAtBefore(rebuiltAt);
+            petRepository.deleteOrphans();
+        });
+
+        int projected = pages.stream().mapToInt(CompletableFuture::join).sum();
+        log.info("Owner summaries rebuilt with {} owners in {} ms",
+            projected, (System.nanoTime() - start) / 1_000_000);
+        return projected;
+    }
+
+    /**
+     * The current time at the precision projected_at is stored with, so it compares as written.
+     */
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Projects the given owners in a new transaction, and removes the summaries of owners that no
+     * longer exist.
+     *
+     * An owner without a summary has no row to lock yet. When two projections insert it at the same
+     * time, one fails on the primary key, or on MySQL possibly with a deadlock between the gap locks
+     * of their locking reads, and is retried: by then the row exists and it waits for it.
+     */
+    private int project(Collection<Integer> ownerIds, Instant projectedAt) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> projectLocked(ownerIds, projectedAt));
+            } catch (DataIntegrityViolationException | PessimisticLockingFailureException ex) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw ex;
+                }
+                log.debug("Summaries of owners {} were created concurrently, projecting them again", ownerIds);
+            }
+        }
+    }
+
+    private int projectLocked(Collection<Integer> ownerIds, Instant projectedAt) {
+        Map<Integer, OwnerSummary> summaries = summaryRepository.lockByOwnerIdIn(ownerIds).stream()
+            .collect(Collectors.toMap(OwnerSummary::getOwnerId, Function.identity()));
+        List<Customer> owners = customerService.findAllById(ownerIds);
+        Set<Integer> deleted = new HashSet<>(ownerIds);
+        owners.forEach(owner -> deleted.remove(owner.getId()));
+        if (!deleted.isEmpty()) {
+            summaryRepository.deleteByOwnerIdIn(deleted);
+            petRepository.deleteByOwnerIdIn(deleted);
+        }
+        return project(owners, summaries, projectedAt);
+    }
+
+    /**
+     * Projects the given owners onto their locked summaries with one query for the visit totals of
+     * all their pets, and one for their archived visits.
+     */
+    private int project(List<Customer> owners, Map<Integer, OwnerSummary> summaries, Instant projectedAt) {
+        if (owners.isEmpty()) {
+            return 0;
+        }
+        List<Integer> ownerIds = owners.stream().map(Customer::getId).toList();
+        List<Integer> petIds = owners.stream().flatMap(owner -> owner.getPetIds().stream()).toList();
+        Map<Integer, VisitRepository.PetVisitTotals> totals = petIds.isEmpty() ? Map.of()
+            : visitRepository.findTotalsByPetIdIn(petIds).stream()
+                .collect(Collectors.toMap(VisitRepository.PetVisitTotals::getPetId, Function.identity()));
+        // Archived visits are never open, they only count towards the last visit date
+        Map<Integer, Date> archivedLastVisits = petIds.isEmpty() ? Map.of()
+            : archivedVisitRepository.findLastVisitDatesByPetIdIn(petIds).stream()
+                .filter(row -> row.getLastVisitDate() != null)
+                .collect(Collectors.toMap(ArchivedVisitRepository.PetLastVisit::getPetId,
+                    ArchivedVisitRepository.PetLastVisit::getLastVisitDate));
+
+        List<OwnerSummary> projected = new ArrayList<>(owners.size());
+        List<OwnerSummaryPet> pets = new ArrayList<>(petIds.size());
+        for (Customer owner : owners) {
+            List<VisitRepository.PetVisitTotals> petTotals = owner.getPetIds().stream()
+                .map(totals::get)
+                .filter(Objects::nonNull)
+                .toList();
+            Date lastVisitDate = Stream.concat(
+                    petTotals.stream().map(VisitRepository.PetVisitTotals::getLastVisitDate),
+                    owner.getPetIds().stream().map(archivedLastVisits::get))
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+            int openVisitCount = petTotals.stream()
+                .mapToInt(petTotal -> petTotal.getOpenVisitCount().intValue())
+                .sum();
+
+            OwnerSummary summary = summaries.computeIfAbsent(owner.getId(), OwnerSummary::new);
+            summary.project(owner, lastVisitDate, openVisitCount, projectedAt);
+            projected.add(summary);
+            owner.getPetIds().forEach(petId -> pets.add(new OwnerSummaryPet(petId, owner.getId())));
+        }
+        summaryRepository.saveAllAndFlush(projected);
+        petRepository.deleteByOwnerIdIn(ownerIds);
+        petRepository.saveAll(pets);
+        return projected.size();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the owner summary read model.
+ *
+ * Internal to the visits module; public only for the web layer, which reads the summaries.
+ * Summaries are written by {@link OwnerSummaryProjector} alone.
+ *
+ * @author PetClinic Team
+ */
+public interface OwnerSummaryRepository extends JpaRepository<OwnerSummary, Integer> {
+
+    /**
+     * One page of summaries in one query, fetching one extra row instead of counting.
+     */
+    Slice<OwnerSummary> findAllBy(Pageable pageable);
+
+    /**
+     * Read and lock the summaries of several owners until the end of the transaction, in owner
+     * order so that concurrent projections lock them in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM OwnerSummary s WHERE s.ownerId IN :ownerIds ORDER BY s.ownerId")
+    List<OwnerSummary> lockByOwnerIdIn(@Param("ownerIds") Collection<Integer> ownerIds);
+
+    @Modifying
+    @Query("DELETE FROM OwnerSummary s WHERE s.ownerId IN :ownerIds")
+    int deleteByOwnerIdIn(@Param("ownerIds") Collection<Integer> ownerIds);
+
+    @Modifying
+    @Query("DELETE FROM OwnerSummary s WHERE s.projectedAt < :projectedAt")
+    int deleteByProjectedAtBefore(@Param("projectedAt") Instant projectedAt);
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The booked slots of one vet, ordered by start time.
+ *
+ * Slots are only added after checking them against the calendar, so they never overlap. Ordered by
+ * start they are therefore ordered by end as well, and the only slot that can overlap a new one is the
+ * last slot starting before the new one ends: a conflict check is a single {@code O(log n)} lookup.
+ *
+ * Not thread-safe, callers synchronize on the calendar.
+ *
+ * @author PetClinic Team
+ */
+class VetCalendar {
+
+    record Booking(Integer visitId, Instant start, Instant end) {
+    }
+
+    private final NavigableMap<Instant, Booking> bookingsByStart = new TreeMap<>();
+    private final Map<Integer, Booking> bookingsByVisit = new HashMap<>();
+    private boolean loaded;
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Replace all bookings, e.g. with the vet's bookings read from the database.
+     */
+    void replaceAll(Collection<Booking> bookings) {
+        bookingsByStart.clear();
+        bookingsByVisit.clear();
+        bookings.forEach(this::add);
+        loaded = true;
+    }
+
+    void add(Booking booking) {
+        bookingsByStart.put(booking.start(), booking);
+        bookingsByVisit.put(booking.visitId(), booking);
+    }
+
+    void remove(Integer visitId) {
+        Booking booking = bookingsByVisit.remove(visitId);
+        if (booking != null) {
+            bookingsByStart.remove(booking.start(), booking);
+        }
+    }
+
+    /**
+     * Drop the bookings that ended before the given time.
+     */
+    void pruneBefore(Instant time) {
+        while (!bookingsByStart.isEmpty() && !bookingsByStart.firstEntry().getValue().end().isAfter(time)) {
+            remove(bookingsByStart.firstEntry().getValue().visitId());
+        }
+    }
+
+    /**
+     * The booking overlapping {@code [start, end)}, if any.
+     */
+    Optional<Booking> conflict(Instant start, Instant end) {
+        Map.Entry<Instant, Booking> last = bookingsByStart.lowerEntry(end);
+        return last != null && last.getValue().end().isAfter(start)
+            ? Optional.of(last.getValue())
+            : Optional.empty();
+    }
+
+    /**
+     * Free start times for a visit of the given duration, earliest first, starting the search at
+     * {@code from}. A conflicting booking moves the search to its end, so every step is one lookup.
+     *
+     * @param schedule the vet's working hours, every slot found lies within them
+     * @param until no slot starts after this time
+     */
+    List<Instant> freeSlots(Instant from, Duration duration, VetSchedule schedule, ZoneId zone,
+                            int limit, Instant until) {
+        List<Instant> slots = new ArrayList<>(limit);
+        Instant candidate = schedule.fit(from, duration, zone);
+        while (candidate != null && slots.size() < limit && !candidate.isAfter(until)) {
+            Optional<Booking> conflict = conflict(candidate, candidate.plus(duration));
+            if (conflict.isPresent()) {
+                candidate = schedule.fit(conflict.get().end(), duration, zone);
+            } else {
+                slots.add(candidate);
+                candidate = schedule.fit(candidate.plus(duration), duration, zone);
+            }
+        }
+        return slots;
+    }
+
+    int size() {
+        return bookingsByStart.size();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Working hours of a vet: the same opening and closing time every day.
+ *
+ * Besides the hours, the row is the vet's booking lock: a booking locks it for the rest of its
+ * transaction, so bookings for one vet are serialized across all application nodes while
+ * bookings for different vets proceed in parallel.
+ *
+ * @author PetClinic Team
+ */
+@Entity
+@Table(name = "vet_schedules")
+class VetSchedule implements Persistable<Integer> {
+
+    @Id
+    @Column(name = "vet_id")
+    private Integer vetId;
+
+    @Column(name = "opens_at")
+    private LocalTime opensAt;
+
+    @Column(name = "closes_at")
+    private LocalTime closesAt;
+
+    @Transient
+    private boolean isNew;
+
+    protected VetSchedule() {
+    }
+
+    VetSchedule(Integer vetId, LocalTime opensAt, LocalTime closesAt) {
+        this.vetId = vetId;
+        this.opensAt = opensAt;
+        this.closesAt = closesAt;
+        this.isNew = true;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public Integer getId() {
+        return vetId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    /**
+     * Whether {@code [start, end)} lies within the working hours of a single day.
+     */
+    boolean covers(Instant start, Instant end, ZoneId zone) {
+        LocalDateTime from = LocalDateTime.ofInstant(start, zone);
+        LocalDateTime to = LocalDateTime.ofInstant(end, zone);
+        return !from.toLocalTime().isBefore(opensAt)
+            && !to.isAfter(from.toLocalDate().atTime(closesAt));
+    }
+
+    /**
+     * The earliest start at or after {@code time} such that a visit of the given duration lies within
+     * the working hours, or {@code null} if the visit is longer than a working day.
+     */
+    Instant fit(Instant time, Duration duration, ZoneId zone) {
+        if (duration.compareTo(Duration.between(opensAt, closesAt)) > 0) {
+            return null;
+        }
+        LocalDateTime start = LocalDateTime.ofInstant(time, zone);
+        if (start.toLocalTime().isBefore(opensAt)) {
+            start = start.toLocalDate().atTime(opensAt);
+        }
+        if (start.plus(duration).isAfter(start.toLocalDate().atTime(closesAt))) {
+            start = start.toLocalDate().plusDays(1).atTime(opensAt);
+        }
+        return start.atZone(zone).toInstant();
+    }
+
+    LocalTime getOpensAt() {
+        return opensAt;
+    }
+
+    LocalTime getClosesAt() {
+        return closesAt;
+    }
+}
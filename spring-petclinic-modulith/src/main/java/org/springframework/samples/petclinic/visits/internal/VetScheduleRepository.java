@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for vet working hours.
+ *
+ * @author PetClinic Team
+ */
+interface VetScheduleRepository extends JpaRepository<VetSchedule, Integer> {
+
+    /**
+     * Read a vet's schedule and lock its row until the end of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM VetSchedule s WHERE s.vetId = :vetId")
+    Optional<VetSchedule> lockByVetId(@Param("vetId") Integer vetId);
+
+    /**
+     * Read and lock the schedules of several vets, in vet order so that concurrent batches
+     * lock them in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM VetSchedule s WHERE s.vetId IN :vetIds ORDER BY s.vetId")
+    List<VetSchedule> lockByVetIdIn(@Param("vetIds") Collection<Integer> vetIds);
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves old visits out of the {@code visits} table, which otherwise only grows.
+ *
+ * Every night, completed and cancelled visits older than {@code petclinic.visits.archive.after}
+ * (180 days by default) are moved to {@code visits_archive}, and archived cancelled visits older than
+ * {@code petclinic.visits.archive.purge-cancelled-after} (two years by default) are deleted. Both work
+ * through the oldest rows in chunks of {@code petclinic.visits.archive.chunk-size}, one short
+ * transaction per chunk, so bookings are never held up behind a long-running delete.
+ *
+ * Run the job on one instance at a time: a concurrent run fails on the archive's primary key and
+ * rolls its chunk back. Scheduled visits are never archived; {@link VisitServiceImpl} reads the
+ * archive wherever a caller asks for history.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class VisitArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitArchiver.class);
+
+    /**
+     * Statuses of the visits that are archived, the only ones {@code visits_archive} holds.
+     */
+    static final Set<VisitStatus> ARCHIVED_STATUSES = EnumSet.of(VisitStatus.COMPLETED, VisitStatus.CANCELLED);
+
+    private final VisitRepository visitRepository;
+    private final ArchivedVisitRepository archivedVisitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration archiveAfter;
+    private final Duration purgeCancelledAfter;
+    private final int chunkSize;
+
+    VisitArchiver(VisitRepository visitRepository,
+                  ArchivedVisitRepository archivedVisitRepository,
+                  PlatformTransactionManager transactionManager,
+                  @Value("${petclinic.visits.archive.after:180d}") Duration archiveAfter,
+                  @Value("${petclinic.visits.archive.purge-cancelled-after:730d}") Duration purgeCancelledAfter,
+                  @Value("${petclinic.visits.archive.chunk-size:500}") int chunkSize) {
+        if (purgeCancelledAfter.compareTo(archiveAfter) < 0) {
+            throw new IllegalArgumentException("Cancelled visits must be archived before they are purged: "
+                + "purge-cancelled-after " + purgeCancelledAfter + " is shorter than after " + archiveAfter);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Archive chunk size must be positive: " + chunkSize);
+        }
+        this.visitRepository = visitRepository;
+        this.archivedVisitRepository = archivedVisitRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveAfter = archiveAfter;
+        this.purgeCancelledAfter = purgeCancelledAfter;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${petclinic.visits.archive.cron:0 30 3 * * *}")
+    public void run() {
+        Instant now = Instant.now();
+        archiveBefore(Date.from(now.minus(archiveAfter)));
+        purgeCancelledBefore(Date.from(now.minus(purgeCancelledAfter)));
+    }
+
+    /**
+     * Moves the completed and cancelled visits before the given date to the archive.
+     *
+     * @return the number of visits archived
+     */
+    int archiveBefore(Date cutoff) {
+        long start = System.nanoTime();
+        int archived = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> archiveChunk(cutoff));
+            archived += chunk;
+        } while (chunk == chunkSize);
+        log.info("Archived {} visits before {} in {} ms", archived, cutoff, (System.nanoTime() - start) / 1_000_000);
+        return archived;
+    }
+
+    private int archiveChunk(Date cutoff) {
+        List<Integer> ids = visitRepository.findIdsToArchive(ARCHIVED_STATUSES, cutoff, Limit.of(chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedVisitRepository.copyFromVisits(ids, new Date());
+        visitRepository.deleteAllByIdInBatch(ids);
+        return ids.size();
+    }
+
+    /**
+     * Deletes the archived cancelled visits before the given date.
+     *
+     * @return the number of visits purged
+     */
+    int purgeCancelledBefore(Date cutoff) {
+        long start = System.nanoTime();
+        int purged = 0;
+        int chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> purgeChunk(cutoff));
+            purged += chunk;
+        } while (chunk == chunkSize);
+        log.info("Purged {} cancelled visits before {} in {} ms", purged, cutoff, (System.nanoTime() - start) / 1_000_000);
+        return purged;
+    }
+
+    private int purgeChunk(Date cutoff) {
+        List<Integer> ids = archivedVisitRepository.findIdsToPurge(VisitStatus.CANCELLED, cutoff, Limit.of(chunkSize));
+        if (!ids.isEmpty()) {
+            archivedVisitRepository.deleteAllByIdInBatch(ids);
+        }
+        return ids.size();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Keyset position in the (visitDate, id) ordering of visits.
+ *
+ * Clients only ever see the encoded form, which is an opaque URL-safe token.
+ *
+ * @author PetClinic Team
+ */
+record VisitCursor(Date visitDate, Integer id) {
+
+    private static final char SEPARATOR = ':';
+
+    String encode() {
+        String raw = visitDate.getTime() + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static VisitCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new InvalidRequestException("Invalid visit cursor: " + token);
+            }
+            return new VisitCursor(new Date(Long.parseLong(raw.substring(0, separator))),
+                Integer.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException ex) {
+            // also covers NumberFormatException and bad Base64 input
+            throw new InvalidRequestException("Invalid visit cursor: " + token, ex);
+        }
+    }
+}
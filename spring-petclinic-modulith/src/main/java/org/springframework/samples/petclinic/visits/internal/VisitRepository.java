@@ -15,10 +15,22 @@
  */
 package org.springframework.samples.petclinic.visits.internal;
 
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitSummary;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for Visit entity access.
@@ -35,8 +47,266 @@ interface VisitRepository extends JpaRepository<Visit, Integer> {
      */
     List<Visit> findByPetId(Integer petId);
     
+    /**
+     * Find all visits of the given pets, one IN-list over the (pet_id, visit_date) index.
+     */
+    List<Visit> findByPetIdIn(Collection<Integer> petIds);
+    
     /**
      * Find all visits for a specific veterinarian.
      */
     List<Visit> findByVetId(Integer vetId);
+
+    /**
+     * Page of one pet's visits in {@code [after, to)}, in ascending (visitDate, id) order, starting right
+     * after the given keyset position. Served by the (pet_id, visit_date) index.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.status)
+        FROM Visit v
+        WHERE v.petId = :petId AND v.status IN :statuses AND v.visitDate < :to
+          AND v.visitDate >= :afterDate AND (v.visitDate > :afterDate OR v.id > :afterId)
+        ORDER BY v.visitDate, v.id""")
+    List<VisitSummary> findPetPageAfter(@Param("petId") Integer petId, @Param("statuses") Collection<VisitStatus> statuses,
+                                        @Param("to") Date to, @Param("afterDate") Date afterDate,
+                                        @Param("afterId") Integer afterId, Limit limit);
+
+    /**
+     * Page of one pet's visits in {@code [from, before]}, in descending (visitDate, id) order, starting
+     * right before the given keyset position. Served by the (pet_id, visit_date) index.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.status)
+        FROM Visit v
+        WHERE v.petId = :petId AND v.status IN :statuses AND v.visitDate >= :from
+          AND v.visitDate <= :beforeDate AND (v.visitDate < :beforeDate OR v.id < :beforeId)
+        ORDER BY v.visitDate DESC, v.id DESC""")
+    List<VisitSummary> findPetPageBefore(@Param("petId") Integer petId, @Param("statuses") Collection<VisitStatus> statuses,
+                                         @Param("from") Date from, @Param("beforeDate") Date beforeDate,
+                                         @Param("beforeId") Integer beforeId, Limit limit);
+
+    /**
+     * Page of one vet's visits in {@code [after, to)}, in ascending (visitDate, id) order, starting right
+     * after the given keyset position. Served by the (vet_id, visit_date) index.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.status)
+        FROM Visit v
+        WHERE v.vetId = :vetId AND v.status IN :statuses AND v.visitDate < :to
+          AND v.visitDate >= :afterDate AND (v.visitDate > :afterDate OR v.id > :afterId)
+        ORDER BY v.visitDate, v.id""")
+    List<VisitSummary> findVetPageAfter(@Param("vetId") Integer vetId, @Param("statuses") Collection<VisitStatus> statuses,
+                                        @Param("to") Date to, @Param("afterDate") Date afterDate,
+                                        @Param("afterId") Integer afterId, Limit limit);
+
+    /**
+     * Page of one vet's visits in {@code [from, before]}, in descending (visitDate, id) order, starting
+     * right before the given keyset position. Served by the (vet_id, visit_date) index.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.status)
+        FROM Visit v
+        WHERE v.vetId = :vetId AND v.status IN :statuses AND v.visitDate >= :from
+          AND v.visitDate <= :beforeDate AND (v.visitDate < :beforeDate OR v.id < :beforeId)
+        ORDER BY v.visitDate DESC, v.id DESC""")
+    List<VisitSummary> findVetPageBefore(@Param("vetId") Integer vetId, @Param("statuses") Collection<VisitStatus> statuses,
+                                         @Param("from") Date from, @Param("beforeDate") Date beforeDate,
+                                         @Param("beforeId") Integer beforeId, Limit limit);
+
+    /**
+     * Whether the vet has a scheduled visit overlapping {@code [start, end)}.
+     *
+     * Visits saved without an end date occupy the default duration: pass {@code start} minus that
+     * duration as {@code undatedAfter}, the time such a visit must start after to still overlap.
+     */
+    @Query("""
+        SELECT count(v) > 0 FROM Visit v
+        WHERE v.vetId = :vetId AND v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED
+          AND v.visitDate < :end AND (v.endDate > :start OR (v.endDate IS NULL AND v.visitDate > :undatedAfter))""")
+    boolean existsOverlapping(@Param("vetId") Integer vetId, @Param("start") Date start, @Param("end") Date end,
+                              @Param("undatedAfter") Date undatedAfter);
+
+    /**
+     * Scheduled visits that end after the given time, i.e. the bookings that still occupy a vet.
+     *
+     * Visits saved without an end date are included if they start after {@code undatedAfter}, which
+     * is {@code after} minus the default duration, like in {@link #existsOverlapping}.
+     */
+    @Query("""
+        SELECT v FROM Visit v
+        WHERE v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED
+          AND (v.endDate > :after OR (v.endDate IS NULL AND v.visitDate > :undatedAfter))""")
+    List<Visit> findBookingsEndingAfter(@Param("after") Date after, @Param("undatedAfter") Date undatedAfter);
+
+    /**
+     * Scheduled visits of one vet that end after the given time.
+     */
+    @Query("""
+        SELECT v FROM Visit v
+        WHERE v.vetId = :vetId AND v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED
+          AND (v.endDate > :after OR (v.endDate IS NULL AND v.visitDate > :undatedAfter))""")
+    List<Visit> findBookingsEndingAfter(@Param("vetId") Integer vetId, @Param("after") Date after,
+                                        @Param("undatedAfter") Date undatedAfter);
+
+    /**
+     * Scheduled visits of the given vets that end after the given time.
+     */
+    @Query("""
+        SELECT v FROM Visit v
+        WHERE v.vetId IN :vetIds AND v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED
+          AND (v.endDate > :after OR (v.endDate IS NULL AND v.visitDate > :undatedAfter))""")
+    List<Visit> findBookingsEndingAfter(@Param("vetIds") Collection<Integer> vetIds, @Param("after") Date after,
+                                        @Param("undatedAfter") Date undatedAfter);
+
+    /**
+     * Moves one visit from SCHEDULED to the given status in a single conditional UPDATE.
+     * Returns the number of rows changed: 0 if the visit does not exist or is no longer scheduled.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Visit v SET v.status = :status
+        WHERE v.id = :id AND v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED""")
+    int updateScheduledStatus(@Param("id") Integer id, @Param("status") VisitStatus status);
+
+    /**
+     * Moves the given visits that are still SCHEDULED to the given status in a single UPDATE.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Visit v SET v.status = :status
+        WHERE v.id IN :ids AND v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED""")
+    int updateScheduledStatus(@Param("ids") Collection<Integer> ids, @Param("status") VisitStatus status);
+
+    /**
+     * The given visits that are still SCHEDULED, locked until the end of the transaction so that their
+     * status cannot change before {@link #updateScheduledStatus(Collection, VisitStatus)}.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.status)
+        FROM Visit v
+        WHERE v.id IN :ids AND v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED
+        ORDER BY v.id""")
+    List<VisitSummary> findScheduledForUpdate(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * One vet's visits in {@code [from, to)} that are still SCHEDULED, locked like
+     * {@link #findScheduledForUpdate(Collection)}. Served by the (vet_id, visit_date) index.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.status)
+        FROM Visit v
+        WHERE v.vetId = :vetId AND v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED
+          AND v.visitDate >= :from AND v.visitDate < :to
+        ORDER BY v.id""")
+    List<VisitSummary> findScheduledForUpdate(@Param("vetId") Integer vetId, @Param("from") Date from,
+                                              @Param("to") Date to);
+
+    /**
+     * One visit as a {@link VisitSummary}, without loading the entity and its description.
+     */
+    @Query("""
+        SELECT new org.springframework.samples.petclinic.visits.VisitSummary(
+            v.id, v.petId, v.vetId, v.visitDate, v.durationMinutes, v.status)
+        FROM Visit v WHERE v.id = :id""")
+    Optional<VisitSummary> findSummaryById(@Param("id") Integer id);
+
+    @Query("SELECT v.id FROM Visit v WHERE v.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * IDs of the oldest visits with one of the given statuses before the given date, the next chunk
+     * for {@link VisitArchiver}. Served by the (visit_date, vet_id, status) index.
+     */
+    @Query("""
+        SELECT v.id FROM Visit v
+        WHERE v.status IN :statuses AND v.visitDate < :before
+        ORDER BY v.visitDate, v.id""")
+    List<Integer> findIdsToArchive(@Param("statuses") Collection<VisitStatus> statuses,
+                                   @Param("before") Date before, Limit limit);
+
+    /**
+     * Number of visits of one vet, day and status.
+     */
+    interface VisitCount {
+        Integer getVetId();
+        LocalDate getDay();
+        VisitStatus getStatus();
+        Long getVisitCount();
+    }
+
+    /**
+     * Visits in {@code [from, to)} counted per vet, day and status in one grouped query.
+     * Reads only the (visit_date, vet_id, status) index, never the table rows. Days are those of
+     * {@code petclinic.schedule.zone}, the zone Hibernate stores the visit dates in.
+     */
+    @Query("""
+        SELECT v.vetId AS vetId, cast(v.visitDate AS LocalDate) AS day, v.status AS status,
+               count(v) AS visitCount
+        FROM Visit v
+        WHERE v.visitDate >= :from AND v.visitDate < :to
+        GROUP BY v.vetId, cast(v.visitDate AS LocalDate), v.status""")
+    List<VisitCount> countByVetDayAndStatus(@Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Like {@link #countByVetDayAndStatus(Date, Date)}, for the given vets only. The vet filter is
+     * applied on the same index range.
+     */
+    @Query("""
+        SELECT v.vetId AS vetId, cast(v.visitDate AS LocalDate) AS day, v.status AS status,
+               count(v) AS visitCount
+        FROM Visit v
+        WHERE v.visitDate >= :from AND v.visitDate < :to AND v.vetId IN :vetIds
+        GROUP BY v.vetId, cast(v.visitDate AS LocalDate), v.status""")
+    List<VisitCount> countByVetDayAndStatus(@Param("vetIds") Collection<Integer> vetIds,
+                                            @Param("from") Date from, @Param("to") Date to);
+
+    /**
+     * Vet and day of one visit.
+     */
+    interface VisitDay {
+        Integer getVetId();
+        LocalDate getDay();
+    }
+
+    /**
+     * Vet and day of the given visits, in the days of {@code petclinic.schedule.zone} like
+     * {@link #countByVetDayAndStatus}.
+     */
+    @Query("""
+        SELECT DISTINCT v.vetId AS vetId, cast(v.visitDate AS LocalDate) AS day
+        FROM Visit v WHERE v.id IN :ids AND v.visitDate IS NOT NULL""")
+    List<VisitDay> findVisitDays(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT min(v.visitDate) FROM Visit v")
+    Date findFirstVisitDate();
+
+    @Query("SELECT max(v.visitDate) FROM Visit v")
+    Date findLastVisitDate();
+
+    /**
+     * Visit totals of one pet.
+     */
+    interface PetVisitTotals {
+        Integer getPetId();
+        Date getLastVisitDate();
+        Long getOpenVisitCount();
+    }
+
+    /**
+     * Visit totals of the given pets in one grouped query, one row per pet that has visits.
+     */
+    @Query("""
+        SELECT v.petId AS petId, max(v.visitDate) AS lastVisitDate,
+               sum(CASE WHEN v.status = org.springframework.samples.petclinic.visits.VisitStatus.SCHEDULED
+                        THEN 1 ELSE 0 END) AS openVisitCount
+        FROM Visit v WHERE v.petId IN :petIds GROUP BY v.petId""")
+    List<PetVisitTotals> findTotalsByPetIdIn(@Param("petIds") Collection<Integer> petIds);
 }
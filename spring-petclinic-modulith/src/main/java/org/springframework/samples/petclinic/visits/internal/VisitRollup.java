@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One bucket of the visit rollups: the visits of one vet on one day, counted by status.
+ *
+ * Maintained by {@link VisitRollupProjector} from visit events, so that dashboards read one row per
+ * vet and day instead of aggregating the visits themselves. Days are those of
+ * {@code petclinic.schedule.zone}, like the ones of {@code /visits/stats}.
+ *
+ * @author PetClinic Team
+ */
+@Entity
+@Table(name = "visit_rollups")
+public class VisitRollup implements Persistable<VisitRollup.Key> {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "scheduled_count")
+    private int scheduledCount;
+
+    @Column(name = "completed_count")
+    private int completedCount;
+
+    @Column(name = "cancelled_count")
+    private int cancelledCount;
+
+    /**
+     * When the bucket was last projected; buckets left behind by a rebuild are older than the rebuild.
+     */
+    @Column(name = "projected_at")
+    private Instant projectedAt;
+
+    @Transient
+    private boolean isNew;
+
+    protected VisitRollup() {
+    }
+
+    VisitRollup(Key key) {
+        this.key = key;
+        this.isNew = true;
+    }
+
+    void project(Map<VisitStatus, Long> counts, Instant projectedAt) {
+        this.scheduledCount = counts.getOrDefault(VisitStatus.SCHEDULED, 0L).intValue();
+        this.completedCount = counts.getOrDefault(VisitStatus.COMPLETED, 0L).intValue();
+        this.cancelledCount = counts.getOrDefault(VisitStatus.CANCELLED, 0L).intValue();
+        this.projectedAt = projectedAt;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
+
+    @Override
+    public Key getId() {
+        return key;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    public Integer getVetId() {
+        return key.vetId();
+    }
+
+    public LocalDate getDay() {
+        return key.day();
+    }
+
+    /**
+     * Number of visits of the bucket with the given status.
+     */
+    public long count(VisitStatus status) {
+        return switch (status) {
+            case SCHEDULED -> scheduledCount;
+            case COMPLETED -> completedCount;
+            case CANCELLED -> cancelledCount;
+        };
+    }
+
+    public long getTotal() {
+        return (long) scheduledCount + completedCount + cancelledCount;
+    }
+
+    /**
+     * Vet and day of a bucket.
+     */
+    @Embeddable
+    public static class Key implements Serializable {
+
+        @Column(name = "vet_id")
+        private Integer vetId;
+
+        @Column(name = "visit_day")
+        private LocalDate day;
+
+        protected Key() {
+        }
+
+        Key(Integer vetId, LocalDate day) {
+            this.vetId = vetId;
+            this.day = day;
+        }
+
+        Integer vetId() {
+            return vetId;
+        }
+
+        LocalDate day() {
+            return day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(vetId, other.vetId) && Objects.equals(day, other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(vetId, day);
+        }
+
+        @Override
+        public String toString() {
+            return "vet " + vetId + " on " + day;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Custom Actuator endpoint to backfill the visit rollups.
+ *
+ * POST /actuator/visitrollups re-counts all buckets from the live and archived visits.
+ *
+ * @author PetClinic Team
+ */
+@Component
+@Endpoint(id = "visitrollups")
+class VisitRollupEndpoint {
+
+    private final VisitRollupProjector projector;
+
+    VisitRollupEndpoint(VisitRollupProjector projector) {
+        this.projector = projector;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> rebuild() {
+        return Map.of("buckets", projector.rebuild());
+    }
+}
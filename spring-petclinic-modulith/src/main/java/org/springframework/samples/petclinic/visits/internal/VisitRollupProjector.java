@@ -0,0 +1,290 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.modulith.events.ApplicationModuleListener;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
+import org.springframework.samples.petclinic.visits.VisitCompleted;
+import org.springframework.samples.petclinic.visits.VisitCreated;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitsCancelled;
+import org.springframework.samples.petclinic.visits.VisitsCompleted;
+import org.springframework.samples.petclinic.visits.VisitsScheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the {@link VisitRollup} buckets.
+ *
+ * Every visit event re-counts the buckets of the visits it carries, that is the visits of the
+ * same vet and day, live and archived, with the index-only grouped query behind
+ * {@code /visits/stats}, once for all the buckets of the event. Re-counting rather than adding to
+ * the counts keeps the projection idempotent, so events may be redelivered or handled out of order.
+ *
+ * Two events of the same bucket, say a booking and its cancellation, may be handled at once, here
+ * or on another node. A count read before the other event committed must not be written after it,
+ * so the buckets are locked before they are counted: a missing bucket is first inserted empty in a
+ * transaction of its own, much like a vet's schedule before a booking, and then every bucket is
+ * locked in key order, counted and written in one transaction. The listeners therefore run without
+ * a transaction of their own.
+ *
+ * {@link #rebuild()} backfills all buckets from the visit tables one month per transaction. It runs
+ * on startup when there are no buckets yet, unless {@code petclinic.visit-rollups.rebuild-on-startup}
+ * is turned off. Buckets only count the visits still stored, a rebuild drops the cancelled visits
+ * purged by {@link VisitArchiver}.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class VisitRollupProjector {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitRollupProjector.class);
+
+    private static final Period REBUILD_WINDOW = Period.ofMonths(1);
+
+    private final VisitRollupRepository rollupRepository;
+    private final VisitRepository visitRepository;
+    private final ArchivedVisitRepository archivedVisitRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final boolean rebuildOnStartup;
+    private final ZoneId zone;
+
+    VisitRollupProjector(VisitRollupRepository rollupRepository,
+                         VisitRepository visitRepository,
+                         ArchivedVisitRepository archivedVisitRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${petclinic.visit-rollups.rebuild-on-startup:true}") boolean rebuildOnStartup,
+                         @Value("${petclinic.schedule.zone:UTC}") ZoneId zone) {
+        this.rollupRepository = rollupRepository;
+        this.visitRepository = visitRepository;
+        this.archivedVisitRepository = archivedVisitRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.zone = zone;
+    }
+
+    @EventListener
+    public void on(ApplicationReadyEvent event) {
+        if (rebuildOnStartup && rollupRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitCreated event) {
+        refresh(List.of(event.visitId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitsScheduled event) {
+        refresh(event.visits().stream().map(VisitCreated::visitId).toList());
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitCompleted event) {
+        refresh(List.of(event.visitId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitCancelled event) {
+        refresh(List.of(event.visitId()));
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitsCompleted event) {
+        refresh(event.visits().stream().map(VisitCompleted::visitId).toList());
+    }
+
+    @ApplicationModuleListener(propagation = Propagation.NOT_SUPPORTED)
+    void on(VisitsCancelled event) {
+        refresh(event.visits().stream().map(VisitCancelled::visitId).toList());
+    }
+
+    /**
+     * Re-counts the buckets of the given visits.
+     */
+    void refresh(Collection<Integer> visitIds) {
+        Set<VisitRollup.Key> keys = visitRepository.findVisitDays(visitIds).stream()
+            .map(visitDay -> new VisitRollup.Key(visitDay.getVetId(), visitDay.getDay()))
+            .collect(Collectors.toSet());
+        if (keys.isEmpty()) {
+            log.debug("No visit rollups to refresh for visits {}", visitIds);
+            return;
+        }
+        Instant projectedAt = now();
+        Set<VisitRollup.Key> missing = new HashSet<>(keys);
+        rollupRepository.findAllById(keys).forEach(rollup -> missing.remove(rollup.getId()));
+        missing.forEach(key -> createBucket(key, projectedAt));
+
+        Set<Integer> vetIds = keys.stream().map(VisitRollup.Key::vetId).collect(Collectors.toSet());
+        LocalDate from = keys.stream().map(VisitRollup.Key::day).min(LocalDate::compareTo).orElseThrow();
+        LocalDate to = keys.stream().map(VisitRollup.Key::day).max(LocalDate::compareTo).orElseThrow().plusDays(1);
+        transactionTemplate.executeWithoutResult(status -> {
+            // Also locks the other buckets of these vets in between, which a batch usually covers anyway
+            Map<VisitRollup.Key, VisitRollup> locked = rollupRepository.lockByVetsAndDayRange(vetIds, from, to).stream()
+                .collect(Collectors.toMap(VisitRollup::getId, Function.identity()));
+            project(keys, locked, count(vetIds, from, to), projectedAt);
+        });
+    }
+
+    /**
+     * Inserts an empty bucket to lock, unless another projection just did.
+     */
+    private void createBucket(VisitRollup.Key key, Instant projectedAt) {
+        VisitRollup rollup = new VisitRollup(key);
+        rollup.project(Map.of(), projectedAt);
+        try {
+            newTransaction.executeWithoutResult(status -> rollupRepository.saveAndFlush(rollup));
+        } catch (DataIntegrityViolationException ex) {
+            log.debug("Visit rollup of {} was created concurrently", key);
+        }
+    }
+
+    /**
+     * Rebuilds all buckets from the visit tables.
+     *
+     * Buckets stay readable during the rebuild: rows are overwritten in place and the buckets left
+     * without visits are only removed at the end.
+     *
+     * @return the number of buckets projected
+     */
+    int rebuild() {
+        long start = System.nanoTime();
+        Instant rebuiltAt = now();
+
+        Date first = earliest(visitRepository.findFirstVisitDate(), archivedVisitRepository.findFirstVisitDate());
+        Date last = latest(visitRepository.findLastVisitDate(), archivedVisitRepository.findLastVisitDate());
+        int projected = 0;
+        if (first != null) {
+            LocalDate end = localDate(last).plusDays(1);
+            for (LocalDate from = localDate(first); from.isBefore(end); from = from.plus(REBUILD_WINDOW)) {
+                LocalDate windowStart = from;
+                LocalDate windowEnd = from.plus(REBUILD_WINDOW).isBefore(end) ? from.plus(REBUILD_WINDOW) : end;
+                projected += transactionTemplate.execute(status -> {
+                    Map<VisitRollup.Key, Map<VisitStatus, Long>> counts = count(null, windowStart, windowEnd);
+                    Map<VisitRollup.Key, VisitRollup> rollups = rollupRepository.findAllById(counts.keySet()).stream()
+                        .collect(Collectors.toMap(VisitRollup::getId, Function.identity()));
+                    return project(counts.keySet(), rollups, counts, rebuiltAt);
+                });
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> rollupRepository.deleteByProjectedAtBefore(rebuiltAt));
+        log.info("Visit rollups rebuilt with {} buckets in {} ms", projected, (System.nanoTime() - start) / 1_000_000);
+        return projected;
+    }
+
+    /**
+     * Counts the live and archived visits of the days in {@code [from, to)} per vet, day and status,
+     * of the given vets or, if {@code null}, of all vets.
+     */
+    private Map<VisitRollup.Key, Map<VisitStatus, Long>> count(Collection<Integer> vetIds, LocalDate from, LocalDate to) {
+        // Days are cut by the database, in the zone Hibernate stores the visit dates in, which is ours
+        Date start = Date.from(from.atStartOfDay(zone).toInstant());
+        Date end = Date.from(to.atStartOfDay(zone).toInstant());
+        List<VisitRepository.VisitCount> rows = new ArrayList<>();
+        if (vetIds == null) {
+            rows.addAll(visitRepository.countByVetDayAndStatus(start, end));
+            rows.addAll(archivedVisitRepository.countByVetDayAndStatus(start, end));
+        } else {
+            rows.addAll(visitRepository.countByVetDayAndStatus(vetIds, start, end));
+            rows.addAll(archivedVisitRepository.countByVetDayAndStatus(vetIds, start, end));
+        }
+
+        Map<VisitRollup.Key, Map<VisitStatus, Long>> counts = new HashMap<>();
+        for (VisitRepository.VisitCount row : rows) {
+            if (row.getDay() != null && !row.getDay().isBefore(from) && row.getDay().isBefore(to)) {
+                counts.computeIfAbsent(new VisitRollup.Key(row.getVetId(), row.getDay()),
+                        key -> new EnumMap<>(VisitStatus.class))
+                    .merge(row.getStatus(), row.getVisitCount(), Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Writes the counts of the given buckets onto their stored rollups, and removes the buckets that
+     * have none.
+     */
+    private int project(Collection<VisitRollup.Key> keys, Map<VisitRollup.Key, VisitRollup> rollups,
+                        Map<VisitRollup.Key, Map<VisitStatus, Long>> counts, Instant projectedAt) {
+        List<VisitRollup> projected = new ArrayList<>(keys.size());
+        List<VisitRollup> emptied = new ArrayList<>();
+        for (VisitRollup.Key key : Set.copyOf(keys)) {
+            Map<VisitStatus, Long> bucket = counts.get(key);
+            if (bucket != null) {
+                VisitRollup rollup = rollups.computeIfAbsent(key, VisitRollup::new);
+                rollup.project(bucket, projectedAt);
+                projected.add(rollup);
+            } else if (rollups.containsKey(key)) {
+                emptied.add(rollups.get(key));
+            }
+        }
+        rollupRepository.saveAll(projected);
+        rollupRepository.deleteAll(emptied);
+        return projected.size();
+    }
+
+    private LocalDate localDate(Date date) {
+        return date.toInstant().atZone(zone).toLocalDate();
+    }
+
+    private static Date earliest(Date... dates) {
+        return Stream.of(dates).filter(Objects::nonNull).min(Date::compareTo).orElse(null);
+    }
+
+    private static Date latest(Date... dates) {
+        return Stream.of(dates).filter(Objects::nonNull).max(Date::compareTo).orElse(null);
+    }
+
+    /**
+     * The current time at the precision projected_at is stored with, so it compares as written.
+     */
+    private static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the visit rollups.
+ *
+ * Internal to the visits module; public only for the web layer, which reads the rollups.
+ * Rollups are written by {@link VisitRollupProjector} alone.
+ *
+ * @author PetClinic Team
+ */
+public interface VisitRollupRepository extends JpaRepository<VisitRollup, VisitRollup.Key> {
+
+    /**
+     * Buckets of all vets in {@code [from, to)}, one primary key range.
+     */
+    @Query("""
+        SELECT r FROM VisitRollup r
+        WHERE r.key.day >= :from AND r.key.day < :to
+        ORDER BY r.key.day, r.key.vetId""")
+    List<VisitRollup> findByDayRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Buckets of one vet in {@code [from, to)}, one range of the (vet_id, visit_day) index.
+     */
+    @Query("""
+        SELECT r FROM VisitRollup r
+        WHERE r.key.vetId = :vetId AND r.key.day >= :from AND r.key.day < :to
+        ORDER BY r.key.day""")
+    List<VisitRollup> findByVetAndDayRange(@Param("vetId") Integer vetId,
+                                           @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Read and lock the buckets of the given vets in {@code [from, to)} until the end of the
+     * transaction, in primary key order so that concurrent projections lock them in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+        SELECT r FROM VisitRollup r
+        WHERE r.key.day >= :from AND r.key.day < :to AND r.key.vetId IN :vetIds
+        ORDER BY r.key.day, r.key.vetId""")
+    List<VisitRollup> lockByVetsAndDayRange(@Param("vetIds") Collection<Integer> vetIds,
+                                            @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM VisitRollup r WHERE r.projectedAt < :projectedAt")
+    int deleteByProjectedAtBefore(@Param("projectedAt") Instant projectedAt);
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.modulith.events.ApplicationModuleListener;
+import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
+import org.springframework.samples.petclinic.vets.VetDeleted;
+import org.springframework.samples.petclinic.visits.ScheduleResult;
+import org.springframework.samples.petclinic.visits.SlotUnavailableException;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
+import org.springframework.samples.petclinic.visits.VisitsCancelled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Books visits into the vets' working hours without double-booking a vet.
+ *
+ * Each vet has an in-memory {@link VetCalendar} of its upcoming bookings, which checks the visits of a
+ * batch and suggests alternative slots in {@code O(log n)} per lookup. The calendars are rebuilt from the
+ * {@code visits} table when the application is ready, and loaded lazily for vets first booked later.
+ * Past bookings are pruned as new ones come in.
+ *
+ * The database stays the source of truth. A booking locks the vet's {@link VetSchedule} row until its
+ * transaction ends, which serializes bookings for the same vet across all nodes while bookings for
+ * different vets run in parallel. Under that lock an indexed overlap query decides whether a single
+ * visit's slot is free; when this node's calendar disagrees, because another node booked or cancelled
+ * a visit, the calendar is reloaded. A batch of visits locks all its vets at once and reloads their
+ * calendars under the locks instead.
+ *
+ * Before the row lock, a booking takes the vet's stripe of the in-JVM {@link VetLocks}, also until its
+ * transaction ends. Concurrent bookings of one vet on this node therefore wait in memory rather than
+ * on the database, and bookings of unrelated vets neither share a stripe lock nor a row lock. A booking
+ * that cannot get its stripe within {@code petclinic.schedule.lock-timeout} fails with
+ * {@link org.springframework.dao.CannotAcquireLockException} rather than hold its connection longer.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class VisitScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitScheduler.class);
+
+    private final VisitRepository visitRepository;
+    private final VetScheduleRepository scheduleRepository;
+    private final TransactionTemplate newTransaction;
+    private final Map<Integer, VetCalendar> calendars = new ConcurrentHashMap<>();
+    private final VetLocks vetLocks;
+    private final ZoneId zone;
+    private final Duration defaultDuration;
+    private final LocalTime defaultOpensAt;
+    private final LocalTime defaultClosesAt;
+    private final int alternatives;
+    private final Duration searchHorizon;
+
+    VisitScheduler(VisitRepository visitRepository,
+                   VetScheduleRepository scheduleRepository,
+                   PlatformTransactionManager transactionManager,
+                   @Value("${petclinic.schedule.zone:UTC}") ZoneId zone,
+                   @Value("${petclinic.schedule.default-duration:30m}") Duration defaultDuration,
+                   @Value("${petclinic.schedule.opens-at:08:00}") String defaultOpensAt,
+                   @Value("${petclinic.schedule.closes-at:18:00}") String defaultClosesAt,
+                   @Value("${petclinic.schedule.alternatives:3}") int alternatives,
+                   @Value("${petclinic.schedule.search-horizon:14d}") Duration searchHorizon,
+                   @Value("${petclinic.schedule.lock-stripes:64}") int lockStripes,
+                   @Value("${petclinic.schedule.lock-timeout:2s}") Duration lockTimeout) {
+        this.visitRepository = visitRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.zone = zone;
+        this.defaultDuration = defaultDuration;
+        this.defaultOpensAt = LocalTime.parse(defaultOpensAt);
+        this.defaultClosesAt = LocalTime.parse(defaultClosesAt);
+        this.alternatives = alternatives;
+        this.searchHorizon = searchHorizon;
+        this.vetLocks = new VetLocks(lockStripes, lockTimeout);
+    }
+
+    /**
+     * Time zone of the clinic, of the vets' working days and of the days visits are counted and
+     * transitioned by.
+     */
+    ZoneId zone() {
+        return zone;
+    }
+
+    @EventListener
+    public void on(ApplicationReadyEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Rebuild all calendars from the upcoming bookings in the database.
+     */
+    public void rebuild() {
+        Instant now = Instant.now();
+        Map<Integer, List<VetCalendar.Booking>> bookingsByVet = visitRepository
+            .findBookingsEndingAfter(Date.from(now), undatedAfter(now))
+            .stream()
+            .collect(Collectors.groupingBy(Visit::getVetId, Collectors.mapping(this::booking, Collectors.toList())));
+        Set<Integer> vetIds = new HashSet<>(calendars.keySet());
+        vetIds.addAll(bookingsByVet.keySet());
+        for (Integer vetId : vetIds) {
+            VetCalendar calendar = calendar(vetId);
+            synchronized (calendar) {
+                calendar.replaceAll(bookingsByVet.getOrDefault(vetId, List.of()));
+            }
+        }
+        log.info("Vet calendars built with {} upcoming visits of {} vets",
+            bookingsByVet.values().stream().mapToInt(List::size).sum(), bookingsByVet.size());
+    }
+
+    /**
+     * Book the visit into its vet's calendar and save it. Must run within the caller's transaction,
+     * the vet stays locked until it ends.
+     *
+     * A visit without a date starts now, one without a duration gets the default duration.
+     *
+     * @throws SlotUnavailableException if the vet is booked at that time or not working
+     */
+    @Transactional
+    public Visit book(Visit visit) {
+        applyDefaults(visit);
+        Integer vetId = visit.getVetId();
+        Instant start = visit.getVisitDate().toInstant();
+        Duration duration = Duration.ofMinutes(visit.getDurationMinutes());
+        Instant end = start.plus(duration);
+
+        VetSchedule schedule = lockSchedule(vetId);
+        VetCalendar calendar = calendar(vetId);
+        synchronized (calendar) {
+            Instant now = Instant.now();
+            if (!calendar.isLoaded()) {
+                load(calendar, vetId, now);
+            }
+            calendar.pruneBefore(now);
+
+            if (!schedule.covers(start, end, zone)) {
+                throw unavailable("Vet " + vetId + " does not work at " + start, vetId, calendar, schedule, start, duration);
+            }
+            // The database decides; the calendar only has to agree with it to suggest other slots
+            boolean booked = visitRepository.existsOverlapping(vetId, Date.from(start), Date.from(end), undatedAfter(start));
+            if (booked != calendar.conflict(start, end).isPresent()) {
+                log.debug("Calendar of vet {} missed a visit booked or cancelled elsewhere, reloading it", vetId);
+                load(calendar, vetId, now);
+            }
+            if (booked) {
+                throw unavailable("Vet " + vetId + " is already booked at " + start, vetId, calendar, schedule, start, duration);
+            }
+
+            Visit saved = visitRepository.save(visit);
+            calendar.add(booking(saved));
+            releaseOnRollback(calendar, List.of(saved.getId()));
+            return saved;
+        }
+    }
+
+    /**
+     * Book a batch of visits into their vets' calendars and save them. Must run within the caller's
+     * transaction, the vets of the batch stay locked until it ends.
+     *
+     * The vets are locked with one query and their calendars reloaded with another. Under the locks the
+     * calendars are exact, so the visits are checked against them without further queries, in order:
+     * a visit overlapping an earlier one of the batch is rejected. Visit ids come from a pooled
+     * sequence, so the saved visits are inserted in JDBC batches when the transaction flushes.
+     *
+     * @return one result per visit, in the order of {@code visits}
+     */
+    @Transactional
+    public List<ScheduleResult> bookAll(List<Visit> visits) {
+        Map<Integer, List<Integer>> indexesByVet = new TreeMap<>();
+        for (int i = 0; i < visits.size(); i++) {
+            applyDefaults(visits.get(i));
+            indexesByVet.computeIfAbsent(visits.get(i).getVetId(), vetId -> new ArrayList<>()).add(i);
+        }
+        Map<Integer, VetSchedule> schedules = lockSchedules(indexesByVet.keySet());
+        Instant now = Instant.now();
+        Map<Integer, List<VetCalendar.Booking>> bookingsByVet = visitRepository
+            .findBookingsEndingAfter(indexesByVet.keySet(), Date.from(now), undatedAfter(now))
+            .stream()
+            .collect(Collectors.groupingBy(Visit::getVetId, Collectors.mapping(this::booking, Collectors.toList())));
+
+        ScheduleResult[] results = new ScheduleResult[visits.size()];
+        indexesByVet.forEach((vetId, indexes) -> {
+            VetSchedule schedule = schedules.get(vetId);
+            if (schedule == null) {
+                indexes.forEach(index -> results[index] = ScheduleResult.rejected("Vet not found: " + vetId));
+                return;
+            }
+            VetCalendar calendar = calendar(vetId);
+            List<Integer> booked = new ArrayList<>(indexes.size());
+            synchronized (calendar) {
+                calendar.replaceAll(bookingsByVet.getOrDefault(vetId, List.of()));
+                for (int index : indexes) {
+                    Visit visit = visits.get(index);
+                    Instant start = visit.getVisitDate().toInstant();
+                    Duration duration = Duration.ofMinutes(visit.getDurationMinutes());
+                    Instant end = start.plus(duration);
+                    if (!schedule.covers(start, end, zone)) {
+                        results[index] = ScheduleResult.rejected(
+                            unavailable("Vet " + vetId + " does not work at " + start, vetId, calendar, schedule, start, duration));
+                    } else if (calendar.conflict(start, end).isPresent()) {
+                        results[index] = ScheduleResult.rejected(
+                            unavailable("Vet " + vetId + " is already booked at " + start, vetId, calendar, schedule, start, duration));
+                    } else {
+                        Visit saved = visitRepository.save(visit);
+                        calendar.add(booking(saved));
+                        booked.add(saved.getId());
+                        results[index] = ScheduleResult.scheduled(saved);
+                    }
+                }
+            }
+            releaseOnRollback(calendar, booked);
+        });
+        return Arrays.asList(results);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VisitCancelled event) {
+        release(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(VisitsCancelled event) {
+        event.visits().forEach(this::release);
+    }
+
+    private void release(VisitCancelled cancelled) {
+        VetCalendar calendar = calendars.get(cancelled.vetId());
+        if (calendar != null) {
+            synchronized (calendar) {
+                calendar.remove(cancelled.visitId());
+            }
+        }
+    }
+
+    @ApplicationModuleListener
+    void on(VetDeleted event) {
+        calendars.remove(event.vetId());
+        if (scheduleRepository.existsById(event.vetId())) {
+            scheduleRepository.deleteById(event.vetId());
+        }
+    }
+
+    /**
+     * Whether a booking transaction currently holds the vet's lock stripe.
+     */
+    boolean isLocked(Integer vetId) {
+        return vetLocks.lockFor(vetId).isLocked();
+    }
+
+    private void applyDefaults(Visit visit) {
+        if (visit.getVisitDate() == null) {
+            visit.setVisitDate(new Date());
+        }
+        if (visit.getDurationMinutes() == null) {
+            visit.setDurationMinutes((int) defaultDuration.toMinutes());
+        }
+    }
+
+    /**
+     * Lock the vet's stripe and schedule, creating the schedule with the default working hours for
+     * vets that have none yet.
+     *
+     * The schedule is created before it is locked: a locking read of a missing row locks the gap (or,
+     * on HSQLDB, the table), which would block the insert of the new transaction.
+     */
+    private VetSchedule lockSchedule(Integer vetId) {
+        vetLocks.lockUntilCompletion(List.of(vetId));
+        if (!scheduleRepository.existsById(vetId)) {
+            createSchedule(vetId);
+        }
+        return scheduleRepository.lockByVetId(vetId)
+            .orElseThrow(() -> new ResourceNotFoundException("Vet not found: " + vetId));
+    }
+
+    /**
+     * Lock the schedules of several vets like {@link #lockSchedule}. Vets deleted meanwhile are left out.
+     */
+    private Map<Integer, VetSchedule> lockSchedules(Set<Integer> vetIds) {
+        vetLocks.lockUntilCompletion(vetIds);
+        Set<Integer> missing = new HashSet<>(vetIds);
+        scheduleRepository.findAllById(vetIds).forEach(schedule -> missing.remove(schedule.getId()));
+        missing.forEach(this::createSchedule);
+
+        Map<Integer, VetSchedule> schedules = new HashMap<>();
+        scheduleRepository.lockByVetIdIn(vetIds).forEach(schedule -> schedules.put(schedule.getId(), schedule));
+        return schedules;
+    }
+
+    private void createSchedule(Integer vetId) {
+        try {
+            newTransaction.executeWithoutResult(status ->
+                scheduleRepository.saveAndFlush(new VetSchedule(vetId, defaultOpensAt, defaultClosesAt)));
+        } catch (DataIntegrityViolationException ex) {
+            log.debug("Schedule of vet {} was created concurrently", vetId);
+        }
+    }
+
+    private VetCalendar calendar(Integer vetId) {
+        return calendars.computeIfAbsent(vetId, id -> new VetCalendar());
+    }
+
+    private void load(VetCalendar calendar, Integer vetId, Instant now) {
+        calendar.replaceAll(visitRepository.findBookingsEndingAfter(vetId, Date.from(now), undatedAfter(now)).stream()
+            .map(this::booking)
+            .toList());
+    }
+
+    private SlotUnavailableException unavailable(String message, Integer vetId, VetCalendar calendar,
+                                                 VetSchedule schedule, Instant start, Duration duration) {
+        Instant from = start.isAfter(Instant.now()) ? start : Instant.now();
+        List<Date> slots = calendar.freeSlots(from, duration, schedule, zone, alternatives, from.plus(searchHorizon))
+            .stream()
+            .map(Date::from)
+            .toList();
+        return new SlotUnavailableException(message, vetId, slots);
+    }
+
+    /**
+     * Take the bookings out of the calendar again if the visits are not committed.
+     */
+    private static void releaseOnRollback(VetCalendar calendar, List<Integer> visitIds) {
+        if (!visitIds.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        synchronized (calendar) {
+                            visitIds.forEach(calendar::remove);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * A visit saved without an end date or duration, before visits had one, occupies the default duration.
+     */
+    private VetCalendar.Booking booking(Visit visit) {
+        Instant start = visit.getVisitDate().toInstant();
+        Date end = visit.getEndDate();
+        return new VetCalendar.Booking(visit.getId(), start, end != null ? end.toInstant() : start.plus(defaultDuration));
+    }
+
+    /**
+     * The time a visit without an end date must start after to still occupy its vet at {@code time}.
+     */
+    private Date undatedAfter(Instant time) {
+        return Date.from(time.minus(defaultDuration));
+    }
+}
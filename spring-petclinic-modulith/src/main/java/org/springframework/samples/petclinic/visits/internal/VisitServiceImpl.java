@@ -18,18 +18,51 @@ package org.springframework.samples.petclinic.visits.internal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
 import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.ScheduleResult;
+import org.springframework.samples.petclinic.visits.StatusChange;
 import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
 import org.springframework.samples.petclinic.visits.VisitCompleted;
 import org.springframework.samples.petclinic.visits.VisitCreated;
+import org.springframework.samples.petclinic.visits.VisitFilter;
+import org.springframework.samples.petclinic.visits.VisitPage;
 import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStats;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitStatusConflictException;
+import org.springframework.samples.petclinic.visits.VisitSummary;
+import org.springframework.samples.petclinic.visits.VisitsCancelled;
+import org.springframework.samples.petclinic.visits.VisitsCompleted;
+import org.springframework.samples.petclinic.visits.VisitsScheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Implementation of VisitService demonstrating cross-module communication.
@@ -39,6 +72,14 @@ import java.util.Optional;
  * - Depends on VetService (vets module)
  * - Publishes events for other modules to consume
  * - Validates referential integrity across modules
+ * - Books visits through {@link VisitScheduler}, which prevents double-booking a vet
+ * - Schedules batches of visits with set-based validation, batched inserts and one event per batch
+ * - Loads the visits of many pets at once with chunked IN-list queries
+ * - Pages through a pet's or vet's visits by date range with keyset cursors
+ * - Counts visits per status, vet and day with index-only aggregate queries
+ * - Reads archived visits along with the live ones wherever a caller asks for history
+ * - Completes and cancels visits with conditional UPDATEs, one visit or many at a time, with one
+ *   event per bulk request
  * 
  * @author PetClinic Team
  */
@@ -48,7 +89,23 @@ class VisitServiceImpl implements VisitService {
 
     private static final Logger log = LoggerFactory.getLogger(VisitServiceImpl.class);
 
+    static final int MAX_PAGE_SIZE = 100;
+
+    // Pets per IN-list query, well below the bind parameter limits of the databases
+    static final int PET_IDS_PER_QUERY = 500;
+
+    // Visits per status-change chunk: one locking SELECT and one UPDATE each
+    static final int VISIT_IDS_PER_QUERY = 500;
+
+    static final Duration MAX_STATS_RANGE = Duration.ofDays(366);
+
+    // Stand-ins for an open date range, so every page query has the same shape
+    private static final Date EARLIEST = new Date(0);
+    private static final Date LATEST = Date.from(Instant.parse("9999-12-31T00:00:00Z"));
+
     private final VisitRepository visitRepository;
+    private final ArchivedVisitRepository archivedVisitRepository;
+    private final VisitScheduler visitScheduler;
     private final CustomerService customerService;
     private final VetService vetService;
     private final ApplicationEventPublisher events;
@@ -61,10 +118,14 @@ class VisitServiceImpl implements VisitService {
      * - VetService from vets module
      */
     VisitServiceImpl(VisitRepository visitRepository,
+                    ArchivedVisitRepository archivedVisitRepository,
+                    VisitScheduler visitScheduler,
                     CustomerService customerService,
                     VetService vetService,
                     ApplicationEventPublisher events) {
         this.visitRepository = visitRepository;
+        this.archivedVisitRepository = archivedVisitRepository;
+        this.visitScheduler = visitScheduler;
         this.customerService = customerService;
         this.vetService = vetService;
         this.events = events;
@@ -73,13 +134,26 @@ class VisitServiceImpl implements VisitService {
     @Override
     public Optional<Visit> findById(Integer id) {
         log.debug("Finding visit by id: {}", id);
-        return visitRepository.findById(id);
+        return visitRepository.findById(id)
+            .or(() -> archivedVisitRepository.findById(id).map(ArchivedVisit::toVisit));
+    }
+
+    @Override
+    public List<Visit> findAllById(Collection<Integer> ids) {
+        List<Visit> visits = visitRepository.findAllById(ids);
+        if (visits.size() == ids.size()) {
+            return visits;
+        }
+        // Look up the rest in the archive
+        Set<Integer> missing = new HashSet<>(ids);
+        visits.forEach(visit -> missing.remove(visit.getId()));
+        return withArchived(visits, archivedVisitRepository.findAllById(missing));
     }
 
     @Override
     public List<Visit> findAll() {
         log.debug("Finding all visits");
-        return visitRepository.findAll();
+        return withArchived(visitRepository.findAll(), archivedVisitRepository.findAll());
     }
 
     @Override
@@ -87,35 +161,202 @@ class VisitServiceImpl implements VisitService {
         log.debug("Finding visits for pet: {}", petId);
         // Note: We don't validate pet existence here to allow flexible queries
         // Validation happens during visit scheduling
-        return visitRepository.findByPetId(petId);
+        return withArchived(visitRepository.findByPetId(petId), archivedVisitRepository.findByPetId(petId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, List<Visit>> findByPetIds(Collection<Integer> petIds) {
+        List<Integer> ids = petIds.stream().filter(Objects::nonNull).distinct().toList();
+        log.debug("Finding visits for {} pets", ids.size());
+
+        Map<Integer, List<Visit>> visits = new LinkedHashMap<>();
+        ids.forEach(petId -> visits.put(petId, new ArrayList<>()));
+        for (int from = 0; from < ids.size(); from += PET_IDS_PER_QUERY) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + PET_IDS_PER_QUERY, ids.size()));
+            for (Visit visit : visitRepository.findByPetIdIn(chunk)) {
+                visits.get(visit.getPetId()).add(visit);
+            }
+            for (ArchivedVisit archived : archivedVisitRepository.findByPetIdIn(chunk)) {
+                Visit visit = archived.toVisit();
+                visits.get(visit.getPetId()).add(visit);
+            }
+        }
+        return visits;
     }
 
     @Override
     public List<Visit> findByVetId(Integer vetId) {
         log.debug("Finding visits for vet: {}", vetId);
         // Note: We don't validate vet existence here to allow flexible queries
-        return visitRepository.findByVetId(vetId);
+        return withArchived(visitRepository.findByVetId(vetId), archivedVisitRepository.findByVetId(vetId));
+    }
+
+    private static List<Visit> withArchived(List<Visit> visits, List<ArchivedVisit> archived) {
+        if (archived.isEmpty()) {
+            return visits;
+        }
+        List<Visit> all = new ArrayList<>(visits.size() + archived.size());
+        all.addAll(visits);
+        archived.forEach(visit -> all.add(visit.toVisit()));
+        return all;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VisitPage findPageByPetId(Integer petId, VisitFilter filter, String cursor, int size) {
+        log.debug("Finding visit page of pet {} after cursor {} (size {})", petId, cursor, size);
+        return findPage(filter, cursor, size,
+            (to, after, limit) -> visitRepository.findPetPageAfter(
+                petId, filter.statuses(), to, after.visitDate(), after.id(), limit),
+            (from, before, limit) -> visitRepository.findPetPageBefore(
+                petId, filter.statuses(), from, before.visitDate(), before.id(), limit),
+            (to, after, limit) -> archivedVisitRepository.findPetPageAfter(
+                petId, filter.statuses(), to, after.visitDate(), after.id(), limit),
+            (from, before, limit) -> archivedVisitRepository.findPetPageBefore(
+                petId, filter.statuses(), from, before.visitDate(), before.id(), limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VisitPage findPageByVetId(Integer vetId, VisitFilter filter, String cursor, int size) {
+        log.debug("Finding visit page of vet {} after cursor {} (size {})", vetId, cursor, size);
+        return findPage(filter, cursor, size,
+            (to, after, limit) -> visitRepository.findVetPageAfter(
+                vetId, filter.statuses(), to, after.visitDate(), after.id(), limit),
+            (from, before, limit) -> visitRepository.findVetPageBefore(
+                vetId, filter.statuses(), from, before.visitDate(), before.id(), limit),
+            (to, after, limit) -> archivedVisitRepository.findVetPageAfter(
+                vetId, filter.statuses(), to, after.visitDate(), after.id(), limit),
+            (from, before, limit) -> archivedVisitRepository.findVetPageBefore(
+                vetId, filter.statuses(), from, before.visitDate(), before.id(), limit));
+    }
+
+    /**
+     * One keyset page query: the visits between the far end of the range and the cursor.
+     */
+    @FunctionalInterface
+    private interface PageQuery {
+        List<VisitSummary> find(Date bound, VisitCursor cursor, Limit limit);
+    }
+
+    private VisitPage findPage(VisitFilter filter, String cursor, int size,
+                               PageQuery ascending, PageQuery descending,
+                               PageQuery archivedAscending, PageQuery archivedDescending) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Date from = filter.from() != null ? filter.from() : EARLIEST;
+        Date to = filter.to() != null ? filter.to() : LATEST;
+
+        // The first page starts at the near end of the range; no ID is below the cursor's
+        VisitCursor position = cursor == null || cursor.isBlank()
+            ? new VisitCursor(filter.descending() ? to : from, Integer.MIN_VALUE)
+            : VisitCursor.decode(cursor);
+
+        // Fetch one extra row to find out whether there is a next page
+        Limit limit = Limit.of(pageSize + 1);
+        List<VisitSummary> rows = filter.descending()
+            ? descending.find(from, position, limit)
+            : ascending.find(to, position, limit);
+
+        // The archive only holds completed and cancelled visits; merge its page in when they are asked for
+        if (!Collections.disjoint(filter.statuses(), VisitArchiver.ARCHIVED_STATUSES)) {
+            List<VisitSummary> archived = filter.descending()
+                ? archivedDescending.find(from, position, limit)
+                : archivedAscending.find(to, position, limit);
+            rows = merge(rows, archived, filter.descending(), limit.max());
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            VisitSummary last = rows.get(pageSize - 1);
+            nextCursor = new VisitCursor(last.visitDate(), last.id()).encode();
+        }
+        return new VisitPage(List.copyOf(rows), nextCursor);
+    }
+
+    /**
+     * Merges two pages in keyset order and keeps the first {@code max} rows.
+     */
+    private static List<VisitSummary> merge(List<VisitSummary> live, List<VisitSummary> archived,
+                                            boolean descending, int max) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Comparator<VisitSummary> order = Comparator.comparing(VisitSummary::visitDate).thenComparing(VisitSummary::id);
+        List<VisitSummary> rows = new ArrayList<>(live.size() + archived.size());
+        rows.addAll(live);
+        rows.addAll(archived);
+        rows.sort(descending ? order.reversed() : order);
+        return rows.size() > max ? rows.subList(0, max) : rows;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public VisitStats countVisits(Date from, Date to) {
+        if (from.after(to)) {
+            throw new InvalidRequestException("Visit range starts after it ends: " + from + " > " + to);
+        }
+        if (Duration.between(from.toInstant(), to.toInstant()).compareTo(MAX_STATS_RANGE) > 0) {
+            throw new InvalidRequestException("Visit stats cover at most " + MAX_STATS_RANGE.toDays() + " days");
+        }
+        log.debug("Counting visits from {} to {}", from, to);
+
+        // One grouped row per vet, day and status; roll them up into the three breakdowns
+        Map<VisitStatus, Long> byStatus = zeroCounts();
+        Map<Integer, Map<VisitStatus, Long>> byVet = new TreeMap<>();
+        Map<LocalDate, Map<VisitStatus, Long>> byDay = new TreeMap<>();
+        long total = 0;
+        List<VisitRepository.VisitCount> rows = new ArrayList<>(visitRepository.countByVetDayAndStatus(from, to));
+        rows.addAll(archivedVisitRepository.countByVetDayAndStatus(from, to));
+        for (VisitRepository.VisitCount row : rows) {
+            long count = row.getVisitCount();
+            byStatus.merge(row.getStatus(), count, Long::sum);
+            byVet.computeIfAbsent(row.getVetId(), vetId -> zeroCounts()).merge(row.getStatus(), count, Long::sum);
+            byDay.computeIfAbsent(row.getDay(), day -> zeroCounts()).merge(row.getStatus(), count, Long::sum);
+            total += count;
+        }
+
+        return new VisitStats(from, to, total, byStatus,
+            byVet.entrySet().stream()
+                .map(e -> new VisitStats.VetCounts(e.getKey(), sum(e.getValue()), e.getValue()))
+                .toList(),
+            byDay.entrySet().stream()
+                .map(e -> new VisitStats.DayCounts(e.getKey(), sum(e.getValue()), e.getValue()))
+                .toList());
+    }
+
+    private static Map<VisitStatus, Long> zeroCounts() {
+        Map<VisitStatus, Long> counts = new EnumMap<>(VisitStatus.class);
+        for (VisitStatus status : VisitStatus.values()) {
+            counts.put(status, 0L);
+        }
+        return counts;
+    }
+
+    private static long sum(Map<VisitStatus, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
     }
 
     @Override
     public Visit scheduleVisit(Visit visit) {
         log.info("Scheduling visit for pet {} with vet {}", visit.getPetId(), visit.getVetId());
         
-        // Validate that the pet exists (cross-module dependency)
-        if (!customerService.findById(visit.getPetId()).isPresent()) {
+        // Validate that the pet exists (cross-module dependency, a primary key probe)
+        if (!customerService.petExists(visit.getPetId())) {
             throw new ResourceNotFoundException("Pet not found: " + visit.getPetId());
         }
         
-        // Validate that the vet exists (cross-module dependency)
-        if (!vetService.findById(visit.getVetId()).isPresent()) {
+        // Validate that the vet exists (cross-module dependency, a primary key probe)
+        if (!vetService.exists(visit.getVetId())) {
             throw new ResourceNotFoundException("Vet not found: " + visit.getVetId());
         }
         
         // Set status to SCHEDULED
-        visit.setStatus("SCHEDULED");
+        visit.setStatus(VisitStatus.SCHEDULED);
         
-        // Save visit
-        Visit savedVisit = visitRepository.save(visit);
+        // Book the vet's time and save the visit
+        Visit savedVisit = visitScheduler.book(visit);
         log.info("Visit scheduled: {}", savedVisit.getId());
         
         // Publish event for other modules (e.g., genai module)
@@ -129,20 +370,70 @@ class VisitServiceImpl implements VisitService {
     }
 
     @Override
-    public Visit completeVisit(Integer visitId) {
+    public List<ScheduleResult> scheduleAll(List<Visit> visits) {
+        log.info("Scheduling {} visits", visits.size());
+
+        // Validate all pets and vets with one query per module
+        Set<Integer> petIds = new HashSet<>();
+        Set<Integer> vetIds = new HashSet<>();
+        for (Visit visit : visits) {
+            if (visit.getPetId() != null) {
+                petIds.add(visit.getPetId());
+            }
+            if (visit.getVetId() != null) {
+                vetIds.add(visit.getVetId());
+            }
+        }
+        Set<Integer> existingPets = customerService.existingPetIds(petIds);
+        Set<Integer> existingVets = vetService.existingIds(vetIds);
+
+        ScheduleResult[] results = new ScheduleResult[visits.size()];
+        List<Visit> valid = new ArrayList<>(visits.size());
+        List<Integer> validIndexes = new ArrayList<>(visits.size());
+        for (int i = 0; i < visits.size(); i++) {
+            Visit visit = visits.get(i);
+            if (!existingPets.contains(visit.getPetId())) {
+                results[i] = ScheduleResult.rejected("Pet not found: " + visit.getPetId());
+            } else if (!existingVets.contains(visit.getVetId())) {
+                results[i] = ScheduleResult.rejected("Vet not found: " + visit.getVetId());
+            } else {
+                visit.setStatus(VisitStatus.SCHEDULED);
+                valid.add(visit);
+                validIndexes.add(i);
+            }
+        }
+
+        // Book the vets' time and save the visits, inserted in batches at commit
+        List<ScheduleResult> booked = visitScheduler.bookAll(valid);
+        List<VisitCreated> created = new ArrayList<>(booked.size());
+        for (int i = 0; i < booked.size(); i++) {
+            ScheduleResult result = booked.get(i);
+            results[validIndexes.get(i)] = result;
+            if (result.isScheduled()) {
+                Visit saved = result.visit();
+                created.add(new VisitCreated(saved.getId(), saved.getPetId(), saved.getVetId()));
+            }
+        }
+
+        // Publish one domain event for the whole batch
+        if (!created.isEmpty()) {
+            events.publishEvent(new VisitsScheduled(created));
+        }
+
+        log.info("Scheduled {} of {} visits", created.size(), visits.size());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public VisitSummary completeVisit(Integer visitId) {
         log.info("Completing visit: {}", visitId);
-        
-        Visit visit = visitRepository.findById(visitId)
-            .orElseThrow(() -> new ResourceNotFoundException("Visit not found: " + visitId));
-        
-        visit.setStatus("COMPLETED");
-        Visit completedVisit = visitRepository.save(visit);
+        VisitSummary completedVisit = transition(visitId, VisitStatus.COMPLETED);
         
         // Publish completion event
         events.publishEvent(new VisitCompleted(
-            completedVisit.getId(),
-            completedVisit.getPetId(),
-            completedVisit.getVetId()
+            completedVisit.id(),
+            completedVisit.petId(),
+            completedVisit.vetId()
         ));
         
         return completedVisit;
@@ -151,11 +442,119 @@ class VisitServiceImpl implements VisitService {
     @Override
     public void cancelVisit(Integer visitId) {
         log.info("Cancelling visit: {}", visitId);
-        
-        Visit visit = visitRepository.findById(visitId)
-            .orElseThrow(() -> new ResourceNotFoundException("Visit not found: " + visitId));
-        
-        visit.setStatus("CANCELLED");
-        visitRepository.save(visit);
+        VisitSummary cancelledVisit = transition(visitId, VisitStatus.CANCELLED);
+
+        events.publishEvent(new VisitCancelled(
+            cancelledVisit.id(),
+            cancelledVisit.petId(),
+            cancelledVisit.vetId()
+        ));
+    }
+
+    @Override
+    public StatusChange completeVisits(Collection<Integer> visitIds) {
+        return transition(visitIds, VisitStatus.COMPLETED);
+    }
+
+    @Override
+    public StatusChange cancelVisits(Collection<Integer> visitIds) {
+        return transition(visitIds, VisitStatus.CANCELLED);
+    }
+
+    @Override
+    public StatusChange completeVisits(Integer vetId, LocalDate day) {
+        return transition(vetId, day, VisitStatus.COMPLETED);
+    }
+
+    @Override
+    public StatusChange cancelVisits(Integer vetId, LocalDate day) {
+        return transition(vetId, day, VisitStatus.CANCELLED);
+    }
+
+    /**
+     * Moves one scheduled visit to the given status. The conditional UPDATE checks and changes the
+     * status in one statement, so of two concurrent requests only one sees a changed row. Only after
+     * it changed is the visit read back, as a summary that leaves out the description, and the
+     * affected-row count alone decides between 404 and 409.
+     */
+    private VisitSummary transition(Integer visitId, VisitStatus status) {
+        if (visitRepository.updateScheduledStatus(visitId, status) == 0) {
+            if (visitRepository.existsById(visitId) || archivedVisitRepository.existsById(visitId)) {
+                throw new VisitStatusConflictException(
+                    "Visit " + visitId + " is no longer scheduled, cannot change it to " + status, visitId);
+            }
+            throw new ResourceNotFoundException("Visit not found: " + visitId);
+        }
+        return visitRepository.findSummaryById(visitId).orElseThrow();
+    }
+
+    private StatusChange transition(Collection<Integer> visitIds, VisitStatus status) {
+        List<Integer> ids = visitIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        List<VisitSummary> changed = new ArrayList<>(ids.size());
+        Set<Integer> unchanged = new TreeSet<>(ids);
+        for (int from = 0; from < ids.size(); from += VISIT_IDS_PER_QUERY) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + VISIT_IDS_PER_QUERY, ids.size()));
+            List<VisitSummary> updated = update(visitRepository.findScheduledForUpdate(chunk), status);
+            updated.forEach(visit -> unchanged.remove(visit.id()));
+            changed.addAll(updated);
+        }
+        publish(changed, status);
+
+        // Tell visits that are no longer scheduled from visits that never existed
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> rest = List.copyOf(unchanged);
+        for (int from = 0; from < rest.size(); from += VISIT_IDS_PER_QUERY) {
+            List<Integer> chunk = rest.subList(from, Math.min(from + VISIT_IDS_PER_QUERY, rest.size()));
+            existing.addAll(visitRepository.findExistingIds(chunk));
+            existing.addAll(archivedVisitRepository.findExistingIds(chunk));
+        }
+        List<Integer> conflicting = rest.stream().filter(existing::contains).toList();
+        List<Integer> notFound = rest.stream().filter(id -> !existing.contains(id)).toList();
+
+        log.info("Changed {} of {} visits to {}", changed.size(), ids.size(), status);
+        return new StatusChange(status, changed.stream().map(VisitSummary::id).toList(), conflicting, notFound);
+    }
+
+    private StatusChange transition(Integer vetId, LocalDate day, VisitStatus status) {
+        ZoneId zone = visitScheduler.zone();
+        Date from = Date.from(day.atStartOfDay(zone).toInstant());
+        Date to = Date.from(day.plusDays(1).atStartOfDay(zone).toInstant());
+        List<VisitSummary> changed = update(visitRepository.findScheduledForUpdate(vetId, from, to), status);
+        publish(changed, status);
+
+        log.info("Changed {} visits of vet {} on {} to {}", changed.size(), vetId, day, status);
+        return new StatusChange(status, changed.stream().map(VisitSummary::id).toList(), List.of(), List.of());
+    }
+
+    /**
+     * Moves the given scheduled visits, locked by {@code findScheduledForUpdate}, to the given status in
+     * one UPDATE.
+     */
+    private List<VisitSummary> update(List<VisitSummary> scheduled, VisitStatus status) {
+        if (scheduled.isEmpty()) {
+            return scheduled;
+        }
+        List<Integer> ids = scheduled.stream().map(VisitSummary::id).toList();
+        int updated = visitRepository.updateScheduledStatus(ids, status);
+        if (updated != scheduled.size()) {
+            // Cannot happen while the rows are locked; roll back rather than publish wrong events
+            throw new OptimisticLockingFailureException(
+                "Expected to change " + scheduled.size() + " visits to " + status + " but changed " + updated);
+        }
+        return scheduled;
+    }
+
+    /**
+     * Publishes one {@link VisitsCompleted} or {@link VisitsCancelled} for all visits a bulk request changed.
+     */
+    private void publish(List<VisitSummary> changed, VisitStatus status) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        events.publishEvent(status == VisitStatus.COMPLETED
+            ? new VisitsCompleted(changed.stream()
+                .map(visit -> new VisitCompleted(visit.id(), visit.petId(), visit.vetId())).toList())
+            : new VisitsCancelled(changed.stream()
+                .map(visit -> new VisitCancelled(visit.id(), visit.petId(), visit.vetId())).toList()));
     }
 }
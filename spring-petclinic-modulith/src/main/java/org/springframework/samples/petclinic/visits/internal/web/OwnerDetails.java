@@ -0,0 +1,48 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.visits.Visit;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the owner details page shows, assembled from the customers, visits and vets modules.
+ *
+ * Sections that could not be fetched in time are left empty and listed in {@code missing}:
+ * {@code "vets"} for the vets, {@code "visits"} for the visits of the pets.
+ *
+ * @param owner the owner, with their pets
+ * @param visits the visits of each pet, by pet ID
+ * @param vets the vets of those visits, by vet ID
+ * @param missing the sections that are incomplete, empty if the details are complete
+ * @author PetClinic Team
+ */
+record OwnerDetails(
+    Customer owner,
+    Map<Integer, List<Visit>> visits,
+    Map<Integer, Vet> vets,
+    List<String> missing) {
+
+    @JsonProperty("partial")
+    boolean isPartial() {
+        return !missing.isEmpty();
+    }
+}
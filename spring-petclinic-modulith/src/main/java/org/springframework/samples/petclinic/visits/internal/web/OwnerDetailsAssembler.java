@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Assembles {@link OwnerDetails} by calling the customers, visits and vets modules concurrently.
+ *
+ * The owner and the vet directory are fetched at the same time, then the visits of all pets in one
+ * batch lookup, so the latency is that of two calls instead of the sum of all of them. Calls run
+ * on a bounded pool and each one is given {@code petclinic.owner-details.call-timeout}; a call that
+ * fails, times out or finds the pool full marks its section as missing instead of failing the
+ * page. Only the owner is required. A call that is no longer waited for is cancelled, so slow
+ * calls cannot pile up on the pool.
+ *
+ * @author PetClinic Team
+ */
+@Component
+class OwnerDetailsAssembler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OwnerDetailsAssembler.class);
+
+    private final CustomerService customerService;
+    private final VisitService visitService;
+    private final VetService vetService;
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration callTimeout;
+
+    OwnerDetailsAssembler(CustomerService customerService,
+                          VisitService visitService,
+                          VetService vetService,
+                          @Value("${petclinic.owner-details.pool-size:16}") int poolSize,
+                          @Value("${petclinic.owner-details.queue-capacity:200}") int queueCapacity,
+                          @Value("${petclinic.owner-details.call-timeout:500ms}") Duration callTimeout) {
+        this.customerService = customerService;
+        this.visitService = visitService;
+        this.vetService = vetService;
+        this.callTimeout = callTimeout;
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(poolSize);
+        this.executor.setMaxPoolSize(poolSize);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("owner-details-");
+        this.executor.initialize();
+    }
+
+    OwnerDetails assemble(Integer ownerId) {
+        CompletableFuture<Optional<Customer>> ownerCall = call(() -> customerService.findById(ownerId));
+        CompletableFuture<List<Vet>> vetsCall = call(vetService::findAll);
+
+        Customer owner;
+        try {
+            owner = ownerCall.join()
+                .orElseThrow(() -> new ResourceNotFoundException("Owner", ownerId));
+        } catch (CompletionException ex) {
+            vetsCall.cancel(false);
+            log.warn("Owner {} could not be fetched", ownerId, ex.getCause());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Owner " + ownerId + " is unavailable");
+        }
+
+        List<Integer> petIds = owner.getPetIds();
+        CompletableFuture<Map<Integer, List<Visit>>> visitsCall = petIds.isEmpty()
+            ? CompletableFuture.completedFuture(Map.of())
+            : call(() -> visitService.findByPetIds(petIds));
+
+        List<String> missing = new ArrayList<>();
+        Map<Integer, List<Visit>> found = result(visitsCall, "visits", missing);
+        Map<Integer, List<Visit>> visits = new LinkedHashMap<>();
+        for (Integer petId : petIds) {
+            visits.put(petId, found != null ? found.getOrDefault(petId, List.of()) : List.of());
+        }
+
+        Map<Integer, Vet> vets = new LinkedHashMap<>();
+        List<Vet> directory = result(vetsCall, "vets", missing);
+        if (directory != null) {
+            Map<Integer, Vet> vetsById = directory.stream()
+                .collect(Collectors.toMap(Vet::getId, Function.identity()));
+            visits.values().stream()
+                .flatMap(List::stream)
+                .map(Visit::getVetId)
+                .filter(vetsById::containsKey)
+                .forEach(vetId -> vets.putIfAbsent(vetId, vetsById.get(vetId)));
+        }
+
+        if (!missing.isEmpty()) {
+            log.warn("Owner {} details are partial, missing {}", ownerId, missing);
+        }
+        return new OwnerDetails(owner, visits, vets, missing);
+    }
+
+    /**
+     * Starts a call on the pool. When the call times out or is cancelled, its task is cancelled
+     * too: interrupted if it is running, skipped if it is still queued.
+     */
+    private <T> CompletableFuture<T> call(Supplier<T> supplier) {
+        CompletableFuture<T> call = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    call.complete(supplier.get());
+                } catch (Throwable ex) {
+                    call.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        call.orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((result, ex) -> {
+                if (ex != null) {
+                    task.cancel(true);
+                }
+            });
+        return call;
+    }
+
+    private static <T> T result(CompletableFuture<T> call, String section, List<String> missing) {
+        try {
+            return call.join();
+        } catch (CompletionException ex) {
+            log.debug("Section {} is missing", section, ex.getCause());
+            missing.add(section);
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
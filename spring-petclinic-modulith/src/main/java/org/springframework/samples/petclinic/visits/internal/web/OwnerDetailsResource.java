@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.constraints.Min;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller for the owner details page.
+ *
+ * Internal implementation (INTERNAL/web package).
+ * Returns the owner, their pets, each pet's visits and the vets of those visits in one
+ * response, instead of the page making one request per pet and per vet.
+ *
+ * @author PetClinic Team
+ */
+@RestController
+@RequestMapping("/gateway/owners")
+@Timed("petclinic.owner.details")
+class OwnerDetailsResource {
+
+    private final OwnerDetailsAssembler assembler;
+
+    OwnerDetailsResource(OwnerDetailsAssembler assembler) {
+        this.assembler = assembler;
+    }
+
+    @GetMapping("/{ownerId}")
+    public OwnerDetails getOwnerDetails(@PathVariable("ownerId") @Min(1) Integer ownerId) {
+        return assembler.assemble(ownerId);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+import org.springframework.samples.petclinic.visits.internal.OwnerSummary;
+import org.springframework.samples.petclinic.visits.internal.OwnerSummaryRepository;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for the owner summary read model.
+ *
+ * Internal implementation (INTERNAL/web package).
+ * Lists owners with their pet count, last visit date and open visit count. Each sort order is
+ * backed by an index, so a page is one indexed query.
+ *
+ * @author PetClinic Team
+ */
+@RestController
+@RequestMapping("/owner-summaries")
+@Timed("petclinic.owner.summary")
+class OwnerSummaryResource {
+
+    /**
+     * Supported sort orders, each ending with the owner ID so that pages are stable.
+     */
+    private static final Map<String, List<String>> SORTS = Map.of(
+        "name", List.of("lastName", "firstName", "ownerId"),
+        "petCount", List.of("petCount", "ownerId"),
+        "lastVisitDate", List.of("lastVisitDate", "ownerId"),
+        "openVisitCount", List.of("openVisitCount", "ownerId"));
+
+    private final OwnerSummaryRepository summaryRepository;
+
+    OwnerSummaryResource(OwnerSummaryRepository summaryRepository) {
+        this.summaryRepository = summaryRepository;
+    }
+
+    @GetMapping
+    public OwnerSummaryPage findAll(@RequestParam(value = "page", defaultValue = "0") @Min(0) int page,
+                                    @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(100) int size,
+                                    @RequestParam(value = "sort", defaultValue = "name") String sort,
+                                    @RequestParam(value = "direction", defaultValue = "asc") String direction,
+                                    @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal) {
+        List<String> properties = SORTS.get(sort);
+        if (properties == null) {
+            throw new InvalidRequestException("Unsupported sort: " + sort + ", expected one of " + SORTS.keySet());
+        }
+        Sort order = Sort.by(Sort.Direction.fromString(direction), properties.toArray(String[]::new));
+
+        Slice<OwnerSummary> slice = summaryRepository.findAllBy(PageRequest.of(page, size, order));
+        Long totalCount = includeTotal ? summaryRepository.count() : null;
+        return new OwnerSummaryPage(slice.getContent(), page, slice.hasNext(), totalCount);
+    }
+
+    /**
+     * DTO for one page of owner summaries.
+     */
+    record OwnerSummaryPage(
+        List<OwnerSummary> summaries,
+        int page,
+        boolean hasNext,
+        Long totalCount
+    ) {
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Error response for a booking conflict: the standard error fields plus the alternative start times
+ * the vet is free at.
+ *
+ * @author PetClinic Team
+ */
+record SlotUnavailableResponse(
+    int status,
+    String error,
+    String message,
+    String path,
+    Instant timestamp,
+    Integer vetId,
+    List<Date> alternatives
+) {
+}
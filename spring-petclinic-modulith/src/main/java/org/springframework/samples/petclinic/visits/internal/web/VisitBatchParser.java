@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads the visits of a bulk scheduling request one at a time, so a request is never held in
+ * memory as a whole.
+ * 
+ * The body is either a JSON array of visits or NDJSON with one visit per line. Items are numbered
+ * from 0 in input order; blank NDJSON lines are skipped and not numbered. An item that cannot be
+ * read as a visit is reported and skipped. A JSON syntax error inside an array ends the array, as
+ * the parser cannot find the next item after it. Visits are not validated here.
+ * 
+ * @author PetClinic Team
+ */
+@Component
+class VisitBatchParser {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader visitReader;
+
+    VisitBatchParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.visitReader = objectMapper.readerFor(Visit.class);
+    }
+
+    interface ItemHandler {
+
+        void item(int index, Visit visit);
+
+        void error(int index, String message);
+    }
+
+    void parse(MediaType contentType, BufferedReader in, ItemHandler handler) throws IOException {
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            parseNdjson(in, handler);
+        } else {
+            parseArray(in, handler);
+        }
+    }
+
+    private void parseNdjson(BufferedReader in, ItemHandler handler) throws IOException {
+        int index = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                handler.item(index, visitReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                handler.error(index, "malformed visit: " + e.getOriginalMessage());
+            }
+            index++;
+        }
+    }
+
+    private void parseArray(BufferedReader in, ItemHandler handler) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidRequestException("Expected a JSON array of visits");
+            }
+            int index = 0;
+            while (true) {
+                JsonNode node;
+                try {
+                    if (parser.nextToken() == JsonToken.END_ARRAY) {
+                        return;
+                    }
+                    node = parser.readValueAsTree();
+                } catch (JsonProcessingException e) {
+                    handler.error(index, "malformed JSON, rest of the array ignored: " + e.getOriginalMessage());
+                    return;
+                }
+                try {
+                    handler.item(index, visitReader.readValue(node));
+                } catch (JsonProcessingException e) {
+                    handler.error(index, "malformed visit: " + e.getOriginalMessage());
+                }
+                index++;
+            }
+        }
+    }
+}
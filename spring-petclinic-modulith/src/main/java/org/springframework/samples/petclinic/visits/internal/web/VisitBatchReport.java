@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * DTO for the outcome of a bulk scheduling request.
+ * 
+ * @param scheduled number of visits scheduled
+ * @param failed number of visits rejected
+ * @param results one result per item of the request, in input order
+ * 
+ * @author PetClinic Team
+ */
+record VisitBatchReport(
+    int scheduled,
+    int failed,
+    List<Item> results
+) {
+
+    /**
+     * Outcome of one item of the request.
+     *
+     * @param index position of the item in the request, starting at 0
+     * @param visitId ID of the scheduled visit, {@code null} if it was rejected
+     * @param error why the item was rejected, {@code null} if it was scheduled
+     * @param alternatives free start times of the vet if the slot was taken
+     */
+    record Item(int index, Integer visitId, String error, List<Date> alternatives) {
+    }
+}
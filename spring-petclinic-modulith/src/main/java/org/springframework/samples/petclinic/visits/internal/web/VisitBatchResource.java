@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.ScheduleResult;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.shared.web.BatchWriter;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller for scheduling many visits in one request, e.g. for a vaccination campaign.
+ * 
+ * The request is read as a stream. Visits are validated like a single {@code POST /visits} and
+ * scheduled by a {@link BatchWriter} in batches of {@value #BATCH_SIZE} through
+ * {@link VisitService#scheduleAll}, one transaction per batch, so a rejected visit only rejects
+ * itself and a failing batch never undoes earlier ones. Visits the database rejects are reported
+ * with the category of their failure.
+ * 
+ * @author PetClinic Team
+ */
+@RestController
+@Timed("petclinic.visit")
+class VisitBatchResource {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitBatchResource.class);
+
+    static final int BATCH_SIZE = 500;
+
+    private final VisitService visitService;
+    private final VisitBatchParser parser;
+    private final Validator validator;
+
+    VisitBatchResource(VisitService visitService, VisitBatchParser parser, Validator validator) {
+        this.visitService = visitService;
+        this.parser = parser;
+        this.validator = validator;
+    }
+
+    /**
+     * Schedule visits from a JSON array or NDJSON.
+     */
+    @PostMapping(value = "/visits/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public VisitBatchReport scheduleVisits(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                           InputStream body) throws IOException {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+
+        Batch run = new Batch();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(body, charset))) {
+            parser.parse(contentType, in, run);
+        }
+        run.flush();
+        // Rejected items are reported as they are read, scheduled ones when their batch is stored
+        run.results.sort(Comparator.comparingInt(VisitBatchReport.Item::index));
+
+        log.info("Bulk scheduling finished: {} visits scheduled, {} rejected", run.scheduled, run.failed);
+        return new VisitBatchReport(run.scheduled, run.failed, run.results);
+    }
+
+    /**
+     * State of one request: the batch being collected and the results so far.
+     */
+    private class Batch implements VisitBatchParser.ItemHandler, BatchWriter.Outcome<Visit, ScheduleResult> {
+
+        private final BatchWriter<Visit, ScheduleResult> writer =
+            new BatchWriter<>("Bulk scheduling", BATCH_SIZE, this::store, this);
+        private final List<VisitBatchReport.Item> results = new ArrayList<>();
+        private int scheduled;
+        private int failed;
+
+        @Override
+        public void item(int index, Visit visit) {
+            String problems = validate(visit);
+            if (problems != null) {
+                error(index, problems);
+                return;
+            }
+            writer.add(index, visit);
+        }
+
+        @Override
+        public void error(int index, String message) {
+            failed++;
+            results.add(new VisitBatchReport.Item(index, null, message, List.of()));
+        }
+
+        @Override
+        public void stored(long index, Visit visit, ScheduleResult outcome) {
+            if (outcome.isScheduled()) {
+                scheduled++;
+                results.add(new VisitBatchReport.Item((int) index, outcome.visit().getId(), null, List.of()));
+            } else {
+                failed++;
+                results.add(new VisitBatchReport.Item((int) index, null, outcome.error(), outcome.alternatives()));
+            }
+        }
+
+        @Override
+        public void rejected(long index, Visit visit, String reason) {
+            error((int) index, reason);
+        }
+
+        void flush() {
+            writer.flush();
+        }
+
+        private List<ScheduleResult> store(List<Visit> visits) {
+            // Always new visits, ids are assigned when they are stored, also after a failed attempt
+            visits.forEach(visit -> visit.setId(null));
+            return visitService.scheduleAll(visits);
+        }
+
+        private String validate(Visit visit) {
+            if (visit.getPetId() == null || visit.getVetId() == null) {
+                return "petId and vetId are required";
+            }
+            String problems = validator.validate(visit).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+            return problems.isEmpty() ? null : problems;
+        }
+    }
+}
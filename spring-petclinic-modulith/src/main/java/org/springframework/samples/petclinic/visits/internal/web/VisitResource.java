@@ -16,17 +16,40 @@
 package org.springframework.samples.petclinic.visits.internal.web;
 
 import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
+import org.springframework.samples.petclinic.shared.web.ErrorResponse;
+import org.springframework.samples.petclinic.visits.SlotUnavailableException;
+import org.springframework.samples.petclinic.visits.StatusChange;
 import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitFilter;
+import org.springframework.samples.petclinic.visits.VisitPage;
 import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStats;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitStatusConflictException;
+import org.springframework.samples.petclinic.visits.VisitSummary;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST controller for Visit management.
@@ -36,8 +59,14 @@ import java.util.List;
  * 
  * Provides endpoints for:
  * - Creating visits with validation
- * - Retrieving visits
- * - Managing visit status
+ * - Retrieving visits, a pet's or vet's history one keyset-paginated page at a time
+ * - Retrieving the visits of many pets in one call
+ * - Counting visits per status, vet and day for dashboards
+ * - Managing visit status, of one visit, a list of visits or all of a vet's visits on a day
+ * 
+ * A visit that collides with the vet's bookings or working hours is answered with 409 Conflict
+ * and the vet's next free start times. Completing or cancelling a visit that is no longer
+ * scheduled is answered with 409 Conflict too.
  * 
  * @author PetClinic Team
  */
@@ -48,10 +77,18 @@ class VisitResource {
 
     private static final Logger log = LoggerFactory.getLogger(VisitResource.class);
 
+    private static final int DEFAULT_STATS_DAYS = 30;
+
+    private static final int MAX_PET_IDS = 1000;
+
+    private static final int MAX_VISIT_IDS = 1000;
+
     private final VisitService visitService;
+    private final ZoneId zone;
 
-    VisitResource(VisitService visitService) {
+    VisitResource(VisitService visitService, @Value("${petclinic.schedule.zone:UTC}") ZoneId zone) {
         this.visitService = visitService;
+        this.zone = zone;
     }
 
     @GetMapping
@@ -59,6 +96,32 @@ class VisitResource {
         return visitService.findAll();
     }
 
+    /**
+     * Visits of the given pets, grouped by pet ID, e.g. {@code /visits?petIds=1,2,3}.
+     */
+    @GetMapping(params = "petIds")
+    public Map<Integer, List<Visit>> getVisitsByPets(@RequestParam("petIds") @Size(min = 1, max = MAX_PET_IDS) List<Integer> petIds) {
+        return visitService.findByPetIds(petIds);
+    }
+
+    /**
+     * Visit counts of {@code [from, to)}, by default the last 30 days up to the end of today, in the
+     * clinic's time zone like the days the visits are counted by.
+     */
+    @GetMapping("/stats")
+    public VisitStats getStats(@RequestParam(value = "from", required = false) String from,
+                               @RequestParam(value = "to", required = false) String to) {
+        Date end = parseDate("to", to);
+        if (end == null) {
+            end = Date.from(LocalDate.now(zone).plusDays(1).atStartOfDay(zone).toInstant());
+        }
+        Date start = parseDate("from", from);
+        if (start == null) {
+            start = Date.from(end.toInstant().minus(DEFAULT_STATS_DAYS, ChronoUnit.DAYS));
+        }
+        return visitService.countVisits(start, end);
+    }
+
     @GetMapping("/{id}")
     public Visit getVisit(@PathVariable("id") @Min(1) Integer id) {
         return visitService.findById(id)
@@ -66,13 +129,25 @@ class VisitResource {
     }
 
     @GetMapping("/pet/{petId}")
-    public List<Visit> getVisitsByPet(@PathVariable("petId") @Min(1) Integer petId) {
-        return visitService.findByPetId(petId);
+    public VisitPage getVisitsByPet(@PathVariable("petId") @Min(1) Integer petId,
+                                    @RequestParam(value = "from", required = false) String from,
+                                    @RequestParam(value = "to", required = false) String to,
+                                    @RequestParam(value = "status", required = false) List<VisitStatus> status,
+                                    @RequestParam(value = "sort", defaultValue = "asc") String sort,
+                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                    @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(100) int size) {
+        return visitService.findPageByPetId(petId, filter(from, to, status, sort), cursor, size);
     }
 
     @GetMapping("/vet/{vetId}")
-    public List<Visit> getVisitsByVet(@PathVariable("vetId") @Min(1) Integer vetId) {
-        return visitService.findByVetId(vetId);
+    public VisitPage getVisitsByVet(@PathVariable("vetId") @Min(1) Integer vetId,
+                                    @RequestParam(value = "from", required = false) String from,
+                                    @RequestParam(value = "to", required = false) String to,
+                                    @RequestParam(value = "status", required = false) List<VisitStatus> status,
+                                    @RequestParam(value = "sort", defaultValue = "asc") String sort,
+                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                    @RequestParam(value = "size", defaultValue = "20") @Min(1) @Max(100) int size) {
+        return visitService.findPageByVetId(vetId, filter(from, to, status, sort), cursor, size);
     }
 
     @PostMapping
@@ -83,7 +158,7 @@ class VisitResource {
     }
 
     @PutMapping("/{id}/complete")
-    public Visit completeVisit(@PathVariable("id") @Min(1) Integer id) {
+    public VisitSummary completeVisit(@PathVariable("id") @Min(1) Integer id) {
         log.info("Completing visit: {}", id);
         return visitService.completeVisit(id);
     }
@@ -94,4 +169,82 @@ class VisitResource {
         log.info("Cancelling visit: {}", id);
         visitService.cancelVisit(id);
     }
+
+    @PutMapping("/complete")
+    public StatusChange completeVisits(@RequestBody @Size(min = 1, max = MAX_VISIT_IDS) List<@NotNull Integer> ids) {
+        log.info("Completing {} visits", ids.size());
+        return visitService.completeVisits(ids);
+    }
+
+    @PutMapping("/cancel")
+    public StatusChange cancelVisits(@RequestBody @Size(min = 1, max = MAX_VISIT_IDS) List<@NotNull Integer> ids) {
+        log.info("Cancelling {} visits", ids.size());
+        return visitService.cancelVisits(ids);
+    }
+
+    @PutMapping(path = "/complete", params = "vetId")
+    public StatusChange completeVisitsOfDay(@RequestParam("vetId") @Min(1) Integer vetId,
+                                            @RequestParam("day") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        log.info("Completing visits of vet {} on {}", vetId, day);
+        return visitService.completeVisits(vetId, day);
+    }
+
+    @PutMapping(path = "/cancel", params = "vetId")
+    public StatusChange cancelVisitsOfDay(@RequestParam("vetId") @Min(1) Integer vetId,
+                                          @RequestParam("day") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        log.info("Cancelling visits of vet {} on {}", vetId, day);
+        return visitService.cancelVisits(vetId, day);
+    }
+
+    private VisitFilter filter(String from, String to, List<VisitStatus> status, String sort) {
+        boolean descending = switch (sort) {
+            case "asc" -> false;
+            case "desc" -> true;
+            default -> throw new InvalidRequestException("sort must be asc or desc: " + sort);
+        };
+        return VisitFilter.of(parseDate("from", from), parseDate("to", to), status, descending);
+    }
+
+    /**
+     * An ISO-8601 instant, or a plain yyyy-MM-dd date meaning midnight in the clinic's time zone.
+     */
+    private Date parseDate(String name, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return value.length() == 10
+                ? Date.from(LocalDate.parse(value).atStartOfDay(zone).toInstant())
+                : Date.from(Instant.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException(name + " is not a yyyy-MM-dd date or an ISO-8601 instant: " + value);
+        }
+    }
+
+    @ExceptionHandler(SlotUnavailableException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    SlotUnavailableResponse handleSlotUnavailable(SlotUnavailableException ex, HttpServletRequest request) {
+        log.debug("Slot unavailable: {}", ex.getMessage());
+        return new SlotUnavailableResponse(
+            HttpStatus.CONFLICT.value(),
+            HttpStatus.CONFLICT.getReasonPhrase(),
+            ex.getMessage(),
+            request.getRequestURI(),
+            Instant.now(),
+            ex.getVetId(),
+            ex.getAlternatives()
+        );
+    }
+
+    @ExceptionHandler(VisitStatusConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    ErrorResponse handleStatusConflict(VisitStatusConflictException ex, HttpServletRequest request) {
+        log.debug("Status conflict: {}", ex.getMessage());
+        return new ErrorResponse(
+            HttpStatus.CONFLICT.value(),
+            HttpStatus.CONFLICT.getReasonPhrase(),
+            ex.getMessage(),
+            request.getRequestURI()
+        );
+    }
 }
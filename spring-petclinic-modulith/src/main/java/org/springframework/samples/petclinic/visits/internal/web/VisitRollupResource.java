@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.internal.VisitRollup;
+import org.springframework.samples.petclinic.visits.internal.VisitRollupRepository;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for the visit rollups.
+ *
+ * Internal implementation (INTERNAL/web package).
+ * Lists the visits per vet and day, counted by status, over ranges of up to five years. Each bucket
+ * is one pre-aggregated row read from an index range, whatever the number of visits behind it.
+ *
+ * @author PetClinic Team
+ */
+@RestController
+@RequestMapping("/visits/rollups")
+@Timed("petclinic.visit.rollup")
+class VisitRollupResource {
+
+    private static final int DEFAULT_DAYS = 30;
+
+    static final int MAX_DAYS = 5 * 366;
+
+    private final VisitRollupRepository rollupRepository;
+    private final ZoneId zone;
+
+    VisitRollupResource(VisitRollupRepository rollupRepository, @Value("${petclinic.schedule.zone:UTC}") ZoneId zone) {
+        this.rollupRepository = rollupRepository;
+        this.zone = zone;
+    }
+
+    /**
+     * Buckets of {@code [from, to)}, by default the last 30 days up to the end of today,
+     * of all vets or of one.
+     */
+    @GetMapping
+    public VisitRollups getRollups(@RequestParam(value = "from", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(value = "to", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                   @RequestParam(value = "vetId", required = false) @Min(1) Integer vetId) {
+        LocalDate end = to != null ? to : LocalDate.now(zone).plusDays(1);
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS);
+        if (start.isAfter(end)) {
+            throw new InvalidRequestException("Rollup range starts after it ends: " + start + " > " + end);
+        }
+        if (ChronoUnit.DAYS.between(start, end) > MAX_DAYS) {
+            throw new InvalidRequestException("Visit rollups cover at most " + MAX_DAYS + " days");
+        }
+
+        List<VisitRollup> rollups = vetId == null
+            ? rollupRepository.findByDayRange(start, end)
+            : rollupRepository.findByVetAndDayRange(vetId, start, end);
+        return new VisitRollups(start, end, rollups.stream().map(Bucket::of).toList());
+    }
+
+    /**
+     * DTO for the buckets of a date range.
+     */
+    record VisitRollups(
+        LocalDate from,
+        LocalDate to,
+        List<Bucket> buckets
+    ) {
+    }
+
+    /**
+     * DTO for the visits of one vet on one day, counted by status.
+     */
+    record Bucket(
+        Integer vetId,
+        LocalDate day,
+        long total,
+        Map<VisitStatus, Long> byStatus
+    ) {
+
+        static Bucket of(VisitRollup rollup) {
+            Map<VisitStatus, Long> byStatus = new EnumMap<>(VisitStatus.class);
+            for (VisitStatus status : VisitStatus.values()) {
+                byStatus.put(status, rollup.count(status));
+            }
+            return new Bucket(rollup.getVetId(), rollup.getDay(), rollup.getTotal(), byStatus);
+        }
+    }
+}
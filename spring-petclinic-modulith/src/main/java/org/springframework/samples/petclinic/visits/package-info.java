@@ -25,14 +25,29 @@
  *   <li>{@link org.springframework.samples.petclinic.visits.VisitService} - Visit service interface</li>
  *   <li>{@link org.springframework.samples.petclinic.visits.VisitCreated} - Domain event</li>
  *   <li>{@link org.springframework.samples.petclinic.visits.VisitCompleted} - Domain event</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitCancelled} - Domain event</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitsScheduled} - Domain event of a bulk-scheduled batch</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitsCompleted} - Domain event of a bulk completion</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitsCancelled} - Domain event of a bulk cancellation</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.ScheduleResult} - Outcome of one visit of a batch</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.SlotUnavailableException} - Booking conflict</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitStatusConflictException} - Status change of a visit that is no longer scheduled</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.StatusChange} - Outcome of completing or cancelling many visits</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitFilter} - Date range, statuses and order of a visit query</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitPage} - Keyset-paginated page of visit summaries</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitSummary} - Lightweight projection of a visit</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitStatus} - Lifecycle state of a visit, stored as a one-character code</li>
+ *   <li>{@link org.springframework.samples.petclinic.visits.VisitStats} - Visit counts per status, vet and day</li>
  * </ul>
  * 
  * <h2>Dependencies on Other Modules</h2>
  * <ul>
  *   <li><strong>Customers Module</strong>: Uses {@link org.springframework.samples.petclinic.customers.CustomerService}
- *       to validate that pets exist before creating visits</li>
+ *       to validate that pets exist before creating visits, and listens to its customer and pet events
+ *       to maintain the owner summary read model</li>
  *   <li><strong>Vets Module</strong>: Uses {@link org.springframework.samples.petclinic.vets.VetService}
- *       to validate that veterinarians exist before creating visits</li>
+ *       to validate that veterinarians exist before creating visits, and listens to {@code VetDeleted}
+ *       to drop the vet's working hours</li>
  * </ul>
  * 
  * <h2>Architecture</h2>
@@ -54,11 +69,9 @@
  *     private final VetService vetService;            // From vets module
  *     
  *     public Visit scheduleVisit(Visit visit) {
- *         // Validate cross-module references
- *         customerService.findById(visit.getPetId())
- *             .orElseThrow(...);
- *         vetService.findById(visit.getVetId())
- *             .orElseThrow(...);
+ *         // Validate cross-module references without loading the aggregates
+ *         if (!customerService.petExists(visit.getPetId())) throw ...;
+ *         if (!vetService.exists(visit.getVetId())) throw ...;
  *         
  *         Visit saved = visitRepository.save(visit);
  *         events.publishEvent(new VisitCreated(...));
@@ -12,41 +12,41 @@ INSERT INTO types VALUES (4, 'snake');
 INSERT INTO types VALUES (5, 'bird');
 INSERT INTO types VALUES (6, 'hamster');
 
-INSERT INTO owners VALUES (1, 'George', 'Franklin', '110 W. Liberty St.', 'Madison', '6085551023');
-INSERT INTO owners VALUES (2, 'Betty', 'Davis', '638 Cardinal Ave.', 'Sun Prairie', '6085551749');
-INSERT INTO owners VALUES (3, 'Eduardo', 'Rodriquez', '2693 Commerce St.', 'McFarland', '6085558763');
-INSERT INTO owners VALUES (4, 'Harold', 'Davis', '563 Friendly St.', 'Windsor', '6085553198');
-INSERT INTO owners VALUES (5, 'Peter', 'McTavish', '2387 S. Fair Way', 'Madison', '6085552765');
-INSERT INTO owners VALUES (6, 'Jean', 'Coleman', '105 N. Lake St.', 'Monona', '6085552654');
-INSERT INTO owners VALUES (7, 'Jeff', 'Black', '1450 Oak Blvd.', 'Monona', '6085555387');
-INSERT INTO owners VALUES (8, 'Maria', 'Escobito', '345 Maple St.', 'Madison', '6085557683');
-INSERT INTO owners VALUES (9, 'David', 'Schroeder', '2749 Blackhawk Trail', 'Madison', '6085559435');
-INSERT INTO owners VALUES (10, 'Carlos', 'Estaban', '2335 Independence La.', 'Waunakee', '6085555487');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (1, 'George', 'Franklin', '110 W. Liberty St.', 'Madison', '6085551023');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (2, 'Betty', 'Davis', '638 Cardinal Ave.', 'Sun Prairie', '6085551749');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (3, 'Eduardo', 'Rodriquez', '2693 Commerce St.', 'McFarland', '6085558763');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (4, 'Harold', 'Davis', '563 Friendly St.', 'Windsor', '6085553198');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (5, 'Peter', 'McTavish', '2387 S. Fair Way', 'Madison', '6085552765');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (6, 'Jean', 'Coleman', '105 N. Lake St.', 'Monona', '6085552654');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (7, 'Jeff', 'Black', '1450 Oak Blvd.', 'Monona', '6085555387');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (8, 'Maria', 'Escobito', '345 Maple St.', 'Madison', '6085557683');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (9, 'David', 'Schroeder', '2749 Blackhawk Trail', 'Madison', '6085559435');
+INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (10, 'Carlos', 'Estaban', '2335 Independence La.', 'Waunakee', '6085555487');
 
-INSERT INTO pets VALUES (1, 'Leo', '2010-09-07', 1, 1);
-INSERT INTO pets VALUES (2, 'Basil', '2012-08-06', 6, 2);
-INSERT INTO pets VALUES (3, 'Rosy', '2011-04-17', 2, 3);
-INSERT INTO pets VALUES (4, 'Jewel', '2010-03-07', 2, 3);
-INSERT INTO pets VALUES (5, 'Iggy', '2010-11-30', 3, 4);
-INSERT INTO pets VALUES (6, 'George', '2010-01-20', 4, 5);
-INSERT INTO pets VALUES (7, 'Samantha', '2012-09-04', 1, 6);
-INSERT INTO pets VALUES (8, 'Max', '2012-09-04', 1, 6);
-INSERT INTO pets VALUES (9, 'Lucky', '2011-08-06', 5, 7);
-INSERT INTO pets VALUES (10, 'Mulligan', '2007-02-24', 2, 8);
-INSERT INTO pets VALUES (11, 'Freddy', '2010-03-09', 5, 9);
-INSERT INTO pets VALUES (12, 'Lucky', '2010-06-24', 2, 10);
-INSERT INTO pets VALUES (13, 'Sly', '2012-06-08', 1, 10);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (1, 'Leo', '2010-09-07', 1, 1);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (2, 'Basil', '2012-08-06', 6, 2);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (3, 'Rosy', '2011-04-17', 2, 3);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (4, 'Jewel', '2010-03-07', 2, 3);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (5, 'Iggy', '2010-11-30', 3, 4);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (6, 'George', '2010-01-20', 4, 5);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (7, 'Samantha', '2012-09-04', 1, 6);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (8, 'Max', '2012-09-04', 1, 6);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (9, 'Lucky', '2011-08-06', 5, 7);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (10, 'Mulligan', '2007-02-24', 2, 8);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (11, 'Freddy', '2010-03-09', 5, 9);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (12, 'Lucky', '2010-06-24', 2, 10);
+INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (13, 'Sly', '2012-06-08', 1, 10);
 
 -- ==========================================
 -- Vets Module Test Data
 -- ==========================================
 
-INSERT INTO vets VALUES (1, 'James', 'Carter');
-INSERT INTO vets VALUES (2, 'Helen', 'Leary');
-INSERT INTO vets VALUES (3, 'Linda', 'Douglas');
-INSERT INTO vets VALUES (4, 'Rafael', 'Ortega');
-INSERT INTO vets VALUES (5, 'Henry', 'Stevens');
-INSERT INTO vets VALUES (6, 'Sharon', 'Jenkins');
+INSERT INTO vets (id, first_name, last_name) VALUES (1, 'James', 'Carter');
+INSERT INTO vets (id, first_name, last_name) VALUES (2, 'Helen', 'Leary');
+INSERT INTO vets (id, first_name, last_name) VALUES (3, 'Linda', 'Douglas');
+INSERT INTO vets (id, first_name, last_name) VALUES (4, 'Rafael', 'Ortega');
+INSERT INTO vets (id, first_name, last_name) VALUES (5, 'Henry', 'Stevens');
+INSERT INTO vets (id, first_name, last_name) VALUES (6, 'Sharon', 'Jenkins');
 
 INSERT INTO specialties VALUES (1, 'radiology');
 INSERT INTO specialties VALUES (2, 'surgery');
@@ -62,7 +62,14 @@ INSERT INTO vet_specialties VALUES (5, 1);
 -- Visits Module Test Data
 -- ==========================================
 
-INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (1, 7, 1, '2013-01-01', 'rabies shot', 'COMPLETED');
-INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (2, 8, 2, '2013-01-02', 'rabies shot', 'COMPLETED');
-INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (3, 8, 3, '2013-01-03', 'neutered', 'COMPLETED');
-INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (4, 7, 1, '2013-01-04', 'spayed', 'COMPLETED');
+INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (1, 7, 1, '2013-01-01', 'rabies shot', 'C');
+INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (2, 8, 2, '2013-01-02', 'rabies shot', 'C');
+INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (3, 8, 3, '2013-01-03', 'neutered', 'C');
+INSERT INTO visits (id, pet_id, vet_id, visit_date, description, status) VALUES (4, 7, 1, '2013-01-04', 'spayed', 'C');
+
+INSERT INTO vet_schedules (vet_id, opens_at, closes_at) VALUES (1, '08:00:00', '18:00:00');
+INSERT INTO vet_schedules (vet_id, opens_at, closes_at) VALUES (2, '08:00:00', '18:00:00');
+INSERT INTO vet_schedules (vet_id, opens_at, closes_at) VALUES (3, '08:00:00', '18:00:00');
+INSERT INTO vet_schedules (vet_id, opens_at, closes_at) VALUES (4, '08:00:00', '18:00:00');
+INSERT INTO vet_schedules (vet_id, opens_at, closes_at) VALUES (5, '08:00:00', '18:00:00');
+INSERT INTO vet_schedules (vet_id, opens_at, closes_at) VALUES (6, '08:00:00', '18:00:00');
@@ -6,6 +6,11 @@
 -- ==========================================
 
 DROP TABLE IF EXISTS event_publication;
+DROP TABLE IF EXISTS visit_rollups;
+DROP TABLE IF EXISTS owner_summary_pets;
+DROP TABLE IF EXISTS owner_summaries;
+DROP TABLE IF EXISTS vet_schedules;
+DROP TABLE IF EXISTS visits_archive;
 DROP TABLE IF EXISTS visits;
 DROP TABLE IF EXISTS vet_specialties;
 DROP TABLE IF EXISTS vets;
@@ -13,6 +18,9 @@ DROP TABLE IF EXISTS specialties;
 DROP TABLE IF EXISTS pets;
 DROP TABLE IF EXISTS types;
 DROP TABLE IF EXISTS owners;
+DROP SEQUENCE IF EXISTS pets_seq;
+DROP SEQUENCE IF EXISTS owners_seq;
+DROP SEQUENCE IF EXISTS visits_seq;
 
 CREATE TABLE types (
   id   INTEGER IDENTITY PRIMARY KEY,
@@ -20,22 +28,29 @@ CREATE TABLE types (
 );
 CREATE INDEX types_name ON types (name);
 
+-- Owner and pet ids come from pooled sequences (increment = JPA allocationSize), which lets
+-- Hibernate batch their inserts. They start past the ids used by the sample data.
+CREATE SEQUENCE owners_seq AS INTEGER START WITH 1000 INCREMENT BY 50;
+CREATE SEQUENCE pets_seq AS INTEGER START WITH 1000 INCREMENT BY 50;
+
 CREATE TABLE owners (
-  id         INTEGER IDENTITY PRIMARY KEY,
+  id         INTEGER PRIMARY KEY,
   first_name VARCHAR(30),
   last_name  VARCHAR(30),
   address    VARCHAR(255),
   city       VARCHAR(80),
-  telephone  VARCHAR(12)
+  telephone  VARCHAR(12),
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 CREATE INDEX owners_last_name ON owners (last_name);
 
 CREATE TABLE pets (
-  id         INTEGER IDENTITY PRIMARY KEY,
+  id         INTEGER PRIMARY KEY,
   name       VARCHAR(30),
   birth_date DATE,
   type_id    INTEGER NOT NULL,
-  owner_id   INTEGER NOT NULL
+  owner_id   INTEGER NOT NULL,
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 ALTER TABLE pets ADD CONSTRAINT fk_pets_owners FOREIGN KEY (owner_id) REFERENCES owners (id);
 ALTER TABLE pets ADD CONSTRAINT fk_pets_types FOREIGN KEY (type_id) REFERENCES types (id);
@@ -48,7 +63,8 @@ CREATE INDEX pets_name ON pets (name);
 CREATE TABLE vets (
   id         INTEGER IDENTITY PRIMARY KEY,
   first_name VARCHAR(30),
-  last_name  VARCHAR(30)
+  last_name  VARCHAR(30),
+  version    INTEGER DEFAULT 0 NOT NULL
 );
 CREATE INDEX vets_last_name ON vets (last_name);
 
@@ -69,19 +85,95 @@ ALTER TABLE vet_specialties ADD CONSTRAINT fk_vet_specialties_specialties FOREIG
 -- Visits Module Tables
 -- ==========================================
 
+-- Visit ids come from a pooled sequence like owner and pet ids, so bulk bookings insert in batches
+CREATE SEQUENCE visits_seq AS INTEGER START WITH 1000 INCREMENT BY 50;
+
 CREATE TABLE visits (
-    id INTEGER IDENTITY NOT NULL PRIMARY KEY,
+    id INTEGER NOT NULL PRIMARY KEY,
     pet_id INTEGER NOT NULL,
     vet_id INTEGER NOT NULL,
     visit_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    duration_minutes INTEGER,
+    end_date TIMESTAMP,
     description VARCHAR(8192),
-    status VARCHAR(20) DEFAULT 'SCHEDULED'
+    -- VisitStatus code: S = scheduled, C = completed, X = cancelled
+    status CHAR(1) DEFAULT 'S' NOT NULL,
+    CONSTRAINT chk_visits_status CHECK (status IN ('S', 'C', 'X'))
 );
 ALTER TABLE visits ADD CONSTRAINT fk_visits_pets FOREIGN KEY (pet_id) REFERENCES pets(id);
 ALTER TABLE visits ADD CONSTRAINT fk_visits_vets FOREIGN KEY (vet_id) REFERENCES vets(id);
-CREATE INDEX idx_visits_pet_id ON visits(pet_id);
-CREATE INDEX idx_visits_vet_id ON visits(vet_id);
+-- Serves the date-range and keyset-paginated visit history of a pet
+CREATE INDEX idx_visits_pet_date ON visits(pet_id, visit_date);
+-- Serves lookups by vet, the vet's date-range history and the overlap check of a new booking
+CREATE INDEX idx_visits_vet_slot ON visits(vet_id, visit_date);
 CREATE INDEX idx_visits_status ON visits(status);
+-- Covers the per-status, per-vet and per-day counts of /visits/stats, so they never read the table
+CREATE INDEX idx_visits_date_stats ON visits(visit_date, vet_id, status);
+
+-- Completed and cancelled visits past the archive horizon, moved out of visits by VisitArchiver.
+-- Same columns as visits; no foreign keys, archived rows are cold and never updated.
+CREATE TABLE visits_archive (
+    id INTEGER NOT NULL PRIMARY KEY,
+    pet_id INTEGER NOT NULL,
+    vet_id INTEGER NOT NULL,
+    visit_date TIMESTAMP,
+    duration_minutes INTEGER,
+    end_date TIMESTAMP,
+    description VARCHAR(8192),
+    status CHAR(1) NOT NULL,
+    archived_at TIMESTAMP NOT NULL,
+    CONSTRAINT chk_visits_archive_status CHECK (status IN ('C', 'X'))
+);
+CREATE INDEX idx_visits_archive_pet_date ON visits_archive(pet_id, visit_date);
+CREATE INDEX idx_visits_archive_vet_date ON visits_archive(vet_id, visit_date);
+-- Serves the archived part of /visits/stats and the purge of cancelled visits past retention
+CREATE INDEX idx_visits_archive_date_stats ON visits_archive(visit_date, vet_id, status);
+
+-- Working hours of each vet. Bookings for a vet lock its row, which serializes them across nodes.
+-- No foreign key: rows follow the vets through vet events, like the owner summaries below.
+CREATE TABLE vet_schedules (
+    vet_id INTEGER NOT NULL PRIMARY KEY,
+    opens_at TIME NOT NULL,
+    closes_at TIME NOT NULL
+);
+
+-- Owner summary read model, maintained from customer and visit events. No foreign keys:
+-- rows follow the source tables asynchronously.
+CREATE TABLE owner_summaries (
+    owner_id INTEGER NOT NULL PRIMARY KEY,
+    first_name VARCHAR(30),
+    last_name VARCHAR(30),
+    city VARCHAR(80),
+    telephone VARCHAR(20),
+    pet_count INTEGER DEFAULT 0 NOT NULL,
+    last_visit_date TIMESTAMP,
+    open_visit_count INTEGER DEFAULT 0 NOT NULL,
+    projected_at TIMESTAMP(6) NOT NULL
+);
+CREATE INDEX idx_owner_summaries_name ON owner_summaries(last_name, first_name, owner_id);
+CREATE INDEX idx_owner_summaries_pet_count ON owner_summaries(pet_count, owner_id);
+CREATE INDEX idx_owner_summaries_last_visit ON owner_summaries(last_visit_date, owner_id);
+CREATE INDEX idx_owner_summaries_open_visits ON owner_summaries(open_visit_count, owner_id);
+
+-- Which owner a pet belongs to, to route visit events to the owner's summary
+CREATE TABLE owner_summary_pets (
+    pet_id INTEGER NOT NULL PRIMARY KEY,
+    owner_id INTEGER NOT NULL
+);
+CREATE INDEX idx_owner_summary_pets_owner_id ON owner_summary_pets(owner_id);
+
+-- Visit counts per vet, day and status, maintained from visit events. Day ranges read the
+-- primary key; no foreign key, rows follow the visits asynchronously.
+CREATE TABLE visit_rollups (
+    visit_day DATE NOT NULL,
+    vet_id INTEGER NOT NULL,
+    scheduled_count INTEGER DEFAULT 0 NOT NULL,
+    completed_count INTEGER DEFAULT 0 NOT NULL,
+    cancelled_count INTEGER DEFAULT 0 NOT NULL,
+    projected_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (visit_day, vet_id)
+);
+CREATE INDEX idx_visit_rollups_vet_day ON visit_rollups(vet_id, visit_day);
 
 -- ==========================================
 -- Spring Modulith Event Store
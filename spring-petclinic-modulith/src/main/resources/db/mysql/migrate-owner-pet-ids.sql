@@ -0,0 +1,27 @@
+-- One-off migration of owners and pets tables created when their ids were AUTO_INCREMENT columns.
+-- schema.sql only creates missing tables, so run this once by hand against such a database,
+-- with the application stopped:
+--   mysql -u petclinic -p petclinic < migrate-owner-pet-ids.sql
+--
+-- Hibernate hands out the allocationSize (50) ids up to each value it reads from a sequence, so
+-- every sequence must start at least 50 past the highest id in use. Running the script again, or
+-- after schema.sql has already seeded the sequences, only ever raises them.
+
+CREATE TABLE IF NOT EXISTS owners_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+INSERT INTO owners_seq (next_val) SELECT 1000 FROM DUAL WHERE NOT EXISTS (SELECT * FROM owners_seq);
+UPDATE owners_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM owners));
+
+CREATE TABLE IF NOT EXISTS pets_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+INSERT INTO pets_seq (next_val) SELECT 1000 FROM DUAL WHERE NOT EXISTS (SELECT * FROM pets_seq);
+UPDATE pets_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM pets));
+
+-- Ids are assigned by the application now. Both columns are referenced by foreign keys, which
+-- MySQL only lets ALTER TABLE touch with the checks off; the column type itself is unchanged.
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE owners MODIFY id INT(4) UNSIGNED NOT NULL;
+ALTER TABLE pets MODIFY id INT(4) UNSIGNED NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,10 @@
+-- One-off migration of owners, pets and vets tables created before they had optimistic lock versions.
+-- schema.sql only creates missing tables, so run this once by hand against such a database:
+--   mysql -u petclinic -p petclinic < migrate-versions.sql
+-- Existing rows start at version 0, like new ones.
+
+ALTER TABLE owners ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE pets ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE vets ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,17 @@
+-- One-off migration of a visits table created when its id was an AUTO_INCREMENT column.
+-- schema.sql only creates missing tables, so run this once by hand against such a database,
+-- with the application stopped:
+--   mysql -u petclinic -p petclinic < migrate-visit-ids.sql
+--
+-- Like owners_seq and pets_seq in migrate-owner-pet-ids.sql, the sequence must start at least one
+-- allocation (50) past the highest visit id. Running the script again only ever raises it.
+
+CREATE TABLE IF NOT EXISTS visits_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+INSERT INTO visits_seq (next_val) SELECT 1000 FROM DUAL WHERE NOT EXISTS (SELECT * FROM visits_seq);
+UPDATE visits_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 50 FROM visits));
+
+-- Ids are assigned by the application now; the column type itself is unchanged. No foreign key
+-- references visits, so unlike owners and pets the column can be altered with the checks on.
+ALTER TABLE visits MODIFY id INT(4) UNSIGNED NOT NULL;
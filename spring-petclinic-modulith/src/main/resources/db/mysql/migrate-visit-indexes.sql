@@ -0,0 +1,11 @@
+-- One-off migration of a visits table created before the date-range visit queries.
+-- schema.sql only creates missing tables, so run this once by hand against such a database:
+--   mysql -u petclinic -p petclinic < migrate-visit-indexes.sql
+--
+-- The pet index is widened to (pet_id, visit_date) so a page of a pet's visit history is read in
+-- (visit_date, id) order straight from the index. The vet side already has idx_visits_vet_slot,
+-- see migrate-visit-slots.sql.
+
+-- The pet_id prefix keeps serving the foreign key, so the old index only goes once the new one exists.
+ALTER TABLE visits ADD INDEX idx_visits_pet_date (pet_id, visit_date);
+ALTER TABLE visits DROP INDEX idx_visits_pet_id;
@@ -0,0 +1,30 @@
+-- One-off migration of a visits table created before visits had a duration and vets had working hours.
+-- schema.sql only creates missing tables, so run this once by hand against such a database,
+-- with the application stopped:
+--   mysql -u petclinic -p petclinic < migrate-visit-slots.sql
+--
+-- Existing visits get the default 30 minute duration and a stored end date, so the overlap check
+-- of a new booking sees them like any other visit.
+
+ALTER TABLE visits
+    ADD COLUMN duration_minutes INT(4) UNSIGNED AFTER visit_date,
+    ADD COLUMN end_date TIMESTAMP NULL AFTER duration_minutes;
+
+UPDATE visits SET duration_minutes = 30 WHERE duration_minutes IS NULL;
+UPDATE visits SET end_date = visit_date + INTERVAL duration_minutes MINUTE
+    WHERE end_date IS NULL AND visit_date IS NOT NULL;
+
+-- The overlap check reads a vet's visits by date; the vet_id prefix still serves lookups by vet
+-- and the foreign key, which is why the old index only goes once the new one exists.
+ALTER TABLE visits ADD INDEX idx_visits_vet_slot (vet_id, visit_date);
+ALTER TABLE visits DROP INDEX idx_visits_vet_id;
+
+CREATE TABLE IF NOT EXISTS vet_schedules (
+    vet_id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+    opens_at TIME NOT NULL,
+    closes_at TIME NOT NULL
+) engine=InnoDB;
+
+-- Existing vets keep the hours of the sample vets; adjust the rows afterwards where they differ.
+INSERT IGNORE INTO vet_schedules (vet_id, opens_at, closes_at)
+    SELECT id, '08:00:00', '18:00:00' FROM vets;
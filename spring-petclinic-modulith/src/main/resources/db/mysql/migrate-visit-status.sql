@@ -0,0 +1,21 @@
+-- One-off migration of a visits table created before visit statuses became one-character codes.
+-- schema.sql only creates missing tables, so run this once by hand against such a database:
+--   mysql -u petclinic -p petclinic < migrate-visit-status.sql
+
+ALTER TABLE visits ADD COLUMN status_code CHAR(1) NOT NULL DEFAULT 'S';
+
+UPDATE visits SET status_code = CASE status
+    WHEN 'COMPLETED' THEN 'C'
+    WHEN 'CANCELLED' THEN 'X'
+    ELSE 'S'
+END;
+
+ALTER TABLE visits
+    DROP INDEX idx_visits_status,
+    DROP COLUMN status;
+
+ALTER TABLE visits
+    RENAME COLUMN status_code TO status,
+    ADD CONSTRAINT chk_visits_status CHECK (status IN ('S', 'C', 'X')),
+    ADD INDEX idx_visits_status (status),
+    ADD INDEX idx_visits_date_stats (visit_date, vet_id, status);
@@ -16,26 +16,46 @@ CREATE TABLE IF NOT EXISTS types (
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS owners (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   first_name VARCHAR(30),
   last_name VARCHAR(30),
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
+  version INT NOT NULL DEFAULT 0,
   INDEX(last_name)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
-  id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
+  id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
   name VARCHAR(30),
   birth_date DATE,
   type_id INT(4) UNSIGNED NOT NULL,
   owner_id INT(4) UNSIGNED NOT NULL,
+  version INT NOT NULL DEFAULT 0,
   INDEX(name),
   FOREIGN KEY (owner_id) REFERENCES owners(id),
   FOREIGN KEY (type_id) REFERENCES types(id)
 ) engine=InnoDB;
 
+-- Owner and pet ids come from pooled sequences (increment = JPA allocationSize), which lets
+-- Hibernate batch their inserts. MySQL has no sequences, so Hibernate emulates each one with a
+-- single-row table. They start past the sample data and at least one allocation past any existing
+-- row; tables created with AUTO_INCREMENT ids are converted by migrate-owner-pet-ids.sql.
+CREATE TABLE IF NOT EXISTS owners_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+INSERT INTO owners_seq (next_val)
+  SELECT GREATEST(1000, (SELECT COALESCE(MAX(id), 0) + 50 FROM owners)) FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM owners_seq);
+
+CREATE TABLE IF NOT EXISTS pets_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+INSERT INTO pets_seq (next_val)
+  SELECT GREATEST(1000, (SELECT COALESCE(MAX(id), 0) + 50 FROM pets)) FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM pets_seq);
+
 -- ==========================================
 -- Vets Module Tables
 -- ==========================================
@@ -44,6 +64,7 @@ CREATE TABLE IF NOT EXISTS vets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   first_name VARCHAR(30),
   last_name VARCHAR(30),
+  version INT NOT NULL DEFAULT 0,
   INDEX(last_name)
 ) engine=InnoDB;
 
@@ -66,17 +87,102 @@ CREATE TABLE IF NOT EXISTS vet_specialties (
 -- ==========================================
 
 CREATE TABLE IF NOT EXISTS visits (
-    id INT(4) UNSIGNED AUTO_INCREMENT NOT NULL PRIMARY KEY,
+    id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
     pet_id INT(4) UNSIGNED NOT NULL,
     vet_id INT(4) UNSIGNED NOT NULL,
     visit_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    duration_minutes INT(4) UNSIGNED,
+    end_date TIMESTAMP NULL,
     description VARCHAR(8192),
-    status VARCHAR(20) DEFAULT 'SCHEDULED',
+    -- VisitStatus code: S = scheduled, C = completed, X = cancelled; see migrate-visit-status.sql
+    status CHAR(1) NOT NULL DEFAULT 'S',
+    CONSTRAINT chk_visits_status CHECK (status IN ('S', 'C', 'X')),
     FOREIGN KEY (pet_id) REFERENCES pets(id),
     FOREIGN KEY (vet_id) REFERENCES vets(id),
-    INDEX idx_visits_pet_id (pet_id),
-    INDEX idx_visits_vet_id (vet_id),
-    INDEX idx_visits_status (status)
+    -- Serves the date-range and keyset-paginated visit history of a pet; InnoDB appends the
+    -- primary key, so the (visit_date, id) page order is read straight from the index
+    INDEX idx_visits_pet_date (pet_id, visit_date),
+    -- Serves lookups by vet, the vet's date-range history and the overlap check of a new booking
+    INDEX idx_visits_vet_slot (vet_id, visit_date),
+    INDEX idx_visits_status (status),
+    -- Covers the per-status, per-vet and per-day counts of /visits/stats, so they never read the table
+    INDEX idx_visits_date_stats (visit_date, vet_id, status)
+) engine=InnoDB;
+
+-- Visit ids come from a pooled sequence like owner and pet ids, so bulk bookings insert in batches.
+-- Seeded after the visits table, past its highest id; AUTO_INCREMENT tables are converted by
+-- migrate-visit-ids.sql.
+CREATE TABLE IF NOT EXISTS visits_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+INSERT INTO visits_seq (next_val)
+  SELECT GREATEST(1000, (SELECT COALESCE(MAX(id), 0) + 50 FROM visits)) FROM DUAL
+  WHERE NOT EXISTS (SELECT * FROM visits_seq);
+
+-- Completed and cancelled visits past the archive horizon, moved out of visits by VisitArchiver.
+-- Same columns as visits; no foreign keys, archived rows are cold and never updated, so the
+-- table is stored with compressed pages.
+CREATE TABLE IF NOT EXISTS visits_archive (
+    id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+    pet_id INT(4) UNSIGNED NOT NULL,
+    vet_id INT(4) UNSIGNED NOT NULL,
+    visit_date TIMESTAMP NULL,
+    duration_minutes INT(4) UNSIGNED,
+    end_date TIMESTAMP NULL,
+    description VARCHAR(8192),
+    status CHAR(1) NOT NULL,
+    archived_at TIMESTAMP NOT NULL,
+    CONSTRAINT chk_visits_archive_status CHECK (status IN ('C', 'X')),
+    INDEX idx_visits_archive_pet_date (pet_id, visit_date),
+    INDEX idx_visits_archive_vet_date (vet_id, visit_date),
+    -- Serves the archived part of /visits/stats and the purge of cancelled visits past retention
+    INDEX idx_visits_archive_date_stats (visit_date, vet_id, status)
+) engine=InnoDB ROW_FORMAT=COMPRESSED;
+
+-- Working hours of each vet. Bookings for a vet lock its row, which serializes them across nodes.
+-- No foreign key: rows follow the vets through vet events, like the owner summaries below.
+CREATE TABLE IF NOT EXISTS vet_schedules (
+    vet_id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+    opens_at TIME NOT NULL,
+    closes_at TIME NOT NULL
+) engine=InnoDB;
+
+-- Owner summary read model, maintained from customer and visit events. No foreign keys:
+-- rows follow the source tables asynchronously.
+CREATE TABLE IF NOT EXISTS owner_summaries (
+    owner_id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+    first_name VARCHAR(30),
+    last_name VARCHAR(30),
+    city VARCHAR(80),
+    telephone VARCHAR(20),
+    pet_count INT NOT NULL DEFAULT 0,
+    last_visit_date TIMESTAMP NULL,
+    open_visit_count INT NOT NULL DEFAULT 0,
+    projected_at TIMESTAMP(6) NOT NULL,
+    INDEX idx_owner_summaries_name (last_name, first_name, owner_id),
+    INDEX idx_owner_summaries_pet_count (pet_count, owner_id),
+    INDEX idx_owner_summaries_last_visit (last_visit_date, owner_id),
+    INDEX idx_owner_summaries_open_visits (open_visit_count, owner_id)
+) engine=InnoDB;
+
+-- Which owner a pet belongs to, to route visit events to the owner's summary
+CREATE TABLE IF NOT EXISTS owner_summary_pets (
+    pet_id INT(4) UNSIGNED NOT NULL PRIMARY KEY,
+    owner_id INT(4) UNSIGNED NOT NULL,
+    INDEX idx_owner_summary_pets_owner_id (owner_id)
+) engine=InnoDB;
+
+-- Visit counts per vet, day and status, maintained from visit events. Day ranges read the
+-- primary key; no foreign key, rows follow the visits asynchronously.
+CREATE TABLE IF NOT EXISTS visit_rollups (
+    visit_day DATE NOT NULL,
+    vet_id INT(4) UNSIGNED NOT NULL,
+    scheduled_count INT NOT NULL DEFAULT 0,
+    completed_count INT NOT NULL DEFAULT 0,
+    cancelled_count INT NOT NULL DEFAULT 0,
+    projected_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (visit_day, vet_id),
+    INDEX idx_visit_rollups_vet_day (vet_id, visit_day)
 ) engine=InnoDB;
 
 -- ==========================================
@@ -24,7 +24,7 @@
         'api/genai/': '/',
         
         // Gateway APIs
-        'api/gateway/': '/'
+        'api/gateway/': '/gateway/'
     };
 
     /**
@@ -5,6 +5,14 @@ angular.module('ownerDetails')
         var self = this;
 
         $http.get('api/gateway/owners/' + $stateParams.ownerId).then(function (resp) {
-            self.owner = resp.data;
+            var details = resp.data;
+            details.owner.pets.forEach(function (pet) {
+                pet.visits = (details.visits[pet.id] || []).map(function (visit) {
+                    visit.vet = details.vets[visit.vetId];
+                    return visit;
+                });
+            });
+            self.owner = details.owner;
+            self.missing = details.missing;
         });
     }]);
@@ -3,8 +3,45 @@
 angular.module('ownerList')
     .controller('OwnerListController', ['$http', function ($http) {
         var self = this;
+        var pageSize = 20;
 
-        $http.get('api/customer/owners').then(function (resp) {
-            self.owners = resp.data;
-        });
+        self.owners = [];
+        self.nextCursor = null;
+        self.loading = false;
+
+        self.loadMore = function () {
+            if (self.loading) {
+                return;
+            }
+            self.loading = true;
+            var params = {size: pageSize, includeTotal: self.totalCount === undefined};
+            if (self.nextCursor) {
+                params.cursor = self.nextCursor;
+            }
+            $http.get('api/customer/owners', {params: params}).then(function (resp) {
+                self.owners = self.owners.concat(resp.data.owners);
+                self.nextCursor = resp.data.nextCursor;
+                if (resp.data.totalCount !== null && resp.data.totalCount !== undefined) {
+                    self.totalCount = resp.data.totalCount;
+                }
+            }).finally(function () {
+                self.loading = false;
+            });
+        };
+
+        self.search = function () {
+            if (!self.query) {
+                self.matches = null;
+                return;
+            }
+            var query = self.query;
+            $http.get('api/customer/owners/search', {params: {q: query, limit: 10}}).then(function (resp) {
+                // ignore responses for queries the user has already typed past
+                if (query === self.query) {
+                    self.matches = resp.data;
+                }
+            });
+        };
+
+        self.loadMore();
     }]);
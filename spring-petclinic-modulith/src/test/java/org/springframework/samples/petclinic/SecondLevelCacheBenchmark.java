@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetService;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the owner-details and vet-list flows with and without the Hibernate second-level
+ * cache (the l2cache profile), and prints the SQL statements each request needs.
+ *
+ * The application caches (Spring Cache) are switched off, so that every request reaches
+ * Hibernate. Not part of the regular test run. Start it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.springframework.samples.petclinic.SecondLevelCacheBenchmark
+ * </pre>
+ *
+ * @author PetClinic Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecondLevelCacheBenchmark {
+
+    /**
+     * Owners of the sample data.
+     */
+    private static final int OWNERS = 10;
+
+    @Param({"false", "true"})
+    boolean secondLevelCache;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private VetService vetService;
+    private Statistics statistics;
+
+    private int nextOwnerId;
+    private long requests;
+    private long statementsBefore;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(PetClinicApplication.class)
+            .web(WebApplicationType.NONE);
+        if (secondLevelCache) {
+            application.profiles("l2cache");
+        }
+        // Passed as arguments, which take precedence over application.yml
+        context = application.run(
+            "--spring.cache.type=none",
+            "--spring.jpa.properties.hibernate.generate_statistics=true",
+            "--logging.level.root=WARN",
+            "--logging.level.org.springframework.samples.petclinic=WARN",
+            "--logging.level.org.hibernate.SQL=WARN",
+            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+        customerService = context.getBean(CustomerService.class);
+        vetService = context.getBean(VetService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void startCounting() {
+        requests = 0;
+        statementsBefore = statistics.getPrepareStatementCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printStatementsPerRequest() {
+        long statements = statistics.getPrepareStatementCount() - statementsBefore;
+        System.out.printf("  %.2f statements per request (second-level cache %s)%n",
+            (double) statements / Math.max(1, requests), secondLevelCache ? "on" : "off");
+    }
+
+    @Benchmark
+    public Optional<Customer> ownerDetails() {
+        requests++;
+        nextOwnerId = nextOwnerId % OWNERS + 1;
+        return customerService.findById(nextOwnerId);
+    }
+
+    @Benchmark
+    public List<Vet> vetList() {
+        requests++;
+        return vetService.findAll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(SecondLevelCacheBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
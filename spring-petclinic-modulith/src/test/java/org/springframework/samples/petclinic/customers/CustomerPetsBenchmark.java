@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.support.MutableSortDefinition;
+import org.springframework.beans.support.PropertyComparator;
+import org.springframework.samples.petclinic.customers.internal.Pet;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link Customer#getPets()} with the previous implementation, which copied
+ * the pet set and sorted it reflectively by name on every call.
+ *
+ * Not part of the regular test run. Start it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.springframework.samples.petclinic.customers.CustomerPetsBenchmark
+ * </pre>
+ *
+ * @author PetClinic Team
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerPetsBenchmark {
+
+    @Param({"1", "10", "500"})
+    int petCount;
+
+    private Customer customer;
+    private Set<Pet> petSet;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        customer = new Customer();
+        petSet = new HashSet<>();
+        for (int i = 0; i < petCount; i++) {
+            Pet pet = new Pet();
+            pet.setId(i);
+            pet.setName("pet-" + random.nextInt(100_000));
+            customer.addPet(pet);
+            petSet.add(pet);
+        }
+    }
+
+    @Benchmark
+    public List<Pet> sortOnRead() {
+        List<Pet> sortedPets = new ArrayList<>(petSet);
+        PropertyComparator.sort(sortedPets, new MutableSortDefinition("name", true, true));
+        return Collections.unmodifiableList(sortedPets);
+    }
+
+    @Benchmark
+    public List<Pet> presortedView() {
+        return customer.getPets();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(CustomerPetsBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -22,21 +22,28 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.samples.petclinic.customers.Customer;
 import org.springframework.samples.petclinic.customers.CustomerCreated;
 import org.springframework.samples.petclinic.customers.CustomerDeleted;
+import org.springframework.samples.petclinic.customers.CustomerPage;
 import org.springframework.samples.petclinic.customers.CustomerService;
 import org.springframework.samples.petclinic.customers.CustomerUpdated;
+import org.springframework.samples.petclinic.customers.CustomersImported;
+import org.springframework.samples.petclinic.customers.PetAdded;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -52,6 +59,9 @@ class CustomerServiceImplTest {
     @Mock
     private CustomerRepository customerRepository;
 
+    @Mock
+    private PetRepository petRepository;
+
     @Mock
     private ApplicationEventPublisher events;
 
@@ -59,14 +69,14 @@ class CustomerServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        customerService = new CustomerServiceImpl(customerRepository, events);
+        customerService = new CustomerServiceImpl(customerRepository, petRepository, events);
     }
 
     @Test
     void shouldFindCustomerById() {
         // Given
         Customer customer = createCustomer(1, "George", "Franklin");
-        given(customerRepository.findById(1)).willReturn(Optional.of(customer));
+        given(customerRepository.findWithPetsById(1)).willReturn(Optional.of(customer));
 
         // When
         Optional<Customer> result = customerService.findById(1);
@@ -80,7 +90,7 @@ class CustomerServiceImplTest {
     @Test
     void shouldReturnEmptyWhenCustomerNotFound() {
         // Given
-        given(customerRepository.findById(999)).willReturn(Optional.empty());
+        given(customerRepository.findWithPetsById(999)).willReturn(Optional.empty());
 
         // When
         Optional<Customer> result = customerService.findById(999);
@@ -107,6 +117,56 @@ class CustomerServiceImplTest {
         assertThat(result.get(1).getFirstName()).isEqualTo("Betty");
     }
 
+    @Test
+    void shouldReturnFirstPageWithNextCursor() {
+        // Given - one more row than requested means there is a next page
+        List<Customer> rows = Arrays.asList(
+            createCustomer(2, "Betty", "Davis"),
+            createCustomer(4, "Harold", "Davis"),
+            createCustomer(1, "George", "Franklin")
+        );
+        given(customerRepository.findFirstPage(Limit.of(3))).willReturn(rows);
+
+        // When
+        CustomerPage page = customerService.findPage(null, 2, false);
+
+        // Then
+        assertThat(page.customers()).extracting(Customer::getId).containsExactly(2, 4);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(page.totalCount()).isNull();
+        verify(customerRepository).findWithPetsByIdIn(List.of(2, 4));
+        verify(customerRepository, never()).count();
+    }
+
+    @Test
+    void shouldContinueFromCursor() {
+        // Given
+        given(customerRepository.findFirstPage(Limit.of(3))).willReturn(Arrays.asList(
+            createCustomer(2, "Betty", "Davis"),
+            createCustomer(4, "Harold", "Davis"),
+            createCustomer(1, "George", "Franklin")
+        ));
+        String cursor = customerService.findPage(null, 2, false).nextCursor();
+        given(customerRepository.findPageAfter("Davis", 4, Limit.of(3)))
+            .willReturn(List.of(createCustomer(1, "George", "Franklin")));
+        given(customerRepository.count()).willReturn(3L);
+
+        // When
+        CustomerPage page = customerService.findPage(cursor, 2, true);
+
+        // Then
+        assertThat(page.customers()).extracting(Customer::getId).containsExactly(1);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.totalCount()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThatThrownBy(() -> customerService.findPage("not-a-cursor", 20, false))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("cursor");
+    }
+
     @Test
     void shouldSaveCustomerAndPublishEvent() {
         // Given
@@ -131,6 +191,33 @@ class CustomerServiceImplTest {
         assertThat(event.customerName()).isEqualTo("John Doe");
     }
 
+    @Test
+    void shouldSaveCustomersInBulkAndPublishOneEvent() {
+        // Given
+        Customer john = createCustomer(1, "John", "Doe");
+        Pet rex = new Pet();
+        rex.setId(10);
+        rex.setName("Rex");
+        john.addPet(rex);
+        Customer jane = createCustomer(2, "Jane", "Doe");
+        List<Customer> customers = List.of(john, jane);
+
+        given(customerRepository.saveAll(customers)).willReturn(customers);
+
+        // When
+        List<Customer> result = customerService.saveAll(customers);
+
+        // Then
+        assertThat(result).hasSize(2);
+
+        ArgumentCaptor<CustomersImported> eventCaptor = ArgumentCaptor.forClass(CustomersImported.class);
+        verify(events).publishEvent(eventCaptor.capture());
+
+        CustomersImported event = eventCaptor.getValue();
+        assertThat(event.customers()).containsExactly(new CustomerCreated(1, "John Doe"), new CustomerCreated(2, "Jane Doe"));
+        assertThat(event.pets()).containsExactly(new PetAdded(10, 1, "Rex"));
+    }
+
     @Test
     void shouldUpdateCustomerAndPublishEvent() {
         // Given
@@ -159,6 +246,20 @@ class CustomerServiceImplTest {
         assertThat(event.customerName()).isEqualTo("George Washington");
     }
 
+    @Test
+    void shouldRejectUpdateOfCustomerChangedSinceRead() {
+        // Given
+        Customer existingCustomer = createCustomer(1, "George", "Franklin");
+        given(customerRepository.findById(1)).willReturn(Optional.of(existingCustomer));
+        given(customerRepository.findVersionById(1)).willReturn(Optional.of(new OwnerVersion(1, 0L, 0L, 0L)));
+
+        // When/Then
+        assertThatThrownBy(() -> customerService.update(1, createCustomer(null, "George", "Washington"), "0.0.0.0"))
+            .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(customerRepository, never()).save(any());
+        verify(events, never()).publishEvent(any());
+    }
+
     @Test
     void shouldThrowExceptionWhenUpdatingNonExistentCustomer() {
         // Given
@@ -205,6 +306,28 @@ class CustomerServiceImplTest {
             .hasMessageContaining("999");
     }
 
+    @Test
+    void shouldCheckPetExistenceWithoutLoadingOwner() {
+        // Given
+        given(petRepository.existsById(7)).willReturn(true);
+
+        // When/Then
+        assertThat(customerService.petExists(7)).isTrue();
+        assertThat(customerService.petExists(null)).isFalse();
+        verify(customerRepository, never()).findWithPetsById(any());
+    }
+
+    @Test
+    void shouldReturnOnlyExistingPetIds() {
+        // Given
+        given(petRepository.findExistingIds(List.of(7, 8, 999))).willReturn(Set.of(7, 8));
+
+        // When/Then
+        assertThat(customerService.existingPetIds(List.of(7, 8, 999))).containsExactlyInAnyOrder(7, 8);
+        assertThat(customerService.existingPetIds(List.of())).isEmpty();
+        verify(petRepository, never()).findExistingIds(List.of());
+    }
+
     private Customer createCustomer(Integer id, String firstName, String lastName) {
         Customer customer = new Customer();
         customer.setId(id);
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the customer and pet fetch plans load their graphs with a fixed
+ * number of SQL statements, independent of the number of pets.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FetchPlanTest {
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    PetRepository petRepository;
+
+    private static final List<String> PET_NAMES = List.of("rex", "Bella", "max", "Coco", "Alfie");
+
+    private Statistics statistics;
+    private Integer ownerId;
+    private Integer petId;
+
+    @BeforeEach
+    void setUp() {
+        PetType cat = new PetType();
+        cat.setName("cat");
+        entityManager.persist(cat);
+
+        for (int o = 0; o < 3; o++) {
+            Customer owner = new Customer();
+            owner.setFirstName("Owner" + o);
+            // sorts after any sample data, so the test owners form their own page
+            owner.setLastName("Zz-Fetchplan");
+            owner.setAddress("1 Main St");
+            owner.setCity("Madison");
+            owner.setTelephone("6085550000");
+            entityManager.persist(owner);
+            PET_NAMES.forEach(name -> {
+                Pet pet = new Pet();
+                pet.setName(name);
+                pet.setType(cat);
+                owner.addPet(pet);
+                entityManager.persist(pet);
+                petId = pet.getId();
+            });
+            ownerId = owner.getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void ownerWithPetsIsLoadedInOneStatement() {
+        Customer owner = customerRepository.findWithPetsById(ownerId).orElseThrow();
+
+        assertThat(owner.getPets()).hasSize(5)
+            .allSatisfy(pet -> assertThat(pet.getType().getName()).isEqualTo("cat"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void petsAreLoadedInCaseInsensitiveNameOrder() {
+        Customer owner = customerRepository.findWithPetsById(ownerId).orElseThrow();
+
+        assertThat(owner.getPets()).extracting(Pet::getName)
+            .containsExactly("Alfie", "Bella", "Coco", "max", "rex");
+    }
+
+    @Test
+    void petsWithTheSameNameKeepTheirOrderWhenReloaded() {
+        Customer owner = customerRepository.findWithPetsById(ownerId).orElseThrow();
+        PetType cat = owner.getPets().get(0).getType();
+        for (int i = 0; i < 3; i++) {
+            Pet pet = new Pet();
+            pet.setName("bella");
+            pet.setType(cat);
+            owner.addPet(pet);
+            entityManager.persist(pet);
+        }
+        List<Integer> inMemory = owner.getPets().stream().map(Pet::getId).toList();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(customerRepository.findWithPetsById(ownerId).orElseThrow().getPets())
+            .extracting(Pet::getId).containsExactlyElementsOf(inMemory);
+    }
+
+    @Test
+    void ownerSummaryDoesNotLoadPets() {
+        customerRepository.findById(ownerId).orElseThrow();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void pageOfOwnersWithPetsTakesTwoStatements() {
+        List<Customer> page = customerRepository.findPageAfter("Zz-Fetchplan", 0, Limit.of(3));
+        customerRepository.findWithPetsByIdIn(page.stream().map(Customer::getId).toList());
+
+        assertThat(page).hasSize(3).allSatisfy(owner -> assertThat(owner.getPets()).hasSize(5));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void petWithTypeAndOwnerIsLoadedInOneStatement() {
+        Pet pet = petRepository.findWithTypeAndOwnerById(petId).orElseThrow();
+
+        assertThat(pet.getType().getName()).isEqualTo("cat");
+        assertThat(pet.getOwner().getLastName()).isEqualTo("Zz-Fetchplan");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void petExistenceChecksDoNotLoadEntities() {
+        assertThat(petRepository.existsById(petId)).isTrue();
+        assertThat(petRepository.findExistingIds(List.of(petId, -1))).containsExactly(petId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerCreated;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.CustomerUpdated;
+import org.springframework.samples.petclinic.customers.PetAdded;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for the owners read-through cache and its event-driven eviction.
+ *
+ * @author PetClinic Team
+ */
+@SpringBootTest(classes = OwnerCacheTest.Config.class, properties = "spring.cache.type=caffeine")
+class OwnerCacheTest {
+
+    @Configuration
+    @EnableCaching
+    @ImportAutoConfiguration(CacheAutoConfiguration.class)
+    @Import({CustomerServiceImpl.class, OwnerCacheConfig.class, OwnerCacheInvalidator.class})
+    static class Config {
+    }
+
+    @MockBean
+    CustomerRepository customerRepository;
+
+    @MockBean
+    PetRepository petRepository;
+
+    @Autowired
+    CustomerService customerService;
+
+    @Autowired
+    ApplicationEventPublisher events;
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        given(customerRepository.findWithPetsById(1)).willReturn(Optional.of(customer(1)));
+
+        Optional<Customer> first = customerService.findById(1);
+        Optional<Customer> second = customerService.findById(1);
+
+        assertThat(second).isPresent().containsSame(first.orElseThrow());
+        verify(customerRepository, times(1)).findWithPetsById(1);
+    }
+
+    @Test
+    void shouldEvictOwnerOnUpdateAndPetChanges() {
+        given(customerRepository.findWithPetsById(2)).willReturn(Optional.of(customer(2)));
+        given(customerRepository.findWithPetsById(3)).willReturn(Optional.of(customer(3)));
+        customerService.findById(2);
+        customerService.findById(3);
+
+        events.publishEvent(new CustomerUpdated(2, "George Franklin"));
+        customerService.findById(2);
+        customerService.findById(3);
+
+        events.publishEvent(new PetAdded(10, 2, "Leo"));
+        customerService.findById(2);
+
+        verify(customerRepository, times(3)).findWithPetsById(2);
+        verify(customerRepository, times(1)).findWithPetsById(3);
+    }
+
+    @Test
+    void shouldForgetCachedMissOnceOwnerIsCreated() {
+        given(customerRepository.findWithPetsById(4)).willReturn(Optional.empty());
+        assertThat(customerService.findById(4)).isEmpty();
+        assertThat(customerService.findById(4)).isEmpty();
+
+        given(customerRepository.findWithPetsById(4)).willReturn(Optional.of(customer(4)));
+        events.publishEvent(new CustomerCreated(4, "George Franklin"));
+
+        assertThat(customerService.findById(4)).isPresent();
+        verify(customerRepository, times(2)).findWithPetsById(4);
+    }
+
+    private static Customer customer(int id) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFirstName("George");
+        customer.setLastName("Franklin");
+        return customer;
+    }
+}
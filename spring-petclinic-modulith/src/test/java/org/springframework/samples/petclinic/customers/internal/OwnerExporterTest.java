@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for OwnerExporter against the sample data.
+ *
+ * The exporter reads in its own stateless session, so the test runs outside a transaction.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(OwnerExporter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OwnerExporterTest {
+
+    @Autowired
+    OwnerExporter ownerExporter;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    PetTypeRepository petTypeRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldExportOwnersInIdOrderWithTheirPets() throws Exception {
+        List<OwnerExporter.ExportedOwner> owners = new ArrayList<>();
+
+        long count = ownerExporter.export(0, owners::add);
+
+        assertThat(count).isEqualTo(owners.size());
+        assertThat(owners).extracting(OwnerExporter.ExportedOwner::id).isSorted().startsWith(1, 2, 3);
+
+        OwnerExporter.ExportedOwner eduardo = owners.get(2);
+        assertThat(eduardo.lastName()).isEqualTo("Rodriquez");
+        assertThat(eduardo.pets()).containsExactly(
+            new OwnerExporter.ExportedPet(4, "Jewel", LocalDate.of(2010, 3, 7), "dog"),
+            new OwnerExporter.ExportedPet(3, "Rosy", LocalDate.of(2011, 4, 17), "dog"));
+    }
+
+    @Test
+    void shouldResumeAfterTheLastSeenOwner() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+
+        ownerExporter.export(8, owner -> ids.add(owner.id()));
+
+        assertThat(ids).startsWith(9, 10).allMatch(id -> id > 8);
+    }
+
+    @Test
+    void shouldExportEveryOwnerOnceAcrossFetches() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        // More owners than one fetch of the cursor, so the export spans several round trips
+        PetType cat = petTypeRepository.findAll().get(0);
+        List<Customer> added = new ArrayList<>();
+        for (int i = 0; i < OwnerExporter.FETCH_SIZE * 2 + 1; i++) {
+            Customer customer = new Customer();
+            customer.setFirstName("Export");
+            customer.setLastName("Owner" + i);
+            customer.setAddress("1 Export St.");
+            customer.setCity("Madison");
+            customer.setTelephone("6085550000");
+            Pet pet = new Pet();
+            pet.setName("Pet" + i);
+            pet.setType(cat);
+            customer.addPet(pet);
+            added.add(customer);
+        }
+        List<Integer> addedIds = tx.execute(status -> customerRepository.saveAll(added).stream().map(Customer::getId).toList());
+        int after = addedIds.get(0) - 1;
+
+        try {
+            List<OwnerExporter.ExportedOwner> owners = new ArrayList<>();
+            long count = ownerExporter.export(after, owners::add);
+
+            assertThat(count).isEqualTo(addedIds.size());
+            assertThat(owners).extracting(OwnerExporter.ExportedOwner::id).containsExactlyElementsOf(addedIds);
+            assertThat(owners).allSatisfy(owner -> assertThat(owner.pets()).hasSize(1));
+        } finally {
+            tx.executeWithoutResult(status -> customerRepository.deleteAllById(addedIds));
+        }
+    }
+}
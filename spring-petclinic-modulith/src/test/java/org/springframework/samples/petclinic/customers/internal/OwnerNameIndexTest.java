@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for OwnerNameIndex.
+ *
+ * @author PetClinic Team
+ */
+class OwnerNameIndexTest {
+
+    private OwnerNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new OwnerNameIndex();
+        index.put(1, "George Franklin");
+        index.put(2, "Betty Davis");
+        index.put(4, "Harold Davis");
+        index.put(6, "Jean Coleman");
+        index.put(7, "Jeff Black");
+    }
+
+    @Test
+    void shouldFindOwnersByNamePrefix() {
+        assertThat(ids(index.search("dav", 10, false))).containsExactlyInAnyOrder(2, 4);
+        assertThat(ids(index.search("je", 10, false))).containsExactlyInAnyOrder(6, 7);
+    }
+
+    @Test
+    void shouldRequireEveryQueryTokenToMatch() {
+        assertThat(ids(index.search("davis har", 10, false))).containsExactly(4);
+        assertThat(ids(index.search("davis george", 10, false))).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreCaseAndAccents() {
+        index.put(9, "Zoë Núñez");
+
+        assertThat(ids(index.search("NUNEZ", 10, false))).containsExactly(9);
+        assertThat(ids(index.search("zoe", 10, false))).containsExactly(9);
+    }
+
+    @Test
+    void shouldTolerateTyposWhenFuzzy() {
+        assertThat(ids(index.search("frenklin", 10, false))).isEmpty();
+        assertThat(ids(index.search("frenklin", 10, true))).containsExactly(1);
+        assertThat(ids(index.search("colman", 10, true))).containsExactly(6);
+    }
+
+    @Test
+    void shouldHonourLimit() {
+        assertThat(index.search("d", 1, false)).hasSize(1);
+    }
+
+    @Test
+    void shouldReplaceNameOnUpdate() {
+        index.put(2, "Betty Smith");
+
+        assertThat(ids(index.search("davis", 10, false))).containsExactly(4);
+        assertThat(index.search("smith", 10, false))
+            .containsExactly(new OwnerNameIndex.Match(2, "Betty Smith"));
+    }
+
+    @Test
+    void shouldForgetRemovedOwners() {
+        index.remove(1);
+
+        assertThat(index.search("franklin", 10, true)).isEmpty();
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldKeepServingTheCurrentIndexUntilTheRebuildFinishes() {
+        OwnerNameIndex.Rebuild rebuild = index.rebuild();
+        rebuild.load(1, "George Franklin");
+
+        assertThat(index.size()).isEqualTo(5);
+        rebuild.finish();
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("davis", 10, false)).isEmpty();
+    }
+
+    @Test
+    void shouldReplayChangesMadeDuringARebuild() {
+        OwnerNameIndex.Rebuild rebuild = index.rebuild();
+        // The rebuild read these rows before the changes below committed
+        rebuild.load(1, "George Franklin");
+        rebuild.load(2, "Betty Davis");
+        index.remove(1);
+        index.put(2, "Betty Smith");
+        index.put(8, "Maria Escobito");
+        rebuild.load(4, "Harold Davis");
+
+        assertThat(index.search("franklin", 10, false)).isEmpty();
+        rebuild.finish();
+
+        assertThat(index.search("franklin", 10, false)).isEmpty();
+        assertThat(ids(index.search("davis", 10, false))).containsExactly(4);
+        assertThat(ids(index.search("smith", 10, false))).containsExactly(2);
+        assertThat(ids(index.search("escobito", 10, false))).containsExactly(8);
+    }
+
+    @Test
+    void shouldIgnoreAnAbandonedRebuild() {
+        OwnerNameIndex.Rebuild abandoned = index.rebuild();
+        index.rebuild().finish();
+        index.put(1, "George Franklin");
+
+        abandoned.finish();
+
+        assertThat(ids(index.search("franklin", 10, false))).containsExactly(1);
+    }
+
+    private static List<Integer> ids(List<OwnerNameIndex.Match> matches) {
+        return matches.stream().map(OwnerNameIndex.Match::id).toList();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the owner version looked up in the database matches the version of the
+ * loaded owner, and that it changes with the owner and with its pets.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class OwnerVersionTest {
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    private PetType cat;
+    private Integer ownerId;
+
+    @BeforeEach
+    void setUp() {
+        cat = new PetType();
+        cat.setName("cat");
+        entityManager.persist(cat);
+
+        Customer owner = new Customer();
+        owner.setFirstName("Olivia");
+        owner.setLastName("Zz-Version");
+        owner.setAddress("1 Main St");
+        owner.setCity("Madison");
+        owner.setTelephone("6085550000");
+        entityManager.persist(owner);
+        addPet(owner, "Tom");
+        addPet(owner, "Leo");
+        ownerId = owner.getId();
+        flushAndClear();
+    }
+
+    @Test
+    void lookupMatchesLoadedOwner() {
+        OwnerVersion version = customerRepository.findVersionById(ownerId).orElseThrow();
+        Customer owner = customerRepository.findWithPetsById(ownerId).orElseThrow();
+
+        assertThat(version).isEqualTo(OwnerVersion.of(owner));
+        assertThat(version.version()).isZero();
+        assertThat(version.pets()).isEqualTo(2);
+    }
+
+    @Test
+    void lookupOfOwnerWithoutPets() {
+        Customer owner = customerRepository.findWithPetsById(ownerId).orElseThrow();
+        List.copyOf(owner.getPets()).forEach(pet -> {
+            owner.removePet(pet);
+            entityManager.remove(pet);
+        });
+        flushAndClear();
+
+        assertThat(customerRepository.findVersionById(ownerId))
+            .contains(new OwnerVersion(0, 0L, 0L, 0L));
+    }
+
+    @Test
+    void lookupOfMissingOwnerIsEmpty() {
+        assertThat(customerRepository.findVersionById(-1)).isEmpty();
+    }
+
+    @Test
+    void versionChangesWhenOwnerChanges() {
+        String before = tag();
+
+        customerRepository.findById(ownerId).orElseThrow().setCity("Monona");
+        flushAndClear();
+
+        assertThat(tag()).isNotEqualTo(before);
+        assertThat(customerRepository.findById(ownerId).orElseThrow().getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void versionChangesWhenPetChanges() {
+        String before = tag();
+
+        Customer owner = customerRepository.findWithPetsById(ownerId).orElseThrow();
+        owner.getPets().get(0).setName("Max");
+        flushAndClear();
+
+        assertThat(tag()).isNotEqualTo(before);
+    }
+
+    @Test
+    void versionChangesWhenPetIsReplaced() {
+        String before = tag();
+
+        Customer owner = customerRepository.findWithPetsById(ownerId).orElseThrow();
+        Pet leo = owner.getPets().get(0);
+        owner.removePet(leo);
+        entityManager.remove(leo);
+        addPet(owner, "Leo");
+        flushAndClear();
+
+        assertThat(tag()).isNotEqualTo(before);
+    }
+
+    private String tag() {
+        return customerRepository.findVersionById(ownerId).orElseThrow().tag();
+    }
+
+    private void addPet(Customer owner, String name) {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setType(cat);
+        owner.addPet(pet);
+        entityManager.persist(pet);
+    }
+
+    private void flushAndClear() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the l2cache profile: the owner-details lookup is answered from the second-level
+ * cache, and updates are visible through it.
+ *
+ * Cache entries are only shared once a transaction commits, so the test runs outside one.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@ActiveProfiles({"test", "l2cache"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void shouldConfigureEveryRegion() {
+        assertThat(statistics.getSecondLevelCacheRegionNames()).contains(
+            "owners", "owners-pets", "pets", "types", "vets", "vets-specialties", "specialties");
+    }
+
+    @Test
+    void shouldServeRepeatedOwnerDetailsWithoutStatements() {
+        customerRepository.findWithPetsById(1).orElseThrow();
+        statistics.clear();
+
+        Customer owner = customerRepository.findWithPetsById(1).orElseThrow();
+
+        assertThat(owner.getLastName()).isEqualTo("Franklin");
+        assertThat(owner.getPets()).extracting(pet -> pet.getType().getName()).containsExactly("cat");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void shouldServeRepeatedLookupByIdFromEntityRegion() {
+        customerRepository.findById(2).orElseThrow();
+        statistics.clear();
+
+        assertThat(customerRepository.findById(2).orElseThrow().getLastName()).isEqualTo("Davis");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics("owners").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSeeUpdatesThroughTheCache() {
+        Customer owner = new Customer();
+        owner.setFirstName("Olivia");
+        owner.setLastName("Zz-Cached");
+        owner.setAddress("1 Main St");
+        owner.setCity("Madison");
+        owner.setTelephone("6085550000");
+        Integer ownerId = customerRepository.save(owner).getId();
+        try {
+            customerRepository.findWithPetsById(ownerId).orElseThrow();
+
+            Customer changed = customerRepository.findById(ownerId).orElseThrow();
+            changed.setCity("Monona");
+            customerRepository.save(changed);
+
+            assertThat(customerRepository.findWithPetsById(ownerId).orElseThrow().getCity()).isEqualTo("Monona");
+            assertThat(customerRepository.findVersionById(ownerId).orElseThrow().version()).isEqualTo(1);
+        } finally {
+            customerRepository.deleteById(ownerId);
+        }
+    }
+}
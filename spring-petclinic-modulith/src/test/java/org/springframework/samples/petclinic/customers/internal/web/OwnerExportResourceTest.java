@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.samples.petclinic.customers.internal.OwnerExporter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for OwnerExportResource REST controller.
+ * 
+ * @author PetClinic Team
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(value = OwnerExportResource.class, properties = "petclinic.owners.export.timeout=5m")
+@ActiveProfiles("test")
+class OwnerExportResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    OwnerExporter ownerExporter;
+
+    @Test
+    void shouldStreamOwnersAsNdjson() throws Exception {
+        givenExportAfter(0);
+
+        MvcResult result = mvc.perform(get("/owners/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        String body = mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).containsExactly(
+            "{\"id\":1,\"firstName\":\"George\",\"lastName\":\"Franklin\",\"address\":\"110 W. Liberty St.\",\"city\":\"Madison\","
+                + "\"telephone\":\"6085551023\",\"pets\":[{\"id\":1,\"name\":\"Leo\",\"birthDate\":\"2010-09-07\",\"type\":\"cat\"}]}",
+            "{\"id\":2,\"firstName\":\"Betty\",\"lastName\":\"Davis\",\"address\":\"638 Cardinal Ave.\",\"city\":\"Sun Prairie\","
+                + "\"telephone\":\"6085551749\",\"pets\":[]}");
+    }
+
+    @Test
+    void shouldGzipWhenAsked() throws Exception {
+        givenExportAfter(1);
+
+        MvcResult result = mvc.perform(get("/owners/export").param("after", "1").param("gzip", "true"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        byte[] body = mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(gunzip(body)).startsWith("{\"id\":1,").endsWith("\"pets\":[]}\n");
+    }
+
+    @Test
+    void shouldRunWithTheExportTimeout() throws Exception {
+        givenExportAfter(0);
+
+        MvcResult result = mvc.perform(get("/owners/export"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofMinutes(5).toMillis());
+    }
+
+    private void givenExportAfter(int after) throws IOException {
+        given(ownerExporter.export(eq(after), any())).willAnswer(invocation -> {
+            OwnerExporter.OwnerSink sink = invocation.getArgument(1);
+            sink.accept(new OwnerExporter.ExportedOwner(1, "George", "Franklin", "110 W. Liberty St.", "Madison", "6085551023",
+                List.of(new OwnerExporter.ExportedPet(1, "Leo", LocalDate.of(2010, 9, 7), "cat"))));
+            sink.accept(new OwnerExporter.ExportedOwner(2, "Betty", "Davis", "638 Cardinal Ave.", "Sun Prairie", "6085551749",
+                List.of()));
+            return 2L;
+        });
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
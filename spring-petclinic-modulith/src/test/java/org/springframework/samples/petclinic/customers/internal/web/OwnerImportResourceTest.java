@@ -0,0 +1,202 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.customers.internal.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.internal.Pet;
+import org.springframework.samples.petclinic.customers.internal.PetType;
+import org.springframework.samples.petclinic.customers.internal.PetTypeRegistry;
+import org.springframework.samples.petclinic.shared.reference.ReferenceData;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for OwnerImportResource REST controller.
+ * 
+ * @author PetClinic Team
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(OwnerImportResource.class)
+@Import({OwnerImportParser.class, OwnerEntityMapper.class})
+@ActiveProfiles("test")
+class OwnerImportResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    PetTypeRegistry petTypeRegistry;
+
+    @Test
+    void shouldImportValidNdjsonRowsAndReportTheOthers() throws Exception {
+        givenPetTypes(petType(1, "cat"));
+
+        String body = """
+            {"firstName":"George","lastName":"Franklin","address":"110 W. Liberty St.","city":"Madison","telephone":"6085551023","pets":[{"name":"Leo","birthDate":"2010-09-07","typeId":1}]}
+            {"firstName":"Betty","lastName":"","address":"638 Cardinal Ave.","city":"Sun Prairie","telephone":"6085551749"}
+            {"firstName":"Eduardo",
+            {"firstName":"Jean","lastName":"Coleman","address":"105 N. Lake St.","city":"Monona","telephone":"6085552654","pets":[{"name":"Max","typeId":9}]}
+            {"firstName":"Harold","lastName":"Davis","address":"563 Friendly St.","city":"Windsor","telephone":"6085553198"}
+            """;
+
+        mvc.perform(post("/owners/import").contentType(MediaType.APPLICATION_NDJSON).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(2))
+            .andExpect(jsonPath("$.importedPets").value(1))
+            .andExpect(jsonPath("$.failed").value(3))
+            .andExpect(jsonPath("$.errors[0].line").value(2))
+            .andExpect(jsonPath("$.errors[0].message").value("lastName: must not be blank"))
+            .andExpect(jsonPath("$.errors[1].line").value(3))
+            .andExpect(jsonPath("$.errors[2].line").value(4))
+            .andExpect(jsonPath("$.errors[2].message").value("pets[0].typeId: unknown pet type 9"));
+
+        List<Customer> batch = captureBatch();
+        assertThat(batch).extracting(Customer::getLastName).containsExactly("Franklin", "Davis");
+        assertThat(batch.get(0).getPets()).extracting(Pet::getName).containsExactly("Leo");
+    }
+
+    @Test
+    void shouldImportCsvWithSeveralPetsPerOwner() throws Exception {
+        givenPetTypes(petType(1, "cat"), petType(2, "dog"));
+
+        String body = """
+            firstName,lastName,address,city,telephone,petName,petBirthDate,petTypeId
+            George,Franklin,"110 W. Liberty St., Apt 2",Madison,6085551023,Leo,2010-09-07,1
+            ,,,,,Rosy,2011-04-17,2
+            Betty,Davis,638 Cardinal Ave.,Sun Prairie,6085551749,Basil,yesterday,2
+            ,,,,,Jewel,2010-03-07,2
+            Jean,Coleman,105 N. Lake St.,Monona,6085552654,,,
+            """;
+
+        mvc.perform(post("/owners/import").contentType("text/csv").content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(2))
+            .andExpect(jsonPath("$.importedPets").value(2))
+            .andExpect(jsonPath("$.failed").value(2))
+            .andExpect(jsonPath("$.errors[0].line").value(4))
+            .andExpect(jsonPath("$.errors[1].line").value(5))
+            .andExpect(jsonPath("$.errors[1].message").value("owner on line 4 was rejected"));
+
+        List<Customer> batch = captureBatch();
+        assertThat(batch).extracting(Customer::getAddress).containsExactly("110 W. Liberty St., Apt 2", "105 N. Lake St.");
+        assertThat(batch.get(0).getPets()).extracting(Pet::getName).containsExactly("Leo", "Rosy");
+        assertThat(batch.get(1).getPets()).isEmpty();
+    }
+
+    @Test
+    void shouldReportEveryRowOfARejectedBatch() throws Exception {
+        givenPetTypes();
+        given(customerService.saveAll(anyList())).willThrow(new IllegalStateException("constraint violated"));
+
+        String body = """
+            firstName,lastName,address,city,telephone
+            George,Franklin,110 W. Liberty St.,Madison,6085551023
+            Betty,Davis,638 Cardinal Ave.,Sun Prairie,6085551749
+            """;
+
+        mvc.perform(post("/owners/import").contentType("text/csv").content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(0))
+            .andExpect(jsonPath("$.failed").value(2))
+            .andExpect(jsonPath("$.errors[0].line").value(2))
+            .andExpect(jsonPath("$.errors[0].message").value("batch rejected by the database"))
+            .andExpect(jsonPath("$.errors[1].line").value(3))
+            .andExpect(jsonPath("$.errors[1].message").value("batch rejected by the database"));
+    }
+
+    @Test
+    void shouldRejectOnlyTheRowsTheDatabaseRejects() throws Exception {
+        givenPetTypes();
+        given(customerService.saveAll(anyList())).willAnswer(invocation -> {
+            List<Customer> customers = invocation.getArgument(0);
+            if (customers.stream().anyMatch(customer -> customer.getCity().length() > 80)) {
+                throw new DataIntegrityViolationException("could not execute batch",
+                    new SQLException("data exception: string data, right truncation", "22001"));
+            }
+            return customers;
+        });
+
+        String body = """
+            firstName,lastName,address,city,telephone
+            George,Franklin,110 W. Liberty St.,Madison,6085551023
+            Betty,Davis,638 Cardinal Ave.,%s,6085551749
+            Jean,Coleman,105 N. Lake St.,Monona,6085552654
+            """.formatted("x".repeat(81));
+
+        mvc.perform(post("/owners/import").contentType("text/csv").content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(2))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.errors[0].line").value(3))
+            .andExpect(jsonPath("$.errors[0].message").value("rejected by the database: a value does not fit its column"));
+    }
+
+    @Test
+    void shouldRejectCsvWithoutOwnerColumns() throws Exception {
+        givenPetTypes();
+
+        mvc.perform(post("/owners/import").contentType("text/csv").content("firstName,lastName\nGeorge,Franklin\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.errors[0].message").value("missing column address"));
+
+        verify(customerService, never()).saveAll(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Customer> captureBatch() {
+        ArgumentCaptor<List<Customer>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(customerService).saveAll(batchCaptor.capture());
+        return batchCaptor.getValue();
+    }
+
+    private void givenPetTypes(PetType... petTypes) {
+        given(petTypeRegistry.snapshot()).willReturn(ReferenceData.of(List.of(petTypes), PetType::getId, new ObjectMapper()));
+    }
+
+    private static PetType petType(int id, String name) {
+        PetType petType = new PetType();
+        petType.setId(id);
+        petType.setName(name);
+        return petType;
+    }
+}
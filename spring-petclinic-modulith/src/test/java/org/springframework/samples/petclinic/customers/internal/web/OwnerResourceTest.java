@@ -22,20 +22,25 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerPage;
 import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.internal.OwnerNameIndex;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
@@ -63,6 +68,9 @@ class OwnerResourceTest {
     @MockBean
     OwnerEntityMapper ownerEntityMapper;
 
+    @MockBean
+    OwnerNameIndex ownerNameIndex;
+
     @Test
     void shouldGetAnOwnerInJsonFormat() throws Exception {
         Customer customer = new Customer();
@@ -86,6 +94,68 @@ class OwnerResourceTest {
             .andExpect(jsonPath("$.telephone").value("6085551023"));
     }
 
+    @Test
+    void shouldAnswerNotModifiedWithoutLoadingOwner() throws Exception {
+        given(customerService.findVersion(1)).willReturn(Optional.of("2.1.7.0"));
+
+        mvc.perform(get("/owners/1").header("If-None-Match", "\"2.1.7.0\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"2.1.7.0\""));
+
+        verify(customerService, never()).findById(any());
+    }
+
+    @Test
+    void shouldRejectUpdateOfChangedOwner() throws Exception {
+        given(customerService.findVersion(1)).willReturn(Optional.of("3.1.7.0"));
+
+        mvc.perform(put("/owners/1")
+                .header("If-Match", "\"2.1.7.0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\":\"John\",\"lastName\":\"Doe\"," +
+                        "\"address\":\"123 Main St.\",\"city\":\"Springfield\"," +
+                        "\"telephone\":\"5551234567\"}"))
+            .andExpect(status().isPreconditionFailed());
+
+        verify(customerService, never()).update(any(), any(), any());
+    }
+
+    @Test
+    void shouldGetAPageOfOwners() throws Exception {
+        Customer customer = new Customer();
+        customer.setId(2);
+        customer.setFirstName("Betty");
+        customer.setLastName("Davis");
+
+        given(customerService.findPage("abc", 1, true))
+            .willReturn(new CustomerPage(List.of(customer), "def", 6L));
+
+        mvc.perform(get("/owners").param("cursor", "abc").param("size", "1").param("includeTotal", "true")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.owners[0].id").value(2))
+            .andExpect(jsonPath("$.owners[0].lastName").value("Davis"))
+            .andExpect(jsonPath("$.nextCursor").value("def"))
+            .andExpect(jsonPath("$.totalCount").value(6));
+    }
+
+    @Test
+    void shouldRejectOversizedOwnerPage() throws Exception {
+        mvc.perform(get("/owners").param("size", "1000"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldSearchOwnersByName() throws Exception {
+        given(ownerNameIndex.search("fran", 5, true))
+            .willReturn(List.of(new OwnerNameIndex.Match(1, "George Franklin")));
+
+        mvc.perform(get("/owners/search").param("q", "fran").param("limit", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value(1))
+            .andExpect(jsonPath("$[0].name").value("George Franklin"));
+    }
+
     @Test
     void shouldCreateOwner() throws Exception {
         Customer customer = new Customer();
@@ -15,6 +15,7 @@
  */
 package org.springframework.samples.petclinic.customers.internal.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,11 +28,13 @@ import org.springframework.samples.petclinic.customers.internal.CustomerReposito
 import org.springframework.samples.petclinic.customers.internal.Pet;
 import org.springframework.samples.petclinic.customers.internal.PetRepository;
 import org.springframework.samples.petclinic.customers.internal.PetType;
-import org.springframework.samples.petclinic.customers.internal.PetTypeRepository;
+import org.springframework.samples.petclinic.customers.internal.PetTypeRegistry;
+import org.springframework.samples.petclinic.shared.reference.ReferenceData;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.BDDMockito.given;
@@ -62,7 +65,7 @@ class PetResourceTest {
     CustomerRepository customerRepository;
     
     @MockBean
-    PetTypeRepository petTypeRepository;
+    PetTypeRegistry petTypeRegistry;
     
     @MockBean
     ApplicationEventPublisher events;
@@ -71,7 +74,7 @@ class PetResourceTest {
     void shouldGetAPetInJsonFormat() throws Exception {
         Pet pet = setupPet();
 
-        given(petRepository.findById(2)).willReturn(Optional.of(pet));
+        given(petRepository.findWithTypeAndOwnerById(2)).willReturn(Optional.of(pet));
 
         mvc.perform(get("/owners/2/pets/2").accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
@@ -81,10 +84,29 @@ class PetResourceTest {
             .andExpect(jsonPath("$.type.id").value(6));
     }
 
+    @Test
+    void shouldServePetTypesWithETag() throws Exception {
+        PetType cat = new PetType();
+        cat.setId(1);
+        cat.setName("cat");
+        ReferenceData<PetType> petTypes = ReferenceData.of(List.of(cat), PetType::getId, new ObjectMapper());
+        given(petTypeRegistry.snapshot()).willReturn(petTypes);
+
+        mvc.perform(get("/petTypes").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/json"))
+            .andExpect(header().string("ETag", petTypes.etag()))
+            .andExpect(jsonPath("$[0].id").value(1))
+            .andExpect(jsonPath("$[0].name").value("cat"));
+
+        mvc.perform(get("/petTypes").header("If-None-Match", petTypes.etag()))
+            .andExpect(status().isNotModified());
+    }
+
     @Test
     void shouldDeletePet() throws Exception {
         Pet pet = setupPet();
-        given(petRepository.findById(2)).willReturn(Optional.of(pet));
+        given(petRepository.findWithTypeAndOwnerById(2)).willReturn(Optional.of(pet));
         doNothing().when(petRepository).deleteById(2);
 
         mvc.perform(delete("/owners/2/pets/2"))
@@ -96,7 +118,7 @@ class PetResourceTest {
     @Test
     void shouldReturn404WhenDeletingPetOfWrongOwner() throws Exception {
         Pet pet = setupPet();
-        given(petRepository.findById(2)).willReturn(Optional.of(pet));
+        given(petRepository.findWithTypeAndOwnerById(2)).willReturn(Optional.of(pet));
 
         // Try to delete pet with wrong owner ID
         mvc.perform(delete("/owners/999/pets/2"))
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.reference;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for ReferenceDataRegistry.
+ *
+ * @author PetClinic Team
+ */
+class ReferenceDataRegistryTest {
+
+    record Row(int id, String name) {
+    }
+
+    static class RowRegistry extends ReferenceDataRegistry<Row> {
+
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        RowRegistry() {
+            super("rows", new ObjectMapper());
+        }
+
+        @Override
+        protected List<Row> loadRows() {
+            loads.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(new Row(1, "cat"));
+        }
+
+        @Override
+        protected int idOf(Row row) {
+            return row.id();
+        }
+    }
+
+    @Test
+    void shouldLoadTheTableOnceForConcurrentFirstReads() throws Exception {
+        RowRegistry registry = new RowRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ReferenceData<Row>>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(executor.submit(registry::snapshot));
+            }
+            Thread.sleep(200);
+            registry.release.countDown();
+
+            ReferenceData<Row> first = reads.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<ReferenceData<Row>> read : reads) {
+                assertThat(read.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+            assertThat(registry.loads).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldReloadOnRefreshAndAfterInvalidate() {
+        RowRegistry registry = new RowRegistry();
+        registry.release.countDown();
+
+        ReferenceData<Row> loaded = registry.snapshot();
+        assertThat(registry.snapshot()).isSameAs(loaded);
+        assertThat(registry.refresh()).isNotSameAs(loaded);
+        assertThat(registry.loads).hasValue(2);
+
+        registry.invalidate();
+        assertThat(registry.find(1)).contains(new Row(1, "cat"));
+        assertThat(registry.loads).hasValue(3);
+    }
+}
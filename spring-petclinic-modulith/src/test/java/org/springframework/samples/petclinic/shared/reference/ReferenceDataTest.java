@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.reference;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for ReferenceData.
+ *
+ * @author PetClinic Team
+ */
+class ReferenceDataTest {
+
+    record Row(int id, String name) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldLookUpRowsById() {
+        ReferenceData<Row> data = ReferenceData.of(List.of(new Row(2, "dog"), new Row(5, "bird")), Row::id, objectMapper);
+
+        assertThat(data.find(2)).contains(new Row(2, "dog"));
+        assertThat(data.find(5)).contains(new Row(5, "bird"));
+        assertThat(data.find(3)).isEmpty();
+        assertThat(data.find(6)).isEmpty();
+        assertThat(data.find(-1)).isEmpty();
+        assertThat(data.find(null)).isEmpty();
+        assertThat(data.all()).extracting(Row::name).containsExactly("dog", "bird");
+    }
+
+    @Test
+    void shouldPreSerializeRowsWithContentETag() {
+        ReferenceData<Row> data = ReferenceData.of(List.of(new Row(1, "cat")), Row::id, objectMapper);
+        ReferenceData<Row> same = ReferenceData.of(List.of(new Row(1, "cat")), Row::id, objectMapper);
+        ReferenceData<Row> changed = ReferenceData.of(List.of(new Row(1, "kitten")), Row::id, objectMapper);
+
+        assertThat(new String(data.json(), StandardCharsets.UTF_8)).isEqualTo("[{\"id\":1,\"name\":\"cat\"}]");
+        assertThat(data.etag()).startsWith("\"").endsWith("\"").isEqualTo(same.etag()).isNotEqualTo(changed.etag());
+    }
+
+    @Test
+    void shouldPreCompressJsonWithItsOwnETag() throws Exception {
+        ReferenceData<Row> data = ReferenceData.of(List.of(new Row(1, "cat"), new Row(2, "dog")), Row::id, objectMapper);
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data.gzip()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(data.json());
+        }
+        assertThat(data.gzipEtag()).startsWith("\"").endsWith("\"").isNotEqualTo(data.etag());
+    }
+
+    @Test
+    void shouldHandleEmptyTable() {
+        ReferenceData<Row> data = ReferenceData.of(List.of(), Row::id, objectMapper);
+
+        assertThat(data.find(0)).isEmpty();
+        assertThat(data.all()).isEmpty();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.shared.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for BatchWriter.
+ *
+ * @author PetClinic Team
+ */
+class BatchWriterTest {
+
+    private final List<List<String>> attempts = new ArrayList<>();
+    private final Map<Long, String> outcomes = new TreeMap<>();
+
+    @Test
+    void storesFullBatchesAndTheRestOnFlush() {
+        BatchWriter<String, String> writer = writer(2, "never");
+        for (long key = 1; key <= 5; key++) {
+            writer.add(key, "item" + key);
+        }
+        assertThat(attempts).hasSize(2);
+
+        writer.flush();
+        writer.flush();
+
+        assertThat(attempts).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(outcomes).hasSize(5).containsEntry(5L, "stored ITEM5");
+    }
+
+    @Test
+    void rejectsOnlyTheItemsTheDatabaseRejects() {
+        BatchWriter<String, String> writer = writer(8, "bad");
+        for (long key = 1; key <= 8; key++) {
+            writer.add(key, key == 3 || key == 6 ? "bad" + key : "item" + key);
+        }
+
+        assertThat(outcomes).hasSize(8)
+            .containsEntry(3L, "rejected " + BatchWriter.CONSTRAINT_VIOLATED)
+            .containsEntry(6L, "rejected " + BatchWriter.CONSTRAINT_VIOLATED)
+            .containsEntry(7L, "stored ITEM7");
+        assertThat(outcomes.values()).filteredOn(outcome -> outcome.startsWith("stored")).hasSize(6);
+        // Only the halves holding a bad item are split again
+        assertThat(attempts).hasSizeLessThan(16);
+    }
+
+    @Test
+    void rejectsTheWholeBatchWhenTheFailureIsNotAboutItsData() {
+        BatchWriter<String, String> writer = new BatchWriter<>("Test", 10, items -> {
+            attempts.add(items);
+            throw new QueryTimeoutException("timed out");
+        }, recorder());
+        writer.add(1, "item1");
+        writer.add(2, "item2");
+        writer.flush();
+
+        assertThat(attempts).hasSize(1);
+        assertThat(outcomes).containsOnly(
+            Map.entry(1L, "rejected " + BatchWriter.BATCH_REJECTED),
+            Map.entry(2L, "rejected " + BatchWriter.BATCH_REJECTED));
+    }
+
+    @Test
+    void reportsTheCategoryOfADataFailure() {
+        assertThat(BatchWriter.reason(new DuplicateKeyException("duplicate")))
+            .isEqualTo(BatchWriter.DUPLICATE);
+        assertThat(BatchWriter.reason(new DataIntegrityViolationException("too long",
+            new SQLException("data exception: string data, right truncation", "22001"))))
+            .isEqualTo(BatchWriter.VALUE_TOO_LARGE);
+        assertThat(BatchWriter.reason(new DataIntegrityViolationException("foreign key",
+            new SQLException("integrity constraint violation: foreign key no parent", "23503"))))
+            .isEqualTo(BatchWriter.CONSTRAINT_VIOLATED);
+    }
+
+    private BatchWriter<String, String> writer(int batchSize, String badPrefix) {
+        return new BatchWriter<>("Test", batchSize, items -> {
+            attempts.add(List.copyOf(items));
+            if (items.stream().anyMatch(item -> item.startsWith(badPrefix))) {
+                throw new DataIntegrityViolationException("constraint violated");
+            }
+            return items.stream().map(String::toUpperCase).toList();
+        }, recorder());
+    }
+
+    private BatchWriter.Outcome<String, String> recorder() {
+        return new BatchWriter.Outcome<>() {
+
+            @Override
+            public void stored(long key, String item, String result) {
+                outcomes.put(key, "stored " + result);
+            }
+
+            @Override
+            public void rejected(long key, String item, String reason) {
+                outcomes.put(key, "rejected " + reason);
+            }
+        };
+    }
+}
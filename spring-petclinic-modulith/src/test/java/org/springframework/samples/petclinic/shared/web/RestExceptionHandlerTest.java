@@ -18,8 +18,11 @@ package org.springframework.samples.petclinic.shared.web;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.shared.exceptions.InvalidRequestException;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -36,6 +39,9 @@ import static org.mockito.Mockito.when;
  * - ResourceNotFoundException returns 404 with proper error response
  * - NoSuchElementException returns 404 with proper error response
  * - ResponseStatusException returns correct status code
+ * - InvalidRequestException returns 400, other IllegalArgumentExceptions return 500
+ * - OptimisticLockingFailureException returns 412 for If-Match requests, 409 otherwise
+ * - PessimisticLockingFailureException returns 503 with Retry-After
  * - Generic exceptions return 500
  *
  * @author PetClinic Team
@@ -118,6 +124,76 @@ class RestExceptionHandlerTest {
         assertThat(response.getBody().timestamp()).isNotNull();
     }
 
+    @Test
+    void shouldHandle400WhenInvalidRequest() {
+        // Given
+        InvalidRequestException ex = new InvalidRequestException("Invalid owner cursor: abc");
+
+        // When
+        ErrorResponse response = handler.handleInvalidRequest(ex, request);
+
+        // Then
+        assertThat(response.status()).isEqualTo(400);
+        assertThat(response.error()).isEqualTo("Bad Request");
+        assertThat(response.message()).isEqualTo("Invalid owner cursor: abc");
+        assertThat(response.path()).isEqualTo("/test/endpoint");
+    }
+
+    @Test
+    void shouldHandle500WithoutDetailsWhenIllegalArgumentComesFromTheServer() {
+        // Given: e.g. thrown inside Hibernate, with internal details in the message
+        IllegalArgumentException ex = new IllegalArgumentException("Unknown entity: org.example.Internal");
+
+        // When
+        ErrorResponse response = handler.handleGenericException(ex, request);
+
+        // Then
+        assertThat(response.status()).isEqualTo(500);
+        assertThat(response.message()).doesNotContain("org.example");
+    }
+
+    @Test
+    void shouldHandle412WhenConditionalUpdateLosesRace() {
+        // Given
+        when(request.getHeader("If-Match")).thenReturn("\"3\"");
+        OptimisticLockingFailureException ex = new OptimisticLockingFailureException("stale");
+
+        // When
+        ResponseEntity<ErrorResponse> response = handler.handleOptimisticLockingFailure(ex, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(response.getBody().status()).isEqualTo(412);
+    }
+
+    @Test
+    void shouldHandle409WhenUnconditionalUpdateLosesRace() {
+        // Given
+        OptimisticLockingFailureException ex = new OptimisticLockingFailureException("stale");
+
+        // When
+        ResponseEntity<ErrorResponse> response = handler.handleOptimisticLockingFailure(ex, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody().status()).isEqualTo(409);
+    }
+
+    @Test
+    void shouldHandle503WhenLockWaitTimesOut() {
+        // Given
+        CannotAcquireLockException ex = new CannotAcquireLockException("Timed out after 2000 ms waiting for other bookings of the vet");
+
+        // When
+        ResponseEntity<ErrorResponse> response = handler.handlePessimisticLockingFailure(ex, request);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("1");
+        assertThat(response.getBody().status()).isEqualTo(503);
+        assertThat(response.getBody().message()).doesNotContain("2000");
+    }
+
     @Test
     void shouldHandle500WhenGenericException() {
         // Given
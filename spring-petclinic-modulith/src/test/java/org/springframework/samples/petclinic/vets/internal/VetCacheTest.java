@@ -0,0 +1,154 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.vets.SpecialtyAdded;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetCreated;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.vets.VetUpdated;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for the vet read-through caches and their event-driven eviction.
+ *
+ * @author PetClinic Team
+ */
+@SpringBootTest(classes = VetCacheTest.Config.class, properties = "spring.cache.type=caffeine")
+class VetCacheTest {
+
+    @Configuration
+    @EnableCaching
+    @ImportAutoConfiguration(CacheAutoConfiguration.class)
+    @Import({VetServiceImpl.class, VetSpecialtyIndex.class, VetCacheConfig.class, VetCacheInvalidator.class})
+    static class Config {
+    }
+
+    @MockBean
+    VetRepository vetRepository;
+
+    @Autowired
+    VetService vetService;
+
+    @Autowired
+    ApplicationEventPublisher events;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @BeforeEach
+    void clearCaches() {
+        // The vet list is cached under a single key, shared by all tests
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromCache() {
+        given(vetRepository.findAll()).willReturn(List.of(vet(1)));
+        given(vetRepository.findById(1)).willReturn(Optional.of(vet(1)));
+
+        List<Vet> first = vetService.findAll();
+        assertThat(vetService.findAll()).isSameAs(first);
+        vetService.findById(1);
+        vetService.findById(1);
+
+        verify(vetRepository, times(1)).findAll();
+        verify(vetRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void shouldEvictOnVetAndSpecialtyChanges() {
+        given(vetRepository.findAll()).willReturn(List.of(vet(2), vet(3)));
+        given(vetRepository.findById(any())).willAnswer(invocation -> Optional.of(vet(invocation.getArgument(0))));
+        vetService.findAll();
+        vetService.findById(2);
+        vetService.findById(3);
+
+        events.publishEvent(new VetUpdated(2, "Helen Leary"));
+        vetService.findAll();
+        vetService.findById(2);
+        vetService.findById(3);
+
+        events.publishEvent(new SpecialtyAdded(2, "surgery"));
+        vetService.findAll();
+        vetService.findById(2);
+
+        verify(vetRepository, times(3)).findAll();
+        verify(vetRepository, times(3)).findById(2);
+        verify(vetRepository, times(1)).findById(3);
+    }
+
+    @Test
+    void shouldEvictOnChangesMadeThroughTheService() {
+        given(vetRepository.findAll()).willReturn(List.of(vet(4)));
+        given(vetRepository.findById(4)).willReturn(Optional.of(vet(4)));
+        given(vetRepository.save(any(Vet.class))).willAnswer(invocation -> invocation.getArgument(0));
+        vetService.findAll();
+        vetService.findById(4);
+
+        vetService.update(4, vet(4));
+        vetService.findAll();
+        vetService.findById(4);
+
+        vetService.deleteById(4);
+        vetService.findAll();
+
+        // update and delete load the vet from the repository as well
+        verify(vetRepository, times(3)).findAll();
+        verify(vetRepository, times(4)).findById(4);
+    }
+
+    @Test
+    void shouldForgetCachedMissOnceVetIsCreated() {
+        given(vetRepository.findById(5)).willReturn(Optional.empty());
+        assertThat(vetService.findById(5)).isEmpty();
+        assertThat(vetService.findById(5)).isEmpty();
+
+        given(vetRepository.findById(5)).willReturn(Optional.of(vet(5)));
+        events.publishEvent(new VetCreated(5, "Helen Leary"));
+
+        assertThat(vetService.findById(5)).isPresent();
+        verify(vetRepository, times(2)).findById(5);
+    }
+
+    private static Vet vet(int id) {
+        Vet vet = new Vet();
+        vet.setId(id);
+        vet.setFirstName("Helen");
+        vet.setLastName("Leary");
+        return vet;
+    }
+}
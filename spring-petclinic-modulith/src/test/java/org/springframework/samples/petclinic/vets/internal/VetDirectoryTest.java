@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.shared.reference.ReferenceData;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetUpdated;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the pre-serialized vet directory holds all vets and follows committed vet changes.
+ *
+ * Runs without a test transaction, as the directory reads vets in transactions of its own.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import(VetDirectory.class)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VetDirectoryTest {
+
+    @Autowired
+    VetDirectory vetDirectory;
+
+    @Autowired
+    VetRepository vetRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rename(1, "Carter");
+    }
+
+    @Test
+    void servesAllVetsWithTheirSpecialties() {
+        ReferenceData<Vet> vets = vetDirectory.snapshot();
+
+        assertThat(vets.all()).hasSizeGreaterThanOrEqualTo(6);
+        assertThat(vets.find(3)).hasValueSatisfying(vet ->
+            assertThat(vet.getSpecialties()).extracting(Specialty::getName).containsExactly("dentistry", "surgery"));
+        assertThat(new String(vets.json(), StandardCharsets.UTF_8)).contains("\"lastName\":\"Douglas\"");
+    }
+
+    @Test
+    void followsCommittedVetChanges() {
+        ReferenceData<Vet> before = vetDirectory.snapshot();
+
+        rename(1, "Zz-Directory");
+        vetDirectory.on(new VetUpdated(1, "James Zz-Directory"));
+
+        ReferenceData<Vet> after = vetDirectory.snapshot();
+        assertThat(after.find(1)).hasValueSatisfying(vet -> assertThat(vet.getLastName()).isEqualTo("Zz-Directory"));
+        assertThat(after.etag()).isNotEqualTo(before.etag());
+    }
+
+    @Test
+    void keepsItsETagAcrossRebuildsOfUnchangedData() {
+        ReferenceData<Vet> first = vetDirectory.refresh();
+        ReferenceData<Vet> second = vetDirectory.refresh();
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.etag()).isEqualTo(first.etag());
+        assertThat(second.json()).isEqualTo(first.json());
+    }
+
+    @Test
+    void keepsServingTheSameSnapshotWhileNothingChanges() {
+        assertThat(vetDirectory.snapshot()).isSameAs(vetDirectory.snapshot());
+    }
+
+    private void rename(int vetId, String lastName) {
+        transactionTemplate.executeWithoutResult(status ->
+            vetRepository.findById(vetId).orElseThrow().setLastName(lastName));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that vets are loaded with their specialties in a fixed number of SQL statements,
+ * independent of the number of vets.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class VetFetchPlanTest {
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    VetRepository vetRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Specialty surgery = new Specialty();
+        surgery.setName("zz-surgery");
+        entityManager.persist(surgery);
+        for (int i = 0; i < 5; i++) {
+            Vet vet = new Vet();
+            vet.setFirstName("Vet" + i);
+            vet.setLastName("Zz-Fetchplan");
+            vet.addSpecialty(surgery);
+            entityManager.persist(vet);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllLoadsSpecialtiesInOneStatement() {
+        List<Vet> vets = vetRepository.findAll();
+
+        assertThat(vets).hasSizeGreaterThanOrEqualTo(5).doesNotHaveDuplicates();
+        vets.forEach(vet -> vet.getSpecialties().size());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByIdLoadsSpecialtiesInOneStatement() {
+        Integer id = vetRepository.findAll().get(0).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        Vet vet = vetRepository.findById(id).orElseThrow();
+
+        vet.getSpecialties().size();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void otherQueriesLoadSpecialtiesInBatches() {
+        List<Vet> vets = entityManager.createQuery("SELECT v FROM Vet v", Vet.class).getResultList();
+
+        vets.forEach(vet -> vet.getSpecialties().size());
+        assertThat(vets).hasSizeGreaterThanOrEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void vetExistenceChecksDoNotLoadEntities() {
+        assertThat(vetRepository.existsById(1)).isTrue();
+        assertThat(vetRepository.findExistingIds(List.of(1, 2, -1))).containsExactlyInAnyOrder(1, 2);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+}
@@ -31,11 +31,13 @@ import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundE
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -58,7 +60,7 @@ class VetServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        vetService = new VetServiceImpl(vetRepository, events);
+        vetService = new VetServiceImpl(vetRepository, new VetSpecialtyIndex(), events);
     }
 
     @Test
@@ -194,6 +196,28 @@ class VetServiceImplTest {
             .hasMessageContaining("999");
     }
 
+    @Test
+    void shouldCheckVetExistenceWithoutLoadingVet() {
+        // Given
+        given(vetRepository.existsById(1)).willReturn(true);
+
+        // When/Then
+        assertThat(vetService.exists(1)).isTrue();
+        assertThat(vetService.exists(999)).isFalse();
+        verify(vetRepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldReturnOnlyExistingVetIds() {
+        // Given
+        given(vetRepository.findExistingIds(List.of(1, 2, 999))).willReturn(Set.of(1, 2));
+
+        // When/Then
+        assertThat(vetService.existingIds(List.of(1, 2, 999))).containsExactlyInAnyOrder(1, 2);
+        assertThat(vetService.existingIds(List.of())).isEmpty();
+        verify(vetRepository, never()).findExistingIds(List.of());
+    }
+
     private Vet createVet(Integer id, String firstName, String lastName) {
         Vet vet = new Vet();
         vet.setId(id);
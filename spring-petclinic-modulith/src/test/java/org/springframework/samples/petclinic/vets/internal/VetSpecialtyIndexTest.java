@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.internal;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the in-memory specialty index against the equivalent SQL joins over the sample data.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class VetSpecialtyIndexTest {
+
+    private static final List<String> SPECIALTIES = List.of("radiology", "surgery", "dentistry");
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    VetRepository vetRepository;
+
+    private VetSpecialtyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new VetSpecialtyIndex();
+        index.replaceAll(vetRepository.findAll().stream().collect(Collectors.toMap(Vet::getId,
+            vet -> vet.getSpecialties().stream().map(Specialty::getName).toList())));
+    }
+
+    @Test
+    void matchAllAgreesWithSqlForEverySpecialtyCombination() {
+        for (List<String> specialties : combinations()) {
+            List<Integer> expected = entityManager.createQuery("""
+                    SELECT v.id FROM Vet v JOIN v.specialties s
+                    WHERE lower(s.name) IN :names
+                    GROUP BY v.id HAVING count(DISTINCT s.id) = :count
+                    ORDER BY v.id""", Integer.class)
+                .setParameter("names", specialties)
+                .setParameter("count", (long) specialties.size())
+                .getResultList();
+
+            assertThat(ids(index.all(specialties))).as("all of %s", specialties).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void matchAnyAgreesWithSqlForEverySpecialtyCombination() {
+        for (List<String> specialties : combinations()) {
+            List<Integer> expected = entityManager.createQuery("""
+                    SELECT DISTINCT v.id FROM Vet v JOIN v.specialties s
+                    WHERE lower(s.name) IN :names
+                    ORDER BY v.id""", Integer.class)
+                .setParameter("names", specialties)
+                .getResultList();
+
+            assertThat(ids(index.any(specialties))).as("any of %s", specialties).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void specialtyNamesAreMatchedIgnoringCaseAndSurroundingBlanks() {
+        assertThat(index.any(List.of(" Surgery "))).isEqualTo(index.any(List.of("surgery")));
+    }
+
+    @Test
+    void unknownSpecialtyMatchesNoVetInAllMode() {
+        assertThat(index.all(List.of("surgery", "acupuncture")).isEmpty()).isTrue();
+        assertThat(index.any(List.of("surgery", "acupuncture"))).isEqualTo(index.any(List.of("surgery")));
+    }
+
+    @Test
+    void putReplacesAndRemoveDropsTheVetsSpecialties() {
+        index.put(3, List.of("radiology"));
+
+        assertThat(index.any(List.of("radiology")).get(3)).isTrue();
+        assertThat(index.any(List.of("surgery", "dentistry")).get(3)).isFalse();
+
+        index.remove(3);
+
+        assertThat(index.any(SPECIALTIES).get(3)).isFalse();
+    }
+
+    private static List<Integer> ids(BitSet vets) {
+        return vets.stream().boxed().toList();
+    }
+
+    private static List<List<String>> combinations() {
+        List<List<String>> combinations = new ArrayList<>();
+        for (int mask = 1; mask < 1 << SPECIALTIES.size(); mask++) {
+            List<String> combination = new ArrayList<>();
+            for (int i = 0; i < SPECIALTIES.size(); i++) {
+                if ((mask & 1 << i) != 0) {
+                    combination.add(SPECIALTIES.get(i));
+                }
+            }
+            combinations.add(combination);
+        }
+        return combinations;
+    }
+}
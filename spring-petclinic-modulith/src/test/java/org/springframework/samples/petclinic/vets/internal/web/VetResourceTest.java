@@ -21,8 +21,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.shared.reference.ReferenceData;
 import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetPage;
 import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.vets.internal.SpecialtyRegistry;
+import org.springframework.samples.petclinic.vets.internal.VetDirectory;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
@@ -33,16 +37,20 @@ import java.util.Optional;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -68,6 +76,12 @@ class VetResourceTest {
     @MockBean
     VetService vetService;
 
+    @MockBean
+    VetDirectory vetDirectory;
+
+    @MockBean
+    SpecialtyRegistry specialtyRegistry;
+
     @Test
     void shouldGetAllVetsInJsonFormat() throws Exception {
         // Given
@@ -82,7 +96,7 @@ class VetResourceTest {
         vet2.setLastName("Leary");
 
         List<Vet> vets = Arrays.asList(vet1, vet2);
-        given(vetService.findAll()).willReturn(vets);
+        given(vetDirectory.snapshot()).willReturn(ReferenceData.of(vets, Vet::getId, objectMapper));
 
         // When & Then
         mvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
@@ -127,6 +141,34 @@ class VetResourceTest {
             .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldSearchVetsBySpecialty() throws Exception {
+        // Given
+        Vet vet = new Vet();
+        vet.setId(3);
+        vet.setFirstName("Linda");
+        vet.setLastName("Douglas");
+
+        given(vetService.search(List.of("surgery", "dentistry"), false, 1, 1))
+            .willReturn(new VetPage(List.of(vet), 1, 1, 3));
+
+        // When & Then
+        mvc.perform(get("/vets/search?specialty=surgery&specialty=dentistry&mode=any&page=1&size=1")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.vets[0].id").value(3))
+            .andExpect(jsonPath("$.page").value(1))
+            .andExpect(jsonPath("$.totalCount").value(3));
+    }
+
+    @Test
+    void shouldRejectUnknownSearchMode() throws Exception {
+        mvc.perform(get("/vets/search?specialty=surgery&mode=some").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+
+        verify(vetService, never()).search(any(), eq(true), eq(0), eq(20));
+    }
+
     @Test
     void shouldCreateNewVet() throws Exception {
         // Given
@@ -165,7 +207,7 @@ class VetResourceTest {
         returnedVet.setFirstName("James");
         returnedVet.setLastName("Smith");
 
-        given(vetService.update(eq(1), any(Vet.class))).willReturn(returnedVet);
+        given(vetService.update(eq(1), any(Vet.class), isNull())).willReturn(returnedVet);
 
         // When & Then
         mvc.perform(put("/vets/1")
@@ -173,7 +215,96 @@ class VetResourceTest {
                 .content(objectMapper.writeValueAsString(updatedVet)))
             .andExpect(status().isNoContent());
 
-        verify(vetService).update(eq(1), any(Vet.class));
+        verify(vetService).update(eq(1), any(Vet.class), isNull());
+    }
+
+    @Test
+    void shouldUpdateVetAtTheVersionTheClientRead() throws Exception {
+        Vet updatedVet = new Vet();
+        updatedVet.setFirstName("James");
+        updatedVet.setLastName("Smith");
+
+        given(vetService.findVersion(1)).willReturn(Optional.of(3));
+
+        mvc.perform(put("/vets/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedVet)))
+            .andExpect(status().isNoContent());
+
+        verify(vetService).update(eq(1), any(Vet.class), eq(3));
+    }
+
+    @Test
+    void shouldRejectUpdateOfChangedVet() throws Exception {
+        Vet updatedVet = new Vet();
+        updatedVet.setFirstName("James");
+        updatedVet.setLastName("Smith");
+
+        given(vetService.findVersion(1)).willReturn(Optional.of(4));
+
+        mvc.perform(put("/vets/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedVet)))
+            .andExpect(status().isPreconditionFailed());
+
+        verify(vetService, never()).update(any(), any(), any());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutLoadingVet() throws Exception {
+        given(vetService.findVersion(1)).willReturn(Optional.of(3));
+
+        mvc.perform(get("/vets/1").header("If-None-Match", "\"3\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"3\""));
+
+        verify(vetService, never()).findById(any());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForUnchangedVetList() throws Exception {
+        Vet vet = new Vet();
+        vet.setId(1);
+        vet.setFirstName("James");
+        vet.setLastName("Carter");
+        ReferenceData<Vet> vets = ReferenceData.of(List.of(vet), Vet::getId, objectMapper);
+        given(vetDirectory.snapshot()).willReturn(vets);
+
+        mvc.perform(get("/vets"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", vets.etag()));
+
+        mvc.perform(get("/vets").header("If-None-Match", vets.etag()))
+            .andExpect(status().isNotModified());
+
+        verify(vetService, never()).findAll();
+    }
+
+    @Test
+    void shouldServePreCompressedVetListToGzipClients() throws Exception {
+        Vet vet = new Vet();
+        vet.setId(1);
+        vet.setFirstName("James");
+        vet.setLastName("Carter");
+        ReferenceData<Vet> vets = ReferenceData.of(List.of(vet), Vet::getId, objectMapper);
+        given(vetDirectory.snapshot()).willReturn(vets);
+
+        mvc.perform(get("/vets").header("Accept-Encoding", "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+            .andExpect(header().string("ETag", vets.gzipEtag()))
+            .andExpect(content().bytes(vets.gzip()));
+
+        mvc.perform(get("/vets").header("Accept-Encoding", "gzip;q=0"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("Content-Encoding"))
+            .andExpect(content().bytes(vets.json()));
+
+        mvc.perform(get("/vets").header("Accept-Encoding", "gzip").header("If-None-Match", vets.gzipEtag()))
+            .andExpect(status().isNotModified());
     }
 
     @Test
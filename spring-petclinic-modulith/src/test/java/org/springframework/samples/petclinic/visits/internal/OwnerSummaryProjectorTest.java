@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerPage;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.internal.Pet;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitCompleted;
+import org.springframework.samples.petclinic.visits.VisitCreated;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitsScheduled;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Verifies that the owner summary read model is projected from the owners and their visits,
+ * follows visit events through the pet to owner routing, and can be rebuilt.
+ *
+ * Runs without a test transaction, as projections run in transactions of their own and the
+ * rebuild projects pages on other threads.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@Import(OwnerSummaryProjector.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "petclinic.owner-summaries.rebuild-on-startup=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OwnerSummaryProjectorTest {
+
+    @Autowired
+    OwnerSummaryProjector projector;
+
+    @Autowired
+    OwnerSummaryRepository summaryRepository;
+
+    @Autowired
+    OwnerSummaryPetRepository petRepository;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @MockBean
+    CustomerService customerService;
+
+    private final List<Visit> visits = new ArrayList<>();
+    private Customer owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = createOwner(6, "Zz-Summary", 7, 8);
+        given(customerService.findAllById(List.of(6))).willReturn(List.of(owner));
+
+        visits.add(visitRepository.save(createVisit(7, "2024-01-10", VisitStatus.COMPLETED)));
+        visits.add(visitRepository.save(createVisit(7, "2024-03-01", VisitStatus.SCHEDULED)));
+        visits.add(visitRepository.save(createVisit(8, "2024-02-01", VisitStatus.SCHEDULED)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        visitRepository.deleteAll(visits);
+        summaryRepository.deleteAll();
+        petRepository.deleteAll();
+    }
+
+    @Test
+    void projectsOwnerWithVisitTotals() {
+        projector.refresh(List.of(6));
+
+        OwnerSummary summary = summaryRepository.findById(6).orElseThrow();
+        assertThat(summary.getLastName()).isEqualTo("Zz-Summary");
+        assertThat(summary.getPetCount()).isEqualTo(2);
+        assertThat(summary.getLastVisitDate()).hasSameTimeAs(date("2024-03-01"));
+        assertThat(summary.getOpenVisitCount()).isEqualTo(2);
+        assertThat(petRepository.findById(8)).get().extracting(OwnerSummaryPet::getOwnerId).isEqualTo(6);
+    }
+
+    @Test
+    void followsVisitEventsThroughThePet() {
+        projector.refresh(List.of(6));
+
+        Visit visit = visits.get(1);
+        visit.setStatus(VisitStatus.COMPLETED);
+        visitRepository.save(visit);
+        projector.on(new VisitCompleted(visit.getId(), visit.getPetId(), visit.getVetId()));
+
+        assertThat(summaryRepository.findById(6)).get()
+            .extracting(OwnerSummary::getOpenVisitCount).isEqualTo(1);
+    }
+
+    @Test
+    void followsBulkScheduledVisitsThroughThePets() {
+        projector.refresh(List.of(6));
+
+        Visit visit = visitRepository.save(createVisit(8, "2024-04-01", VisitStatus.SCHEDULED));
+        visits.add(visit);
+        projector.on(new VisitsScheduled(List.of(new VisitCreated(visit.getId(), visit.getPetId(), visit.getVetId()))));
+
+        assertThat(summaryRepository.findById(6)).get()
+            .extracting(OwnerSummary::getOpenVisitCount).isEqualTo(3);
+    }
+
+    @Test
+    void removesDeletedOwners() {
+        projector.refresh(List.of(6));
+        given(customerService.findAllById(List.of(6))).willReturn(List.of());
+
+        projector.refresh(List.of(6));
+
+        assertThat(summaryRepository.findById(6)).isEmpty();
+        assertThat(petRepository.findById(7)).isEmpty();
+    }
+
+    @Test
+    void rebuildReplaysAllOwnersAndDropsStaleSummaries() {
+        Customer other = createOwner(7, "Zz-Other", 9);
+        given(customerService.findPage(isNull(), anyInt(), eq(false)))
+            .willReturn(new CustomerPage(List.of(owner), "next", null));
+        given(customerService.findPage(eq("next"), anyInt(), eq(false)))
+            .willReturn(new CustomerPage(List.of(other), null, null));
+        given(customerService.findAllById(List.of(7))).willReturn(List.of(other));
+        given(customerService.findAllById(List.of(8))).willReturn(List.of(createOwner(8, "Zz-Gone", 10)));
+        projector.refresh(List.of(8));
+
+        int projected = projector.rebuild();
+
+        assertThat(projected).isEqualTo(2);
+        assertThat(summaryRepository.findAll()).extracting(OwnerSummary::getOwnerId)
+            .containsExactlyInAnyOrder(6, 7);
+        assertThat(petRepository.findAll()).extracting(OwnerSummaryPet::getId)
+            .containsExactlyInAnyOrder(7, 8, 9);
+        assertThat(summaryRepository.findById(7)).get().extracting(OwnerSummary::getLastVisitDate).isNull();
+    }
+
+    @Test
+    void serializesConcurrentProjectionsOfTheSameOwner() throws Exception {
+        int projections = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(projections);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < projections; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    projector.refresh(List.of(6));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(summaryRepository.findAll()).singleElement().satisfies(summary -> {
+            assertThat(summary.getOwnerId()).isEqualTo(6);
+            assertThat(summary.getOpenVisitCount()).isEqualTo(2);
+        });
+        assertThat(petRepository.findAll()).extracting(OwnerSummaryPet::getId).containsExactlyInAnyOrder(7, 8);
+    }
+
+    private Customer createOwner(Integer id, String lastName, Integer... petIds) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setFirstName("Olivia");
+        customer.setLastName(lastName);
+        customer.setCity("Madison");
+        for (Integer petId : petIds) {
+            Pet pet = new Pet();
+            pet.setId(petId);
+            pet.setName("Pet " + petId);
+            customer.addPet(pet);
+        }
+        return customer;
+    }
+
+    private Visit createVisit(Integer petId, String visitDate, VisitStatus status) {
+        Visit visit = new Visit(petId, 1);
+        visit.setVisitDate(date(visitDate));
+        visit.setDescription("checkup");
+        visit.setStatus(status);
+        return visit;
+    }
+
+    private static Date date(String date) {
+        return Date.from(LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitFilter;
+import org.springframework.samples.petclinic.visits.VisitPage;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStats;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitSummary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Verifies that old completed and cancelled visits move to the archive in chunks, that cancelled
+ * ones are purged past retention, and that history queries still find archived visits.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@Import({VisitArchiver.class, VisitServiceImpl.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = "petclinic.visits.archive.chunk-size=2")
+class VisitArchiverTest {
+
+    private static final Date CUTOFF = date("2002-01-01T00:00:00Z");
+
+    @Autowired
+    VisitArchiver visitArchiver;
+
+    @Autowired
+    VisitService visitService;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    ArchivedVisitRepository archivedVisitRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @MockBean
+    VisitScheduler visitScheduler;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    VetService vetService;
+
+    private Integer completed;
+    private Integer cancelled;
+    private Integer stale;
+    private Integer recent;
+
+    @BeforeEach
+    void setUp() {
+        // Pet 1 saw vet 4 in 2001, a visit of which was never closed, and is booked again in 2031
+        completed = save("2001-03-01T10:00:00Z", VisitStatus.COMPLETED);
+        cancelled = save("2001-06-01T10:00:00Z", VisitStatus.CANCELLED);
+        stale = save("2001-09-01T10:00:00Z", VisitStatus.SCHEDULED);
+        recent = save("2031-01-01T10:00:00Z", VisitStatus.COMPLETED);
+    }
+
+    @Test
+    void movesOnlyOldCompletedAndCancelledVisits() {
+        for (int month = 1; month <= 3; month++) {
+            save(String.format("2000-%02d-01T10:00:00Z", month), VisitStatus.COMPLETED);
+        }
+
+        int archived = archive();
+
+        // Five visits in chunks of two, the last chunk tells the job it is done
+        assertThat(archived).isEqualTo(5);
+        assertThat(visitRepository.findAllById(List.of(completed, cancelled, stale, recent)))
+            .extracting(Visit::getId).containsExactlyInAnyOrder(stale, recent);
+        ArchivedVisit archivedVisit = archivedVisitRepository.findById(completed).orElseThrow();
+        assertThat(archivedVisit.getArchivedAt()).isNotNull();
+        assertThat(archivedVisit.toVisit().getEndDate()).isEqualTo(date("2001-03-01T10:30:00Z"));
+    }
+
+    @Test
+    void servesArchivedVisitsAsHistory() {
+        archive();
+
+        assertThat(visitService.findById(cancelled)).get()
+            .extracting(Visit::getStatus).isEqualTo(VisitStatus.CANCELLED);
+        assertThat(visitService.findAllById(List.of(completed, recent)))
+            .extracting(Visit::getId).containsExactlyInAnyOrder(completed, recent);
+        assertThat(visitService.findByPetId(1))
+            .extracting(Visit::getId).containsExactlyInAnyOrder(completed, cancelled, stale, recent);
+    }
+
+    @Test
+    void mergesArchivedVisitsIntoPages() {
+        archive();
+
+        VisitPage first = visitService.findPageByPetId(1, VisitFilter.all(), null, 2);
+        VisitPage second = visitService.findPageByPetId(1, VisitFilter.all(), first.nextCursor(), 2);
+        VisitPage newest = visitService.findPageByVetId(4, new VisitFilter(null, CUTOFF, null, true), null, 10);
+
+        assertThat(first.visits()).extracting(VisitSummary::id).containsExactly(completed, cancelled);
+        assertThat(second.visits()).extracting(VisitSummary::id).containsExactly(stale, recent);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(newest.visits()).extracting(VisitSummary::id).containsExactly(stale, cancelled, completed);
+    }
+
+    @Test
+    void countsArchivedVisits() {
+        archive();
+
+        VisitStats stats = visitService.countVisits(date("2001-01-01T00:00:00Z"), CUTOFF);
+
+        assertThat(stats.total()).isEqualTo(3);
+        assertThat(stats.byStatus()).containsEntry(VisitStatus.COMPLETED, 1L)
+            .containsEntry(VisitStatus.CANCELLED, 1L)
+            .containsEntry(VisitStatus.SCHEDULED, 1L);
+    }
+
+    @Test
+    void purgesArchivedCancelledVisitsPastRetention() {
+        archive();
+
+        int purged = visitArchiver.purgeCancelledBefore(CUTOFF);
+        entityManager.clear();
+
+        assertThat(purged).isEqualTo(1);
+        assertThat(visitService.findById(cancelled)).isEmpty();
+        assertThat(visitService.findById(completed)).isPresent();
+    }
+
+    @Test
+    void rejectsARetentionShorterThanTheArchiveHorizon() {
+        assertThatThrownBy(() -> new VisitArchiver(visitRepository, archivedVisitRepository,
+                mock(PlatformTransactionManager.class), Duration.ofDays(180), Duration.ofDays(30), 500))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private int archive() {
+        int archived = visitArchiver.archiveBefore(CUTOFF);
+        // The chunks are bulk statements, drop the visits they left stale in the persistence context
+        entityManager.clear();
+        return archived;
+    }
+
+    private Integer save(String visitDate, VisitStatus status) {
+        Visit visit = new Visit(1, 4);
+        visit.setVisitDate(date(visitDate));
+        visit.setDurationMinutes(30);
+        visit.setStatus(status);
+        return visitRepository.saveAndFlush(visit).getId();
+    }
+
+    private static Date date(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+}
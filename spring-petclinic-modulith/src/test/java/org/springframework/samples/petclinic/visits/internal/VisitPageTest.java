@@ -0,0 +1,181 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitFilter;
+import org.springframework.samples.petclinic.visits.VisitPage;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitSummary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Verifies the date-range, status-filtered and keyset-paginated visit queries of a pet or vet,
+ * and that a page is read as projections, one statement per table, without loading any visit entity.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@Import(VisitServiceImpl.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class VisitPageTest {
+
+    @Autowired
+    VisitService visitService;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    VisitScheduler visitScheduler;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    VetService vetService;
+
+    private final List<Integer> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Pet 1 sees vet 4 on the first of each month of 2031, every third visit was cancelled;
+        // two more visits of another pet share a date to exercise the ID tie-break
+        for (int month = 1; month <= 12; month++) {
+            VisitStatus status = month % 3 == 0 ? VisitStatus.CANCELLED : VisitStatus.COMPLETED;
+            ids.add(save(1, 4, String.format("2031-%02d-01T10:00:00Z", month), status));
+        }
+        ids.add(save(2, 4, "2031-06-01T10:00:00Z", VisitStatus.SCHEDULED));
+        ids.add(save(2, 4, "2031-06-01T10:00:00Z", VisitStatus.SCHEDULED));
+    }
+
+    @Test
+    void pagesThroughARangeInDateOrder() {
+        VisitFilter filter = new VisitFilter(date("2031-01-01T00:00:00Z"), date("2031-07-01T00:00:00Z"), null, false);
+
+        VisitPage first = visitService.findPageByPetId(1, filter, null, 4);
+        VisitPage second = visitService.findPageByPetId(1, filter, first.nextCursor(), 4);
+
+        assertThat(first.visits()).extracting(VisitSummary::id).containsExactlyElementsOf(ids.subList(0, 4));
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.visits()).extracting(VisitSummary::id).containsExactlyElementsOf(ids.subList(4, 6));
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void pagesNewestFirstAndFiltersByStatus() {
+        VisitFilter filter = new VisitFilter(null, null, Set.of(VisitStatus.CANCELLED), true);
+
+        VisitPage first = visitService.findPageByPetId(1, filter, null, 3);
+        VisitPage second = visitService.findPageByPetId(1, filter, first.nextCursor(), 3);
+
+        assertThat(first.visits()).extracting(VisitSummary::id)
+            .containsExactly(ids.get(11), ids.get(8), ids.get(5));
+        assertThat(first.visits()).extracting(VisitSummary::status).containsOnly(VisitStatus.CANCELLED);
+        assertThat(second.visits()).extracting(VisitSummary::id).containsExactly(ids.get(2));
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    void breaksDateTiesByIdAcrossPages() {
+        VisitFilter filter = new VisitFilter(date("2031-06-01T00:00:00Z"), date("2031-06-02T00:00:00Z"), null, false);
+
+        VisitPage first = visitService.findPageByVetId(4, filter, null, 2);
+        VisitPage second = visitService.findPageByVetId(4, filter, first.nextCursor(), 2);
+
+        assertThat(first.visits()).extracting(VisitSummary::id).containsExactly(ids.get(5), ids.get(12));
+        assertThat(second.visits()).extracting(VisitSummary::id).containsExactly(ids.get(13));
+        assertThat(second.visits().get(0).petId()).isEqualTo(2);
+    }
+
+    @Test
+    void readsAPageAsProjectionsInOneStatementPerTable() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        VisitPage page = visitService.findPageByVetId(4, VisitFilter.all(), null, 5);
+
+        assertThat(page.visits()).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void skipsTheArchiveForScheduledVisits() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        VisitFilter scheduled = VisitFilter.of(null, null, List.of(VisitStatus.SCHEDULED), false);
+        VisitPage page = visitService.findPageByVetId(4, scheduled, null, 5);
+
+        assertThat(page.visits()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void capsThePageSize() {
+        VisitPage page = visitService.findPageByVetId(4, VisitFilter.all(), null, 1000);
+
+        assertThat(page.visits().size()).isLessThanOrEqualTo(VisitServiceImpl.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void rejectsMalformedCursorsAndFilters() {
+        assertThatThrownBy(() -> visitService.findPageByPetId(1, VisitFilter.all(), "not-a-cursor", 10))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("Invalid visit cursor");
+        assertThatThrownBy(() -> new VisitFilter(date("2031-02-01T00:00:00Z"), date("2031-01-01T00:00:00Z"), null, false))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Integer save(Integer petId, Integer vetId, String visitDate, VisitStatus status) {
+        Visit visit = new Visit(petId, vetId);
+        visit.setVisitDate(date(visitDate));
+        visit.setDurationMinutes(30);
+        visit.setStatus(status);
+        return visitRepository.saveAndFlush(visit).getId();
+    }
+
+    private static Date date(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+}
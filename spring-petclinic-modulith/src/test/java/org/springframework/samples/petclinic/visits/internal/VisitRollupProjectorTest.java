@@ -0,0 +1,215 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
+import org.springframework.samples.petclinic.visits.VisitCompleted;
+import org.springframework.samples.petclinic.visits.VisitCreated;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitsScheduled;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Verifies that the visit rollups are re-counted from the visits on every visit event, stay the
+ * same when an event is delivered again or handled concurrently, and can be backfilled.
+ *
+ * Runs without a test transaction, like the module listeners the projector is driven by.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@Import(VisitRollupProjector.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "petclinic.visit-rollups.rebuild-on-startup=false")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VisitRollupProjectorTest {
+
+    private static final LocalDate DAY = LocalDate.of(2031, 5, 1);
+
+    @Autowired
+    VisitRollupProjector projector;
+
+    @Autowired
+    VisitRollupRepository rollupRepository;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<Visit> visits = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Vet 5 sees two pets on the first of May and one on the second
+        visits.add(visitRepository.save(createVisit(DAY, 9)));
+        visits.add(visitRepository.save(createVisit(DAY, 15)));
+        visits.add(visitRepository.save(createVisit(DAY.plusDays(1), 9)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        visitRepository.deleteAll(visits);
+        rollupRepository.deleteAll();
+    }
+
+    @Test
+    void countsScheduledVisitsPerVetAndDay() {
+        transactionTemplate.executeWithoutResult(status -> projector.on(scheduled(visits)));
+
+        assertThat(rollupRepository.findByVetAndDayRange(5, DAY, DAY.plusDays(7)))
+            .extracting(VisitRollup::getDay, VisitRollup::getTotal)
+            .containsExactly(tuple(DAY, 2L), tuple(DAY.plusDays(1), 1L));
+    }
+
+    @Test
+    void recountsTheBucketOnStatusChangesAndRedeliveries() {
+        transactionTemplate.executeWithoutResult(status -> projector.on(scheduled(visits)));
+
+        Visit completed = complete(visits.get(0), VisitStatus.COMPLETED);
+        Visit cancelled = complete(visits.get(1), VisitStatus.CANCELLED);
+        VisitCompleted completion = new VisitCompleted(completed.getId(), completed.getPetId(), completed.getVetId());
+        transactionTemplate.executeWithoutResult(status -> {
+            projector.on(completion);
+            projector.on(new VisitCancelled(cancelled.getId(), cancelled.getPetId(), cancelled.getVetId()));
+            // Delivered again, and the creation event once more out of order
+            projector.on(completion);
+            projector.on(scheduled(visits));
+        });
+
+        VisitRollup rollup = rollupRepository.findByVetAndDayRange(5, DAY, DAY.plusDays(1)).get(0);
+        assertThat(rollup.getTotal()).isEqualTo(2);
+        assertThat(rollup.count(VisitStatus.SCHEDULED)).isZero();
+        assertThat(rollup.count(VisitStatus.COMPLETED)).isEqualTo(1);
+        assertThat(rollup.count(VisitStatus.CANCELLED)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentRefreshesOfNewBucketsCreateEachOnce() throws Exception {
+        List<Integer> visitIds = visits.stream().map(Visit::getId).toList();
+        int refreshes = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(refreshes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < refreshes; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    projector.refresh(visitIds);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(rollupRepository.findByVetAndDayRange(5, DAY, DAY.plusDays(7)))
+            .extracting(VisitRollup::getDay, VisitRollup::getTotal)
+            .containsExactly(tuple(DAY, 2L), tuple(DAY.plusDays(1), 1L));
+    }
+
+    @Test
+    void rebuildRemovesBucketsLeftWithoutVisits() {
+        transactionTemplate.executeWithoutResult(status -> projector.on(scheduled(visits)));
+        Visit moved = visits.get(2);
+        moved.setVisitDate(at(DAY.plusDays(3), 9));
+        visitRepository.save(moved);
+        transactionTemplate.executeWithoutResult(status -> projector.refresh(List.of(moved.getId())));
+
+        // The visit's old bucket is only re-counted by a rebuild
+        assertThat(rollupRepository.findByVetAndDayRange(5, DAY, DAY.plusDays(7)))
+            .extracting(VisitRollup::getDay).containsExactly(DAY, DAY.plusDays(1), DAY.plusDays(3));
+
+        projector.rebuild();
+
+        assertThat(rollupRepository.findByVetAndDayRange(5, DAY, DAY.plusDays(7)))
+            .extracting(VisitRollup::getDay).containsExactly(DAY, DAY.plusDays(3));
+    }
+
+    @Test
+    void rebuildBackfillsAllDaysAndDropsStaleBuckets() {
+        VisitRollup stale = new VisitRollup(new VisitRollup.Key(5, LocalDate.of(2030, 1, 1)));
+        stale.project(Map.of(VisitStatus.SCHEDULED, 1L), Instant.now());
+        rollupRepository.save(stale);
+
+        int projected = projector.rebuild();
+
+        assertThat(projected).isGreaterThanOrEqualTo(2);
+        assertThat(rollupRepository.findByVetAndDayRange(5, LocalDate.of(2030, 1, 1), DAY.plusDays(7)))
+            .extracting(VisitRollup::getDay).containsExactly(DAY, DAY.plusDays(1));
+        // The sample data visits of 2013 are backfilled too
+        assertThat(rollupRepository.findByDayRange(LocalDate.of(2013, 1, 1), LocalDate.of(2013, 1, 5)))
+            .extracting(VisitRollup::getVetId).containsExactly(1, 2, 3, 1);
+    }
+
+    private Visit complete(Visit visit, VisitStatus status) {
+        visit.setStatus(status);
+        return visitRepository.save(visit);
+    }
+
+    private static VisitsScheduled scheduled(List<Visit> visits) {
+        return new VisitsScheduled(visits.stream()
+            .map(visit -> new VisitCreated(visit.getId(), visit.getPetId(), visit.getVetId()))
+            .toList());
+    }
+
+    private static Visit createVisit(LocalDate day, int hour) {
+        Visit visit = new Visit(7, 5);
+        visit.setVisitDate(at(day, hour));
+        visit.setDurationMinutes(30);
+        visit.setStatus(VisitStatus.SCHEDULED);
+        return visit;
+    }
+
+    private static Date at(LocalDate day, int hour) {
+        return Date.from(day.atTime(hour, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.samples.petclinic.visits.ScheduleResult;
+import org.springframework.samples.petclinic.visits.SlotUnavailableException;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitsCancelled;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Verifies that the scheduler books visits into the vets' working hours, never double-books a vet,
+ * also not under concurrent bookings, and suggests free slots instead.
+ *
+ * Runs without a test transaction, so that concurrent bookings commit like in production, on its own
+ * database in MVCC mode, so that rows rather than whole tables are locked like in MySQL.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(VisitScheduler.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+    "petclinic.schedule.zone=UTC",
+    "petclinic.schedule.lock-timeout=500ms",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.datasource.url=jdbc:hsqldb:mem:schedulerdb;sql.syntax_mys=true;hsqldb.tx=mvcc"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VisitSchedulerTest {
+
+    @Autowired
+    VisitScheduler scheduler;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    VetScheduleRepository scheduleRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<Integer> visitIds = Collections.synchronizedList(new ArrayList<>());
+    private LocalDate day;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        day = LocalDate.now(ZoneOffset.UTC).plusDays(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        visitRepository.deleteAllById(visitIds);
+        visitIds.clear();
+        scheduler.rebuild();
+    }
+
+    @Test
+    void booksVisitWithDefaultDuration() {
+        Visit visit = book(1, at(10, 0), null);
+
+        assertThat(visit.getDurationMinutes()).isEqualTo(30);
+        assertThat(visit.getEndDate()).isEqualTo(at(10, 30));
+    }
+
+    @Test
+    void booksVetWithoutScheduleWithDefaultWorkingHours() {
+        // Like a vet added after the sample data; the booking recreates the same default hours
+        scheduleRepository.deleteById(6);
+
+        // Creating the missing schedule used to wait forever on the lock of the booking itself
+        Visit visit = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> book(6, at(10, 0), 30));
+
+        assertThat(visit.getId()).isNotNull();
+        assertThat(scheduleRepository.existsById(6)).isTrue();
+        assertThatThrownBy(() -> book(6, at(18, 0), 30)).isInstanceOf(SlotUnavailableException.class);
+    }
+
+    @Test
+    void rejectsOverlappingVisitAndSuggestsFreeSlots() {
+        book(1, at(10, 0), 30);
+        book(1, at(10, 30), 60);
+
+        assertThatThrownBy(() -> book(1, at(10, 15), 30))
+            .isInstanceOfSatisfying(SlotUnavailableException.class, ex -> {
+                assertThat(ex.getVetId()).isEqualTo(1);
+                assertThat(ex.getAlternatives()).containsExactly(at(11, 30), at(12, 0), at(12, 30));
+            });
+    }
+
+    @Test
+    void allowsBackToBackVisitsAndOtherVets() {
+        book(1, at(10, 0), 30);
+        book(1, at(10, 30), 30);
+        book(2, at(10, 0), 30);
+
+        assertThat(visitIds).hasSize(3);
+    }
+
+    @Test
+    void rejectsVisitOutsideWorkingHoursAndSuggestsNextMorning() {
+        assertThatThrownBy(() -> book(1, at(17, 45), 30))
+            .isInstanceOfSatisfying(SlotUnavailableException.class, ex ->
+                assertThat(ex.getAlternatives()).first().isEqualTo(date(day.plusDays(1).atTime(8, 0))));
+    }
+
+    @Test
+    void cancelledVisitFreesItsSlot() {
+        Visit visit = book(1, at(10, 0), 30);
+        transactionTemplate.executeWithoutResult(status -> {
+            Visit cancelled = visitRepository.findById(visit.getId()).orElseThrow();
+            cancelled.setStatus(VisitStatus.CANCELLED);
+            scheduler.on(new VisitCancelled(visit.getId(), visit.getPetId(), visit.getVetId()));
+        });
+
+        assertThat(book(1, at(10, 0), 30).getId()).isNotEqualTo(visit.getId());
+    }
+
+    @Test
+    void visitsCancelledTogetherFreeTheirSlots() {
+        Visit first = book(1, at(10, 0), 30);
+        Visit second = book(1, at(11, 0), 30);
+        transactionTemplate.executeWithoutResult(status -> {
+            visitRepository.findAllById(List.of(first.getId(), second.getId()))
+                .forEach(cancelled -> cancelled.setStatus(VisitStatus.CANCELLED));
+            scheduler.on(new VisitsCancelled(List.of(
+                new VisitCancelled(first.getId(), first.getPetId(), first.getVetId()),
+                new VisitCancelled(second.getId(), second.getPetId(), second.getVetId()))));
+        });
+
+        assertThat(book(1, at(10, 0), 30).getId()).isNotEqualTo(first.getId());
+        assertThat(book(1, at(11, 0), 30).getId()).isNotEqualTo(second.getId());
+    }
+
+    @Test
+    void detectsVisitsBookedWithoutTheCalendar() {
+        book(1, at(9, 0), 30);
+        // Booked by another node: in the database, but not in this node's calendar
+        Visit elsewhere = new Visit(7, 1);
+        elsewhere.setVisitDate(at(14, 0));
+        elsewhere.setDurationMinutes(60);
+        visitIds.add(visitRepository.save(elsewhere).getId());
+
+        assertThatThrownBy(() -> book(1, at(14, 30), 30)).isInstanceOf(SlotUnavailableException.class);
+    }
+
+    @Test
+    void detectsVisitsCancelledWithoutTheCalendar() {
+        Visit visit = book(1, at(14, 0), 30);
+        // Cancelled by another node: freed in the database, still booked in this node's calendar
+        transactionTemplate.executeWithoutResult(status ->
+            visitRepository.findById(visit.getId()).orElseThrow().setStatus(VisitStatus.CANCELLED));
+
+        assertThat(book(1, at(14, 0), 30).getId()).isNotEqualTo(visit.getId());
+        assertThatThrownBy(() -> book(1, at(14, 15), 30)).isInstanceOf(SlotUnavailableException.class);
+    }
+
+    @Test
+    void visitsWithoutEndDateOccupyTheDefaultDuration() {
+        // Saved before visits had a duration, so without an end date
+        Visit undated = visitRepository.save(visit(1, at(14, 0), null));
+        visitIds.add(undated.getId());
+        assertThat(undated.getEndDate()).isNull();
+
+        assertThatThrownBy(() -> book(1, at(14, 15), 30)).isInstanceOf(SlotUnavailableException.class);
+        assertThatThrownBy(() -> book(1, at(13, 45), 30)).isInstanceOf(SlotUnavailableException.class);
+        assertThat(bookAll(List.of(visit(1, at(14, 20), 10)))).noneMatch(ScheduleResult::isScheduled);
+        assertThat(book(1, at(14, 30), 30).getId()).isNotNull();
+    }
+
+    @Test
+    void concurrentBookingsOfTheSameSlotBookItOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Boolean>> bookings = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                // All requested slots overlap each other
+                int minute = i * 3;
+                bookings.add(() -> {
+                    try {
+                        book(3, at(11, minute), 30);
+                        return true;
+                    } catch (SlotUnavailableException ex) {
+                        return false;
+                    }
+                });
+            }
+            int booked = 0;
+            for (Future<Boolean> result : executor.invokeAll(bookings)) {
+                booked += result.get() ? 1 : 0;
+            }
+
+            assertThat(booked).isEqualTo(1);
+            assertThat(visitRepository.findBookingsEndingAfter(3, at(0, 0), at(0, 0))).hasSize(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentBookingsAcrossVetsNeverDoubleBook() throws Exception {
+        int vets = 4;
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Integer>> clients = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                clients.add(() -> {
+                    int booked = 0;
+                    for (int attempt = 0; attempt < 12; attempt++) {
+                        // 30 minute visits starting on a 10 minute grid between 9:00 and 11:00 overlap a lot
+                        int vetId = 1 + random.nextInt(vets);
+                        int minute = random.nextInt(12) * 10;
+                        try {
+                            book(vetId, at(9 + minute / 60, minute % 60), 30);
+                            booked++;
+                        } catch (SlotUnavailableException ex) {
+                            // taken by another client
+                        }
+                    }
+                    return booked;
+                });
+            }
+            int booked = 0;
+            for (Future<Integer> result : executor.invokeAll(clients)) {
+                booked += result.get();
+            }
+
+            int stored = 0;
+            for (int vetId = 1; vetId <= vets; vetId++) {
+                List<Visit> visits = new ArrayList<>(visitRepository.findBookingsEndingAfter(vetId, at(0, 0), at(0, 0)));
+                visits.sort(Comparator.comparing(Visit::getVisitDate));
+                for (int i = 1; i < visits.size(); i++) {
+                    assertThat(visits.get(i).getVisitDate()).isAfterOrEqualTo(visits.get(i - 1).getEndDate());
+                }
+                stored += visits.size();
+            }
+            assertThat(stored).isEqualTo(booked).isPositive();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void bookingsOfOtherVetsDoNotWaitForABusyVet() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Keeps vet 1's stripe and schedule row locked until released
+            Future<Visit> busy = executor.submit(() -> transactionTemplate.execute(status -> {
+                Visit visit = scheduler.book(visit(1, at(9, 0), 30));
+                locked.countDown();
+                await(release);
+                return visit;
+            }));
+            locked.await();
+
+            book(2, at(9, 0), 30);
+            assertThat(scheduler.isLocked(1)).isTrue();
+            assertThat(scheduler.isLocked(2)).isFalse();
+
+            release.countDown();
+            visitIds.add(busy.get().getId());
+            assertThat(scheduler.isLocked(1)).isFalse();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void bookingsOfABusyVetGiveUpWhileOtherVetsProgress() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Keeps vet 1's stripe locked for longer than the lock timeout
+            Future<Visit> busy = executor.submit(() -> transactionTemplate.execute(status -> {
+                Visit visit = scheduler.book(visit(1, at(9, 0), 30));
+                locked.countDown();
+                await(release);
+                return visit;
+            }));
+            locked.await();
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> book(1, at(10, 0), 30)).isInstanceOf(CannotAcquireLockException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+
+            // Meanwhile vet 2 books straight away, and vet 1 is bookable again once released
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> book(2, at(10, 0), 30));
+            release.countDown();
+            visitIds.add(busy.get().getId());
+            book(1, at(10, 0), 30);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void batchIsCheckedAgainstBookingsAndEarlierVisitsOfTheBatch() {
+        book(1, at(10, 0), 30);
+
+        List<ScheduleResult> results = bookAll(List.of(
+            visit(1, at(10, 15), 30),
+            visit(1, at(11, 0), 30),
+            visit(1, at(11, 15), 30),
+            visit(2, at(17, 45), 30),
+            visit(2, at(10, 0), null)));
+
+        assertThat(results).extracting(ScheduleResult::isScheduled).containsExactly(false, true, false, false, true);
+        assertThat(results.get(0).alternatives()).first().isEqualTo(at(10, 30));
+        assertThat(results.get(2).error()).contains("already booked");
+        assertThat(results.get(3).error()).contains("does not work");
+        assertThat(results.get(4).visit().getEndDate()).isEqualTo(at(10, 30));
+        // Bookings of the batch are in the calendar
+        assertThatThrownBy(() -> book(1, at(11, 0), 30)).isInstanceOf(SlotUnavailableException.class);
+    }
+
+    @Test
+    void batchIsInsertedInJdbcBatches() {
+        List<Visit> visits = new ArrayList<>();
+        for (int vetId = 2; vetId <= 6; vetId++) {
+            for (int slot = 0; slot < 20; slot++) {
+                visits.add(visit(vetId, at(8 + slot / 2, slot % 2 * 30), 30));
+            }
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ScheduleResult> results = bookAll(visits);
+
+        assertThat(results).hasSize(100).allMatch(ScheduleResult::isScheduled);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(100);
+        // One lock, one calendar query, a few sequence calls and the insert batches
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(15);
+    }
+
+    @Test
+    @Timeout(30)
+    void createsMissingSchedulesBeforeLockingThem() {
+        scheduleRepository.deleteAllById(List.of(5, 6));
+
+        book(5, at(9, 0), 30);
+        assertThat(bookAll(List.of(visit(6, at(9, 0), 30)))).allMatch(ScheduleResult::isScheduled);
+
+        assertThat(scheduleRepository.findAllById(List.of(5, 6))).hasSize(2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<ScheduleResult> bookAll(List<Visit> visits) {
+        List<ScheduleResult> results = transactionTemplate.execute(status -> scheduler.bookAll(visits));
+        results.stream().filter(ScheduleResult::isScheduled).forEach(result -> visitIds.add(result.visit().getId()));
+        return results;
+    }
+
+    private static Visit visit(Integer vetId, Date start, Integer durationMinutes) {
+        Visit visit = new Visit(7, vetId);
+        visit.setVisitDate(start);
+        visit.setDurationMinutes(durationMinutes);
+        return visit;
+    }
+
+    private Visit book(Integer vetId, Date start, Integer durationMinutes) {
+        Visit visit = visit(vetId, start, durationMinutes);
+        Visit saved = transactionTemplate.execute(status -> scheduler.book(visit));
+        visitIds.add(saved.getId());
+        return saved;
+    }
+
+    private Date at(int hour, int minute) {
+        return date(day.atTime(hour, minute));
+    }
+
+    private static Date date(LocalDateTime time) {
+        return Date.from(time.toInstant(ZoneOffset.UTC));
+    }
+}
@@ -24,22 +24,38 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.samples.petclinic.customers.CustomerService;
 import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
-import org.springframework.samples.petclinic.vets.Vet;
 import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.ScheduleResult;
+import org.springframework.samples.petclinic.visits.SlotUnavailableException;
+import org.springframework.samples.petclinic.visits.StatusChange;
 import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
 import org.springframework.samples.petclinic.visits.VisitCompleted;
 import org.springframework.samples.petclinic.visits.VisitCreated;
 import org.springframework.samples.petclinic.visits.VisitService;
-import org.springframework.samples.petclinic.customers.Customer;
-
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitStatusConflictException;
+import org.springframework.samples.petclinic.visits.VisitSummary;
+import org.springframework.samples.petclinic.visits.VisitsCancelled;
+import org.springframework.samples.petclinic.visits.VisitsCompleted;
+import org.springframework.samples.petclinic.visits.VisitsScheduled;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -59,6 +75,12 @@ class VisitServiceImplTest {
     @Mock
     private VisitRepository visitRepository;
 
+    @Mock
+    private ArchivedVisitRepository archivedVisitRepository;
+
+    @Mock
+    private VisitScheduler visitScheduler;
+
     @Mock
     private CustomerService customerService;
 
@@ -72,13 +94,13 @@ class VisitServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        visitService = new VisitServiceImpl(visitRepository, customerService, vetService, events);
+        visitService = new VisitServiceImpl(visitRepository, archivedVisitRepository, visitScheduler, customerService, vetService, events);
     }
 
     @Test
     void shouldFindVisitById() {
         // Given
-        Visit visit = createVisit(1, 1, 1, "Routine checkup", "COMPLETED");
+        Visit visit = createVisit(1, 1, 1, "Routine checkup", VisitStatus.COMPLETED);
         given(visitRepository.findById(1)).willReturn(Optional.of(visit));
 
         // When
@@ -106,8 +128,8 @@ class VisitServiceImplTest {
     void shouldFindAllVisits() {
         // Given
         List<Visit> visits = Arrays.asList(
-            createVisit(1, 1, 1, "Checkup", "COMPLETED"),
-            createVisit(2, 2, 2, "Vaccination", "SCHEDULED")
+            createVisit(1, 1, 1, "Checkup", VisitStatus.COMPLETED),
+            createVisit(2, 2, 2, "Vaccination", VisitStatus.SCHEDULED)
         );
         given(visitRepository.findAll()).willReturn(visits);
 
@@ -124,8 +146,8 @@ class VisitServiceImplTest {
     void shouldFindVisitsByPetId() {
         // Given
         List<Visit> visits = Arrays.asList(
-            createVisit(1, 1, 1, "Checkup", "COMPLETED"),
-            createVisit(3, 1, 2, "Vaccination", "SCHEDULED")
+            createVisit(1, 1, 1, "Checkup", VisitStatus.COMPLETED),
+            createVisit(3, 1, 2, "Vaccination", VisitStatus.SCHEDULED)
         );
         given(visitRepository.findByPetId(1)).willReturn(visits);
 
@@ -141,8 +163,8 @@ class VisitServiceImplTest {
     void shouldFindVisitsByVetId() {
         // Given
         List<Visit> visits = Arrays.asList(
-            createVisit(1, 1, 1, "Checkup", "COMPLETED"),
-            createVisit(4, 3, 1, "Skin follow-up", "SCHEDULED")
+            createVisit(1, 1, 1, "Checkup", VisitStatus.COMPLETED),
+            createVisit(4, 3, 1, "Skin follow-up", VisitStatus.SCHEDULED)
         );
         given(visitRepository.findByVetId(1)).willReturn(visits);
 
@@ -154,35 +176,56 @@ class VisitServiceImplTest {
         assertThat(result.stream().allMatch(v -> v.getVetId().equals(1))).isTrue();
     }
 
+    @Test
+    void shouldFindVisitsOfManyPetsInChunkedQueries() {
+        // Given
+        List<Integer> petIds = IntStream.rangeClosed(1, VisitServiceImpl.PET_IDS_PER_QUERY + 1).boxed().toList();
+        given(visitRepository.findByPetIdIn(any())).willAnswer(invocation -> {
+            List<Integer> chunk = invocation.getArgument(0);
+            return chunk.contains(1)
+                ? List.of(createVisit(1, 1, 1, "Checkup", VisitStatus.COMPLETED),
+                          createVisit(2, 1, 2, "Vaccination", VisitStatus.SCHEDULED))
+                : List.of(createVisit(3, petIds.size(), 1, "Checkup", VisitStatus.SCHEDULED));
+        });
+
+        // When
+        Map<Integer, List<Visit>> result = visitService.findByPetIds(petIds);
+
+        // Then
+        assertThat(result).hasSize(petIds.size());
+        assertThat(result.keySet()).containsExactlyElementsOf(petIds);
+        assertThat(result.get(1)).extracting(Visit::getId).containsExactly(1, 2);
+        assertThat(result.get(2)).isEmpty();
+        assertThat(result.get(petIds.size())).extracting(Visit::getId).containsExactly(3);
+        verify(visitRepository, times(2)).findByPetIdIn(any());
+    }
+
     @Test
     void shouldScheduleVisitWithCrossModuleValidation() {
         // Given
         Visit visit = new Visit(1, 1);
         visit.setDescription("Routine checkup");
         
-        Visit savedVisit = createVisit(1, 1, 1, "Routine checkup", "SCHEDULED");
+        Visit savedVisit = createVisit(1, 1, 1, "Routine checkup", VisitStatus.SCHEDULED);
         
         // Mock cross-module dependencies
-        Customer customer = new Customer();
-        customer.setId(1);
-        given(customerService.findById(1)).willReturn(Optional.of(customer));
+        given(customerService.petExists(1)).willReturn(true);
+        given(vetService.exists(1)).willReturn(true);
         
-        Vet vet = new Vet();
-        vet.setId(1);
-        given(vetService.findById(1)).willReturn(Optional.of(vet));
-        
-        given(visitRepository.save(any(Visit.class))).willReturn(savedVisit);
+        given(visitScheduler.book(visit)).willReturn(savedVisit);
 
         // When
         Visit result = visitService.scheduleVisit(visit);
 
         // Then
         assertThat(result.getId()).isEqualTo(1);
-        assertThat(result.getStatus()).isEqualTo("SCHEDULED");
+        assertThat(result.getStatus()).isEqualTo(VisitStatus.SCHEDULED);
         
         // Verify cross-module calls
-        verify(customerService).findById(1);
-        verify(vetService).findById(1);
+        verify(customerService).petExists(1);
+        verify(vetService).exists(1);
+        verify(customerService, never()).findById(any());
+        verify(vetService, never()).findById(any());
         
         // Verify event publishing
         ArgumentCaptor<VisitCreated> eventCaptor = ArgumentCaptor.forClass(VisitCreated.class);
@@ -200,7 +243,7 @@ class VisitServiceImplTest {
         Visit visit = new Visit(999, 1);  // Non-existent pet
         visit.setDescription("Routine checkup");
         
-        given(customerService.findById(999)).willReturn(Optional.empty());
+        given(customerService.petExists(999)).willReturn(false);
 
         // When/Then
         assertThatThrownBy(() -> visitService.scheduleVisit(visit))
@@ -215,10 +258,8 @@ class VisitServiceImplTest {
         Visit visit = new Visit(1, 999);  // Non-existent vet
         visit.setDescription("Routine checkup");
         
-        Customer customer = new Customer();
-        customer.setId(1);
-        given(customerService.findById(1)).willReturn(Optional.of(customer));
-        given(vetService.findById(999)).willReturn(Optional.empty());
+        given(customerService.petExists(1)).willReturn(true);
+        given(vetService.exists(999)).willReturn(false);
 
         // When/Then
         assertThatThrownBy(() -> visitService.scheduleVisit(visit))
@@ -227,20 +268,51 @@ class VisitServiceImplTest {
             .hasMessageContaining("999");
     }
 
+    @Test
+    void shouldScheduleBatchWithOneLookupPerModuleAndOneEvent() {
+        // Given
+        Visit valid = new Visit(7, 1);
+        Visit unknownPet = new Visit(999, 1);
+        Visit unknownVet = new Visit(8, 999);
+        Visit taken = new Visit(8, 2);
+        given(customerService.existingPetIds(Set.of(7, 8, 999))).willReturn(Set.of(7, 8));
+        given(vetService.existingIds(Set.of(1, 2, 999))).willReturn(Set.of(1, 2));
+
+        Visit saved = createVisit(1000, 7, 1, null, VisitStatus.SCHEDULED);
+        given(visitScheduler.bookAll(List.of(valid, taken))).willReturn(List.of(
+            ScheduleResult.scheduled(saved),
+            ScheduleResult.rejected(new SlotUnavailableException("Vet 2 is already booked", 2, List.of()))));
+
+        // When
+        List<ScheduleResult> results = visitService.scheduleAll(List.of(valid, unknownPet, unknownVet, taken));
+
+        // Then
+        assertThat(results).extracting(ScheduleResult::isScheduled).containsExactly(true, false, false, false);
+        assertThat(results).extracting(ScheduleResult::error)
+            .containsExactly(null, "Pet not found: 999", "Vet not found: 999", "Vet 2 is already booked");
+        verify(customerService, never()).petExists(any());
+        verify(vetService, never()).exists(any());
+
+        ArgumentCaptor<VisitsScheduled> eventCaptor = ArgumentCaptor.forClass(VisitsScheduled.class);
+        verify(events).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().visits()).containsExactly(new VisitCreated(1000, 7, 1));
+    }
+
     @Test
     void shouldCompleteVisitAndPublishEvent() {
         // Given
-        Visit visit = createVisit(1, 1, 1, "Checkup", "SCHEDULED");
-        Visit completedVisit = createVisit(1, 1, 1, "Checkup", "COMPLETED");
+        VisitSummary completedVisit = new VisitSummary(1, 1, 1, new Date(), 30, VisitStatus.COMPLETED);
         
-        given(visitRepository.findById(1)).willReturn(Optional.of(visit));
-        given(visitRepository.save(any(Visit.class))).willReturn(completedVisit);
+        given(visitRepository.updateScheduledStatus(1, VisitStatus.COMPLETED)).willReturn(1);
+        given(visitRepository.findSummaryById(1)).willReturn(Optional.of(completedVisit));
 
         // When
-        Visit result = visitService.completeVisit(1);
+        VisitSummary result = visitService.completeVisit(1);
 
         // Then
-        assertThat(result.getStatus()).isEqualTo("COMPLETED");
+        assertThat(result.status()).isEqualTo(VisitStatus.COMPLETED);
+        verify(visitRepository, never()).save(any(Visit.class));
+        verify(visitRepository, never()).findById(any());
         
         // Verify event
         ArgumentCaptor<VisitCompleted> eventCaptor = ArgumentCaptor.forClass(VisitCompleted.class);
@@ -253,37 +325,52 @@ class VisitServiceImplTest {
     @Test
     void shouldCancelVisit() {
         // Given
-        Visit visit = createVisit(1, 1, 1, "Checkup", "SCHEDULED");
-        given(visitRepository.findById(1)).willReturn(Optional.of(visit));
-        given(visitRepository.save(any(Visit.class))).willReturn(visit);
+        VisitSummary cancelledVisit = new VisitSummary(1, 1, 1, new Date(), 30, VisitStatus.CANCELLED);
+        given(visitRepository.updateScheduledStatus(1, VisitStatus.CANCELLED)).willReturn(1);
+        given(visitRepository.findSummaryById(1)).willReturn(Optional.of(cancelledVisit));
 
         // When
         visitService.cancelVisit(1);
 
         // Then
-        ArgumentCaptor<Visit> visitCaptor = ArgumentCaptor.forClass(Visit.class);
-        verify(visitRepository).save(visitCaptor.capture());
+        verify(visitRepository).updateScheduledStatus(1, VisitStatus.CANCELLED);
+        verify(visitRepository, never()).save(any(Visit.class));
 
-        Visit saved = visitCaptor.getValue();
-        assertThat(saved.getStatus()).isEqualTo("CANCELLED");
+        ArgumentCaptor<VisitCancelled> eventCaptor = ArgumentCaptor.forClass(VisitCancelled.class);
+        verify(events).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().visitId()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectCompletingVisitThatIsNoLongerScheduled() {
+        // Given
+        given(visitRepository.updateScheduledStatus(1, VisitStatus.COMPLETED)).willReturn(0);
+        given(visitRepository.existsById(1)).willReturn(true);
+
+        // When/Then
+        assertThatThrownBy(() -> visitService.completeVisit(1))
+            .isInstanceOf(VisitStatusConflictException.class)
+            .hasMessageContaining("no longer scheduled");
+        verify(events, never()).publishEvent(any(Object.class));
     }
 
     @Test
     void shouldThrowExceptionWhenCompletingNonExistentVisit() {
         // Given
-        given(visitRepository.findById(999)).willReturn(Optional.empty());
+        given(visitRepository.updateScheduledStatus(999, VisitStatus.COMPLETED)).willReturn(0);
 
         // When/Then
         assertThatThrownBy(() -> visitService.completeVisit(999))
             .isInstanceOf(ResourceNotFoundException.class)
             .hasMessageContaining("Visit")
             .hasMessageContaining("999");
+        verify(events, never()).publishEvent(any(Object.class));
     }
 
     @Test
     void shouldThrowExceptionWhenCancellingNonExistentVisit() {
         // Given
-        given(visitRepository.findById(999)).willReturn(Optional.empty());
+        given(visitRepository.updateScheduledStatus(999, VisitStatus.CANCELLED)).willReturn(0);
 
         // When/Then
         assertThatThrownBy(() -> visitService.cancelVisit(999))
@@ -292,7 +379,51 @@ class VisitServiceImplTest {
             .hasMessageContaining("999");
     }
 
-    private Visit createVisit(Integer id, Integer petId, Integer vetId, String description, String status) {
+    @Test
+    void shouldCompleteManyVisitsAndPublishOneEventForTheChangedOnes() {
+        // Given: 1 and 2 are scheduled, 3 is completed already, 4 does not exist
+        Date date = new Date();
+        given(visitRepository.findScheduledForUpdate(List.of(1, 2, 3, 4))).willReturn(List.of(
+            new VisitSummary(1, 7, 1, date, 30, VisitStatus.SCHEDULED),
+            new VisitSummary(2, 8, 2, date, 30, VisitStatus.SCHEDULED)));
+        given(visitRepository.updateScheduledStatus(List.of(1, 2), VisitStatus.COMPLETED)).willReturn(2);
+        given(visitRepository.findExistingIds(List.of(3, 4))).willReturn(List.of(3));
+
+        // When
+        StatusChange change = visitService.completeVisits(List.of(4, 3, 2, 1, 2));
+
+        // Then
+        assertThat(change.changed()).containsExactly(1, 2);
+        assertThat(change.conflicting()).containsExactly(3);
+        assertThat(change.notFound()).containsExactly(4);
+
+        ArgumentCaptor<VisitsCompleted> eventCaptor = ArgumentCaptor.forClass(VisitsCompleted.class);
+        verify(events).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().visits())
+            .containsExactly(new VisitCompleted(1, 7, 1), new VisitCompleted(2, 8, 2));
+    }
+
+    @Test
+    void shouldCancelAllScheduledVisitsOfAVetOnADay() {
+        // Given
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        Date from = Date.from(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+        Date to = Date.from(day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+        given(visitScheduler.zone()).willReturn(ZoneOffset.UTC);
+        given(visitRepository.findScheduledForUpdate(3, from, to)).willReturn(List.of(
+            new VisitSummary(5, 7, 3, from, 30, VisitStatus.SCHEDULED)));
+        given(visitRepository.updateScheduledStatus(List.of(5), VisitStatus.CANCELLED)).willReturn(1);
+
+        // When
+        StatusChange change = visitService.cancelVisits(3, day);
+
+        // Then
+        assertThat(change.status()).isEqualTo(VisitStatus.CANCELLED);
+        assertThat(change.changed()).containsExactly(5);
+        verify(events).publishEvent(new VisitsCancelled(List.of(new VisitCancelled(5, 7, 3))));
+    }
+
+    private Visit createVisit(Integer id, Integer petId, Integer vetId, String description, VisitStatus status) {
         Visit visit = new Visit(petId, vetId);
         visit.setId(id);
         visit.setDescription(description);
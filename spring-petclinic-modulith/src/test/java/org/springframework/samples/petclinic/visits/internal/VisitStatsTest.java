@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStats;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Verifies that visit statuses are stored as check-constrained one-character codes, and that the
+ * visit counts per status, vet and day come from one aggregate query per table without loading any visit.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@Import(VisitServiceImpl.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class VisitStatsTest {
+
+    @Autowired
+    VisitService visitService;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    VisitScheduler visitScheduler;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    VetService vetService;
+
+    @BeforeEach
+    void setUp() {
+        save(1, "2031-03-01T09:00:00Z", VisitStatus.COMPLETED);
+        save(1, "2031-03-01T10:00:00Z", VisitStatus.CANCELLED);
+        save(1, "2031-03-02T09:00:00Z", VisitStatus.SCHEDULED);
+        save(2, "2031-03-02T11:00:00Z", VisitStatus.SCHEDULED);
+        save(2, "2031-03-02T12:00:00Z", VisitStatus.SCHEDULED);
+        // Outside the counted range
+        save(2, "2031-03-03T09:00:00Z", VisitStatus.SCHEDULED);
+    }
+
+    @Test
+    void storesStatusAsOneCharacterCode() {
+        Integer id = save(3, "2031-04-01T09:00:00Z", VisitStatus.CANCELLED);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM visits WHERE id = ?", String.class, id))
+            .isEqualTo("X");
+        assertThat(visitRepository.findById(id)).get().extracting(Visit::getStatus).isEqualTo(VisitStatus.CANCELLED);
+    }
+
+    @Test
+    void rejectsUnknownStatusCodes() {
+        Integer id = save(3, "2031-04-01T09:00:00Z", VisitStatus.SCHEDULED);
+
+        assertThatThrownBy(() -> jdbcTemplate.update("UPDATE visits SET status = 'Q' WHERE id = ?", id))
+            .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void countsVisitsPerStatusVetAndDay() {
+        VisitStats stats = visitService.countVisits(date("2031-03-01T00:00:00Z"), date("2031-03-03T00:00:00Z"));
+
+        assertThat(stats.total()).isEqualTo(5);
+        assertThat(stats.byStatus()).containsExactly(
+            entry(VisitStatus.SCHEDULED, 3L), entry(VisitStatus.COMPLETED, 1L), entry(VisitStatus.CANCELLED, 1L));
+        assertThat(stats.byVet()).extracting(VisitStats.VetCounts::vetId, VisitStats.VetCounts::total)
+            .containsExactly(tuple(1, 3L), tuple(2, 2L));
+        assertThat(stats.byVet().get(1).byStatus()).containsEntry(VisitStatus.SCHEDULED, 2L)
+            .containsEntry(VisitStatus.COMPLETED, 0L);
+        assertThat(stats.byDay()).extracting(VisitStats.DayCounts::day)
+            .containsExactly(LocalDate.of(2031, 3, 1), LocalDate.of(2031, 3, 2));
+        assertThat(stats.byDay().get(1).byStatus()).isEqualTo(Map.of(
+            VisitStatus.SCHEDULED, 3L, VisitStatus.COMPLETED, 0L, VisitStatus.CANCELLED, 0L));
+    }
+
+    @Test
+    void countsInOneStatementPerTableWithoutLoadingVisits() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        visitService.countVisits(date("2031-03-01T00:00:00Z"), date("2031-03-03T00:00:00Z"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void rejectsReversedAndOverlongRanges() {
+        assertThatThrownBy(() -> visitService.countVisits(date("2031-03-02T00:00:00Z"), date("2031-03-01T00:00:00Z")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> visitService.countVisits(date("2030-01-01T00:00:00Z"), date("2031-03-01T00:00:00Z")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Integer save(Integer vetId, String visitDate, VisitStatus status) {
+        Visit visit = new Visit(7, vetId);
+        visit.setVisitDate(date(visitDate));
+        visit.setDurationMinutes(30);
+        visit.setStatus(status);
+        return visitRepository.saveAndFlush(visit).getId();
+    }
+
+    private static Date date(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+}
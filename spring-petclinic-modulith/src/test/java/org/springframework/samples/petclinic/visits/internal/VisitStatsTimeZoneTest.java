@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStats;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifies that the database counts visits by the days of {@code petclinic.schedule.zone}, whatever
+ * the zone of the JVM.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@Import(VisitServiceImpl.class)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "petclinic.schedule.zone=" + VisitStatsTimeZoneTest.ZONE)
+class VisitStatsTimeZoneTest {
+
+    static final String ZONE = "America/New_York";
+
+    @Autowired
+    VisitService visitService;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @MockBean
+    VisitScheduler visitScheduler;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    VetService vetService;
+
+    @Test
+    void countsVisitsByTheDaysOfTheClinicZone() {
+        // 01:00 and 22:00 on March 1st in New York, two different days in UTC
+        save("2031-03-01T06:00:00Z");
+        save("2031-03-02T03:00:00Z");
+
+        LocalDate day = LocalDate.of(2031, 3, 1);
+        VisitStats stats = visitService.countVisits(startOf(day), startOf(day.plusDays(1)));
+
+        assertThat(stats.total()).isEqualTo(2);
+        assertThat(stats.byDay()).singleElement().satisfies(counts -> {
+            assertThat(counts.day()).isEqualTo(day);
+            assertThat(counts.byStatus()).containsEntry(VisitStatus.SCHEDULED, 2L);
+        });
+    }
+
+    private void save(String visitDate) {
+        Visit visit = new Visit(7, 1);
+        visit.setVisitDate(Date.from(Instant.parse(visitDate)));
+        visit.setDurationMinutes(30);
+        visitRepository.saveAndFlush(visit);
+    }
+
+    private static Date startOf(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.of(ZONE)).toInstant());
+    }
+}
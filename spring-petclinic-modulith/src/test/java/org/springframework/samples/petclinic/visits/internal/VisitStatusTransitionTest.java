@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.shared.exceptions.ResourceNotFoundException;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.StatusChange;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitCancelled;
+import org.springframework.samples.petclinic.visits.VisitCompleted;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitStatusConflictException;
+import org.springframework.samples.petclinic.visits.VisitSummary;
+import org.springframework.samples.petclinic.visits.VisitsCancelled;
+import org.springframework.samples.petclinic.visits.VisitsCompleted;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Verifies that visits change status through conditional UPDATEs, that only visits which actually
+ * changed publish events, and that the affected rows tell a missing visit from a closed one.
+ *
+ * @author PetClinic Team
+ */
+@DataJpaTest
+@Import(VisitServiceImpl.class)
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class VisitStatusTransitionTest {
+
+    @Autowired
+    VisitService visitService;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    ApplicationEvents events;
+
+    @MockBean
+    VisitScheduler visitScheduler;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    VetService vetService;
+
+    private Integer morning;
+    private Integer afternoon;
+    private Integer closed;
+    private Integer nextDay;
+
+    @BeforeEach
+    void setUp() {
+        given(visitScheduler.zone()).willReturn(ZoneOffset.UTC);
+        morning = save(4, "2031-02-03T09:00:00Z", VisitStatus.SCHEDULED);
+        afternoon = save(4, "2031-02-03T15:00:00Z", VisitStatus.SCHEDULED);
+        closed = save(4, "2031-02-03T11:00:00Z", VisitStatus.CANCELLED);
+        nextDay = save(4, "2031-02-04T09:00:00Z", VisitStatus.SCHEDULED);
+    }
+
+    @Test
+    void completesAScheduledVisitOnlyOnce() {
+        VisitSummary completed = visitService.completeVisit(morning);
+
+        assertThat(completed.status()).isEqualTo(VisitStatus.COMPLETED);
+        assertThat(completed.vetId()).isEqualTo(4);
+        assertThat(events.stream(VisitCompleted.class)).containsExactly(new VisitCompleted(morning, 1, 4));
+
+        assertThatThrownBy(() -> visitService.completeVisit(morning))
+            .isInstanceOf(VisitStatusConflictException.class);
+        assertThatThrownBy(() -> visitService.cancelVisit(morning))
+            .isInstanceOf(VisitStatusConflictException.class);
+        assertThatThrownBy(() -> visitService.cancelVisit(999_999))
+            .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(events.stream(VisitCompleted.class)).hasSize(1);
+        assertThat(events.stream(VisitCancelled.class)).isEmpty();
+    }
+
+    @Test
+    void completesManyVisitsAndReportsTheOthers() {
+        StatusChange change = visitService.completeVisits(List.of(afternoon, closed, morning, 999_999));
+
+        assertThat(change.changed()).containsExactly(morning, afternoon);
+        assertThat(change.conflicting()).containsExactly(closed);
+        assertThat(change.notFound()).containsExactly(999_999);
+        assertThat(events.stream(VisitsCompleted.class)).singleElement()
+            .satisfies(event -> assertThat(event.visits()).extracting(VisitCompleted::visitId)
+                .containsExactly(morning, afternoon));
+        assertThat(events.stream(VisitCompleted.class)).isEmpty();
+        assertThat(visitRepository.findById(closed)).get()
+            .extracting(Visit::getStatus).isEqualTo(VisitStatus.CANCELLED);
+    }
+
+    @Test
+    void cancelsTheScheduledVisitsOfAVetOnADay() {
+        StatusChange change = visitService.cancelVisits(4, LocalDate.of(2031, 2, 3));
+
+        assertThat(change.changed()).containsExactly(morning, afternoon);
+        assertThat(events.stream(VisitsCancelled.class)).singleElement()
+            .satisfies(event -> assertThat(event.visits()).extracting(VisitCancelled::visitId)
+                .containsExactly(morning, afternoon));
+        assertThat(visitRepository.findById(nextDay)).get()
+            .extracting(Visit::getStatus).isEqualTo(VisitStatus.SCHEDULED);
+
+        // Nothing is left to cancel on that day, and no event is published for it
+        assertThat(visitService.cancelVisits(4, LocalDate.of(2031, 2, 3)).changed()).isEmpty();
+        assertThat(events.stream(VisitsCancelled.class)).hasSize(1);
+    }
+
+    private Integer save(Integer vetId, String visitDate, VisitStatus status) {
+        Visit visit = new Visit(1, vetId);
+        visit.setVisitDate(Date.from(Instant.parse(visitDate)));
+        visit.setDurationMinutes(30);
+        visit.setStatus(status);
+        return visitRepository.saveAndFlush(visit).getId();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.Customer;
+import org.springframework.samples.petclinic.customers.CustomerService;
+import org.springframework.samples.petclinic.customers.internal.Pet;
+import org.springframework.samples.petclinic.vets.Vet;
+import org.springframework.samples.petclinic.vets.VetService;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for OwnerDetailsResource REST controller.
+ *
+ * Tests verify that the owner details are assembled from the customers, visits and vets
+ * modules, and that slow or failing sections are reported as missing.
+ *
+ * @author PetClinic Team
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest({OwnerDetailsResource.class, OwnerDetailsAssembler.class})
+@TestPropertySource(properties = "petclinic.owner-details.call-timeout=200ms")
+@ActiveProfiles("test")
+class OwnerDetailsResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    CustomerService customerService;
+
+    @MockBean
+    VisitService visitService;
+
+    @MockBean
+    VetService vetService;
+
+    @BeforeEach
+    void setUp() {
+        Customer owner = new Customer();
+        owner.setId(1);
+        owner.setFirstName("George");
+        owner.setLastName("Franklin");
+        owner.addPet(createPet(1, "Leo"));
+        owner.addPet(createPet(2, "Basil"));
+        given(customerService.findById(1)).willReturn(Optional.of(owner));
+
+        given(visitService.findByPetIds(anyCollection()))
+            .willReturn(Map.of(1, List.of(createVisit(1, 1, 2, "rabies shot")), 2, List.of()));
+        given(vetService.findAll()).willReturn(List.of(createVet(1, "James"), createVet(2, "Helen")));
+    }
+
+    @Test
+    void shouldGetOwnerWithVisitsAndVets() throws Exception {
+        mvc.perform(get("/gateway/owners/1").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.owner.firstName").value("George"))
+            .andExpect(jsonPath("$.owner.pets.length()").value(2))
+            .andExpect(jsonPath("$.visits.1.length()").value(1))
+            .andExpect(jsonPath("$.visits.1[0].description").value("rabies shot"))
+            .andExpect(jsonPath("$.visits.2.length()").value(0))
+            .andExpect(jsonPath("$.vets.length()").value(1))
+            .andExpect(jsonPath("$.vets.2.firstName").value("Helen"))
+            .andExpect(jsonPath("$.missing").isEmpty())
+            .andExpect(jsonPath("$.partial").value(false));
+    }
+
+    @Test
+    void shouldMarkFailedSectionsAsMissing() throws Exception {
+        given(vetService.findAll()).willThrow(new IllegalStateException("vets unavailable"));
+
+        mvc.perform(get("/gateway/owners/1").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.visits.1.length()").value(1))
+            .andExpect(jsonPath("$.vets").isEmpty())
+            .andExpect(jsonPath("$.missing[0]").value("vets"))
+            .andExpect(jsonPath("$.partial").value(true));
+    }
+
+    @Test
+    void shouldMarkSlowSectionsAsMissing() throws Exception {
+        given(visitService.findByPetIds(anyCollection())).willAnswer(invocation -> {
+            Thread.sleep(2000);
+            return Map.of();
+        });
+
+        mvc.perform(get("/gateway/owners/1").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.visits.1.length()").value(0))
+            .andExpect(jsonPath("$.visits.2.length()").value(0))
+            .andExpect(jsonPath("$.vets").isEmpty())
+            .andExpect(jsonPath("$.missing[0]").value("visits"))
+            .andExpect(jsonPath("$.partial").value(true));
+    }
+
+    @Test
+    void shouldInterruptTimedOutCalls() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        given(visitService.findByPetIds(anyCollection())).willAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException ex) {
+                interrupted.countDown();
+                throw ex;
+            }
+            return Map.of();
+        });
+
+        mvc.perform(get("/gateway/owners/1").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.missing[0]").value("visits"));
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownOwner() throws Exception {
+        given(customerService.findById(99)).willReturn(Optional.empty());
+
+        mvc.perform(get("/gateway/owners/99").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnServiceUnavailableWhenOwnerLookupFails() throws Exception {
+        given(customerService.findById(1)).willThrow(new IllegalStateException("database unavailable"));
+
+        mvc.perform(get("/gateway/owners/1").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isServiceUnavailable());
+    }
+
+    private Pet createPet(Integer id, String name) {
+        Pet pet = new Pet();
+        pet.setId(id);
+        pet.setName(name);
+        return pet;
+    }
+
+    private Visit createVisit(Integer id, Integer petId, Integer vetId, String description) {
+        Visit visit = new Visit(petId, vetId);
+        visit.setId(id);
+        visit.setDescription(description);
+        return visit;
+    }
+
+    private Vet createVet(Integer id, String firstName) {
+        Vet vet = new Vet();
+        vet.setId(id);
+        vet.setFirstName(firstName);
+        return vet;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.internal.OwnerSummaryRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for OwnerSummaryResource REST controller.
+ *
+ * Tests verify that listing parameters are turned into a page request with a stable sort order.
+ *
+ * @author PetClinic Team
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(OwnerSummaryResource.class)
+@ActiveProfiles("test")
+class OwnerSummaryResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    OwnerSummaryRepository summaryRepository;
+
+    @Test
+    void shouldListSummariesSortedByName() throws Exception {
+        given(summaryRepository.findAllBy(any(Pageable.class))).willReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 20), true));
+
+        mvc.perform(get("/owner-summaries").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.summaries").isArray())
+            .andExpect(jsonPath("$.page").value(0))
+            .andExpect(jsonPath("$.hasNext").value(true))
+            .andExpect(jsonPath("$.totalCount").doesNotExist());
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(summaryRepository).findAllBy(pageable.capture());
+        assertThat(pageable.getValue().getPageSize()).isEqualTo(20);
+        assertThat(pageable.getValue().getSort()).isEqualTo(Sort.by("lastName", "firstName", "ownerId"));
+        verify(summaryRepository, never()).count();
+    }
+
+    @Test
+    void shouldListSummariesSortedByOpenVisitsWithTotal() throws Exception {
+        given(summaryRepository.findAllBy(any(Pageable.class))).willReturn(new SliceImpl<>(List.of()));
+        given(summaryRepository.count()).willReturn(42L);
+
+        mvc.perform(get("/owner-summaries?page=2&size=10&sort=openVisitCount&direction=desc&includeTotal=true")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.page").value(2))
+            .andExpect(jsonPath("$.totalCount").value(42));
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(summaryRepository).findAllBy(pageable.capture());
+        assertThat(pageable.getValue().getOffset()).isEqualTo(20);
+        assertThat(pageable.getValue().getSort()).isEqualTo(Sort.by(Sort.Direction.DESC, "openVisitCount", "ownerId"));
+    }
+
+    @Test
+    void shouldRejectUnsupportedSort() throws Exception {
+        mvc.perform(get("/owner-summaries?sort=address").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+}
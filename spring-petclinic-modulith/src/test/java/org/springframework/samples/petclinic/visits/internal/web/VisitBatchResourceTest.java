@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.ScheduleResult;
+import org.springframework.samples.petclinic.visits.SlotUnavailableException;
+import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for VisitBatchResource REST controller.
+ * 
+ * @author PetClinic Team
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(VisitBatchResource.class)
+@Import(VisitBatchParser.class)
+@ActiveProfiles("test")
+class VisitBatchResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    VisitService visitService;
+
+    @Test
+    void shouldScheduleValidArrayItemsAndReportTheOthersInOrder() throws Exception {
+        Date alternative = Date.from(Instant.parse("2030-01-07T10:30:00Z"));
+        given(visitService.scheduleAll(anyList())).willAnswer(invocation -> {
+            List<Visit> visits = invocation.getArgument(0);
+            return List.of(
+                ScheduleResult.scheduled(saved(visits.get(0), 1000)),
+                ScheduleResult.rejected(new SlotUnavailableException("Vet 1 is already booked", 1, List.of(alternative))));
+        });
+
+        String body = """
+            [
+              {"petId":7,"vetId":1,"visitDate":"2030-01-07T10:00:00Z","description":"rabies shot"},
+              {"petId":8,"vetId":1,"durationMinutes":0},
+              {"petId":"seven","vetId":1},
+              {"petId":8,"vetId":1,"visitDate":"2030-01-07T10:00:00Z"},
+              {"vetId":2},
+              {"petId":8,"vetId":1,"visitDate":"2030-01-07"}
+            ]
+            """;
+
+        mvc.perform(post("/visits/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.scheduled").value(1))
+            .andExpect(jsonPath("$.failed").value(5))
+            .andExpect(jsonPath("$.results.length()").value(6))
+            .andExpect(jsonPath("$.results[0].index").value(0))
+            .andExpect(jsonPath("$.results[0].visitId").value(1000))
+            .andExpect(jsonPath("$.results[1].index").value(1))
+            .andExpect(jsonPath("$.results[1].error").value("durationMinutes: must be greater than or equal to 1"))
+            .andExpect(jsonPath("$.results[2].error").value(startsWith("malformed visit")))
+            .andExpect(jsonPath("$.results[3].index").value(3))
+            .andExpect(jsonPath("$.results[3].error").value("Vet 1 is already booked"))
+            .andExpect(jsonPath("$.results[3].alternatives[0]").value("2030-01-07T10:30:00.000+00:00"))
+            .andExpect(jsonPath("$.results[4].error").value("petId and vetId are required"))
+            .andExpect(jsonPath("$.results[5].error")
+                .value("malformed visit: visitDate must be an ISO-8601 instant, a plain date has no time of day: 2030-01-07"));
+
+        List<Visit> batch = captureBatches().get(0);
+        assertThat(batch).extracting(Visit::getPetId).containsExactly(7, 8);
+    }
+
+    @Test
+    void shouldReadNdjsonAndScheduleInBatches() throws Exception {
+        given(visitService.scheduleAll(anyList())).willAnswer(invocation -> {
+            List<Visit> visits = invocation.getArgument(0);
+            return visits.stream().map(visit -> ScheduleResult.scheduled(saved(visit, 1000))).toList();
+        });
+
+        StringBuilder body = new StringBuilder();
+        int count = VisitBatchResource.BATCH_SIZE + 10;
+        for (int i = 0; i < count; i++) {
+            body.append("{\"petId\":7,\"vetId\":1,\"id\":42}\n");
+            if (i == 3) {
+                body.append("{\"petId\":7,\n\n");
+            }
+        }
+
+        mvc.perform(post("/visits/batch").contentType(MediaType.APPLICATION_NDJSON).content(body.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.scheduled").value(count))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.results[4].error").value(startsWith("malformed visit")))
+            .andExpect(jsonPath("$.results[5].visitId").value(1000));
+
+        List<List<Visit>> batches = captureBatches();
+        assertThat(batches).extracting(List::size).containsExactly(VisitBatchResource.BATCH_SIZE, 10);
+        assertThat(batches.get(0)).extracting(Visit::getId).containsOnlyNulls();
+    }
+
+    @Test
+    void shouldReportItemsOfAFailingBatch() throws Exception {
+        given(visitService.scheduleAll(anyList())).willThrow(new IllegalStateException("connection lost"));
+
+        mvc.perform(post("/visits/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"petId\":7,\"vetId\":1}]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.scheduled").value(0))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.results[0].error").value("batch rejected by the database"));
+    }
+
+    @Test
+    void shouldRejectOnlyTheItemsTheDatabaseRejects() throws Exception {
+        given(visitService.scheduleAll(anyList())).willAnswer(invocation -> {
+            List<Visit> visits = invocation.getArgument(0);
+            if (visits.stream().anyMatch(visit -> visit.getPetId() == 8)) {
+                throw new DataIntegrityViolationException("could not execute batch",
+                    new SQLException("integrity constraint violation: foreign key no parent", "23503"));
+            }
+            return visits.stream().map(visit -> ScheduleResult.scheduled(saved(visit, 1000 + visit.getPetId()))).toList();
+        });
+
+        String body = """
+            [{"petId":7,"vetId":1},{"petId":8,"vetId":1},{"petId":9,"vetId":1}]
+            """;
+
+        mvc.perform(post("/visits/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.scheduled").value(2))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.results[0].visitId").value(1007))
+            .andExpect(jsonPath("$.results[1].error").value("rejected by the database: constraint violation"))
+            .andExpect(jsonPath("$.results[2].visitId").value(1009));
+    }
+
+    @Test
+    void shouldRejectBodyThatIsNoArray() throws Exception {
+        mvc.perform(post("/visits/batch").contentType(MediaType.APPLICATION_JSON).content("{\"petId\":7,\"vetId\":1}"))
+            .andExpect(status().isBadRequest());
+
+        verify(visitService, never()).scheduleAll(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Visit>> captureBatches() {
+        ArgumentCaptor<List<Visit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(visitService, atLeastOnce()).scheduleAll(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static Visit saved(Visit visit, int id) {
+        Visit saved = new Visit(visit.getPetId(), visit.getVetId());
+        saved.setId(id);
+        return saved;
+    }
+}
@@ -21,19 +21,35 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.SlotUnavailableException;
+import org.springframework.samples.petclinic.visits.StatusChange;
 import org.springframework.samples.petclinic.visits.Visit;
+import org.springframework.samples.petclinic.visits.VisitFilter;
+import org.springframework.samples.petclinic.visits.VisitPage;
 import org.springframework.samples.petclinic.visits.VisitService;
+import org.springframework.samples.petclinic.visits.VisitStats;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.samples.petclinic.visits.VisitStatusConflictException;
+import org.springframework.samples.petclinic.visits.VisitSummary;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -59,8 +75,8 @@ class VisitResourceTest {
     @Test
     void shouldGetAllVisits() throws Exception {
         // Given
-        Visit visit1 = createVisit(1, 1, 1, "Routine checkup", "COMPLETED");
-        Visit visit2 = createVisit(2, 2, 2, "Vaccination", "SCHEDULED");
+        Visit visit1 = createVisit(1, 1, 1, "Routine checkup", VisitStatus.COMPLETED);
+        Visit visit2 = createVisit(2, 2, 2, "Vaccination", VisitStatus.SCHEDULED);
         List<Visit> visits = Arrays.asList(visit1, visit2);
         
         given(visitService.findAll()).willReturn(visits);
@@ -79,10 +95,25 @@ class VisitResourceTest {
             .andExpect(jsonPath("$[1].vetId").value(2));
     }
 
+    @Test
+    void shouldGetVisitsGroupedByPet() throws Exception {
+        // Given
+        given(visitService.findByPetIds(List.of(1, 2))).willReturn(Map.of(
+            1, List.of(createVisit(1, 1, 1, "Routine checkup", VisitStatus.COMPLETED)),
+            2, List.of()));
+
+        // When & Then
+        mvc.perform(get("/visits?petIds=1,2").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.1.length()").value(1))
+            .andExpect(jsonPath("$.1[0].description").value("Routine checkup"))
+            .andExpect(jsonPath("$.2.length()").value(0));
+    }
+
     @Test
     void shouldGetVisitById() throws Exception {
         // Given
-        Visit visit = createVisit(1, 1, 1, "Routine checkup", "COMPLETED");
+        Visit visit = createVisit(1, 1, 1, "Routine checkup", VisitStatus.COMPLETED);
         given(visitService.findById(1)).willReturn(Optional.of(visit));
 
         // When & Then
@@ -107,37 +138,79 @@ class VisitResourceTest {
     }
 
     @Test
-    void shouldGetVisitsByPetId() throws Exception {
+    void shouldGetAPageOfVisitsByPetId() throws Exception {
         // Given
-        Visit visit1 = createVisit(1, 1, 1, "Routine checkup", "COMPLETED");
-        Visit visit2 = createVisit(3, 1, 2, "Vaccination", "SCHEDULED");
-        List<Visit> visits = Arrays.asList(visit1, visit2);
-        
-        given(visitService.findByPetId(1)).willReturn(visits);
+        VisitSummary visit1 = new VisitSummary(1, 1, 1, date("2031-01-07T10:00:00Z"), 30, VisitStatus.COMPLETED);
+        VisitSummary visit2 = new VisitSummary(3, 1, 2, date("2031-02-07T10:00:00Z"), 30, VisitStatus.COMPLETED);
+        VisitFilter filter = new VisitFilter(date("2031-01-01T00:00:00Z"), date("2031-03-01T10:00:00Z"),
+            Set.of(VisitStatus.COMPLETED), false);
+
+        given(visitService.findPageByPetId(1, filter, "abc", 2))
+            .willReturn(new VisitPage(List.of(visit1, visit2), "def"));
 
         // When & Then
-        mvc.perform(get("/visits/pet/1").accept(MediaType.APPLICATION_JSON))
+        mvc.perform(get("/visits/pet/1")
+                .param("from", "2031-01-01").param("to", "2031-03-01T10:00:00Z")
+                .param("status", "COMPLETED").param("cursor", "abc").param("size", "2")
+                .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$.length()").value(2))
-            .andExpect(jsonPath("$[0].petId").value(1))
-            .andExpect(jsonPath("$[1].petId").value(1));
+            .andExpect(jsonPath("$.visits.length()").value(2))
+            .andExpect(jsonPath("$.visits[0].petId").value(1))
+            .andExpect(jsonPath("$.visits[1].id").value(3))
+            .andExpect(jsonPath("$.visits[1].description").doesNotExist())
+            .andExpect(jsonPath("$.nextCursor").value("def"));
     }
 
     @Test
-    void shouldGetVisitsByVetId() throws Exception {
+    void shouldGetVisitsByVetIdNewestFirst() throws Exception {
         // Given
-        Visit visit1 = createVisit(1, 1, 1, "Routine checkup", "COMPLETED");
-        Visit visit2 = createVisit(4, 3, 1, "Skin follow-up", "SCHEDULED");
-        List<Visit> visits = Arrays.asList(visit1, visit2);
-        
-        given(visitService.findByVetId(1)).willReturn(visits);
+        VisitSummary visit = new VisitSummary(4, 3, 1, date("2031-01-07T10:00:00Z"), 30, VisitStatus.SCHEDULED);
+        VisitFilter filter = new VisitFilter(null, null, Set.of(VisitStatus.SCHEDULED, VisitStatus.CANCELLED), true);
+
+        given(visitService.findPageByVetId(1, filter, null, 20))
+            .willReturn(new VisitPage(List.of(visit), null));
 
         // When & Then
-        mvc.perform(get("/visits/vet/1").accept(MediaType.APPLICATION_JSON))
+        mvc.perform(get("/visits/vet/1").param("status", "SCHEDULED,CANCELLED").param("sort", "desc")
+                .accept(MediaType.APPLICATION_JSON))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$.length()").value(2))
-            .andExpect(jsonPath("$[0].vetId").value(1))
-            .andExpect(jsonPath("$[1].vetId").value(1));
+            .andExpect(jsonPath("$.visits[0].vetId").value(1))
+            .andExpect(jsonPath("$.visits[0].status").value("SCHEDULED"))
+            .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectInvalidVisitPageParameters() throws Exception {
+        mvc.perform(get("/visits/vet/1").param("size", "1000"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/visits/vet/1").param("sort", "sideways"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/visits/vet/1").param("from", "yesterday"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/visits/pet/1").param("status", "LOST"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetVisitStats() throws Exception {
+        // Given
+        Date from = date("2031-03-01T00:00:00Z");
+        Date to = date("2031-03-02T00:00:00Z");
+        Map<VisitStatus, Long> counts = new EnumMap<>(Map.of(
+            VisitStatus.SCHEDULED, 2L, VisitStatus.COMPLETED, 1L, VisitStatus.CANCELLED, 0L));
+        given(visitService.countVisits(from, to)).willReturn(new VisitStats(from, to, 3, counts,
+            List.of(new VisitStats.VetCounts(1, 3, counts)),
+            List.of(new VisitStats.DayCounts(LocalDate.of(2031, 3, 1), 3, counts))));
+
+        // When & Then
+        mvc.perform(get("/visits/stats").param("from", "2031-03-01").param("to", "2031-03-02")
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(3))
+            .andExpect(jsonPath("$.byStatus.SCHEDULED").value(2))
+            .andExpect(jsonPath("$.byVet[0].vetId").value(1))
+            .andExpect(jsonPath("$.byDay[0].day").value("2031-03-01"))
+            .andExpect(jsonPath("$.byDay[0].byStatus.COMPLETED").value(1));
     }
 
     @Test
@@ -146,7 +219,7 @@ class VisitResourceTest {
         Visit visit = new Visit(1, 1);
         visit.setDescription("Routine checkup");
         
-        Visit savedVisit = createVisit(1, 1, 1, "Routine checkup", "SCHEDULED");
+        Visit savedVisit = createVisit(1, 1, 1, "Routine checkup", VisitStatus.SCHEDULED);
         given(visitService.scheduleVisit(any(Visit.class))).willReturn(savedVisit);
 
         // When & Then
@@ -160,10 +233,39 @@ class VisitResourceTest {
             .andExpect(jsonPath("$.status").value("SCHEDULED"));
     }
 
+    @Test
+    void shouldReturnConflictWithAlternativesWhenSlotIsTaken() throws Exception {
+        // Given
+        Date alternative = Date.from(Instant.parse("2030-01-07T10:30:00Z"));
+        given(visitService.scheduleVisit(any(Visit.class)))
+            .willThrow(new SlotUnavailableException("Vet 1 is already booked", 1, List.of(alternative)));
+
+        // When & Then
+        mvc.perform(post("/visits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"petId\":1,\"vetId\":1,\"visitDate\":\"2030-01-07T10:00:00Z\",\"durationMinutes\":30}"))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.vetId").value(1))
+            .andExpect(jsonPath("$.alternatives.length()").value(1))
+            .andExpect(jsonPath("$.alternatives[0]").value("2030-01-07T10:30:00.000+00:00"));
+    }
+
+    @Test
+    void shouldRejectVisitDateWithoutTimeOfDay() throws Exception {
+        mvc.perform(post("/visits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"petId\":1,\"vetId\":1,\"visitDate\":\"2030-01-07\",\"durationMinutes\":30}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message")
+                .value("visitDate must be an ISO-8601 instant, a plain date has no time of day: 2030-01-07"));
+
+        verify(visitService, never()).scheduleVisit(any(Visit.class));
+    }
+
     @Test
     void shouldCompleteVisit() throws Exception {
         // Given
-        Visit completedVisit = createVisit(1, 1, 1, "Routine checkup", "COMPLETED");
+        VisitSummary completedVisit = new VisitSummary(1, 1, 1, new Date(), 30, VisitStatus.COMPLETED);
         given(visitService.completeVisit(1)).willReturn(completedVisit);
 
         // When & Then
@@ -183,7 +285,53 @@ class VisitResourceTest {
             .andExpect(status().isNoContent());
     }
 
-    private Visit createVisit(Integer id, Integer petId, Integer vetId, String description, String status) {
+    @Test
+    void shouldAnswerConflictWhenVisitIsNoLongerScheduled() throws Exception {
+        // Given
+        given(visitService.completeVisit(1))
+            .willThrow(new VisitStatusConflictException("Visit 1 is no longer scheduled", 1));
+
+        // When & Then
+        mvc.perform(put("/visits/1/complete").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.message").value("Visit 1 is no longer scheduled"));
+    }
+
+    @Test
+    void shouldCompleteManyVisits() throws Exception {
+        // Given
+        given(visitService.completeVisits(List.of(1, 2, 3)))
+            .willReturn(new StatusChange(VisitStatus.COMPLETED, List.of(1), List.of(2), List.of(3)));
+
+        // When & Then
+        mvc.perform(put("/visits/complete").contentType(MediaType.APPLICATION_JSON).content("[1, 2, 3]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("COMPLETED"))
+            .andExpect(jsonPath("$.changed[0]").value(1))
+            .andExpect(jsonPath("$.conflicting[0]").value(2))
+            .andExpect(jsonPath("$.notFound[0]").value(3));
+
+        mvc.perform(put("/visits/complete").contentType(MediaType.APPLICATION_JSON).content("[]"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldCancelVisitsOfAVetOnADay() throws Exception {
+        // Given
+        given(visitService.cancelVisits(3, LocalDate.of(2024, 5, 1)))
+            .willReturn(new StatusChange(VisitStatus.CANCELLED, List.of(5, 6), List.of(), List.of()));
+
+        // When & Then
+        mvc.perform(put("/visits/cancel").param("vetId", "3").param("day", "2024-05-01"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.changed.length()").value(2));
+    }
+
+    private static Date date(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+
+    private Visit createVisit(Integer id, Integer petId, Integer vetId, String description, VisitStatus status) {
         Visit visit = new Visit(petId, vetId);
         visit.setId(id);
         visit.setDescription(description);
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.internal.web;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.internal.VisitRollup;
+import org.springframework.samples.petclinic.visits.internal.VisitRollupRepository;
+import org.springframework.samples.petclinic.visits.VisitStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for VisitRollupResource REST controller.
+ *
+ * Tests verify that a date range is read from the rollups of all vets or of one, and that
+ * oversized ranges are rejected.
+ *
+ * @author PetClinic Team
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(VisitRollupResource.class)
+@ActiveProfiles("test")
+class VisitRollupResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    VisitRollupRepository rollupRepository;
+
+    @Test
+    void shouldListBucketsOfARange() throws Exception {
+        VisitRollup rollup = mock(VisitRollup.class);
+        given(rollup.getVetId()).willReturn(3);
+        given(rollup.getDay()).willReturn(LocalDate.of(2024, 3, 1));
+        given(rollup.getTotal()).willReturn(5L);
+        given(rollup.count(VisitStatus.COMPLETED)).willReturn(4L);
+        given(rollup.count(VisitStatus.CANCELLED)).willReturn(1L);
+        given(rollupRepository.findByDayRange(LocalDate.of(2022, 1, 1), LocalDate.of(2025, 1, 1)))
+            .willReturn(List.of(rollup));
+
+        mvc.perform(get("/visits/rollups?from=2022-01-01&to=2025-01-01").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.from").value("2022-01-01"))
+            .andExpect(jsonPath("$.buckets[0].vetId").value(3))
+            .andExpect(jsonPath("$.buckets[0].day").value("2024-03-01"))
+            .andExpect(jsonPath("$.buckets[0].total").value(5))
+            .andExpect(jsonPath("$.buckets[0].byStatus.COMPLETED").value(4))
+            .andExpect(jsonPath("$.buckets[0].byStatus.SCHEDULED").value(0));
+    }
+
+    @Test
+    void shouldListBucketsOfOneVet() throws Exception {
+        given(rollupRepository.findByVetAndDayRange(2, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 1)))
+            .willReturn(List.of());
+
+        mvc.perform(get("/visits/rollups?from=2024-01-01&to=2024-02-01&vetId=2").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.buckets").isEmpty());
+
+        verify(rollupRepository, never()).findByDayRange(any(), any());
+    }
+
+    @Test
+    void shouldRejectOversizedAndReversedRanges() throws Exception {
+        mvc.perform(get("/visits/rollups?from=2010-01-01&to=2024-01-01").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/visits/rollups?from=2024-02-01&to=2024-01-01").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/visits/rollups?from=yesterday").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isBadRequest());
+    }
+}